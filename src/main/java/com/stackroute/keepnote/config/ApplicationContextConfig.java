@@ -1,5 +1,6 @@
 package com.stackroute.keepnote.config;
 
+import java.nio.file.Paths;
 import java.util.Properties;
 
 import javax.sql.DataSource;
@@ -10,15 +11,41 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.orm.hibernate5.HibernateTransactionManager;
 import org.springframework.orm.hibernate5.LocalSessionFactoryBean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 
+import com.stackroute.keepnote.dao.AttachmentStore;
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.DeletionJobDAO;
+import com.stackroute.keepnote.dao.NoteArchive;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NotificationDAO;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.model.Attachment;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.ChangeSequence;
+import com.stackroute.keepnote.model.DeletionJob;
+import com.stackroute.keepnote.model.ImportCheckpoint;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBody;
+import com.stackroute.keepnote.model.NoteTombstone;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderNotification;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.model.UserStats;
+import com.stackroute.keepnote.service.DeletionJobServiceImpl;
+import com.stackroute.keepnote.service.FileNotificationSink;
+import com.stackroute.keepnote.service.NoteArchiver;
+import com.stackroute.keepnote.service.NoteSearchIndex;
+import com.stackroute.keepnote.service.NoteTombstonePruner;
+import com.stackroute.keepnote.service.NotificationDispatcher;
+import com.stackroute.keepnote.service.NotificationSink;
+import com.stackroute.keepnote.service.ReminderScheduler;
+import com.stackroute.keepnote.service.UserVersionRegistry;
 
 /*This class will contain the application-context for the application. 
  * Define the following annotations:
@@ -29,6 +56,7 @@ import com.stackroute.keepnote.model.User;
  * @EnableWebMvc - Adding this annotation to an @Configuration class imports the Spring MVC 
  * 				   configuration from WebMvcConfigurationSupport 
  * @EnableTransactionManagement - Enables Spring's annotation-driven transaction management capability.
+ * @EnableScheduling - Runs the @Scheduled methods of the beans, such as the note archiver.
  *                  
  * @EnableAspectJAutoProxy - This spring aop annotation is used to enable @AspectJ support with Java @Configuration  
  * */
@@ -36,6 +64,7 @@ import com.stackroute.keepnote.model.User;
 @ComponentScan("com.stackroute.keepnote.*")
 @EnableWebMvc
 @EnableTransactionManagement
+@EnableScheduling
 public class ApplicationContextConfig {
 
 	/*
@@ -63,6 +92,17 @@ public class ApplicationContextConfig {
 	 * dataSource.setPassword(System.getenv("MYSQL_PASSWORD"));
 	 */
 
+	/*
+	 * Define the bean that translates the exceptions thrown by the @Repository
+	 * DAOs, Hibernate's and JPA's alike, into Spring's DataAccessException
+	 * hierarchy, which is what the services catch. The translator is the
+	 * SessionFactory bean.
+	 */
+	@Bean
+	public static PersistenceExceptionTranslationPostProcessor persistenceExceptionTranslationPostProcessor() {
+		return new PersistenceExceptionTranslationPostProcessor();
+	}
+
 	/*
 	 * create a getter for Hibernate properties here we have to mention 1. show_sql
 	 * 2. Dialect 3. hbm2ddl
@@ -80,12 +120,118 @@ public class ApplicationContextConfig {
 		Properties hibernateProperties = new Properties();
 		hibernateProperties.put("hibernate.show_sql", "true");
 		hibernateProperties.put("hibernate.hbm2ddl.auto", "update");
-		hibernateProperties.put("hibernate.dialect","org.hibernate.dialect.MySQL5Dialect");
-		sessionFactoryBean.setAnnotatedClasses(Category.class,Note.class,Reminder.class,User.class);
+		/* MySQL55Dialect creates the tables as InnoDB; see db/innodb.sql for the existing ones */
+		hibernateProperties.put("hibernate.dialect","org.hibernate.dialect.MySQL55Dialect");
+		hibernateProperties.put("hibernate.jdbc.batch_size", "50");
+		hibernateProperties.put("hibernate.order_inserts", "true");
+		sessionFactoryBean.setAnnotatedClasses(Attachment.class,Category.class,ChangeSequence.class,DeletionJob.class,ImportCheckpoint.class,Note.class,NoteBody.class,NoteTombstone.class,Reminder.class,ReminderNotification.class,User.class,UserStats.class);
 		sessionFactoryBean.setHibernateProperties(hibernateProperties);		
 		return sessionFactoryBean;
 		
 	}
+	/*
+	 * Define the bean for the note archive, the directory on local disk that old
+	 * notes are moved to. It can be set with -Dkeepnote.archive.dir.
+	 */
+	@Bean(destroyMethod = "close")
+	public NoteArchive noteArchive() {
+		String directory = System.getProperty("keepnote.archive.dir",
+				System.getProperty("user.home") + "/keepnote/archive");
+		return new NoteArchive(Paths.get(directory));
+	}
+
+	/*
+	 * Define the bean for the attachment store, the directory on local disk the
+	 * files attached to notes are kept in. It can be set with
+	 * -Dkeepnote.attachment.dir.
+	 */
+	@Bean
+	public AttachmentStore attachmentStore() {
+		String directory = System.getProperty("keepnote.attachment.dir",
+				System.getProperty("user.home") + "/keepnote/attachments");
+		return new AttachmentStore(Paths.get(directory));
+	}
+
+	/*
+	 * Define the bean for the job that archives notes older than
+	 * -Dkeepnote.archive.maxAgeDays (two years by default).
+	 */
+	@Bean
+	@Autowired
+	public NoteArchiver noteArchiver(NoteDAO noteDAO) {
+		return new NoteArchiver(noteDAO, Long.getLong("keepnote.archive.maxAgeDays", 730));
+	}
+
+	/*
+	 * Define the bean for the job that deletes the tombstones of the change feed
+	 * older than -Dkeepnote.changes.retentionDays (30 by default).
+	 */
+	@Bean
+	@Autowired
+	public NoteTombstonePruner noteTombstonePruner(NoteDAO noteDAO) {
+		return new NoteTombstonePruner(noteDAO, Long.getLong("keepnote.changes.retentionDays", 30));
+	}
+
+	/*
+	 * Define the bean for the job that deletes the notes, reminders and categories
+	 * of deleted categories and users, -Dkeepnote.deletion.chunkSize rows per
+	 * transaction (500 by default).
+	 */
+	@Bean(destroyMethod = "close")
+	@Autowired
+	public DeletionJobServiceImpl deletionJobService(DeletionJobDAO deletionJobDAO, CategoryDAO categoryDAO,
+			ReminderDAO reminderDAO, NoteSearchIndex noteSearchIndex, ReminderScheduler reminderScheduler,
+			UserVersionRegistry userVersionRegistry) {
+		return new DeletionJobServiceImpl(deletionJobDAO, categoryDAO, reminderDAO, noteSearchIndex,
+				reminderScheduler, userVersionRegistry, Integer.getInteger("keepnote.deletion.chunkSize", 500));
+	}
+
+	/*
+	 * Define the bean for the scheduler that fires reminders when they are due. It
+	 * ticks every -Dkeepnote.reminder.tickMillis (one second by default) and holds
+	 * the reminders due in the next -Dkeepnote.reminder.horizonMinutes (60 by
+	 * default).
+	 */
+	@Bean(initMethod = "start", destroyMethod = "close")
+	@Autowired
+	public ReminderScheduler reminderScheduler(ReminderDAO reminderDAO, UserVersionRegistry userVersionRegistry) {
+		return new ReminderScheduler(reminderDAO, userVersionRegistry,
+				Long.getLong("keepnote.reminder.tickMillis", 1000),
+				Long.getLong("keepnote.reminder.horizonMinutes", 60) * 60 * 1000);
+	}
+
+	/*
+	 * Define the bean for the sink the notifications of fired reminders are
+	 * delivered to. Until a real gateway is plugged in they are appended to the
+	 * file -Dkeepnote.notification.file.
+	 */
+	@Bean
+	public NotificationSink notificationSink() {
+		String file = System.getProperty("keepnote.notification.file",
+				System.getProperty("user.home") + "/keepnote/notifications.log");
+		return new FileNotificationSink(Paths.get(file));
+	}
+
+	/*
+	 * Define the bean for the dispatcher that delivers the notifications of fired
+	 * reminders: -Dkeepnote.notification.parallelism deliveries at a time (4 by
+	 * default), -Dkeepnote.notification.batchSize notifications per claim (100),
+	 * -Dkeepnote.notification.maxAttempts attempts per notification (8), the first
+	 * retry after -Dkeepnote.notification.backoffSeconds (10), and the outbox
+	 * polled every -Dkeepnote.notification.pollMillis (1000).
+	 */
+	@Bean(initMethod = "start", destroyMethod = "close")
+	@Autowired
+	public NotificationDispatcher notificationDispatcher(NotificationDAO notificationDAO,
+			NotificationSink notificationSink) {
+		return new NotificationDispatcher(notificationDAO, notificationSink,
+				Integer.getInteger("keepnote.notification.parallelism", 4),
+				Integer.getInteger("keepnote.notification.batchSize", 100),
+				Integer.getInteger("keepnote.notification.maxAttempts", 8),
+				Long.getLong("keepnote.notification.backoffSeconds", 10) * 1000,
+				Long.getLong("keepnote.notification.pollMillis", 1000));
+	}
+
 	/*
 	 * Define the bean for Transaction Manager. HibernateTransactionManager handles
 	 * transaction in Spring. The application that uses single hibernate session
@@ -0,0 +1,224 @@
+package com.stackroute.keepnote.controller;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.stackroute.keepnote.exception.AttachmentNotFoundException;
+import com.stackroute.keepnote.exception.AttachmentTooLargeException;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.Attachment;
+import com.stackroute.keepnote.service.AttachmentService;
+
+/*
+ * As in this assignment, we are working with creating RESTful web service, hence annotate
+ * the class with @RestController annotation.A class annotated with @Controller annotation
+ * has handler methods which returns a view. However, if we use @ResponseBody annotation along
+ * with @Controller annotation, it will return the data directly in a serialized 
+ * format. Starting from Spring 4 and above, we can use @RestController annotation which 
+ * is equivalent to using @Controller and @ResposeBody annotation
+ */
+@RestController
+public class AttachmentController {
+
+	/*
+	 * Autowiring should be implemented for the AttachmentService. (Use
+	 * Constructor-based autowiring) Please note that we should not create an
+	 * object using the new keyword
+	 */
+	private AttachmentService attachmentService;
+
+	public AttachmentController(AttachmentService attachmentService) {
+		this.attachmentService = attachmentService;
+	}
+
+	/*
+	 * Define a handler method which will attach a file to a note of the logged in
+	 * user. The request body is the content of the file itself (not a multipart
+	 * form) and is written to disk while it is being received; the Content-Type of
+	 * the request is kept as the type of the file.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 201(CREATED) - If the file is attached. 2. 400(BAD
+	 * REQUEST) - If the file name is missing. 3. 401(UNAUTHORIZED) - If the user
+	 * trying to perform the action has not logged in. 4. 404(NOT FOUND) - If the
+	 * note is not found. 5. 413(PAYLOAD TOO LARGE) - If the file is too large.
+	 * 
+	 * This handler method should map to the URL "/note/{id}/attachments?fileName="
+	 * using HTTP POST method
+	 */
+	@PostMapping("/note/{id}/attachments")
+	public ResponseEntity<?> addAttachment(@PathVariable int id, @RequestParam("fileName") String fileName,
+			HttpServletRequest request, HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<String>("Not found", HttpStatus.UNAUTHORIZED);
+		String name = fileName.substring(Math.max(fileName.lastIndexOf('/'), fileName.lastIndexOf('\\')) + 1).trim();
+		if (name.isEmpty())
+			return new ResponseEntity<String>("Invalid file name", HttpStatus.BAD_REQUEST);
+		String contentType = request.getContentType() == null ? MediaType.APPLICATION_OCTET_STREAM_VALUE
+				: request.getContentType();
+		try {
+			Attachment attachment = attachmentService.addAttachment(id,
+					session.getAttribute("loggedInUserId").toString(), name, contentType, request.getInputStream());
+			return new ResponseEntity<Attachment>(attachment, HttpStatus.CREATED);
+		} catch (NoteNotFoundException e) {
+			return new ResponseEntity<String>("Not found", HttpStatus.NOT_FOUND);
+		} catch (AttachmentTooLargeException e) {
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.PAYLOAD_TOO_LARGE);
+		} catch (IOException e) {
+			return new ResponseEntity<String>("Upload failed", HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/*
+	 * Define a handler method which will list the attachments of a note of the
+	 * logged in user.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the attachments, possibly none. 2.
+	 * 401(UNAUTHORIZED) - If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * This handler method should map to the URL "/note/{id}/attachments" using
+	 * HTTP GET method
+	 */
+	@GetMapping("/note/{id}/attachments")
+	public ResponseEntity<?> getAttachments(@PathVariable int id, HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<String>("Not found", HttpStatus.UNAUTHORIZED);
+		List<Attachment> attachments = attachmentService.getAttachmentsByNoteId(id,
+				session.getAttribute("loggedInUserId").toString());
+		return new ResponseEntity<List<Attachment>>(attachments, HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will send the content of an attachment. The
+	 * file is copied to the response with FileChannel.transferTo, without going
+	 * through a buffer on the heap. A single byte range requested with the Range
+	 * header is answered with 206 and only those bytes; a request for several
+	 * ranges gets the whole file.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the whole file. 2. 206(PARTIAL
+	 * CONTENT) - With the requested range. 3. 401(UNAUTHORIZED) - If the user
+	 * trying to perform the action has not logged in. 4. 404(NOT FOUND) - If the
+	 * attachment is not found. 5. 416(REQUESTED RANGE NOT SATISFIABLE) - If the
+	 * range is not valid for the file.
+	 * 
+	 * This handler method should map to the URL
+	 * "/note/{id}/attachments/{attachmentId}" using HTTP GET method
+	 */
+	@GetMapping("/note/{id}/attachments/{attachmentId}")
+	public ResponseEntity<StreamingResponseBody> getAttachment(@PathVariable int id, @PathVariable int attachmentId,
+			@RequestHeader(value = HttpHeaders.RANGE, required = false) String range, HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<StreamingResponseBody>(HttpStatus.UNAUTHORIZED);
+		Attachment attachment;
+		try {
+			attachment = attachmentService.getAttachmentById(attachmentId, id,
+					session.getAttribute("loggedInUserId").toString());
+		} catch (AttachmentNotFoundException e) {
+			return new ResponseEntity<StreamingResponseBody>(HttpStatus.NOT_FOUND);
+		}
+
+		long size = attachment.getSize();
+		long start = 0;
+		long end = size - 1;
+		HttpStatus status = HttpStatus.OK;
+		HttpHeaders headers = new HttpHeaders();
+		headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+		if (range != null) {
+			List<HttpRange> ranges;
+			try {
+				ranges = HttpRange.parseRanges(range);
+			} catch (IllegalArgumentException e) {
+				ranges = null;
+			}
+			if (ranges != null && ranges.size() == 1) {
+				HttpRange requested = ranges.get(0);
+				try {
+					start = requested.getRangeStart(size);
+					end = requested.getRangeEnd(size);
+				} catch (IllegalArgumentException e) {
+					start = size;
+				}
+				if (start >= size || start > end) {
+					headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+					return new ResponseEntity<StreamingResponseBody>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+				}
+				headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+				status = HttpStatus.PARTIAL_CONTENT;
+			} else if (ranges == null) {
+				headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+				return new ResponseEntity<StreamingResponseBody>(headers, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+			}
+		}
+
+		FileChannel file;
+		try {
+			file = attachmentService.openAttachment(attachment);
+		} catch (IOException e) {
+			return new ResponseEntity<StreamingResponseBody>(HttpStatus.NOT_FOUND);
+		}
+		long position = start;
+		long count = end - start + 1;
+		headers.setContentType(MediaType.parseMediaType(attachment.getContentType()));
+		headers.setContentLength(count);
+		headers.setContentDisposition(
+				ContentDisposition.builder("attachment").filename(attachment.getFileName(), StandardCharsets.UTF_8)
+						.build());
+		StreamingResponseBody body = outputStream -> {
+			try (FileChannel source = file) {
+				WritableByteChannel target = Channels.newChannel(outputStream);
+				long sent = 0;
+				while (sent < count)
+					sent += source.transferTo(position + sent, count - sent, target);
+			}
+		};
+		return new ResponseEntity<StreamingResponseBody>(body, headers, status);
+	}
+
+	/*
+	 * Define a handler method which will delete an attachment of a note of the
+	 * logged in user.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - If the attachment is deleted. 2.
+	 * 401(UNAUTHORIZED) - If the user trying to perform the action has not logged
+	 * in. 3. 404(NOT FOUND) - If the attachment is not found.
+	 * 
+	 * This handler method should map to the URL
+	 * "/note/{id}/attachments/{attachmentId}" using HTTP DELETE method
+	 */
+	@DeleteMapping("/note/{id}/attachments/{attachmentId}")
+	public ResponseEntity<?> deleteAttachment(@PathVariable int id, @PathVariable int attachmentId,
+			HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<String>("Not found", HttpStatus.UNAUTHORIZED);
+		if (attachmentService.deleteAttachment(attachmentId, id, session.getAttribute("loggedInUserId").toString()))
+			return new ResponseEntity<String>("Deleted", HttpStatus.OK);
+		return new ResponseEntity<String>("Not found", HttpStatus.NOT_FOUND);
+	}
+
+}
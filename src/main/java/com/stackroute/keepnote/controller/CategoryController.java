@@ -1,24 +1,31 @@
 package com.stackroute.keepnote.controller;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySuggestion;
+import com.stackroute.keepnote.model.CategorySummary;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.CategoryService;
 
@@ -33,6 +40,9 @@ import com.stackroute.keepnote.service.CategoryService;
 @RestController
 public class CategoryController {
 
+	private static final int DEFAULT_SUGGEST_LIMIT = 10;
+	private static final int MAX_SUGGEST_LIMIT = 100;
+
 	/*
 	 * Autowiring should be implemented for the CategoryService. (Use
 	 * Constructor-based autowiring) Please note that we should not create any
@@ -87,7 +97,7 @@ public class CategoryController {
 	@DeleteMapping("/category/{id}")
     public ResponseEntity<?> deleteCategory(@PathVariable int id, HttpSession session) {
             if(session.getAttribute("loggedInUserId")!=null ) {
-                if(categoryService.deleteCategory(id))
+                if(categoryService.deleteCategory(id, session.getAttribute("loggedInUserId").toString()))
                 	return new ResponseEntity<String>("Deleted Successfully", HttpStatus.OK);
                 else
                 	return new ResponseEntity<String>("Conflict",HttpStatus.NOT_FOUND);
@@ -106,7 +116,9 @@ public class CategoryController {
 	 * messages basis on different situations: 1. 200(OK) - If the category updated
 	 * successfully. 2. 404(NOT FOUND) - If the category with specified categoryId
 	 * is not found. 3. 401(UNAUTHORIZED) - If the user trying to perform the action
-	 * has not logged in.
+	 * has not logged in. 4. 409(CONFLICT) - If the category was changed since the
+	 * version sent in the request body was read. 5. 400(BAD REQUEST) - If the
+	 * request body has no version.
 	 * 
 	 * This handler method should map to the URL "/category/{id}" using HTTP PUT
 	 * method.
@@ -117,6 +129,9 @@ public class CategoryController {
             if (session.getAttribute("loggedInUserId")==null) {
                 return new ResponseEntity<String>("Unauthorized", HttpStatus.UNAUTHORIZED);
             }
+            if (category.getVersion() == null) {
+                return new ResponseEntity<String>("Bad Request", HttpStatus.BAD_REQUEST);
+            }
             Category categoryUpdate = categoryService.updateCategory(category, category.getCategoryId());
             if (categoryUpdate != null)
                 return new ResponseEntity<Category>(category, HttpStatus.OK);
@@ -124,10 +139,42 @@ public class CategoryController {
                 return new ResponseEntity<String>("Not Found", HttpStatus.NOT_FOUND);
         } catch (NullPointerException e) {
             return new ResponseEntity<String>("Unauthorized", HttpStatus.UNAUTHORIZED);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<String>("Conflict", HttpStatus.CONFLICT);
         } catch (Exception e) {
             return new ResponseEntity<String>("Not Found", HttpStatus.NOT_FOUND);
         } 
         
+    }
+
+	/*
+	 * Define a handler method which will update only the fields of a category that
+	 * are sent in the request body, e.g. {"categoryName": "..."}. The other
+	 * columns are left untouched in the database. This handler method should
+	 * return any one of the status messages basis on different situations: 1.
+	 * 200(OK) - If the category updated successfully. 2. 400(BAD REQUEST) - If a
+	 * field is unknown, cannot be changed or has an invalid value. 3. 404(NOT
+	 * FOUND) - If the category with specified id is not found. 4. 401(UNAUTHORIZED)
+	 * - If the user trying to perform the action has not logged in. 5.
+	 * 409(CONFLICT) - If a "version" is sent and the category has changed since.
+	 * 
+	 * This handler method should map to the URL "/category/{id}" using HTTP PATCH method.
+	 */
+	@PatchMapping("/category/{id}")
+    public ResponseEntity<?> patchCategory(@PathVariable int id, @RequestBody Map<String, Object> fields,
+            HttpSession session) {
+        if (session.getAttribute("loggedInUserId")==null)
+            return new ResponseEntity<String>("Unauthorized", HttpStatus.UNAUTHORIZED);
+        try {
+            Category category = categoryService.patchCategory(id, session.getAttribute("loggedInUserId").toString(), fields);
+            return new ResponseEntity<Category>(category, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (CategoryNotFoundException e) {
+            return new ResponseEntity<String>("Not Found", HttpStatus.NOT_FOUND);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<String>("Conflict", HttpStatus.CONFLICT);
+        }
     }
 
 	/*
@@ -136,14 +183,26 @@ public class CategoryController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the category found successfully. 2.
 	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
-	 * in.
+	 * in. 3. 304(NOT MODIFIED) - If the ETag sent in If-None-Match is still
+	 * current, in which case the categories are not read at all.
 	 * 
+	 * With "?withCounts=true" every category is returned with the number of notes
+	 * in it, counted by the same query that reads the categories.
 	 * 
-	 * This handler method should map to the URL "/category" using HTTP GET method
+	 * This handler method should map to the URL "/category?withCounts=" using HTTP
+	 * GET method
 	 */
 	@GetMapping("/category")
-    public ResponseEntity<?> getCategoryById(HttpSession session) {
+    public ResponseEntity<?> getCategoryById(@RequestParam(value = "withCounts", defaultValue = "false") boolean withCounts,
+    		HttpSession session, WebRequest webRequest) {
         if (session!=null && session.getAttribute("loggedInUserId") != null) {
+			if (webRequest.checkNotModified(categoryService.getVersionTag(session.getAttribute("loggedInUserId").toString())))
+				return null;
+			if (withCounts) {
+				List<CategorySummary> summaries = categoryService
+						.getCategorySummariesByUserId(session.getAttribute("loggedInUserId").toString());
+				return new ResponseEntity<List<CategorySummary>>(summaries, HttpStatus.OK);
+			}
 			List<Category> categories = categoryService.getAllCategoryByUserId(session.getAttribute("loggedInUserId").toString());
 			return new ResponseEntity<List<Category>>(categories, HttpStatus.OK);
 
@@ -152,4 +211,30 @@ public class CategoryController {
 	}
     }
 
+	/*
+	 * Define a handler method which will return the categories of the logged in
+	 * user whose name starts with "prefix", ignoring case, in alphabetical order.
+	 * It backs the autocompletion of the note editor and is answered from memory.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the matching categories, possibly
+	 * none. 2. 400(BAD REQUEST) - If the limit is not valid. 3. 401(UNAUTHORIZED) -
+	 * If the user trying to perform the action has not logged in.
+	 * 
+	 * This handler method should map to the URL "/category/suggest" using HTTP GET
+	 * method
+	 */
+	@GetMapping("/category/suggest")
+	public ResponseEntity<?> suggestCategories(@RequestParam(value = "prefix", defaultValue = "") String prefix,
+			@RequestParam(value = "limit", required = false) Integer limit, HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<String>("Not logged in", HttpStatus.UNAUTHORIZED);
+		int resultSize = limit == null ? DEFAULT_SUGGEST_LIMIT : limit;
+		if (resultSize < 1 || resultSize > MAX_SUGGEST_LIMIT)
+			return new ResponseEntity<String>("Invalid limit", HttpStatus.BAD_REQUEST);
+		List<CategorySuggestion> suggestions = categoryService
+				.suggestCategories(session.getAttribute("loggedInUserId").toString(), prefix, resultSize);
+		return new ResponseEntity<List<CategorySuggestion>>(suggestions, HttpStatus.OK);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.stackroute.keepnote.controller;
+
+import java.util.List;
+
+import javax.servlet.http.HttpSession;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.exception.DeletionJobNotFoundException;
+import com.stackroute.keepnote.model.DeletionJob;
+import com.stackroute.keepnote.service.DeletionJobService;
+
+/*
+ * As in this assignment, we are working with creating RESTful web service, hence annotate
+ * the class with @RestController annotation.A class annotated with @Controller annotation
+ * has handler methods which returns a view. However, if we use @ResponseBody annotation along
+ * with @Controller annotation, it will return the data directly in a serialized 
+ * format. Starting from Spring 4 and above, we can use @RestController annotation which 
+ * is equivalent to using @Controller and @ResposeBody annotation
+ */
+@RestController
+public class DeletionController {
+
+	/*
+	 * Autowiring should be implemented for the DeletionJobService. (Use
+	 * Constructor-based autowiring) Please note that we should not create an
+	 * object using the new keyword
+	 */
+	private DeletionJobService deletionJobService;
+
+	public DeletionController(DeletionJobService deletionJobService) {
+		this.deletionJobService = deletionJobService;
+	}
+
+	/*
+	 * Define a handler method which will return the deletion jobs of the logged in
+	 * user, newest first, with how many notes, reminders and categories each has
+	 * deleted so far.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the jobs of the user. 2.
+	 * 401(UNAUTHORIZED) - If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * This handler method should map to the URL "/deletion" using HTTP GET method
+	 */
+	@GetMapping("/deletion")
+	public ResponseEntity<?> getDeletionJobs(HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<String>("Not found", HttpStatus.UNAUTHORIZED);
+		List<DeletionJob> jobs = deletionJobService
+				.getDeletionJobs(session.getAttribute("loggedInUserId").toString());
+		return new ResponseEntity<List<DeletionJob>>(jobs, HttpStatus.OK);
+	}
+
+	/*
+	 * Define a handler method which will return the progress of a deletion job of
+	 * the logged in user.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the job. 2. 401(UNAUTHORIZED) - If
+	 * the user trying to perform the action has not logged in. 3. 404(NOT FOUND) -
+	 * If the job is not found.
+	 * 
+	 * This handler method should map to the URL "/deletion/{jobId}" using HTTP GET
+	 * method
+	 */
+	@GetMapping("/deletion/{jobId}")
+	public ResponseEntity<?> getDeletionJob(@PathVariable int jobId, HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<String>("Not found", HttpStatus.UNAUTHORIZED);
+		try {
+			DeletionJob job = deletionJobService.getDeletionJobById(jobId,
+					session.getAttribute("loggedInUserId").toString());
+			return new ResponseEntity<DeletionJob>(job, HttpStatus.OK);
+		} catch (DeletionJobNotFoundException e) {
+			return new ResponseEntity<String>("Not found", HttpStatus.NOT_FOUND);
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+package com.stackroute.keepnote.controller;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpSession;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.stackroute.keepnote.service.CategoryService;
+import com.stackroute.keepnote.service.NoteService;
+import com.stackroute.keepnote.service.ReminderService;
+
+/*
+ * As in this assignment, we are working with creating RESTful web service, hence annotate
+ * the class with @RestController annotation.A class annotated with @Controller annotation
+ * has handler methods which returns a view. However, if we use @ResponseBody annotation along
+ * with @Controller annotation, it will return the data directly in a serialized 
+ * format. Starting from Spring 4 and above, we can use @RestController annotation which 
+ * is equivalent to using @Controller and @ResposeBody annotation
+ */
+@RestController
+public class ExportController {
+
+	static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+	/*
+	 * Every line of the export is a separate JSON document, so no separator is
+	 * written between them by the generator; the line break is written after each
+	 * one instead. As for the other streaming handlers, the generator is only
+	 * flushed when its buffer is full.
+	 */
+	private static final ObjectMapper EXPORT_MAPPER = new ObjectMapper(new JsonFactory().setRootValueSeparator(null))
+			.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+	/*
+	 * Autowiring should be implemented for the NoteService, CategoryService and
+	 * ReminderService. (Use Constructor-based autowiring) Please note that we
+	 * should not create an object using the new keyword
+	 */
+	private NoteService noteService;
+	private CategoryService categoryService;
+	private ReminderService reminderService;
+
+	public ExportController(NoteService noteService, CategoryService categoryService,
+			ReminderService reminderService) {
+		this.noteService = noteService;
+		this.categoryService = categoryService;
+		this.reminderService = reminderService;
+	}
+
+	/*
+	 * Define a handler method which will export everything the logged in user has
+	 * as newline-delimited JSON: one line {"type":"category","data":{...}} per
+	 * category, then the reminders, then the notes including the archived ones.
+	 * Categories and reminders come first so that a note can be imported after the
+	 * category and reminder it refers to. Every kind is read through a database
+	 * cursor and written out row by row, so the memory used does not depend on the
+	 * size of the account.
+	 * 
+	 * The export is gzip-compressed when the client accepts it (Accept-Encoding:
+	 * gzip).
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - If the export is streamed. 2.
+	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * This handler method should map to the URL "/export" using HTTP GET method
+	 */
+	@GetMapping("/export")
+	public ResponseEntity<StreamingResponseBody> exportWorkspace(
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+			HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<StreamingResponseBody>(HttpStatus.UNAUTHORIZED);
+		String userId = session.getAttribute("loggedInUserId").toString();
+		boolean gzip = acceptsGzip(acceptEncoding);
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(APPLICATION_NDJSON);
+		headers.setContentDisposition(
+				ContentDisposition.builder("attachment").filename("keepnote-export.ndjson").build());
+		headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (gzip)
+			headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+		StreamingResponseBody body = outputStream -> {
+			OutputStream target = gzip ? new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE) : outputStream;
+			try (JsonGenerator generator = EXPORT_MAPPER.getFactory().createGenerator(target)) {
+				categoryService.streamCategoriesByUserId(userId, category -> writeLine(generator, "category", category));
+				reminderService.streamRemindersByUserId(userId, reminder -> writeLine(generator, "reminder", reminder));
+				noteService.streamNotesByUserId(userId, note -> writeLine(generator, "note", note));
+			}
+		};
+		return new ResponseEntity<StreamingResponseBody>(body, headers, HttpStatus.OK);
+	}
+
+	private static void writeLine(JsonGenerator generator, String type, Object value) {
+		try {
+			generator.writeStartObject();
+			generator.writeStringField("type", type);
+			generator.writeFieldName("data");
+			EXPORT_MAPPER.writeValue(generator, value);
+			generator.writeEndObject();
+			generator.writeRaw('\n');
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null)
+			return false;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.trim().split(";");
+			if (parts[0].trim().equalsIgnoreCase("gzip"))
+				return parts.length < 2 || !parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.stackroute.keepnote.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.exception.ImportNotFoundException;
+import com.stackroute.keepnote.model.ImportCheckpoint;
+import com.stackroute.keepnote.service.ImportService;
+
+/*
+ * As in this assignment, we are working with creating RESTful web service, hence annotate
+ * the class with @RestController annotation.A class annotated with @Controller annotation
+ * has handler methods which returns a view. However, if we use @ResponseBody annotation along
+ * with @Controller annotation, it will return the data directly in a serialized 
+ * format. Starting from Spring 4 and above, we can use @RestController annotation which 
+ * is equivalent to using @Controller and @ResposeBody annotation
+ */
+@RestController
+public class ImportController {
+
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+	private static final int MAX_IMPORT_ID_LENGTH = 64;
+
+	/*
+	 * Autowiring should be implemented for the ImportService. (Use
+	 * Constructor-based autowiring) Please note that we should not create an
+	 * object using the new keyword
+	 */
+	private ImportService importService;
+
+	public ImportController(ImportService importService) {
+		this.importService = importService;
+	}
+
+	/*
+	 * Define a handler method which will import an export made by GET /export into
+	 * the account of the logged in user. The request body is the NDJSON itself,
+	 * gzip-compressed if the request says so with Content-Encoding. The import is
+	 * committed in chunks; the response carries its importId, and a failed import
+	 * sent again with "?importId=" continues after the last committed line. The
+	 * progress of a running import can be read with GET /import/{importId}.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - If the import is complete. 2. 400(BAD
+	 * REQUEST) - If a line cannot be imported. 3. 401(UNAUTHORIZED) - If the user
+	 * trying to perform the action has not logged in. 4. 409(CONFLICT) - If the
+	 * same import is already running.
+	 * 
+	 * This handler method should map to the URL "/import?importId=" using HTTP POST
+	 * method
+	 */
+	@PostMapping("/import")
+	public ResponseEntity<?> importWorkspace(@RequestParam(value = "importId", required = false) String importId,
+			HttpServletRequest request, HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<String>("Not found", HttpStatus.UNAUTHORIZED);
+		if (importId == null)
+			importId = UUID.randomUUID().toString();
+		else if (importId.isEmpty() || importId.length() > MAX_IMPORT_ID_LENGTH)
+			return new ResponseEntity<String>("Invalid import id", HttpStatus.BAD_REQUEST);
+		try {
+			InputStream content = request.getInputStream();
+			if ("gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING)))
+				content = new GZIPInputStream(content, GZIP_BUFFER_SIZE);
+			ImportCheckpoint checkpoint = importService.importWorkspace(
+					session.getAttribute("loggedInUserId").toString(), importId, content);
+			return new ResponseEntity<ImportCheckpoint>(checkpoint, HttpStatus.OK);
+		} catch (IllegalArgumentException e) {
+			return new ResponseEntity<String>(e.getMessage() + " (importId " + importId + ")",
+					HttpStatus.BAD_REQUEST);
+		} catch (ObjectOptimisticLockingFailureException | DataIntegrityViolationException e) {
+			return new ResponseEntity<String>("Import is already running", HttpStatus.CONFLICT);
+		} catch (IOException e) {
+			return new ResponseEntity<String>("Import failed (importId " + importId + ")",
+					HttpStatus.INTERNAL_SERVER_ERROR);
+		}
+	}
+
+	/*
+	 * Define a handler method which will return the progress of an import of the
+	 * logged in user.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the checkpoint of the import. 2.
+	 * 401(UNAUTHORIZED) - If the user trying to perform the action has not logged
+	 * in. 3. 404(NOT FOUND) - If the import is not found.
+	 * 
+	 * This handler method should map to the URL "/import/{importId}" using HTTP GET
+	 * method
+	 */
+	@GetMapping("/import/{importId}")
+	public ResponseEntity<?> getImport(@PathVariable String importId, HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<String>("Not found", HttpStatus.UNAUTHORIZED);
+		try {
+			ImportCheckpoint checkpoint = importService.getImportCheckpoint(importId,
+					session.getAttribute("loggedInUserId").toString());
+			return new ResponseEntity<ImportCheckpoint>(checkpoint, HttpStatus.OK);
+		} catch (ImportNotFoundException e) {
+			return new ResponseEntity<String>("Not found", HttpStatus.NOT_FOUND);
+		}
+	}
+
+}
@@ -1,25 +1,47 @@
 package com.stackroute.keepnote.controller;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.exception.ChangeTokenExpiredException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteChanges;
+import com.stackroute.keepnote.model.NoteFilter;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSearchResult;
+import com.stackroute.keepnote.model.NoteSummary;
 import com.stackroute.keepnote.service.NoteService;
 
 /*
@@ -33,6 +55,19 @@ import com.stackroute.keepnote.service.NoteService;
 @RestController
 public class NoteController {
 
+	private static final int DEFAULT_PAGE_SIZE = 50;
+	private static final int MAX_PAGE_SIZE = 500;
+	private static final int DEFAULT_SEARCH_LIMIT = 20;
+	private static final int MAX_BATCH_SIZE = 1000;
+
+	/*
+	 * Used by the streaming handlers. Flushing after every note would turn each
+	 * note into its own write on the socket, so the generator is left to flush
+	 * whenever its buffer fills up.
+	 */
+	private static final ObjectMapper STREAM_MAPPER = new ObjectMapper()
+			.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
 	/*
 	 * Autowiring should be implemented for the NoteService. (Use Constructor-based
 	 * autowiring) Please note that we should not create any object using the new
@@ -80,6 +115,37 @@ public class NoteController {
             return new ResponseEntity<String>("No match found", HttpStatus.UNAUTHORIZED);
         }
     }
+	/*
+	 * Define a handler method which will create several notes at once by reading a
+	 * serialized array of notes from the request body. The notes are validated and
+	 * saved together and the response holds one result per note, in request order,
+	 * with a status of its own as described in NoteBatchResult. This handler method
+	 * should return any one of the status messages basis on different situations:
+	 * 1. 201(CREATED) - If every note was created. 2. 207(MULTI STATUS) - If some
+	 * notes could not be created. 3. 400(BAD REQUEST) - If the batch is empty or
+	 * too large. 4. 401(UNAUTHORIZED) - If the user trying to perform the action
+	 * has not logged in.
+	 * 
+	 * This handler method should map to the URL "/note/batch" using HTTP POST
+	 * method
+	 */
+	@PostMapping("/note/batch")
+	public ResponseEntity<?> createNotes(@RequestBody List<Note> notes, HttpSession session){
+		if(session!=null&&session.getAttribute("loggedInUserId")!=null) {
+			if(notes.isEmpty() || notes.size()>MAX_BATCH_SIZE)
+				return new ResponseEntity<String>("Invalid batch size", HttpStatus.BAD_REQUEST);
+			List<NoteBatchResult> results = noteService.createNotes(notes,
+					session.getAttribute("loggedInUserId").toString());
+			for(NoteBatchResult result : results) {
+				if(result.getStatus()!=HttpStatus.CREATED.value())
+					return new ResponseEntity<List<NoteBatchResult>>(results, HttpStatus.MULTI_STATUS);
+			}
+			return new ResponseEntity<List<NoteBatchResult>>(results, HttpStatus.CREATED);
+		}else {
+			return new ResponseEntity<String>("Not logged in", HttpStatus.UNAUTHORIZED);
+		}
+	}
+
 	/*
 	 * Define a handler method which will delete a note from a database.
 	 * 
@@ -96,7 +162,7 @@ public class NoteController {
 	public ResponseEntity<?> deleteNote(@PathVariable int id, HttpSession session){
 		try {
 		if(session!=null&&session.getAttribute("loggedInUserId")!=null) {
-			if(noteService.deleteNote(id))
+			if(noteService.deleteNote(id, session.getAttribute("loggedInUserId").toString()))
 				return new ResponseEntity<String>("Deleted", HttpStatus.OK);
 			else
 				throw new NoteNotFoundException("NoteNotFoundException");
@@ -115,26 +181,64 @@ public class NoteController {
 	 * the loggedIn userID should be taken as the createdBy for the note. This
 	 * handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the note updated successfully. 2.
-	 * 404(NOT FOUND) - If the note with specified noteId is not found. 3.
-	 * 401(UNAUTHORIZED) - If the user trying to perform the action has not logged
-	 * in.
+	 * 404(NOT FOUND) - If the note with specified noteId is not found, or belongs
+	 * to another user. 3. 401(UNAUTHORIZED) - If the user trying to perform the
+	 * action has not logged in. 4. 409(CONFLICT) - If the note was changed since
+	 * the version sent in the request body was read. 5. 400(BAD REQUEST) - If the
+	 * request body has no version.
+	 * 
+	 * The note is the one in the path, and its owner is always the logged in
+	 * user; the noteId and createdBy in the request body are ignored.
 	 * 
 	 * This handler method should map to the URL "/note/{id}" using HTTP PUT method.
 	 */
 	@PutMapping("/note/{id}")
-	public ResponseEntity<?> updateNote(@RequestBody Note note, HttpSession session){
+	public ResponseEntity<?> updateNote(@PathVariable int id, @RequestBody Note note, HttpSession session){
+		if(session==null || session.getAttribute("loggedInUserId")==null)
+			return new ResponseEntity<String>("Note not found", HttpStatus.UNAUTHORIZED);
+		if(note.getVersion()==null)
+			return new ResponseEntity<String>("Note version is required", HttpStatus.BAD_REQUEST);
+		note.setNoteId(id);
+		note.setCreatedBy(session.getAttribute("loggedInUserId").toString());
 		try {
-		if(session!=null && session.getAttribute("loggedInUserId")!=null&&session.getAttribute("loggedInUserId").equals(note.getCreatedBy())) {
-			if(noteService.updateNote(note, note.getNoteId())!=null)
+			if(noteService.updateNote(note, id)!=null)
 				return new ResponseEntity<Note>(note, HttpStatus.OK);
 			else
-				throw new Exception("Not found");
-				
-		}else {
-			return new ResponseEntity<String>("Note not found", HttpStatus.UNAUTHORIZED);
+				return new ResponseEntity<String>("Note not found", HttpStatus.NOT_FOUND);
+		}catch(OptimisticLockingFailureException e) {
+			return new ResponseEntity<String>("Note was changed by someone else", HttpStatus.CONFLICT);
+		}catch(NoteNotFoundException | CategoryNotFoundException | ReminderNotFoundException e) {
+			return new ResponseEntity<String>("Note not found", HttpStatus.NOT_FOUND);
 		}
-		}catch(Exception e) {
+	}
+	/*
+	 * Define a handler method which will update only the fields of a note that
+	 * are sent in the request body, e.g. {"noteStatus": "..."}. The other
+	 * columns are left untouched in the database. This handler method should
+	 * return any one of the status messages basis on different situations: 1.
+	 * 200(OK) - If the note updated successfully. 2. 400(BAD REQUEST) - If a
+	 * field is unknown, cannot be changed or has an invalid value. 3. 404(NOT
+	 * FOUND) - If the note with specified id is not found, or the category or
+	 * reminder sent is not one of the user's. 4. 401(UNAUTHORIZED)
+	 * - If the user trying to perform the action has not logged in. 5.
+	 * 409(CONFLICT) - If a "version" is sent and the note has changed since.
+	 * 
+	 * This handler method should map to the URL "/note/{id}" using HTTP PATCH method.
+	 */
+	@PatchMapping("/note/{id}")
+	public ResponseEntity<?> patchNote(@PathVariable int id, @RequestBody Map<String, Object> fields,
+			HttpSession session) {
+		if(session==null || session.getAttribute("loggedInUserId")==null)
+			return new ResponseEntity<String>("Unauthorized", HttpStatus.UNAUTHORIZED);
+		try {
+			Note note = noteService.patchNote(id, session.getAttribute("loggedInUserId").toString(), fields);
+			return new ResponseEntity<Note>(note, HttpStatus.OK);
+		}catch(IllegalArgumentException e) {
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		}catch(NoteNotFoundException | CategoryNotFoundException | ReminderNotFoundException e) {
 			return new ResponseEntity<String>("Note not found", HttpStatus.NOT_FOUND);
+		}catch(OptimisticLockingFailureException e) {
+			return new ResponseEntity<String>("Note was changed by someone else", HttpStatus.CONFLICT);
 		}
 	}
 	/*
@@ -143,17 +247,181 @@ public class NoteController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the note found successfully. 2.
 	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
-	 * in.
+	 * in. 3. 400(BAD REQUEST) - If the cursor, the limit or the date range is not
+	 * valid. 4. 304(NOT MODIFIED) - If the ETag sent in If-None-Match is still
+	 * current.
+	 * 
+	 * When "after" or "limit" is passed the notes are returned one page at a time
+	 * together with the cursor for the next page.
+	 * 
+	 * The notes can be filtered by "status", by creation time with "from"
+	 * (inclusive) and "to" (exclusive), both in milliseconds like noteCreatedAt in
+	 * the JSON, and by "categoryId" and "reminderId". The filter is part of the
+	 * database query, only matching notes are read.
 	 * 
+	 * The ETag is the version of the user's data, it is checked before the notes
+	 * are read so that an unchanged list costs no query at all.
 	 * 
 	 * This handler method should map to the URL "/note" using HTTP GET method
 	 */
 	@GetMapping("/note")
-	public ResponseEntity<?> getNotesByUserId(HttpSession session){
+	public ResponseEntity<?> getNotesByUserId(@RequestParam(value = "after", required = false) String after,
+			@RequestParam(value = "limit", required = false) Integer limit,
+			@RequestParam(value = "status", required = false) String status,
+			@RequestParam(value = "from", required = false) Long from,
+			@RequestParam(value = "to", required = false) Long to,
+			@RequestParam(value = "categoryId", required = false) Integer categoryId,
+			@RequestParam(value = "reminderId", required = false) Integer reminderId, HttpSession session,
+			WebRequest webRequest){
 		if(session!=null&&session.getAttribute("loggedInUserId")!=null) {
-			List<Note> notes = noteService.getAllNotesByUserId(session.getAttribute("loggedInUserId").toString());
-			return new ResponseEntity<List<Note>>(notes, HttpStatus.OK);
+			String userId = session.getAttribute("loggedInUserId").toString();
+			if(limit!=null && (limit<1 || limit>MAX_PAGE_SIZE))
+				return new ResponseEntity<String>("Invalid limit", HttpStatus.BAD_REQUEST);
+			if(from!=null && to!=null && from>to)
+				return new ResponseEntity<String>("Invalid date range", HttpStatus.BAD_REQUEST);
+			if(webRequest.checkNotModified(noteService.getVersionTag(userId)))
+				return null;
+			NoteFilter filter = new NoteFilter(status, from==null ? null : new Date(from), to==null ? null : new Date(to),
+					categoryId, reminderId);
+			if(after==null && limit==null) {
+				List<Note> notes = filter.isEmpty() ? noteService.getAllNotesByUserId(userId)
+						: noteService.getNotesByUserId(userId, filter);
+				return new ResponseEntity<List<Note>>(notes, HttpStatus.OK);
+			}
+			int pageSize = limit==null ? DEFAULT_PAGE_SIZE : limit;
+			try {
+				NotePage page = filter.isEmpty() ? noteService.getNotesByUserId(userId, after, pageSize)
+						: noteService.getNotesByUserId(userId, filter, after, pageSize);
+				return new ResponseEntity<NotePage>(page, HttpStatus.OK);
+			}catch(IllegalArgumentException e) {
+				return new ResponseEntity<String>("Invalid cursor", HttpStatus.BAD_REQUEST);
+			}
+		}else {
+			return new ResponseEntity<String>("Not found",HttpStatus.UNAUTHORIZED);
+		}
+	}
 
+	/*
+	 * Define a handler method which will get the summaries of the notes of the
+	 * logged in user: noteId, title, status, creation date and category name. It
+	 * is meant for the note list, which does not need the content, category or
+	 * reminder of every note.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - If the summaries are found. 2.
+	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
+	 * in. 3. 304(NOT MODIFIED) - If the ETag sent in If-None-Match is still
+	 * current.
+	 * 
+	 * This handler method should map to the URL "/note/summary" using HTTP GET
+	 * method
+	 */
+	@GetMapping("/note/summary")
+	public ResponseEntity<?> getNoteSummariesByUserId(HttpSession session, WebRequest webRequest){
+		if(session!=null&&session.getAttribute("loggedInUserId")!=null) {
+			String userId = session.getAttribute("loggedInUserId").toString();
+			if(webRequest.checkNotModified(noteService.getVersionTag(userId)))
+				return null;
+			List<NoteSummary> summaries = noteService.getNoteSummariesByUserId(userId);
+			return new ResponseEntity<List<NoteSummary>>(summaries, HttpStatus.OK);
+		}else {
+			return new ResponseEntity<String>("Not found",HttpStatus.UNAUTHORIZED);
+		}
+	}
+
+	/*
+	 * Define a handler method which will get the notes of the logged in user that
+	 * were created, updated or deleted since the "since" token returned by the
+	 * previous call, together with the token for the next call. Without "since"
+	 * all notes are returned.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the changes, possibly none. 2.
+	 * 400(BAD REQUEST) - If the token is not valid. 3. 401(UNAUTHORIZED) -If the
+	 * user trying to perform the action has not logged in. 4. 410(GONE) - If the
+	 * token is older than the retention of the feed; the client has to call
+	 * again without "since".
+	 * 
+	 * This handler method should map to the URL "/note/changes" using HTTP GET
+	 * method
+	 */
+	@GetMapping("/note/changes")
+	public ResponseEntity<?> getNoteChanges(@RequestParam(value = "since", required = false) String since,
+			HttpSession session){
+		if(session!=null&&session.getAttribute("loggedInUserId")!=null) {
+			try {
+				NoteChanges changes = noteService.getNoteChanges(session.getAttribute("loggedInUserId").toString(),
+						since);
+				return new ResponseEntity<NoteChanges>(changes, HttpStatus.OK);
+			}catch(IllegalArgumentException e) {
+				return new ResponseEntity<String>("Invalid token", HttpStatus.BAD_REQUEST);
+			}catch(ChangeTokenExpiredException e) {
+				return new ResponseEntity<String>("Token expired", HttpStatus.GONE);
+			}
+		}else {
+			return new ResponseEntity<String>("Not found",HttpStatus.UNAUTHORIZED);
+		}
+	}
+
+	/*
+	 * Define a handler method which will stream the notes of the logged in user as
+	 * a JSON array. The notes are written to the response one at a time while they
+	 * are read from the database, so neither the list of notes nor its JSON tree is
+	 * ever held in memory.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - If the notes are streamed. 2.
+	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * This handler method should map to the URL "/note/stream" using HTTP GET
+	 * method
+	 */
+	@GetMapping("/note/stream")
+	public ResponseEntity<StreamingResponseBody> streamNotesByUserId(HttpSession session){
+		if(session!=null&&session.getAttribute("loggedInUserId")!=null) {
+			String userId = session.getAttribute("loggedInUserId").toString();
+			StreamingResponseBody body = outputStream -> {
+				try (JsonGenerator generator = STREAM_MAPPER.getFactory().createGenerator(outputStream)) {
+					generator.writeStartArray();
+					noteService.streamNotesByUserId(userId, note -> {
+						try {
+							STREAM_MAPPER.writeValue(generator, note);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+					generator.writeEndArray();
+				}
+			};
+			return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(body);
+		}else {
+			return new ResponseEntity<StreamingResponseBody>(HttpStatus.UNAUTHORIZED);
+		}
+	}
+
+	/*
+	 * Define a handler method which will search the notes of the logged in user
+	 * for the words in "q" and return the best matches first.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the matching notes, possibly none. 2.
+	 * 400(BAD REQUEST) - If the limit is not valid. 3. 401(UNAUTHORIZED) -If the
+	 * user trying to perform the action has not logged in.
+	 * 
+	 * This handler method should map to the URL "/note/search" using HTTP GET
+	 * method
+	 */
+	@GetMapping("/note/search")
+	public ResponseEntity<?> searchNotes(@RequestParam("q") String query,
+			@RequestParam(value = "limit", required = false) Integer limit, HttpSession session){
+		if(session!=null&&session.getAttribute("loggedInUserId")!=null) {
+			int resultSize = limit==null ? DEFAULT_SEARCH_LIMIT : limit;
+			if(resultSize<1 || resultSize>MAX_PAGE_SIZE)
+				return new ResponseEntity<String>("Invalid limit", HttpStatus.BAD_REQUEST);
+			List<NoteSearchResult> results = noteService.searchNotes(session.getAttribute("loggedInUserId").toString(),
+					query, resultSize);
+			return new ResponseEntity<List<NoteSearchResult>>(results, HttpStatus.OK);
 		}else {
 			return new ResponseEntity<String>("Not found",HttpStatus.UNAUTHORIZED);
 		}
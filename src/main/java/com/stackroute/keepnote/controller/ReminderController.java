@@ -1,19 +1,23 @@
 package com.stackroute.keepnote.controller;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Category;
@@ -98,7 +102,7 @@ public class ReminderController {
 	@DeleteMapping("/reminder/{id}")
 	public ResponseEntity<?>deleteReminder(@PathVariable int id,HttpSession session){
 		if(session!=null &&session.getAttribute("loggedInUserId")!=null) {
-			if(reminderService.deleteReminder(id))
+			if(reminderService.deleteReminder(id, session.getAttribute("loggedInUserId").toString()))
 				return new ResponseEntity<String>("Reminder Deleted", HttpStatus.OK);
 			else
 				return new ResponseEntity<String>("Reminder can't be deleted", HttpStatus.NOT_FOUND);
@@ -116,7 +120,9 @@ public class ReminderController {
 	 * messages basis on different situations: 1. 200(OK) - If the reminder updated
 	 * successfully. 2. 404(NOT FOUND) - If the reminder with specified reminderId
 	 * is not found. 3. 401(UNAUTHORIZED) - If the user trying to perform the action
-	 * has not logged in.
+	 * has not logged in. 4. 409(CONFLICT) - If the reminder was changed since the
+	 * version sent in the request body was read. 5. 400(BAD REQUEST) - If the
+	 * request body has no version.
 	 * 
 	 * This handler method should map to the URL "/reminder/{id}" using HTTP PUT
 	 * method.
@@ -125,6 +131,8 @@ public class ReminderController {
 	public ResponseEntity<?> update(@RequestBody Reminder reminder, HttpSession session) {
 		try {
 			if(session !=null && session.getAttribute("loggedInUserId")!=null && session.getAttribute("loggedInUserId").equals(reminder.getReminderCreatedBy())) {
+				if(reminder.getVersion()==null)
+					return new ResponseEntity<String>("Bad Request", HttpStatus.BAD_REQUEST);
 				if(reminderService.updateReminder(reminder, reminder.getReminderId())==null)
 					throw new ReminderNotFoundException("not found");
 				return new ResponseEntity<Reminder>(reminder, HttpStatus.OK);
@@ -134,6 +142,37 @@ public class ReminderController {
 			}
 		} catch(ReminderNotFoundException e) {
 			return new ResponseEntity<String>("Note not found", HttpStatus.NOT_FOUND);
+		} catch(OptimisticLockingFailureException e) {
+			return new ResponseEntity<String>("Conflict", HttpStatus.CONFLICT);
+		}
+	}
+	/*
+	 * Define a handler method which will update only the fields of a reminder that
+	 * are sent in the request body, e.g. {"reminderName": "..."}. The other
+	 * columns are left untouched in the database. This handler method should
+	 * return any one of the status messages basis on different situations: 1.
+	 * 200(OK) - If the reminder updated successfully. 2. 400(BAD REQUEST) - If a
+	 * field is unknown, cannot be changed or has an invalid value. 3. 404(NOT
+	 * FOUND) - If the reminder with specified id is not found. 4. 401(UNAUTHORIZED)
+	 * - If the user trying to perform the action has not logged in. 5.
+	 * 409(CONFLICT) - If a "version" is sent and the reminder has changed since.
+	 * 
+	 * This handler method should map to the URL "/reminder/{id}" using HTTP PATCH method.
+	 */
+	@PatchMapping("/reminder/{id}")
+	public ResponseEntity<?> patch(@PathVariable int id, @RequestBody Map<String, Object> fields,
+			HttpSession session) {
+		if(session==null || session.getAttribute("loggedInUserId")==null)
+			return new ResponseEntity<String>("Unauthorized", HttpStatus.UNAUTHORIZED);
+		try {
+			Reminder reminder = reminderService.patchReminder(id, session.getAttribute("loggedInUserId").toString(), fields);
+			return new ResponseEntity<Reminder>(reminder, HttpStatus.OK);
+		} catch(IllegalArgumentException e) {
+			return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
+		} catch(ReminderNotFoundException e) {
+			return new ResponseEntity<String>("Reminder not found", HttpStatus.NOT_FOUND);
+		} catch(OptimisticLockingFailureException e) {
+			return new ResponseEntity<String>("Conflict", HttpStatus.CONFLICT);
 		}
 	}
 	/*
@@ -142,14 +181,17 @@ public class ReminderController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the reminder found successfully. 2.
 	 * 401(UNAUTHORIZED) -If the user trying to perform the action has not logged
-	 * in.
+	 * in. 3. 304(NOT MODIFIED) - If the ETag sent in If-None-Match is still
+	 * current, in which case the reminders are not read at all.
 	 * 
 	 * 
 	 * This handler method should map to the URL "/reminder" using HTTP GET method
 	 */
 	@GetMapping("/reminder")
-    public ResponseEntity<?> getReminderById(HttpSession session) {
+    public ResponseEntity<?> getReminderById(HttpSession session, WebRequest webRequest) {
         if (session!=null && session.getAttribute("loggedInUserId") != null) {
+			if (webRequest.checkNotModified(reminderService.getVersionTag(session.getAttribute("loggedInUserId").toString())))
+				return null;
 			List<Reminder> reminders = reminderService.getAllReminderByUserId(session.getAttribute("loggedInUserId").toString());
 			return new ResponseEntity<List<Reminder>>(reminders, HttpStatus.OK);
 
@@ -0,0 +1,55 @@
+package com.stackroute.keepnote.controller;
+
+import javax.servlet.http.HttpSession;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.stackroute.keepnote.model.UserStats;
+import com.stackroute.keepnote.service.UserStatsService;
+
+/*
+ * As in this assignment, we are working with creating RESTful web service, hence annotate
+ * the class with @RestController annotation.A class annotated with @Controller annotation
+ * has handler methods which returns a view. However, if we use @ResponseBody annotation along
+ * with @Controller annotation, it will return the data directly in a serialized 
+ * format. Starting from Spring 4 and above, we can use @RestController annotation which 
+ * is equivalent to using @Controller and @ResposeBody annotation
+ */
+@RestController
+public class StatsController {
+
+	/*
+	 * Autowiring should be implemented for the UserStatsService. (Use
+	 * Constructor-based autowiring) Please note that we should not create an
+	 * object using the new keyword
+	 */
+	private UserStatsService userStatsService;
+
+	public StatsController(UserStatsService userStatsService) {
+		this.userStatsService = userStatsService;
+	}
+
+	/*
+	 * Define a handler method which will return the number of notes, categories
+	 * and reminders of the logged in user and the number of notes in every
+	 * status. The counters are read by primary key, nothing is counted here.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 1. 200(OK) - With the counters of the user. 2.
+	 * 401(UNAUTHORIZED) - If the user trying to perform the action has not logged
+	 * in.
+	 * 
+	 * This handler method should map to the URL "/stats" using HTTP GET method
+	 */
+	@GetMapping("/stats")
+	public ResponseEntity<?> getStats(HttpSession session) {
+		if (session == null || session.getAttribute("loggedInUserId") == null)
+			return new ResponseEntity<String>("Not found", HttpStatus.UNAUTHORIZED);
+		UserStats stats = userStatsService.getUserStats(session.getAttribute("loggedInUserId").toString());
+		return new ResponseEntity<UserStats>(stats, HttpStatus.OK);
+	}
+
+}
@@ -1,12 +1,16 @@
 package com.stackroute.keepnote.controller;
 
+import java.util.Map;
+
 import javax.servlet.http.HttpSession;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -14,6 +18,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
+import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.UserService;
 
@@ -76,7 +81,9 @@ public class UserController {
 	 * return any one of the status messages basis on different situations: 1.
 	 * 200(OK) - If the user updated successfully. 2. 404(NOT FOUND) - If the user
 	 * with specified userId is not found. 3. 401(UNAUTHORIZED) - If the user trying
-	 * to perform the action has not logged in.
+	 * to perform the action has not logged in. 4. 409(CONFLICT) - If the user was
+	 * changed since the version sent in the request body was read. 5. 400(BAD
+	 * REQUEST) - If the request body has no version.
 	 * 
 	 * This handler method should map to the URL "/user/{id}" using HTTP PUT method.
 	 */
@@ -86,6 +93,9 @@ public class UserController {
             if (!session.getAttribute("loggedInUserId").equals(user.getUserId())) {
                 return new ResponseEntity<String>("Unauthorized", HttpStatus.UNAUTHORIZED);
             }
+            if (user.getVersion() == null) {
+                return new ResponseEntity<String>("Bad Request", HttpStatus.BAD_REQUEST);
+            }
             User userUpdated = userService.updateUser(user, user.getUserId());
             if (userUpdated != null) {
                 return new ResponseEntity<User>(user, HttpStatus.OK);
@@ -94,12 +104,45 @@ public class UserController {
                 return new ResponseEntity<String>("Not Found", HttpStatus.NOT_FOUND);
         } catch (NullPointerException e) {
             return new ResponseEntity<String>("Unauthorized", HttpStatus.UNAUTHORIZED);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<String>("Conflict", HttpStatus.CONFLICT);
         } catch (Exception e) {
             return new ResponseEntity<String>("Not Found", HttpStatus.NOT_FOUND);
         }
     }
 
 	
+	/*
+	 * Define a handler method which will update only the fields of a user that are
+	 * sent in the request body, e.g. {"userMobile": "..."}. The other columns are
+	 * left untouched in the database. This handler method should return any one of
+	 * the status messages basis on different situations: 1. 200(OK) - If the user
+	 * updated successfully. 2. 400(BAD REQUEST) - If a field is unknown, cannot be
+	 * changed or has an invalid value. 3. 404(NOT FOUND) - If the user with
+	 * specified userId is not found. 4. 401(UNAUTHORIZED) - If the user trying to
+	 * perform the action has not logged in or is not the user being updated. 5.
+	 * 409(CONFLICT) - If a "version" is sent and the user has changed since.
+	 * 
+	 * This handler method should map to the URL "/user/{id}" using HTTP PATCH
+	 * method.
+	 */
+	@PatchMapping("/user/{id}")
+    public ResponseEntity<?> patchUser(@PathVariable String id, @RequestBody Map<String, Object> fields,
+            HttpSession session) {
+        if (session.getAttribute("loggedInUserId") == null || !session.getAttribute("loggedInUserId").equals(id))
+            return new ResponseEntity<String>("Unauthorized", HttpStatus.UNAUTHORIZED);
+        try {
+            User user = userService.patchUser(id, fields);
+            return new ResponseEntity<User>(user, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<String>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (UserNotFoundException e) {
+            return new ResponseEntity<String>("User not found", HttpStatus.NOT_FOUND);
+        } catch (OptimisticLockingFailureException e) {
+            return new ResponseEntity<String>("Conflict", HttpStatus.CONFLICT);
+        }
+    }
+
 	/*
 	 * Define a handler method which will delete a user from a database.
 	 * 
@@ -0,0 +1,171 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+import org.hibernate.Session;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteFilter;
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * Reads the archived notes of a user for the DAOs that return them together
+ * with the notes in MySQL, so that archiving a note changes where it is kept
+ * but not what the user sees. The notes are read from the archive in noteId
+ * order, a chunk at a time, and only as many as the caller asks for. An
+ * archived note has the category and reminder it had when it was archived;
+ * they are read again with one query per chunk, so the note shows the current
+ * ones, and none for one that was deleted since.
+ */
+final class ArchivedNotes {
+
+	private static final int CHUNK_SIZE = 100;
+
+	private ArchivedNotes() {
+	}
+
+	/*
+	 * The archived notes of a user with a noteId above afterNoteId that match the
+	 * filter (if any), in noteId order; a limit of 0 returns all of them.
+	 */
+	static List<Note> getNotes(Session session, NoteArchive archive, String userId, NoteFilter filter,
+			int afterNoteId, int limit) {
+		List<Note> notes = new ArrayList<Note>();
+		if (archive == null)
+			return notes;
+		List<Integer> noteIds = archive.getNoteIdsByUserId(userId);
+		int from = 0;
+		while (from < noteIds.size() && noteIds.get(from) <= afterNoteId)
+			from++;
+		for (int i = from; i < noteIds.size() && (limit == 0 || notes.size() < limit); i += CHUNK_SIZE) {
+			List<Note> chunk = new ArrayList<Note>(CHUNK_SIZE);
+			for (int noteId : noteIds.subList(i, Math.min(i + CHUNK_SIZE, noteIds.size()))) {
+				Note note = archive.get(noteId);
+				if (note != null)
+					chunk.add(note);
+			}
+			refreshReferences(session, chunk);
+			for (Note note : chunk) {
+				if ((filter == null || matches(note, filter)) && (limit == 0 || notes.size() < limit))
+					notes.add(note);
+			}
+		}
+		return notes;
+	}
+
+	/*
+	 * Merge the notes read from MySQL and from the archive into one list in noteId
+	 * order, cut to limit unless it is 0. A note found in both, left behind by a
+	 * move that did not complete, is taken from MySQL.
+	 */
+	static <T> List<T> merge(List<T> notes, List<T> archived, ToIntFunction<T> noteId, int limit) {
+		if (archived.isEmpty())
+			return notes;
+		Set<Integer> noteIds = new HashSet<Integer>();
+		List<T> merged = new ArrayList<T>(notes.size() + archived.size());
+		for (T note : notes) {
+			noteIds.add(noteId.applyAsInt(note));
+			merged.add(note);
+		}
+		for (T note : archived) {
+			if (!noteIds.contains(noteId.applyAsInt(note)))
+				merged.add(note);
+		}
+		merged.sort((first, second) -> Integer.compare(noteId.applyAsInt(first), noteId.applyAsInt(second)));
+		return limit > 0 && merged.size() > limit ? merged.subList(0, limit) : merged;
+	}
+
+	/*
+	 * Count the archived notes of a user by the id of the category they had when
+	 * they were archived.
+	 */
+	static Map<Integer, Long> countByCategory(NoteArchive archive, String userId) {
+		Map<Integer, Long> counts = new HashMap<Integer, Long>();
+		if (archive == null)
+			return counts;
+		for (int noteId : archive.getNoteIdsByUserId(userId)) {
+			Note note = archive.get(noteId);
+			if (note != null && note.getCategory() != null)
+				counts.merge(note.getCategory().getCategoryId(), 1L, Long::sum);
+		}
+		return counts;
+	}
+
+	/*
+	 * The (createdBy, noteStatus) of every archived note of a user, as taken by
+	 * UserCounters.addNoteOwners.
+	 */
+	static List<Object[]> getOwners(NoteArchive archive, String userId) {
+		List<Object[]> owners = new ArrayList<Object[]>();
+		if (archive == null)
+			return owners;
+		for (int noteId : archive.getNoteIdsByUserId(userId)) {
+			Note note = archive.get(noteId);
+			if (note != null)
+				owners.add(new Object[] { note.getCreatedBy(), note.getNoteStatus() });
+		}
+		return owners;
+	}
+
+	/*
+	 * Replace the category and reminder copies of archived notes with the current
+	 * ones, or with null for those that are gone.
+	 */
+	static void refreshReferences(Session session, List<Note> notes) {
+		Set<Integer> categoryIds = new HashSet<Integer>();
+		Set<Integer> reminderIds = new HashSet<Integer>();
+		for (Note note : notes) {
+			if (note.getCategory() != null)
+				categoryIds.add(note.getCategory().getCategoryId());
+			if (note.getReminder() != null)
+				reminderIds.add(note.getReminder().getReminderId());
+		}
+		Map<Integer, Category> categories = new HashMap<Integer, Category>();
+		if (!categoryIds.isEmpty()) {
+			for (Category category : session.createQuery(
+					"FROM Category category where category.categoryId in (:categoryIds)", Category.class)
+					.setParameter("categoryIds", categoryIds).getResultList())
+				categories.put(category.getCategoryId(), category);
+		}
+		Map<Integer, Reminder> reminders = new HashMap<Integer, Reminder>();
+		if (!reminderIds.isEmpty()) {
+			for (Reminder reminder : session.createQuery(
+					"FROM Reminder reminder where reminder.reminderId in (:reminderIds)", Reminder.class)
+					.setParameter("reminderIds", reminderIds).getResultList())
+				reminders.put(reminder.getReminderId(), reminder);
+		}
+		for (Note note : notes) {
+			if (note.getCategory() != null)
+				note.setCategory(categories.get(note.getCategory().getCategoryId()));
+			if (note.getReminder() != null)
+				note.setReminder(reminders.get(note.getReminder().getReminderId()));
+		}
+	}
+
+	/*
+	 * The conditions of NoteDAOImpl.getNotesByUserIdFiltered, applied to a note.
+	 */
+	private static boolean matches(Note note, NoteFilter filter) {
+		if (filter.getNoteStatus() != null && !filter.getNoteStatus().equals(note.getNoteStatus()))
+			return false;
+		if (filter.getFrom() != null && note.getNoteCreatedAt().before(filter.getFrom()))
+			return false;
+		if (filter.getTo() != null && !note.getNoteCreatedAt().before(filter.getTo()))
+			return false;
+		if (filter.getCategoryId() != null
+				&& (note.getCategory() == null || note.getCategory().getCategoryId() != filter.getCategoryId()))
+			return false;
+		if (filter.getReminderId() != null
+				&& (note.getReminder() == null || note.getReminder().getReminderId() != filter.getReminderId()))
+			return false;
+		return true;
+	}
+
+}
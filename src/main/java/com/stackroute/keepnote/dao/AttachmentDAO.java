@@ -0,0 +1,24 @@
+package com.stackroute.keepnote.dao;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+import com.stackroute.keepnote.exception.AttachmentNotFoundException;
+import com.stackroute.keepnote.model.Attachment;
+
+public interface AttachmentDAO {
+
+	public Attachment createAttachment(Attachment attachment, Path upload) throws IOException;
+
+	public List<Attachment> getAttachmentsByNoteId(int noteId, String userId);
+
+	public Attachment getAttachmentById(int attachmentId, int noteId, String userId)
+			throws AttachmentNotFoundException;
+
+	public FileChannel openAttachment(Attachment attachment) throws IOException;
+
+	public boolean deleteAttachment(int attachmentId, int noteId, String userId);
+
+}
@@ -0,0 +1,97 @@
+package com.stackroute.keepnote.dao;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.keepnote.exception.AttachmentNotFoundException;
+import com.stackroute.keepnote.model.Attachment;
+
+/*
+ * This class is implementing the AttachmentDAO interface. The attachment rows
+ * are kept in MySQL, the content of the files in the AttachmentStore.
+ * */
+@Repository
+@Transactional
+public class AttachmentDAOImpl implements AttachmentDAO {
+
+	private SessionFactory sessionFactory;
+	private AttachmentStore attachmentStore;
+
+	@Autowired
+	public AttachmentDAOImpl(SessionFactory sessionFactory, AttachmentStore attachmentStore) {
+		this.sessionFactory = sessionFactory;
+		this.attachmentStore = attachmentStore;
+	}
+
+	/*
+	 * Save the attachment row and move the uploaded file to the name made of the
+	 * new attachmentId. The upload is discarded if either step fails.
+	 */
+	public Attachment createAttachment(Attachment attachment, Path upload) throws IOException {
+		Session session = sessionFactory.getCurrentSession();
+		try {
+			session.save(attachment);
+			session.flush();
+			attachmentStore.store(upload, attachment.getNoteId(), attachment.getAttachmentId());
+			return attachment;
+		} catch (IOException | RuntimeException e) {
+			attachmentStore.discard(upload);
+			throw e;
+		}
+	}
+
+	/*
+	 * Retrieve the attachments of a note of the given user.
+	 */
+	public List<Attachment> getAttachmentsByNoteId(int noteId, String userId) {
+		String hql = "FROM Attachment attachment where attachment.noteId = :noteId and attachment.createdBy = :userId "
+				+ "order by attachment.attachmentId";
+		return sessionFactory.getCurrentSession().createQuery(hql, Attachment.class).setParameter("noteId", noteId)
+				.setParameter("userId", userId).getResultList();
+	}
+
+	/*
+	 * Retrieve an attachment of a note of the given user. An attachment of another
+	 * note or user is reported as not found.
+	 */
+	public Attachment getAttachmentById(int attachmentId, int noteId, String userId)
+			throws AttachmentNotFoundException {
+		Attachment attachment = sessionFactory.getCurrentSession().get(Attachment.class, attachmentId);
+		if (attachment == null || attachment.getNoteId() != noteId || !attachment.getCreatedBy().equals(userId))
+			throw new AttachmentNotFoundException("AttachmentNotFoundException");
+		return attachment;
+	}
+
+	/*
+	 * Open the file of an attachment for reading. No transaction is needed.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public FileChannel openAttachment(Attachment attachment) throws IOException {
+		return attachmentStore.open(attachment.getNoteId(), attachment.getAttachmentId());
+	}
+
+	/*
+	 * Remove an attachment of a note of the given user with a single DELETE. The
+	 * file is deleted once the transaction has committed.
+	 */
+	public boolean deleteAttachment(int attachmentId, int noteId, String userId) {
+		String hql = "DELETE FROM Attachment attachment where attachment.attachmentId = :attachmentId "
+				+ "and attachment.noteId = :noteId and attachment.createdBy = :userId";
+		int deleted = sessionFactory.getCurrentSession().createQuery(hql).setParameter("attachmentId", attachmentId)
+				.setParameter("noteId", noteId).setParameter("userId", userId).executeUpdate();
+		if (deleted == 0)
+			return false;
+		attachmentStore.deleteAfterCommit(noteId, attachmentId);
+		return true;
+	}
+
+}
@@ -0,0 +1,155 @@
+package com.stackroute.keepnote.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.stackroute.keepnote.exception.AttachmentTooLargeException;
+
+/*
+ * Keeps the content of attachments on local disk, one file per attachment at
+ * <directory>/<noteId>/<attachmentId>. An upload is copied from the request
+ * stream into a temporary file through a fixed-size buffer, so the size of the
+ * file never matters for the heap, and is renamed to its final name once the
+ * attachment row has its id. Downloads read the file through a FileChannel.
+ */
+public class AttachmentStore {
+
+	static final long MAX_ATTACHMENT_SIZE = 100L << 20;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String UPLOAD_PREFIX = "upload-";
+
+	private final Path directory;
+	private final long maxAttachmentSize;
+
+	public AttachmentStore(Path directory) {
+		this(directory, MAX_ATTACHMENT_SIZE);
+	}
+
+	public AttachmentStore(Path directory, long maxAttachmentSize) {
+		this.directory = directory;
+		this.maxAttachmentSize = maxAttachmentSize;
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open attachment store " + directory, e);
+		}
+	}
+
+	/*
+	 * Copy an upload into a temporary file and return it. The upload is rejected
+	 * as soon as it goes over the size limit.
+	 */
+	public Path receive(InputStream content) throws IOException, AttachmentTooLargeException {
+		Path upload = Files.createTempFile(directory, UPLOAD_PREFIX, null);
+		try (ReadableByteChannel source = Channels.newChannel(content);
+				FileChannel target = FileChannel.open(upload, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			long size = 0;
+			while (source.read(buffer) >= 0 || buffer.position() > 0) {
+				buffer.flip();
+				size += target.write(buffer);
+				buffer.compact();
+				if (size > maxAttachmentSize)
+					throw new AttachmentTooLargeException("Attachment is larger than " + maxAttachmentSize + " bytes");
+			}
+			target.force(false);
+			return upload;
+		} catch (IOException | AttachmentTooLargeException | RuntimeException e) {
+			Files.deleteIfExists(upload);
+			throw e;
+		}
+	}
+
+	/*
+	 * Give a received upload its final name.
+	 */
+	public void store(Path upload, int noteId, int attachmentId) throws IOException {
+		Path target = file(noteId, attachmentId);
+		Files.createDirectories(target.getParent());
+		Files.move(upload, target, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/*
+	 * Drop an upload that was not stored.
+	 */
+	public void discard(Path upload) {
+		try {
+			Files.deleteIfExists(upload);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public FileChannel open(int noteId, int attachmentId) throws IOException {
+		return FileChannel.open(file(noteId, attachmentId), StandardOpenOption.READ);
+	}
+
+	/*
+	 * Delete the file of an attachment once the current transaction has committed,
+	 * or right away outside of a transaction.
+	 */
+	public void deleteAfterCommit(int noteId, int attachmentId) {
+		afterCommit(() -> Files.deleteIfExists(file(noteId, attachmentId)));
+	}
+
+	/*
+	 * Delete the files of all attachments of a note once the current transaction
+	 * has committed, or right away outside of a transaction.
+	 */
+	public void deleteAllAfterCommit(int noteId) {
+		afterCommit(() -> {
+			Path noteDirectory = directory.resolve(Integer.toString(noteId));
+			if (!Files.isDirectory(noteDirectory))
+				return;
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(noteDirectory)) {
+				for (Path file : files)
+					Files.deleteIfExists(file);
+			}
+			Files.deleteIfExists(noteDirectory);
+		});
+	}
+
+	private Path file(int noteId, int attachmentId) {
+		return directory.resolve(Integer.toString(noteId)).resolve(Integer.toString(attachmentId));
+	}
+
+	private interface FileTask {
+		void run() throws IOException;
+	}
+
+	private static void afterCommit(FileTask task) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			execute(task);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				execute(task);
+			}
+		});
+	}
+
+	private static void execute(FileTask task) {
+		try {
+			task.run();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
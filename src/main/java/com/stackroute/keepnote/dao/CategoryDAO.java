@@ -1,9 +1,12 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySummary;
 
 public interface CategoryDAO {
 
@@ -16,9 +19,22 @@ public interface CategoryDAO {
 
 	public boolean deleteCategory(int noteId);
 
+	public boolean deleteCategory(int categoryId, String userId);
+
 	public boolean updateCategory(Category category);
 
+	public Category patchCategory(int categoryId, String userId, Consumer<Category> changes)
+			throws CategoryNotFoundException;
+
 	public Category getCategoryById(int categoryId) throws CategoryNotFoundException;
 
 	public List<Category> getAllCategoryByUserId(String userId);
+
+	public List<CategorySummary> getCategorySummariesByUserId(String userId);
+
+	public void streamCategoriesByUserId(String userId, Consumer<Category> consumer);
+
+	public List<Integer> getExistingCategoryIds(Collection<Integer> categoryIds, String userId);
+
+	public void invalidateCachedCategories(Collection<Integer> categoryIds);
 }
@@ -1,18 +1,27 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import javax.persistence.Query;
 
-import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySummary;
+import com.stackroute.keepnote.model.DeletionJob;
 import com.stackroute.keepnote.model.User;
 
 /*
@@ -28,6 +37,9 @@ import com.stackroute.keepnote.model.User;
 @Transactional
 public class CategoryDAOImpl implements CategoryDAO {
 
+	private static final int CACHE_MAX_ENTRIES = 10000;
+	private static final long CACHE_MAX_WEIGHT = 8L * 1024 * 1024;
+
 	/*
 	 * Autowiring should be implemented for the SessionFactory.(Use
 	 * constructor-based autowiring.
@@ -36,8 +48,33 @@ public class CategoryDAOImpl implements CategoryDAO {
 	@Autowired
 	private SessionFactory sessionFactory;
 	
+	/*
+	 * Categories read by id, mostly to check that the category of a note exists.
+	 * Every caller gets a copy of its own.
+	 */
+	private final EntityCache<Integer, Category> cache = new EntityCache<Integer, Category>("category",
+			CACHE_MAX_ENTRIES, CACHE_MAX_WEIGHT, category -> 64 + EntityCache.weightOf(category.getCategoryName(),
+					category.getCategoryDescription(), category.getCategoryCreatedBy()),
+			CategoryDAOImpl::copyOf);
+	
+	/*
+	 * Where the archived notes are, which are counted in their category too; null
+	 * when the DAO runs without an archive.
+	 */
+	private NoteArchive noteArchive;
+
 	public CategoryDAOImpl(SessionFactory sessionFactory) {
+		this(sessionFactory, null);
+	}
+
+	@Autowired
+	public CategoryDAOImpl(SessionFactory sessionFactory, NoteArchive noteArchive) {
 		this.sessionFactory = sessionFactory;
+		this.noteArchive = noteArchive;
+	}
+
+	public EntityCache<Integer, Category> getCache() {
+		return cache;
 	}
 
 	/*
@@ -46,67 +83,87 @@ public class CategoryDAOImpl implements CategoryDAO {
 	public boolean createCategory(Category category) {
 		Session session = sessionFactory.getCurrentSession();
 		session.save(category);
+		UserCounters.addCategories(session, category.getCategoryCreatedBy(), 1);
 		session.flush();
 		return true;
 
 	}
 
 	/*
-	 * Remove an existing category
+	 * Remove an existing category. Its owner is read first, whose counters the
+	 * delete has to change, and the delete is then the same as the one of the
+	 * owner.
 	 */
 	public boolean deleteCategory(int categoryId) {
-		boolean flag = true;
-		try {
-			if(getCategoryById(categoryId)==null) {
-				flag = false;
-			}else {
-				Session session = sessionFactory.getCurrentSession();
-				session.delete(getCategoryById(categoryId));
-				session.flush();
-			}
-		} catch (HibernateException e) {
-			e.printStackTrace();
-		} catch (CategoryNotFoundException e) {
-			e.printStackTrace();
-		}
-		return flag;
+		String hql = "select category.categoryCreatedBy FROM Category category where category.categoryId = :categoryId";
+		List<String> owners = sessionFactory.getCurrentSession().createQuery(hql, String.class)
+				.setParameter("categoryId", categoryId).getResultList();
+		return !owners.isEmpty() && deleteCategory(categoryId, owners.get(0));
+	}
 
+	/*
+	 * Remove an existing category of the given user. The category is only marked
+	 * as deleted here, which hides it at once, and a DeletionJob is created in the
+	 * same transaction; its notes and the row itself are deleted in the
+	 * background, so a category with many notes does not lock them all at once.
+	 */
+	public boolean deleteCategory(int categoryId, String userId) {
+		cache.invalidate(categoryId);
+		Session session = sessionFactory.getCurrentSession();
+		String hql = "UPDATE Category category set category.deleted = true, category.version = category.version + 1 "
+				+ "where category.categoryId = :categoryId and category.categoryCreatedBy = :userId "
+				+ "and category.deleted = false";
+		Query query = session.createQuery(hql).setParameter("categoryId", categoryId).setParameter("userId", userId);
+		if (query.executeUpdate() == 0)
+			return false;
+		session.save(new DeletionJob(DeletionJob.CATEGORY, String.valueOf(categoryId), userId, new Date()));
+		UserCounters.addCategories(session, userId, -1);
+		session.flush();
+		return true;
 	}
 	/*
-	 * Update an existing category
+	 * Update an existing category with a single versioned UPDATE. A category that
+	 * has changed since it was read, or no longer exists, fails with an
+	 * ObjectOptimisticLockingFailureException.
 	 */
 
 	public boolean updateCategory(Category category) {
-		boolean flag = true;
-		try {
-			if(getCategoryById(category.getCategoryId())==null) {
-				flag = false;
-			}else {
-				sessionFactory.getCurrentSession().clear();
-				sessionFactory.getCurrentSession().update(category);
-				sessionFactory.getCurrentSession().flush();
-			}
-		} catch (HibernateException e) {
-			e.printStackTrace();
-		} catch (CategoryNotFoundException e) {
-			e.printStackTrace();
-		}
-		return flag;
+		cache.invalidate(category.getCategoryId());
+		Session session = sessionFactory.getCurrentSession();
+		session.update(category);
+		OptimisticLocking.flush(session, Category.class, category.getCategoryId());
+		return true;
 	}
 	/*
-	 * Retrieve details of a specific category
+	 * Apply a partial update to a category of the given user, writing only the
+	 * columns that changed
 	 */
-
-	public Category getCategoryById(int categoryId) throws CategoryNotFoundException {
+	public Category patchCategory(int categoryId, String userId, Consumer<Category> changes)
+			throws CategoryNotFoundException {
 		Session session = sessionFactory.getCurrentSession();
 		Category category = session.get(Category.class, categoryId);
+		if (category == null || !userId.equals(category.getCategoryCreatedBy()))
+			throw new CategoryNotFoundException("CategoryNotFoundException");
+		cache.invalidate(categoryId);
+		changes.accept(category);
+		OptimisticLocking.flush(session, Category.class, categoryId);
+		return category;
+	}
+
+	/*
+	 * Retrieve details of a specific category. The category is served from the
+	 * cache when possible; no transaction is started for the lookup, so a hit does
+	 * not touch the database at all.
+	 */
+
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public Category getCategoryById(int categoryId) throws CategoryNotFoundException {
+		Category category = cache.get(categoryId,
+				() -> sessionFactory.getCurrentSession().get(Category.class, categoryId));
 		if(category==null)
 			throw new CategoryNotFoundException("CategoryNotFoundException");
-		else {
-			session.flush();
+		else
 			return category;
-		}
-			
 
 	}
 
@@ -120,4 +177,88 @@ public class CategoryDAOImpl implements CategoryDAO {
 		return result;
 	}
 
+	/*
+	 * Retrieve all categories of a user with the number of notes in each, in one
+	 * statement: the notes are left joined through their category column and
+	 * counted per category, so a category without notes is returned with 0. The
+	 * archived notes of the user are then added to the categories they are in.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public List<CategorySummary> getCategorySummariesByUserId(String userId) {
+		String hql = "select new com.stackroute.keepnote.model.CategorySummary(category.categoryId, "
+				+ "category.categoryName, category.categoryDescription, category.categoryCreationDate, "
+				+ "category.categoryCreatedBy, category.version, count(note.noteId)) "
+				+ "FROM Category category left join category.notes note where category.categoryCreatedBy = :userId "
+				+ "group by category.categoryId, category.categoryName, category.categoryDescription, "
+				+ "category.categoryCreationDate, category.categoryCreatedBy, category.version "
+				+ "order by category.categoryId";
+		List<CategorySummary> summaries = sessionFactory.getCurrentSession().createQuery(hql, CategorySummary.class)
+				.setParameter("userId", userId).getResultList();
+		Map<Integer, Long> archived = ArchivedNotes.countByCategory(noteArchive, userId);
+		for (CategorySummary summary : summaries)
+			summary.setNoteCount(summary.getNoteCount() + archived.getOrDefault(summary.getCategoryId(), 0L));
+		return summaries;
+	}
+
+	/*
+	 * Hand every category of a user to the consumer, one row at a time, in the same
+	 * way as the notes are streamed: a forward-only cursor and each category
+	 * evicted once the consumer is done with it.
+	 */
+	public void streamCategoriesByUserId(String userId, Consumer<Category> consumer) {
+		String hql = "From Category category where categoryCreatedBy = :userId order by category.categoryId";
+		Session session = sessionFactory.getCurrentSession();
+		ScrollableResults results = session.createQuery(hql).setParameter("userId", userId)
+				.setFetchSize(Integer.MIN_VALUE).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				Category category = (Category) results.get(0);
+				consumer.accept(category);
+				session.evict(category);
+			}
+		} finally {
+			results.close();
+		}
+	}
+
+	/*
+	 * Return which of the given categoryIds exist and belong to the user, with a
+	 * single IN query
+	 */
+	public List<Integer> getExistingCategoryIds(Collection<Integer> categoryIds, String userId) {
+		if (categoryIds.isEmpty())
+			return new ArrayList<Integer>();
+		String hql = "select category.categoryId From Category category where category.categoryId in (:categoryIds) "
+				+ "and category.categoryCreatedBy = :userId";
+		Query query = sessionFactory.getCurrentSession().createQuery(hql).setParameter("categoryIds", categoryIds)
+				.setParameter("userId", userId);
+		List result = query.getResultList();
+		return result;
+	}
+
+	/*
+	 * Drop categories that were deleted by a bulk statement from the cache.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public void invalidateCachedCategories(Collection<Integer> categoryIds) {
+		for (Integer categoryId : categoryIds)
+			cache.invalidate(categoryId);
+	}
+
+	/*
+	 * A detached copy of a category for the cache, without its lazy list of notes.
+	 */
+	private static Category copyOf(Category category) {
+		Category copy = new Category(category.getCategoryId(), category.getCategoryName(),
+				category.getCategoryDescription(), copyOf(category.getCategoryCreationDate()),
+				category.getCategoryCreatedBy(), null);
+		copy.setVersion(category.getVersion());
+		copy.setDeleted(category.isDeleted());
+		return copy;
+	}
+
+	private static Date copyOf(Date date) {
+		return date == null ? null : new Date(date.getTime());
+	}
+
 }
@@ -0,0 +1,70 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.hibernate.SharedSessionContract;
+
+import com.stackroute.keepnote.model.ChangeSequence;
+
+/*
+ * Hands out the numbers of ChangeSequence. Taking a number is a single INSERT
+ * ... ON DUPLICATE KEY UPDATE issued in the transaction of the write, which
+ * keeps the row of the user locked until that transaction ends: the next
+ * write of the same user waits for it, so a number is never committed after a
+ * higher one. A rolled back write leaves a gap, which the feed does not mind.
+ * The row of a user is created by the first change.
+ */
+final class ChangeSequences {
+
+	private static final String NEXT = "INSERT INTO ChangeSequence (userId, lastSeq, prunedSeq) "
+			+ "VALUES (:userId, 1, 0) ON DUPLICATE KEY UPDATE lastSeq = lastSeq + 1";
+	private static final String LAST = "SELECT lastSeq FROM ChangeSequence WHERE userId = :userId";
+	private static final String PRUNE = "INSERT INTO ChangeSequence (userId, lastSeq, prunedSeq) "
+			+ "VALUES (:userId, :seq, :seq) ON DUPLICATE KEY UPDATE prunedSeq = GREATEST(prunedSeq, VALUES(prunedSeq))";
+
+	private ChangeSequences() {
+	}
+
+	/*
+	 * Take the next number of a user.
+	 */
+	static long next(SharedSessionContract session, String userId) {
+		session.createNativeQuery(NEXT).addSynchronizedEntityClass(ChangeSequence.class)
+				.setParameter("userId", userId).executeUpdate();
+		return ((Number) session.createNativeQuery(LAST).setParameter("userId", userId).getSingleResult())
+				.longValue();
+	}
+
+	/*
+	 * Take one number for each of the given users, for a statement that changes
+	 * the notes of several users at once. The rows are locked in the order of the
+	 * userIds, so two such writes cannot deadlock on each other.
+	 */
+	static Map<String, Long> next(SharedSessionContract session, Collection<String> userIds) {
+		Map<String, Long> seqs = new TreeMap<String, Long>();
+		for (String userId : new TreeSet<String>(userIds))
+			seqs.put(userId, next(session, userId));
+		return seqs;
+	}
+
+	/*
+	 * Record that the changes of a user up to the given number can no longer be
+	 * read from the feed.
+	 */
+	static void prune(SharedSessionContract session, String userId, long seq) {
+		session.createNativeQuery(PRUNE).addSynchronizedEntityClass(ChangeSequence.class)
+				.setParameter("userId", userId).setParameter("seq", seq).executeUpdate();
+	}
+
+	/*
+	 * The same for several users, given as the highest number of each.
+	 */
+	static void prune(SharedSessionContract session, Map<String, Long> seqs) {
+		for (Map.Entry<String, Long> seq : new TreeMap<String, Long>(seqs).entrySet())
+			prune(session, seq.getKey(), seq.getValue());
+	}
+
+}
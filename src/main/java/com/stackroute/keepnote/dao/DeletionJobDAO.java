@@ -0,0 +1,17 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.List;
+
+import com.stackroute.keepnote.model.DeletionJob;
+
+public interface DeletionJobDAO {
+
+	public List<DeletionJob> getUnfinishedJobs();
+
+	public List<DeletionJob> getJobsByUserId(String userId);
+
+	public DeletionJob getJobById(int jobId, String userId);
+
+	public DeletionJob deleteNextChunk(int jobId, int chunkSize);
+
+}
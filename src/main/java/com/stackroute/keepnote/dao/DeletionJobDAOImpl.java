@@ -0,0 +1,285 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.keepnote.model.ChangeSequence;
+import com.stackroute.keepnote.model.DeletionJob;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteTombstone;
+import com.stackroute.keepnote.model.UserStats;
+
+/*
+ * This class is implementing the DeletionJobDAO interface. Every call of
+ * deleteNextChunk() is a transaction of its own that deletes at most chunkSize
+ * rows, so the locks of a job are never held on more than one chunk. What is
+ * left to do is read from the tables on every call rather than kept in the job,
+ * so a job that was interrupted simply carries on where the last commit left it.
+ * */
+@Repository
+@Transactional
+public class DeletionJobDAOImpl implements DeletionJobDAO {
+
+	private static final String CLEAR_STATUSES = "DELETE FROM UserStats_notesByStatus WHERE userId = :userId";
+	private static final String CLEAR_STATS = "DELETE FROM UserStats WHERE userId = :userId";
+	private static final String CLEAR_SEQUENCE = "DELETE FROM ChangeSequence WHERE userId = :userId";
+	/*
+	 * Native, because the @Where of Category hides the categories marked as
+	 * deleted from HQL.
+	 */
+	private static final String MARKED_CATEGORIES = "SELECT categoryId FROM Category WHERE categoryCreatedBy = :userId";
+
+	private SessionFactory sessionFactory;
+	private NoteArchive noteArchive;
+	private AttachmentStore attachmentStore;
+
+	public DeletionJobDAOImpl(SessionFactory sessionFactory) {
+		this(sessionFactory, null, null);
+	}
+
+	@Autowired
+	public DeletionJobDAOImpl(SessionFactory sessionFactory, NoteArchive noteArchive,
+			AttachmentStore attachmentStore) {
+		this.sessionFactory = sessionFactory;
+		this.noteArchive = noteArchive;
+		this.attachmentStore = attachmentStore;
+	}
+
+	/*
+	 * Retrieve the jobs that still have rows to delete, oldest first.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public List<DeletionJob> getUnfinishedJobs() {
+		String hql = "FROM DeletionJob job where job.completed = false order by job.jobId";
+		return sessionFactory.getCurrentSession().createQuery(hql, DeletionJob.class).getResultList();
+	}
+
+	/*
+	 * Retrieve the jobs started by a user, newest first.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public List<DeletionJob> getJobsByUserId(String userId) {
+		String hql = "FROM DeletionJob job where job.createdBy = :userId order by job.jobId desc";
+		return sessionFactory.getCurrentSession().createQuery(hql, DeletionJob.class).setParameter("userId", userId)
+				.getResultList();
+	}
+
+	/*
+	 * Retrieve a job of the given user, or null if there is none.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public DeletionJob getJobById(int jobId, String userId) {
+		DeletionJob job = sessionFactory.getCurrentSession().get(DeletionJob.class, jobId);
+		return job == null || !job.getCreatedBy().equals(userId) ? null : job;
+	}
+
+	/*
+	 * Delete the next chunk of a job and return the job with its counters
+	 * updated, and the ids of the notes, categories and reminders deleted by this
+	 * chunk, or null if there is no such job. The job is completed by the call that finds nothing left to
+	 * delete: for a category its notes go first, then its archived notes, and
+	 * then the category row; for a
+	 * user the notes, reminders and categories, then the archived notes, and last
+	 * the user row with the counters, tombstones, import checkpoints and reminder
+	 * notifications.
+	 */
+	public DeletionJob deleteNextChunk(int jobId, int chunkSize) {
+		Session session = sessionFactory.getCurrentSession();
+		DeletionJob job = session.get(DeletionJob.class, jobId);
+		if (job == null)
+			return null;
+		job.setDeletedNoteIds(new ArrayList<Integer>());
+		job.setDeletedCategoryIds(new ArrayList<Integer>());
+		job.setDeletedReminderIds(new ArrayList<Integer>());
+		if (job.isCompleted())
+			return job;
+		if (DeletionJob.CATEGORY.equals(job.getTargetType()))
+			deleteCategoryChunk(session, job, chunkSize);
+		else
+			deleteUserChunk(session, job, chunkSize);
+		job.setUpdatedAt(new Date());
+		session.flush();
+		return job;
+	}
+
+	private void deleteCategoryChunk(Session session, DeletionJob job, int chunkSize) {
+		int categoryId = Integer.parseInt(job.getTargetId());
+		if (deleteNotes(session, job, "note.category.categoryId", categoryId, chunkSize))
+			return;
+		if (deleteArchivedNotes(session, job, categoryId, chunkSize))
+			return;
+		int deleted = session.createQuery("DELETE FROM Category category where category.categoryId = :categoryId")
+				.setParameter("categoryId", categoryId).executeUpdate();
+		job.getDeletedCategoryIds().add(categoryId);
+		job.setCategoriesDeleted(job.getCategoriesDeleted() + deleted);
+		job.setCompleted(true);
+	}
+
+	private void deleteUserChunk(Session session, DeletionJob job, int chunkSize) {
+		String userId = job.getTargetId();
+		if (deleteNotes(session, job, "note.createdBy", userId, chunkSize))
+			return;
+		List<Integer> reminderIds = session
+				.createQuery("select reminder.reminderId FROM Reminder reminder "
+						+ "where reminder.reminderCreatedBy = :userId order by reminder.reminderId", Integer.class)
+				.setParameter("userId", userId).setMaxResults(chunkSize).getResultList();
+		if (!reminderIds.isEmpty()) {
+			NoteReferences.detachReminders(session, reminderIds);
+			session.createQuery("DELETE FROM Reminder reminder where reminder.reminderId in (:reminderIds)")
+					.setParameter("reminderIds", reminderIds).executeUpdate();
+			UserCounters.addReminders(session, userId, -reminderIds.size());
+			job.getDeletedReminderIds().addAll(reminderIds);
+			job.setRemindersDeleted(job.getRemindersDeleted() + reminderIds.size());
+			return;
+		}
+		/*
+		 * The select leaves out categories already marked as deleted, the bulk delete
+		 * at the end of the job does not.
+		 */
+		List<Integer> categoryIds = session
+				.createQuery("select category.categoryId FROM Category category "
+						+ "where category.categoryCreatedBy = :userId order by category.categoryId", Integer.class)
+				.setParameter("userId", userId).setMaxResults(chunkSize).getResultList();
+		if (!categoryIds.isEmpty()) {
+			NoteReferences.detachCategories(session, categoryIds);
+			session.createQuery("DELETE FROM Category category where category.categoryId in (:categoryIds)")
+					.setParameter("categoryIds", categoryIds).executeUpdate();
+			job.getDeletedCategoryIds().addAll(categoryIds);
+			job.setCategoriesDeleted(job.getCategoriesDeleted() + categoryIds.size());
+			return;
+		}
+		if (noteArchive != null) {
+			List<Integer> archivedIds = noteArchive.getNoteIdsByUserId(userId);
+			if (!archivedIds.isEmpty()) {
+				for (Integer noteId : archivedIds.subList(0, Math.min(chunkSize, archivedIds.size()))) {
+					if (noteArchive.delete(noteId, userId))
+						job.getDeletedNoteIds().add(noteId);
+				}
+				deleteAttachments(session, job.getDeletedNoteIds());
+				job.setNotesDeleted(job.getNotesDeleted() + job.getDeletedNoteIds().size());
+				return;
+			}
+		}
+		NoteReferences.detachCategoriesOf(session, userId);
+		List<?> markedIds = session.createNativeQuery(MARKED_CATEGORIES).setParameter("userId", userId)
+				.getResultList();
+		for (Object categoryId : markedIds)
+			job.getDeletedCategoryIds().add(((Number) categoryId).intValue());
+		job.setCategoriesDeleted(job.getCategoriesDeleted() + session
+				.createQuery("DELETE FROM Category category where category.categoryCreatedBy = :userId")
+				.setParameter("userId", userId).executeUpdate());
+		session.createQuery("DELETE FROM NoteTombstone tombstone where tombstone.createdBy = :userId")
+				.setParameter("userId", userId).executeUpdate();
+		session.createQuery("DELETE FROM ImportCheckpoint checkpoint where checkpoint.createdBy = :userId")
+				.setParameter("userId", userId).executeUpdate();
+		session.createQuery("DELETE FROM ReminderNotification notification where notification.recipient = :userId")
+				.setParameter("userId", userId).executeUpdate();
+		session.createNativeQuery(CLEAR_STATUSES).addSynchronizedEntityClass(UserStats.class)
+				.setParameter("userId", userId).executeUpdate();
+		session.createNativeQuery(CLEAR_STATS).addSynchronizedEntityClass(UserStats.class)
+				.setParameter("userId", userId).executeUpdate();
+		session.createNativeQuery(CLEAR_SEQUENCE).addSynchronizedEntityClass(ChangeSequence.class)
+				.setParameter("userId", userId).executeUpdate();
+		session.createQuery("DELETE FROM User user where user.userId = :userId").setParameter("userId", userId)
+				.executeUpdate();
+		job.setCompleted(true);
+	}
+
+	/*
+	 * Delete the next chunk of notes matching the condition, with their bodies,
+	 * attachments and counters, and return false if there were none left. A
+	 * category job writes tombstones for the change feed of its owner; the
+	 * tombstones of a deleted user go away with the user.
+	 */
+	private boolean deleteNotes(Session session, DeletionJob job, String property, Object value, int chunkSize) {
+		String hql = "select note.noteId, note.createdBy, note.noteStatus FROM Note note where " + property
+				+ " = :value order by note.noteId";
+		List<Object[]> rows = session.createQuery(hql, Object[].class).setParameter("value", value)
+				.setMaxResults(chunkSize).getResultList();
+		if (rows.isEmpty())
+			return false;
+		List<Integer> noteIds = new ArrayList<Integer>(rows.size());
+		List<Object[]> owners = new ArrayList<Object[]>(rows.size());
+		for (Object[] row : rows) {
+			noteIds.add((Integer) row[0]);
+			owners.add(new Object[] { row[1], row[2] });
+		}
+		Map<String, Long> references = NoteBodies.references(session, noteIds);
+		session.createQuery("DELETE FROM Note note where note.noteId in (:noteIds)").setParameter("noteIds", noteIds)
+				.executeUpdate();
+		NoteBodies.release(session, references);
+		if (DeletionJob.CATEGORY.equals(job.getTargetType())) {
+			Set<String> userIds = new HashSet<String>();
+			for (Object[] row : rows)
+				userIds.add((String) row[1]);
+			Map<String, Long> seqs = ChangeSequences.next(session, userIds);
+			long now = System.currentTimeMillis();
+			for (Object[] row : rows)
+				session.save(new NoteTombstone((Integer) row[0], (String) row[1], now, seqs.get(row[1])));
+		}
+		UserCounters.addNoteOwners(session, owners, -1);
+		deleteAttachments(session, noteIds);
+		job.getDeletedNoteIds().addAll(noteIds);
+		job.setNotesDeleted(job.getNotesDeleted() + noteIds.size());
+		return true;
+	}
+
+	/*
+	 * Delete the next chunk of the archived notes in a category, which belong to
+	 * the user who deleted it, and return false if there are none left. They are
+	 * taken out of the counters and get tombstones like the notes in MySQL, and
+	 * are deleted from the archive once the transaction has committed.
+	 */
+	private boolean deleteArchivedNotes(Session session, DeletionJob job, int categoryId, int chunkSize) {
+		if (noteArchive == null)
+			return false;
+		String userId = job.getCreatedBy();
+		List<Integer> noteIds = new ArrayList<Integer>();
+		List<Object[]> owners = new ArrayList<Object[]>();
+		for (int noteId : noteArchive.getNoteIdsByUserId(userId)) {
+			if (owners.size() == chunkSize)
+				break;
+			Note note = noteArchive.get(noteId);
+			if (note == null || note.getCategory() == null || note.getCategory().getCategoryId() != categoryId)
+				continue;
+			noteIds.add(noteId);
+			owners.add(new Object[] { userId, note.getNoteStatus() });
+		}
+		if (owners.isEmpty())
+			return false;
+		long changeSeq = ChangeSequences.next(session, userId);
+		long now = System.currentTimeMillis();
+		for (int noteId : noteIds) {
+			noteArchive.deleteAfterCommit(noteId, userId);
+			session.save(new NoteTombstone(noteId, userId, now, changeSeq));
+			job.getDeletedNoteIds().add(noteId);
+		}
+		UserCounters.addNoteOwners(session, owners, -1);
+		deleteAttachments(session, job.getDeletedNoteIds());
+		job.setNotesDeleted(job.getNotesDeleted() + owners.size());
+		return true;
+	}
+
+	private void deleteAttachments(Session session, List<Integer> noteIds) {
+		if (noteIds.isEmpty())
+			return;
+		session.createQuery("DELETE FROM Attachment attachment where attachment.noteId in (:noteIds)")
+				.setParameter("noteIds", noteIds).executeUpdate();
+		if (attachmentStore != null) {
+			for (Integer noteId : noteIds)
+				attachmentStore.deleteAllAfterCommit(noteId);
+		}
+	}
+
+}
@@ -0,0 +1,186 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+ * A bounded read-through cache for entities looked up by id. Entries are kept in
+ * least-recently-used order and evicted once either the number of entries or
+ * their estimated size in bytes goes over the limit, so a few large rows cannot
+ * push the heap usage up unnoticed. Hits, misses and evictions are counted per
+ * cache.
+ *
+ * A write has to call invalidate() for the id it changes. When this happens
+ * inside a transaction the entry is dropped again after the commit, so a reader
+ * that loaded the old row in between does not leave it in the cache.
+ *
+ * Entities are mutable and the cache is shared by all requests, so a cache of
+ * entities is given a copier: the cache keeps a copy of the value it loaded and
+ * hands out a fresh copy on every hit, and what a caller does to the value it
+ * got never reaches the cache or another caller.
+ */
+public class EntityCache<K, V> {
+
+	/*
+	 * Loads the value on a miss, typically a session.get() on the database.
+	 */
+	public interface Loader<V, E extends Exception> {
+		V load() throws E;
+	}
+
+	private final String name;
+	private final int maxEntries;
+	private final long maxWeight;
+	private final ToLongFunction<V> weigher;
+	private final UnaryOperator<V> copier;
+	private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true);
+
+	private long weight;
+	private long invalidations;
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	public EntityCache(String name, int maxEntries, long maxWeight, ToLongFunction<V> weigher) {
+		this(name, maxEntries, maxWeight, weigher, UnaryOperator.identity());
+	}
+
+	public EntityCache(String name, int maxEntries, long maxWeight, ToLongFunction<V> weigher,
+			UnaryOperator<V> copier) {
+		this.name = name;
+		this.maxEntries = maxEntries;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.copier = copier;
+	}
+
+	/*
+	 * Return a copy of the cached value, or load it and cache a copy of it. A
+	 * value that was loaded while the cache was being invalidated is returned but
+	 * not kept, as it may already be out of date.
+	 */
+	public <E extends Exception> V get(K key, Loader<V, E> loader) throws E {
+		long epoch;
+		V cached;
+		synchronized (this) {
+			Entry<V> entry = entries.get(key);
+			if (entry != null) {
+				hitCount++;
+				cached = entry.value;
+			} else {
+				missCount++;
+				cached = null;
+			}
+			epoch = invalidations;
+		}
+		if (cached != null)
+			return copier.apply(cached);
+		V value = loader.load();
+		if (value != null)
+			put(key, copier.apply(value), epoch);
+		return value;
+	}
+
+	public void invalidate(K key) {
+		remove(key);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					remove(key);
+				}
+			});
+		}
+	}
+
+	public synchronized void clear() {
+		invalidations++;
+		entries.clear();
+		weight = 0;
+	}
+
+	private synchronized void put(K key, V value, long epoch) {
+		if (epoch != invalidations)
+			return;
+		long valueWeight = weigher.applyAsLong(value);
+		if (valueWeight > maxWeight)
+			return;
+		Entry<V> previous = entries.put(key, new Entry<V>(value, valueWeight));
+		if (previous != null)
+			weight -= previous.weight;
+		weight += valueWeight;
+		Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+		while (entries.size() > maxEntries || weight > maxWeight) {
+			weight -= eldest.next().getValue().weight;
+			eldest.remove();
+			evictionCount++;
+		}
+	}
+
+	private synchronized void remove(K key) {
+		invalidations++;
+		Entry<V> entry = entries.remove(key);
+		if (entry != null)
+			weight -= entry.weight;
+	}
+
+	/*
+	 * Rough size of the character data of an entity, used by the weighers.
+	 */
+	public static long weightOf(String... values) {
+		long weight = 0;
+		for (String value : values) {
+			if (value != null)
+				weight += 40 + 2L * value.length();
+		}
+		return weight;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "EntityCache [name=" + name + ", size=" + entries.size() + ", weight=" + weight + ", hitCount="
+				+ hitCount + ", missCount=" + missCount + ", evictionCount=" + evictionCount + "]";
+	}
+
+	private static class Entry<V> {
+
+		private final V value;
+		private final long weight;
+
+		Entry(V value, long weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+}
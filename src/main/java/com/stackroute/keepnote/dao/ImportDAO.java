@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.List;
+
+import com.stackroute.keepnote.model.ImportCheckpoint;
+
+public interface ImportDAO {
+
+	public ImportCheckpoint getCheckpoint(String importId);
+
+	public void createCheckpoint(ImportCheckpoint checkpoint);
+
+	public void importChunk(ImportCheckpoint checkpoint, List<Object> rows);
+
+}
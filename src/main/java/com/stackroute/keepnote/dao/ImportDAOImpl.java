@@ -0,0 +1,234 @@
+package com.stackroute.keepnote.dao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.OptimisticLockException;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.ImportCheckpoint;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * This class is implementing the ImportDAO interface. Imported rows are written
+ * through a StatelessSession: nothing is kept in a persistence context, there is
+ * no dirty checking and the inserts go out in JDBC batches, so a chunk costs
+ * the same however many chunks came before it.
+ * */
+@Repository
+@Transactional
+public class ImportDAOImpl implements ImportDAO {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final TypeReference<Map<String, Map<Integer, Integer>>> ID_MAPPINGS =
+			new TypeReference<Map<String, Map<Integer, Integer>>>() {
+			};
+
+	private SessionFactory sessionFactory;
+
+	@Autowired
+	public ImportDAOImpl(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+
+	/*
+	 * Retrieve the checkpoint of an import, or null if the import has not been
+	 * started.
+	 */
+	public ImportCheckpoint getCheckpoint(String importId) {
+		Session session = sessionFactory.getCurrentSession();
+		ImportCheckpoint checkpoint = session.get(ImportCheckpoint.class, importId);
+		if (checkpoint == null)
+			return null;
+		session.evict(checkpoint);
+		if (checkpoint.getIdMappings() != null) {
+			try {
+				Map<String, Map<Integer, Integer>> mappings = MAPPER.readValue(checkpoint.getIdMappings(), ID_MAPPINGS);
+				checkpoint.setCategoryIds(mappings.get("category"));
+				checkpoint.setReminderIds(mappings.get("reminder"));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return checkpoint;
+	}
+
+	public void createCheckpoint(ImportCheckpoint checkpoint) {
+		Session session = sessionFactory.getCurrentSession();
+		session.save(checkpoint);
+		session.flush();
+		session.evict(checkpoint);
+	}
+
+	/*
+	 * Insert one chunk of imported rows and move the checkpoint past it, in a
+	 * single transaction. Categories and reminders are inserted first and their
+	 * new ids recorded; then the categories and reminders the notes of the chunk
+	 * refer to are read with one query each, which also makes sure they belong to
+	 * the user. The checkpoint is versioned, so an import that is sent twice at
+	 * the same time fails on its second chunk instead of importing rows twice.
+	 * The user's counters are changed in the same transaction. A chunk that fails
+	 * is rolled back as a whole, counters and checkpoint included, so sending the
+	 * import again resumes right after the last chunk that was committed.
+	 * 
+	 * The method runs outside of any Spring transaction, the StatelessSession has
+	 * a connection and transaction of its own.
+	 */
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public void importChunk(ImportCheckpoint checkpoint, List<Object> rows) {
+		String userId = checkpoint.getCreatedBy();
+		StatelessSession session = sessionFactory.openStatelessSession();
+		Transaction transaction = session.beginTransaction();
+		try {
+			List<Note> notes = new ArrayList<Note>();
+			int categoriesImported = 0;
+			int remindersImported = 0;
+			for (Object row : rows) {
+				if (row instanceof Category) {
+					Category category = (Category) row;
+					int exportedId = category.getCategoryId();
+					category.setCategoryCreatedBy(userId);
+					category.setVersion(0);
+					session.insert(category);
+					checkpoint.getCategoryIds().put(exportedId, category.getCategoryId());
+					categoriesImported++;
+				} else if (row instanceof Reminder) {
+					Reminder reminder = (Reminder) row;
+					int exportedId = reminder.getReminderId();
+					reminder.setReminderCreatedBy(userId);
+					reminder.setVersion(0);
+					session.insert(reminder);
+					checkpoint.getReminderIds().put(exportedId, reminder.getReminderId());
+					remindersImported++;
+				} else {
+					notes.add((Note) row);
+				}
+			}
+
+			if (!notes.isEmpty()) {
+				Map<Integer, Category> categories = loadCategories(session, userId, notes, checkpoint.getCategoryIds());
+				Map<Integer, Reminder> reminders = loadReminders(session, userId, notes, checkpoint.getReminderIds());
+				NoteBodies.acquireStateless(session, notes);
+				long now = System.currentTimeMillis();
+				long changeSeq = ChangeSequences.next(session, userId);
+				for (Note note : notes) {
+					if (note.getCategory() != null) {
+						note.setCategory(categories.get(
+								resolve(checkpoint.getCategoryIds(), note.getCategory().getCategoryId())));
+						if (note.getCategory() == null)
+							checkpoint.setReferencesDropped(checkpoint.getReferencesDropped() + 1);
+					}
+					if (note.getReminder() != null) {
+						note.setReminder(reminders.get(
+								resolve(checkpoint.getReminderIds(), note.getReminder().getReminderId())));
+						if (note.getReminder() == null)
+							checkpoint.setReferencesDropped(checkpoint.getReferencesDropped() + 1);
+					}
+					note.setCreatedBy(userId);
+					note.setVersion(0);
+					note.setLastModified(now);
+					note.setChangeSeq(changeSeq);
+					session.insert(note);
+				}
+				checkpoint.setNotesImported(checkpoint.getNotesImported() + notes.size());
+				UserCounters.addNotes(session, notes, 1);
+			}
+			checkpoint.setCategoriesImported(checkpoint.getCategoriesImported() + categoriesImported);
+			checkpoint.setRemindersImported(checkpoint.getRemindersImported() + remindersImported);
+			UserCounters.addCategories(session, userId, categoriesImported);
+			UserCounters.addReminders(session, userId, remindersImported);
+
+			Map<String, Map<Integer, Integer>> mappings = new HashMap<String, Map<Integer, Integer>>();
+			mappings.put("category", checkpoint.getCategoryIds());
+			mappings.put("reminder", checkpoint.getReminderIds());
+			checkpoint.setIdMappings(MAPPER.writeValueAsString(mappings));
+			checkpoint.setUpdatedAt(new Date());
+			session.update(checkpoint);
+			transaction.commit();
+		} catch (StaleStateException | OptimisticLockException e) {
+			rollback(transaction);
+			throw new ObjectOptimisticLockingFailureException(ImportCheckpoint.class, checkpoint.getImportId(), e);
+		} catch (IOException e) {
+			rollback(transaction);
+			throw new UncheckedIOException(e);
+		} catch (RuntimeException e) {
+			rollback(transaction);
+			throw e;
+		} finally {
+			session.close();
+		}
+	}
+
+	private static void rollback(Transaction transaction) {
+		if (transaction.getStatus().canRollback())
+			transaction.rollback();
+	}
+
+	/*
+	 * The id a reference has here: the id given to the imported row it was
+	 * exported with, or else the id itself, for a reference to one of the user's
+	 * existing rows.
+	 */
+	private static int resolve(Map<Integer, Integer> importedIds, int exportedId) {
+		Integer importedId = importedIds.get(exportedId);
+		return importedId == null ? exportedId : importedId;
+	}
+
+	private static Map<Integer, Category> loadCategories(StatelessSession session, String userId, List<Note> notes,
+			Map<Integer, Integer> importedIds) {
+		Set<Integer> categoryIds = new HashSet<Integer>();
+		for (Note note : notes) {
+			if (note.getCategory() != null)
+				categoryIds.add(resolve(importedIds, note.getCategory().getCategoryId()));
+		}
+		Map<Integer, Category> categories = new HashMap<Integer, Category>();
+		if (categoryIds.isEmpty())
+			return categories;
+		String hql = "FROM Category category where category.categoryId in (:categoryIds) "
+				+ "and category.categoryCreatedBy = :userId";
+		for (Category category : session.createQuery(hql, Category.class).setParameter("categoryIds", categoryIds)
+				.setParameter("userId", userId).getResultList())
+			categories.put(category.getCategoryId(), category);
+		return categories;
+	}
+
+	private static Map<Integer, Reminder> loadReminders(StatelessSession session, String userId, List<Note> notes,
+			Map<Integer, Integer> importedIds) {
+		Set<Integer> reminderIds = new HashSet<Integer>();
+		for (Note note : notes) {
+			if (note.getReminder() != null)
+				reminderIds.add(resolve(importedIds, note.getReminder().getReminderId()));
+		}
+		Map<Integer, Reminder> reminders = new HashMap<Integer, Reminder>();
+		if (reminderIds.isEmpty())
+			return reminders;
+		String hql = "FROM Reminder reminder where reminder.reminderId in (:reminderIds) "
+				+ "and reminder.reminderCreatedBy = :userId";
+		for (Reminder reminder : session.createQuery(hql, Reminder.class).setParameter("reminderIds", reminderIds)
+				.setParameter("userId", userId).getResultList())
+			reminders.put(reminder.getReminderId(), reminder);
+		return reminders;
+	}
+
+}
@@ -0,0 +1,464 @@
+package com.stackroute.keepnote.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Cold storage for notes that were moved out of MySQL. Notes are appended to
+ * segment files in a directory on local disk; a segment is never rewritten, a
+ * new one is started once the current one reaches MAX_SEGMENT_SIZE. Every
+ * record holds one note as deflated JSON behind a small header:
+ *
+ *   int noteId | int payload length | int CRC32 of payload | short owner length | owner | payload
+ *
+ * The index (noteId -> record, createdBy -> noteIds) is kept in memory and is
+ * rebuilt from the record headers when the archive is opened. Segments are read
+ * through read-only memory mappings, so a lookup costs no system call and the
+ * pages stay in the OS page cache instead of MySQL's buffer pool. Deleting an
+ * archived note appends a record with an empty payload for its noteId. Since
+ * deletions are in the same files as the notes, replaying the segments in
+ * order gets a note that was deleted, for instance when it went back to MySQL,
+ * and archived again later right. The deletion log of earlier versions is
+ * turned into such records when the archive is opened.
+ *
+ * A torn record at the end of a segment, left by a crash during an append, is
+ * detected by its length or CRC and cut off when the archive is opened. Notes
+ * are written and forced to disk before the caller removes them from MySQL.
+ */
+public class NoteArchive implements Closeable {
+
+	static final long MAX_SEGMENT_SIZE = 256L << 20;
+
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final String DELETION_LOG = "deleted.log";
+	private static final int HEADER_SIZE = 14;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final Path directory;
+	private final long maxSegmentSize;
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, Location> locations = new HashMap<Integer, Location>();
+	private final Map<String, Set<Integer>> noteIdsByUser = new HashMap<String, Set<Integer>>();
+	private final List<Segment> segments = new ArrayList<Segment>();
+
+	public NoteArchive(Path directory) {
+		this(directory, MAX_SEGMENT_SIZE);
+	}
+
+	public NoteArchive(Path directory, long maxSegmentSize) {
+		this.directory = directory;
+		this.maxSegmentSize = maxSegmentSize;
+		try {
+			Files.createDirectories(directory);
+			for (Path file : segmentFiles())
+				openSegment(file);
+			convertDeletionLog();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot open note archive " + directory, e);
+		}
+	}
+
+	/*
+	 * Append the notes to the current segment and make them visible to lookups.
+	 * Returns once the records are on disk.
+	 */
+	public void append(List<Note> notes) {
+		if (notes.isEmpty())
+			return;
+		lock.writeLock().lock();
+		try {
+			Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+			List<Location> written = new ArrayList<Location>();
+			for (Note note : notes) {
+				byte[] record = encode(note);
+				if (segment == null || segment.size + record.length > maxSegmentSize) {
+					if (segment != null)
+						flush(segment, written);
+					segment = createSegment();
+				}
+				written.add(segment.write(record, note.getNoteId()));
+			}
+			flush(segment, written);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write to note archive " + directory, e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * Read an archived note, or return null if it is not in the archive.
+	 */
+	public Note get(int noteId) {
+		lock.readLock().lock();
+		try {
+			Location location = locations.get(noteId);
+			return location == null ? null : read(location);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * Read all archived notes of a user, ordered by noteId.
+	 */
+	public List<Note> getNotesByUserId(String userId) {
+		lock.readLock().lock();
+		try {
+			List<Integer> noteIds = getNoteIdsByUserId(userId);
+			List<Note> notes = new ArrayList<Note>(noteIds.size());
+			for (int noteId : noteIds)
+				notes.add(read(locations.get(noteId)));
+			return notes;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * The ids of the archived notes of a user, in ascending order. Reading the
+	 * notes one at a time with get() keeps only one of them in memory; a note
+	 * deleted in between is then returned as null.
+	 */
+	public List<Integer> getNoteIdsByUserId(String userId) {
+		lock.readLock().lock();
+		try {
+			Set<Integer> noteIds = noteIdsByUser.get(userId);
+			if (noteIds == null)
+				return new ArrayList<Integer>();
+			List<Integer> sortedIds = new ArrayList<Integer>(noteIds);
+			Collections.sort(sortedIds);
+			return sortedIds;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * Delete an archived note of the given user. Returns false if the note is not
+	 * archived or belongs to someone else.
+	 */
+	public boolean delete(int noteId, String userId) {
+		lock.writeLock().lock();
+		try {
+			Location location = locations.get(noteId);
+			if (location == null || !location.owner.equals(userId))
+				return false;
+			Segment segment = writeDeletion(noteId, userId);
+			segment.channel.force(false);
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Cannot write to note archive " + directory, e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * Delete an archived note of the given user once the current transaction has
+	 * committed, or right away outside of a transaction. Used when the note was
+	 * moved back to MySQL: if the transaction rolls back, the archive still has
+	 * the note.
+	 */
+	public void deleteAfterCommit(int noteId, String userId) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			delete(noteId, userId);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				delete(noteId, userId);
+			}
+		});
+	}
+
+	/*
+	 * Delete the notes again if the current transaction rolls back. Used when
+	 * notes were appended before they are deleted from MySQL: if that delete does
+	 * not commit, the notes are only kept in MySQL.
+	 */
+	public void deleteOnRollback(List<Note> notes) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+			return;
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status == STATUS_ROLLED_BACK) {
+					for (Note note : notes)
+						delete(note.getNoteId(), note.getCreatedBy());
+				}
+			}
+		});
+	}
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return locations.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		lock.writeLock().lock();
+		try {
+			for (Segment segment : segments)
+				segment.channel.close();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private byte[] encode(Note note) throws IOException {
+		byte[] json = mapper.writeValueAsBytes(note);
+		Deflater deflater = new Deflater();
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 2 + 64);
+		try {
+			deflater.setInput(json);
+			deflater.finish();
+			byte[] chunk = new byte[4096];
+			while (!deflater.finished())
+				compressed.write(chunk, 0, deflater.deflate(chunk));
+		} finally {
+			deflater.end();
+		}
+		byte[] payload = compressed.toByteArray();
+		byte[] owner = note.getCreatedBy().getBytes(StandardCharsets.UTF_8);
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + owner.length + payload.length);
+		record.putInt(note.getNoteId()).putInt(payload.length).putInt((int) crc.getValue())
+				.putShort((short) owner.length).put(owner).put(payload);
+		return record.array();
+	}
+
+	private Note read(Location location) {
+		ByteBuffer buffer = location.segment.mapping.duplicate();
+		buffer.position(location.payloadOffset);
+		byte[] payload = new byte[location.payloadLength];
+		buffer.get(payload);
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(payload);
+			ByteArrayOutputStream json = new ByteArrayOutputStream(payload.length * 4);
+			byte[] chunk = new byte[4096];
+			while (!inflater.finished()) {
+				int length = inflater.inflate(chunk);
+				if (length == 0 && inflater.needsInput())
+					throw new DataFormatException("Truncated record");
+				json.write(chunk, 0, length);
+			}
+			return mapper.readValue(json.toByteArray(), Note.class);
+		} catch (DataFormatException | IOException e) {
+			throw new IllegalStateException("Corrupt archived note " + location.noteId, e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private List<Path> segmentFiles() throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path file : stream)
+				files.add(file);
+		}
+		Collections.sort(files);
+		return files;
+	}
+
+	/*
+	 * Force the records appended to a segment to disk, map the grown file again
+	 * and only then make the records visible to lookups.
+	 */
+	private void flush(Segment segment, List<Location> written) throws IOException {
+		segment.channel.force(false);
+		segment.remap();
+		for (Location location : written)
+			index(location);
+		written.clear();
+	}
+
+	private Segment createSegment() throws IOException {
+		Path file = directory.resolve(String.format("%s%06d%s", SEGMENT_PREFIX, segments.size() + 1, SEGMENT_SUFFIX));
+		Segment segment = new Segment(FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE), 0);
+		segments.add(segment);
+		return segment;
+	}
+
+	/*
+	 * Append the record that deletes a note to the current segment and take the
+	 * note out of the index. The caller forces the segment to disk.
+	 */
+	private Segment writeDeletion(int noteId, String owner) throws IOException {
+		byte[] ownerBytes = owner.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + ownerBytes.length);
+		record.putInt(noteId).putInt(0).putInt(0).putShort((short) ownerBytes.length).put(ownerBytes);
+		Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+		if (segment == null || segment.size + record.capacity() > maxSegmentSize)
+			segment = createSegment();
+		segment.write(record.array(), noteId);
+		unindex(noteId);
+		return segment;
+	}
+
+	/*
+	 * Index the records of an existing segment, cutting off a torn record at the
+	 * end. A record with an empty payload deletes the note.
+	 */
+	private void openSegment(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		Segment segment = new Segment(channel, channel.size());
+		segment.remap();
+		ByteBuffer buffer = segment.mapping.duplicate();
+		int offset = 0;
+		while (buffer.remaining() >= HEADER_SIZE) {
+			buffer.position(offset);
+			int noteId = buffer.getInt();
+			int payloadLength = buffer.getInt();
+			int checksum = buffer.getInt();
+			int ownerLength = buffer.getShort() & 0xffff;
+			if (payloadLength < 0 || buffer.remaining() < ownerLength + (long) payloadLength)
+				break;
+			byte[] owner = new byte[ownerLength];
+			buffer.get(owner);
+			int payloadOffset = buffer.position();
+			byte[] payload = new byte[payloadLength];
+			buffer.get(payload);
+			CRC32 crc = new CRC32();
+			crc.update(payload);
+			if ((int) crc.getValue() != checksum)
+				break;
+			if (payloadLength == 0)
+				unindex(noteId);
+			else
+				index(new Location(segment, noteId, new String(owner, StandardCharsets.UTF_8), payloadOffset,
+						payloadLength));
+			offset = buffer.position();
+		}
+		if (offset < segment.size) {
+			channel.truncate(offset);
+			segment.size = offset;
+			segment.remap();
+		}
+		segments.add(segment);
+	}
+
+	/*
+	 * Write the deletions of the deletion log of earlier versions as records and
+	 * remove the log. Its noteIds were deleted for good: nothing moved notes out
+	 * of the archive but deleting them.
+	 */
+	private void convertDeletionLog() throws IOException {
+		Path log = directory.resolve(DELETION_LOG);
+		if (!Files.exists(log))
+			return;
+		ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(log));
+		Segment segment = null;
+		while (entries.remaining() >= 4) {
+			int noteId = entries.getInt();
+			Location location = locations.get(noteId);
+			if (location != null)
+				segment = writeDeletion(noteId, location.owner);
+		}
+		if (segment != null)
+			segment.channel.force(false);
+		Files.delete(log);
+	}
+
+	private void index(Location location) {
+		Location previous = locations.put(location.noteId, location);
+		if (previous != null && !previous.owner.equals(location.owner))
+			noteIdsByUser.get(previous.owner).remove(location.noteId);
+		noteIdsByUser.computeIfAbsent(location.owner, key -> new LinkedHashSet<Integer>()).add(location.noteId);
+	}
+
+	private void unindex(int noteId) {
+		Location location = locations.remove(noteId);
+		if (location == null)
+			return;
+		Set<Integer> noteIds = noteIdsByUser.get(location.owner);
+		noteIds.remove(noteId);
+		if (noteIds.isEmpty())
+			noteIdsByUser.remove(location.owner);
+	}
+
+	private static class Segment {
+
+		private final FileChannel channel;
+		private long size;
+		private MappedByteBuffer mapping;
+
+		Segment(FileChannel channel, long size) {
+			this.channel = channel;
+			this.size = size;
+		}
+
+		Location write(byte[] record, int noteId) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(record);
+			long offset = size;
+			while (buffer.hasRemaining())
+				size += channel.write(buffer, size);
+			int ownerLength = ((record[12] & 0xff) << 8) | (record[13] & 0xff);
+			return new Location(this, noteId,
+					new String(record, HEADER_SIZE, ownerLength, StandardCharsets.UTF_8),
+					(int) offset + HEADER_SIZE + ownerLength, record.length - HEADER_SIZE - ownerLength);
+		}
+
+		void remap() throws IOException {
+			mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+	}
+
+	private static class Location {
+
+		private final Segment segment;
+		private final int noteId;
+		private final String owner;
+		private final int payloadOffset;
+		private final int payloadLength;
+
+		Location(Segment segment, int noteId, String owner, int payloadOffset, int payloadLength) {
+			this.segment = segment;
+			this.noteId = noteId;
+			this.owner = owner;
+			this.payloadOffset = payloadOffset;
+			this.payloadLength = payloadLength;
+		}
+	}
+
+}
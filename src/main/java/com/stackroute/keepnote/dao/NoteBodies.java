@@ -0,0 +1,130 @@
+package com.stackroute.keepnote.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.SharedSessionContract;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBody;
+
+/*
+ * Keeps the reference counts of the note bodies. Taking a reference is a single
+ * INSERT ... ON DUPLICATE KEY UPDATE, so two transactions storing the same new
+ * content cannot both insert it; releasing one is an UPDATE, and the body is
+ * deleted once its count reaches zero. The delete also checks that no note
+ * refers to the body any more, so a count that has drifted can only ever keep
+ * a body too long, never break a note.
+ *
+ * The statements are MySQL's, like the rest of the schema.
+ */
+final class NoteBodies {
+
+	private static final String ACQUIRE = "INSERT INTO NoteBody (contentHash, content, refCount) "
+			+ "VALUES (:contentHash, :content, :count) ON DUPLICATE KEY UPDATE refCount = refCount + :count";
+	private static final String RELEASE = "UPDATE NoteBody SET refCount = refCount - :count "
+			+ "WHERE contentHash = :contentHash";
+	private static final String DELETE_UNUSED = "DELETE FROM NoteBody WHERE contentHash IN (:contentHashes) "
+			+ "AND refCount <= 0 AND NOT EXISTS (SELECT 1 FROM Note WHERE Note.contentHash = NoteBody.contentHash)";
+
+	private NoteBodies() {
+	}
+
+	static String hash(String content) {
+		if (content == null)
+			throw new IllegalArgumentException("noteContent is required");
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+			StringBuilder hash = new StringBuilder(64);
+			for (byte b : digest)
+				hash.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			return hash.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Take one reference on the body of every note, with one statement per
+	 * distinct content rather than per note, and point the notes at their
+	 * bodies. The notes are then ready to be saved.
+	 */
+	static void acquire(Session session, List<Note> notes) {
+		acquireAll(session, notes);
+		for (Note note : notes)
+			note.setBody(session.load(NoteBody.class, hash(note.getNoteContent())));
+	}
+
+	/*
+	 * The same for a StatelessSession, which has no proxies: the notes get a
+	 * NoteBody that carries only the hash, which is all the insert of a note
+	 * reads from it.
+	 */
+	static void acquireStateless(SharedSessionContract session, List<Note> notes) {
+		Map<String, NoteBody> bodies = new HashMap<String, NoteBody>();
+		for (String contentHash : acquireAll(session, notes).keySet())
+			bodies.put(contentHash, new NoteBody(contentHash, null, 0));
+		for (Note note : notes)
+			note.setBody(bodies.get(hash(note.getNoteContent())));
+	}
+
+	private static Map<String, Long> acquireAll(SharedSessionContract session, List<Note> notes) {
+		Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		Map<String, String> contents = new HashMap<String, String>();
+		for (Note note : notes) {
+			String contentHash = hash(note.getNoteContent());
+			counts.merge(contentHash, 1L, Long::sum);
+			contents.putIfAbsent(contentHash, note.getNoteContent());
+		}
+		for (Map.Entry<String, Long> count : counts.entrySet())
+			session.createNativeQuery(ACQUIRE).addSynchronizedEntityClass(NoteBody.class)
+					.setParameter("contentHash", count.getKey()).setParameter("content", contents.get(count.getKey()))
+					.setParameter("count", count.getValue()).executeUpdate();
+		return counts;
+	}
+
+	/*
+	 * Count the references the given notes hold, by body. Has to be read before
+	 * the notes are deleted.
+	 */
+	static Map<String, Long> references(Session session, Collection<Integer> noteIds) {
+		Map<String, Long> references = new HashMap<String, Long>();
+		if (noteIds.isEmpty())
+			return references;
+		String hql = "select note.body.contentHash, count(note) FROM Note note where note.noteId in (:noteIds) "
+				+ "group by note.body.contentHash";
+		for (Object[] row : session.createQuery(hql, Object[].class).setParameter("noteIds", noteIds)
+				.getResultList())
+			references.put((String) row[0], (Long) row[1]);
+		return references;
+	}
+
+	/*
+	 * Give up the given references, after the notes holding them have been deleted
+	 * or pointed at another body, and delete the bodies that are no longer used.
+	 */
+	static void release(SharedSessionContract session, Map<String, Long> references) {
+		if (references.isEmpty())
+			return;
+		for (Map.Entry<String, Long> reference : references.entrySet())
+			session.createNativeQuery(RELEASE).addSynchronizedEntityClass(NoteBody.class)
+					.setParameter("contentHash", reference.getKey()).setParameter("count", reference.getValue())
+					.executeUpdate();
+		session.createNativeQuery(DELETE_UNUSED).addSynchronizedEntityClass(NoteBody.class)
+				.setParameter("contentHashes", references.keySet()).executeUpdate();
+	}
+
+	static void release(SharedSessionContract session, String contentHash) {
+		Map<String, Long> references = new HashMap<String, Long>();
+		references.put(contentHash, 1L);
+		release(session, references);
+	}
+
+}
@@ -1,9 +1,15 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.stackroute.keepnote.exception.ChangeTokenExpiredException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteChanges;
+import com.stackroute.keepnote.model.NoteFilter;
+import com.stackroute.keepnote.model.NoteSummary;
 
 public interface NoteDAO {
 
@@ -14,12 +20,32 @@ public interface NoteDAO {
 
 	public boolean createNote(Note note);
 
+	public void createNotes(List<Note> notes);
+
 	public boolean deleteNote(int noteId)throws NoteNotFoundException;
 
+	public boolean deleteNote(int noteId, String userId);
+
 	public List<Note> getAllNotesByUserId(String userId);
 
+	public List<NoteSummary> getNoteSummariesByUserId(String userId);
+
+	public List<Note> archiveNotesOlderThan(Date cutoff, int afterNoteId, int limit);
+
+	public NoteChanges getNoteChanges(String userId, long since) throws ChangeTokenExpiredException;
+
+	public int pruneTombstonesOlderThan(long cutoff, int limit);
+
+	public List<Note> getNotesByUserIdFiltered(String userId, NoteFilter filter, int afterNoteId, int limit);
+
+	public List<Note> getNotesByUserIdAfter(String userId, int afterNoteId, int limit);
+
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer);
+
 	public Note getNoteById(int noteId) throws NoteNotFoundException;
 
 	public boolean UpdateNote(Note note);
 
+	public Note patchNote(int noteId, String userId, Consumer<Note> changes) throws NoteNotFoundException;
+
 }
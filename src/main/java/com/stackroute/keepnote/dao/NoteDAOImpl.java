@@ -1,18 +1,35 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
-import org.hibernate.HibernateException;
+import org.hibernate.ReplicationMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.stackroute.keepnote.exception.ChangeTokenExpiredException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBody;
+import com.stackroute.keepnote.model.NoteChanges;
+import com.stackroute.keepnote.model.NoteFilter;
+import com.stackroute.keepnote.model.NoteSummary;
+import com.stackroute.keepnote.model.NoteTombstone;
 
 /*
  * This class is implementing the UserDAO interface. This class has to be annotated with 
@@ -27,15 +44,48 @@ import com.stackroute.keepnote.model.Note;
 @Transactional
 public class NoteDAOImpl implements NoteDAO {
 
+	private static final int BATCH_SIZE = 50;
+
+	/*
+	 * Fetch plan of the note read queries: category, reminder and the body holding
+	 * the content are loaded by the query that reads the notes, so a list costs
+	 * one statement.
+	 */
+	private static final String FETCH_REFERENCES = "left join fetch note.category left join fetch note.reminder "
+			+ "join fetch note.body ";
+
 	/*
 	 * Autowiring should be implemented for the SessionFactory.(Use
 	 * constructor-based autowiring.
 	 */
 	@Autowired
 	private SessionFactory sessionFactory;
+
+	/*
+	 * Where notes that were archived out of MySQL are read from; null when the
+	 * DAO runs without an archive.
+	 */
+	private NoteArchive noteArchive;
+
+	/*
+	 * Holds the files of the attachments, which are deleted with their note; null
+	 * when the DAO runs without attachment files.
+	 */
+	private AttachmentStore attachmentStore;
 	
 	public NoteDAOImpl(SessionFactory sessionFactory) {
+		this(sessionFactory, null, null);
+	}
+
+	public NoteDAOImpl(SessionFactory sessionFactory, NoteArchive noteArchive) {
+		this(sessionFactory, noteArchive, null);
+	}
+
+	@Autowired
+	public NoteDAOImpl(SessionFactory sessionFactory, NoteArchive noteArchive, AttachmentStore attachmentStore) {
 		this.sessionFactory = sessionFactory;
+		this.noteArchive = noteArchive;
+		this.attachmentStore = attachmentStore;
 	}
 	
 	public SessionFactory getSessionFactory() {
@@ -47,54 +97,375 @@ public class NoteDAOImpl implements NoteDAO {
 	}
 
 	/*
-	 * Create a new note
+	 * Create a new note. The content is stored in its NoteBody, which is shared
+	 * with every other note that has the same content.
 	 */
 	
 	public boolean createNote(Note note) {
 		Session session =sessionFactory.getCurrentSession();
+		note.setLastModified(System.currentTimeMillis());
+		note.setChangeSeq(ChangeSequences.next(session, note.getCreatedBy()));
+		NoteBodies.acquire(session, Collections.singletonList(note));
 		session.save(note);
+		UserCounters.addNote(session, note.getCreatedBy(), note.getNoteStatus(), 1);
 		session.flush();
 		return true;
 
 	}
 
 	/*
-	 * Remove an existing note
+	 * Create several notes in one transaction. The inserts are sent to MySQL in
+	 * JDBC batches of hibernate.jdbc.batch_size statements; the session is flushed
+	 * and cleared after every batch so it does not grow with the size of the
+	 * request. The bodies of a batch are stored before its notes, with one
+	 * statement per distinct content, and the notes are counted once for the
+	 * whole list. The notes of an owner share one change number. A note the
+	 * database rejects fails the whole list.
 	 */
-	
-	public boolean deleteNote(int noteId) {
-		boolean flag = true;
-		try {
-			if(getNoteById(noteId)==null) {
-				flag = false;
-			}else {
-				Session session = sessionFactory.getCurrentSession();
-				session.delete(getNoteById(noteId));
+
+	public void createNotes(List<Note> notes) {
+		Session session = sessionFactory.getCurrentSession();
+		long now = System.currentTimeMillis();
+		Set<String> owners = new HashSet<String>();
+		for (Note note : notes)
+			owners.add(note.getCreatedBy());
+		Map<String, Long> seqs = ChangeSequences.next(session, owners);
+		for (int i = 0; i < notes.size(); i++) {
+			if (i % BATCH_SIZE == 0)
+				NoteBodies.acquire(session, notes.subList(i, Math.min(i + BATCH_SIZE, notes.size())));
+			notes.get(i).setLastModified(now);
+			notes.get(i).setChangeSeq(seqs.get(notes.get(i).getCreatedBy()));
+			session.save(notes.get(i));
+			if ((i + 1) % BATCH_SIZE == 0) {
 				session.flush();
+				session.clear();
 			}
-		} catch (HibernateException e) {
-			e.printStackTrace();
-		} catch (NoteNotFoundException e) {
-			e.printStackTrace();
 		}
-		return flag;
+		UserCounters.addNotes(session, notes, 1);
+		session.flush();
+		session.clear();
+	}
+
+	/*
+	 * Remove an existing note. A single DELETE is issued and a note that does not
+	 * exist is recognised by the affected-row count, without loading it first.
+	 * The owner is read beforehand for the tombstone of the change feed.
+	 */
+	
+	public boolean deleteNote(int noteId) {
+		Session session = sessionFactory.getCurrentSession();
+		List<String> owners = session.createQuery("select note.createdBy FROM Note note where note.noteId = :noteId",
+				String.class).setParameter("noteId", noteId).getResultList();
+		if (owners.isEmpty()) {
+			Note archived = noteArchive == null ? null : noteArchive.get(noteId);
+			return archived != null && deleteNote(noteId, archived.getCreatedBy());
+		}
+		return deleteNote(noteId, owners.get(0));
 		
 	}
 
 	/*
-	 * Retrieve details of all notes by userId
+	 * Remove an existing note of the given user. A note that belongs to someone
+	 * else is reported the same way as a note that does not exist. The body and
+	 * status of the note are read with one select scoped to the owner, for the
+	 * body reference and the counters. A tombstone is written so that the change
+	 * feed can report the deletion. A note that is not in MySQL any more is
+	 * deleted from the archive, and a copy of a note the archive may still hold
+	 * goes with the note, both once the transaction has committed, so a rollback
+	 * keeps the note. The attachments of the note are deleted with it, their files
+	 * once the transaction has committed.
+	 */
+
+	public boolean deleteNote(int noteId, String userId) {
+		String hql = "DELETE FROM Note note where noteId = :noteId and createdBy = :userId";
+		Session session = sessionFactory.getCurrentSession();
+		List<Object[]> previous = session
+				.createQuery("select note.body.contentHash, note.noteStatus FROM Note note "
+						+ "where note.noteId = :noteId and note.createdBy = :userId", Object[].class)
+				.setParameter("noteId", noteId).setParameter("userId", userId).getResultList();
+		Query query = session.createQuery(hql).setParameter("noteId", noteId).setParameter("userId", userId);
+		long changeSeq;
+		if (!previous.isEmpty() && query.executeUpdate() > 0) {
+			NoteBodies.release(session, (String) previous.get(0)[0]);
+			changeSeq = ChangeSequences.next(session, userId);
+			UserCounters.addNote(session, userId, (String) previous.get(0)[1], -1);
+			if (noteArchive != null)
+				noteArchive.deleteAfterCommit(noteId, userId);
+		} else {
+			Note archived = noteArchive == null ? null : noteArchive.get(noteId);
+			if (archived == null || !archived.getCreatedBy().equals(userId))
+				return false;
+			noteArchive.deleteAfterCommit(noteId, userId);
+			changeSeq = ChangeSequences.next(session, userId);
+			UserCounters.addNote(session, userId, archived.getNoteStatus(), -1);
+		}
+		session.save(new NoteTombstone(noteId, userId, System.currentTimeMillis(), changeSeq));
+		session.createQuery("DELETE FROM Attachment attachment where attachment.noteId = :noteId")
+				.setParameter("noteId", noteId).executeUpdate();
+		if (attachmentStore != null)
+			attachmentStore.deleteAllAfterCommit(noteId);
+		session.flush();
+		return true;
+	}
+
+	/*
+	 * Retrieve details of all notes by userId, the archived ones included, in
+	 * noteId order. Category and reminder are fetched in the same statement; left
+	 * to the eager @ManyToOne mapping, Hibernate would run one more select for
+	 * every distinct category and reminder in the list.
 	 */
 	
 	public List<Note> getAllNotesByUserId(String userId) {
-		String hql = "FROM Note note where createdBy =  :userId ";
-        Query query = sessionFactory.getCurrentSession().createQuery(hql).setParameter("userId", userId);
-		List result = query.getResultList();
-		return result;
+		String hql = "select note FROM Note note " + FETCH_REFERENCES + "where note.createdBy = :userId";
+		Session session = sessionFactory.getCurrentSession();
+        Query query = session.createQuery(hql).setParameter("userId", userId);
+		List<Note> result = query.getResultList();
+		return ArchivedNotes.merge(result, ArchivedNotes.getNotes(session, noteArchive, userId, null, 0, 0),
+				Note::getNoteId, 0);
+
+	}
+
+	/*
+	 * Retrieve the summaries of all notes of a user, the archived ones included.
+	 * Only the listed columns are selected, so the note content is never read and
+	 * the category is joined in the same statement instead of being loaded as an
+	 * entity.
+	 */
+
+	public List<NoteSummary> getNoteSummariesByUserId(String userId) {
+		String hql = "select new com.stackroute.keepnote.model.NoteSummary(note.noteId, note.noteTitle, "
+				+ "note.noteStatus, note.noteCreatedAt, category.categoryName) "
+				+ "FROM Note note left join note.category category where note.createdBy = :userId order by note.noteId";
+		Session session = sessionFactory.getCurrentSession();
+		List<NoteSummary> summaries = session.createQuery(hql, NoteSummary.class).setParameter("userId", userId)
+				.getResultList();
+		List<NoteSummary> archived = new ArrayList<NoteSummary>();
+		for (Note note : ArchivedNotes.getNotes(session, noteArchive, userId, null, 0, 0))
+			archived.add(new NoteSummary(note.getNoteId(), note.getNoteTitle(), note.getNoteStatus(),
+					note.getNoteCreatedAt(), note.getCategory() == null ? null : note.getCategory().getCategoryName()));
+		return ArchivedNotes.merge(summaries, archived, NoteSummary::getNoteId, 0);
+	}
+
+	/*
+	 * Retrieve the notes of a user that match the filter, ordered by noteId and
+	 * starting after the given noteId; a limit of 0 returns all of them. Only the
+	 * conditions that are set end up in the where clause, always as parameters.
+	 * The (createdBy, noteStatus) and (createdBy, noteCreatedAt) indexes serve
+	 * the status and date range conditions. The archived notes that match are
+	 * merged in by noteId.
+	 */
+
+	public List<Note> getNotesByUserIdFiltered(String userId, NoteFilter filter, int afterNoteId, int limit) {
+		StringBuilder hql = new StringBuilder("select note FROM Note note ").append(FETCH_REFERENCES)
+				.append("where note.createdBy = :userId and note.noteId > :afterNoteId");
+		if (filter.getNoteStatus() != null)
+			hql.append(" and note.noteStatus = :noteStatus");
+		if (filter.getFrom() != null)
+			hql.append(" and note.noteCreatedAt >= :from");
+		if (filter.getTo() != null)
+			hql.append(" and note.noteCreatedAt < :to");
+		if (filter.getCategoryId() != null)
+			hql.append(" and note.category.categoryId = :categoryId");
+		if (filter.getReminderId() != null)
+			hql.append(" and note.reminder.reminderId = :reminderId");
+		hql.append(" order by note.noteId");
+
+		TypedQuery<Note> query = sessionFactory.getCurrentSession().createQuery(hql.toString(), Note.class)
+				.setParameter("userId", userId).setParameter("afterNoteId", afterNoteId);
+		if (filter.getNoteStatus() != null)
+			query.setParameter("noteStatus", filter.getNoteStatus());
+		if (filter.getFrom() != null)
+			query.setParameter("from", filter.getFrom());
+		if (filter.getTo() != null)
+			query.setParameter("to", filter.getTo());
+		if (filter.getCategoryId() != null)
+			query.setParameter("categoryId", filter.getCategoryId());
+		if (filter.getReminderId() != null)
+			query.setParameter("reminderId", filter.getReminderId());
+		if (limit > 0)
+			query.setMaxResults(limit);
+		return ArchivedNotes.merge(query.getResultList(), ArchivedNotes.getNotes(sessionFactory.getCurrentSession(),
+				noteArchive, userId, filter, afterNoteId, limit), Note::getNoteId, limit);
+	}
+
+	/*
+	 * Move notes that were created and last written before the cutoff from MySQL
+	 * into the archive, at most limit of them with a noteId above afterNoteId,
+	 * and return the notes moved in noteId order. The caller passes the last
+	 * noteId of the previous batch, so every batch starts where the last one
+	 * stopped instead of reading past the notes that are too new again; the
+	 * lastModified index lets MySQL go straight to the old notes when there are
+	 * few. They are forced to disk in the archive before they are deleted here,
+	 * and deleted from the archive again if the transaction rolls back. The notes
+	 * stay in the user's counters, the archived notes are counted like the
+	 * others. The change feed cannot answer for an archived note, so the change
+	 * numbers of the notes are marked as pruned in the ChangeSequence of their
+	 * owners.
+	 */
+
+	public List<Note> archiveNotesOlderThan(Date cutoff, int afterNoteId, int limit) {
+		if (noteArchive == null)
+			return new ArrayList<Note>();
+		Session session = sessionFactory.getCurrentSession();
+		String hql = "select note FROM Note note " + FETCH_REFERENCES
+				+ "where note.noteId > :afterNoteId and note.noteCreatedAt < :cutoff "
+				+ "and note.lastModified < :cutoffTime order by note.noteId";
+		List<Note> notes = session.createQuery(hql, Note.class).setParameter("afterNoteId", afterNoteId)
+				.setParameter("cutoff", cutoff).setParameter("cutoffTime", cutoff.getTime()).setMaxResults(limit)
+				.getResultList();
+		if (notes.isEmpty())
+			return notes;
+		noteArchive.append(notes);
+		noteArchive.deleteOnRollback(notes);
+		List<Integer> noteIds = new ArrayList<Integer>(notes.size());
+		Map<String, Long> references = new HashMap<String, Long>();
+		Map<String, Long> pruned = new HashMap<String, Long>();
+		for (Note note : notes) {
+			noteIds.add(note.getNoteId());
+			references.merge(note.getBody().getContentHash(), 1L, Long::sum);
+			pruned.merge(note.getCreatedBy(), note.getChangeSeq(), Math::max);
+			session.evict(note);
+		}
+		session.createQuery("DELETE FROM Note note where note.noteId in (:noteIds)").setParameter("noteIds", noteIds)
+				.executeUpdate();
+		NoteBodies.release(session, references);
+		ChangeSequences.prune(session, pruned);
+		return notes;
+	}
+
+	/*
+	 * Retrieve the changes to the notes of a user after the given change number:
+	 * the notes created or updated, oldest change first, and the noteIds of the
+	 * notes deleted, up to the last number of the user, which is returned for the
+	 * next call. A number below 0 returns every note. Everything is read in this
+	 * transaction, and every number up to the last one has committed before it
+	 * was read, so nothing in between is missed. The (createdBy, changeSeq)
+	 * indexes limit the rows read to the ones that changed. A number from before
+	 * the last pruning, or above the last number, can no longer be answered.
+	 */
+
+	public NoteChanges getNoteChanges(String userId, long since) throws ChangeTokenExpiredException {
+		Session session = sessionFactory.getCurrentSession();
+		List<Object[]> sequence = session.createQuery("select sequence.lastSeq, sequence.prunedSeq "
+				+ "FROM ChangeSequence sequence where sequence.userId = :userId", Object[].class)
+				.setParameter("userId", userId).getResultList();
+		long lastSeq = sequence.isEmpty() ? 0 : (Long) sequence.get(0)[0];
+		long prunedSeq = sequence.isEmpty() ? 0 : (Long) sequence.get(0)[1];
+		if (since < 0)
+			return new NoteChanges(getAllNotesByUserId(userId), new ArrayList<Integer>(), lastSeq);
+		if (since > lastSeq || since < prunedSeq)
+			throw new ChangeTokenExpiredException("ChangeTokenExpiredException");
+		String hql = "select note FROM Note note " + FETCH_REFERENCES + "where note.createdBy = :userId "
+				+ "and note.changeSeq > :since and note.changeSeq <= :lastSeq order by note.changeSeq";
+		List<Note> notes = session.createQuery(hql, Note.class).setParameter("userId", userId)
+				.setParameter("since", since).setParameter("lastSeq", lastSeq).getResultList();
+		hql = "select tombstone.noteId FROM NoteTombstone tombstone where tombstone.createdBy = :userId "
+				+ "and tombstone.changeSeq > :since and tombstone.changeSeq <= :lastSeq";
+		List<Integer> deletedNoteIds = session.createQuery(hql, Integer.class).setParameter("userId", userId)
+				.setParameter("since", since).setParameter("lastSeq", lastSeq).getResultList();
+		return new NoteChanges(notes, deletedNoteIds, lastSeq);
+	}
+
+	/*
+	 * Delete at most limit tombstones written before the cutoff, oldest first, and
+	 * return how many were deleted. Their change numbers are marked as pruned in
+	 * the ChangeSequence of their owners, in the same transaction, so a token
+	 * that would have needed them is told to sync again.
+	 */
+
+	public int pruneTombstonesOlderThan(long cutoff, int limit) {
+		Session session = sessionFactory.getCurrentSession();
+		List<NoteTombstone> tombstones = session
+				.createQuery("FROM NoteTombstone tombstone where tombstone.deletedAt < :cutoff "
+						+ "order by tombstone.deletedAt", NoteTombstone.class)
+				.setParameter("cutoff", cutoff).setMaxResults(limit).getResultList();
+		if (tombstones.isEmpty())
+			return 0;
+		List<Integer> noteIds = new ArrayList<Integer>(tombstones.size());
+		Map<String, Long> pruned = new HashMap<String, Long>();
+		for (NoteTombstone tombstone : tombstones) {
+			noteIds.add(tombstone.getNoteId());
+			pruned.merge(tombstone.getCreatedBy(), tombstone.getChangeSeq(), Math::max);
+			session.evict(tombstone);
+		}
+		ChangeSequences.prune(session, pruned);
+		return session.createQuery("DELETE FROM NoteTombstone tombstone where tombstone.noteId in (:noteIds)")
+				.setParameter("noteIds", noteIds).executeUpdate();
+	}
+
+	/*
+	 * Retrieve one page of a user's notes, ordered by noteId and starting after the
+	 * given noteId. The (createdBy, noteId) index keeps the cost of a page the same
+	 * however deep the caller has paged. The page is filled from MySQL and the
+	 * archive alike: both are read from the same noteId on and merged.
+	 */
+
+	public List<Note> getNotesByUserIdAfter(String userId, int afterNoteId, int limit) {
+		String hql = "select note FROM Note note " + FETCH_REFERENCES
+				+ "where note.createdBy = :userId and note.noteId > :afterNoteId order by note.noteId";
+		Session session = sessionFactory.getCurrentSession();
+		Query query = session.createQuery(hql).setParameter("userId", userId)
+				.setParameter("afterNoteId", afterNoteId).setMaxResults(limit);
+		List<Note> result = query.getResultList();
+		return ArchivedNotes.merge(result,
+				ArchivedNotes.getNotes(session, noteArchive, userId, null, afterNoteId, limit), Note::getNoteId, limit);
+	}
+
+	/*
+	 * Hand every note of a user to the consumer, the archived ones included, in
+	 * noteId order. The rows are read through a forward-only cursor (a fetch size
+	 * of Integer.MIN_VALUE makes the MySQL driver stream them) and each note is
+	 * evicted from the session once the consumer is done with it, so memory use
+	 * does not grow with the number of notes. Category and reminder are fetched
+	 * in the same statement because the connection cannot run another query while
+	 * the cursor is open; for the same reason the archived notes, read from the
+	 * archive one at a time and merged in between, keep the category and reminder
+	 * they had when they were archived. A note restored to MySQL whose copy the
+	 * archive still holds is handed over once.
+	 */
+
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer) {
+		String hql = "select note FROM Note note " + FETCH_REFERENCES
+				+ "where note.createdBy = :userId order by note.noteId";
+		Session session = sessionFactory.getCurrentSession();
+		List<Integer> archived = noteArchive == null ? Collections.<Integer>emptyList()
+				: noteArchive.getNoteIdsByUserId(userId);
+		int nextArchived = 0;
+		ScrollableResults results = session.createQuery(hql).setParameter("userId", userId)
+				.setFetchSize(Integer.MIN_VALUE).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				Note note = (Note) results.get(0);
+				while (nextArchived < archived.size() && archived.get(nextArchived) <= note.getNoteId()) {
+					int archivedId = archived.get(nextArchived++);
+					if (archivedId < note.getNoteId())
+						streamArchivedNote(archivedId, consumer);
+				}
+				consumer.accept(note);
+				session.evict(note);
+				session.evict(note.getBody());
+			}
+		} finally {
+			results.close();
+		}
+		while (nextArchived < archived.size())
+			streamArchivedNote(archived.get(nextArchived++), consumer);
+	}
 
+	/*
+	 * The archive is read again for every note, so a note deleted since the
+	 * noteIds were listed is skipped.
+	 */
+	private void streamArchivedNote(int noteId, Consumer<Note> consumer) {
+		Note note = noteArchive.get(noteId);
+		if (note != null)
+			consumer.accept(note);
 	}
 
 	/*
-	 * Retrieve details of a specific note
+	 * Retrieve details of a specific note. A note that is not in MySQL is looked
+	 * up in the archive; its category and reminder are read again, so that they
+	 * are current rather than the copies taken when the note was archived.
 	 */
 	
 	
@@ -102,6 +473,13 @@ public class NoteDAOImpl implements NoteDAO {
 	public Note getNoteById(int noteId) throws NoteNotFoundException {
 		Session session = sessionFactory.getCurrentSession();
 		Note note =session.get(Note.class, noteId);
+		if(note==null && noteArchive!=null) {
+			note = noteArchive.get(noteId);
+			if(note!=null) {
+				ArchivedNotes.refreshReferences(session, Collections.singletonList(note));
+				return note;
+			}
+		}
 		if(note==null)
 			throw new NoteNotFoundException("NoteNotFoundException");
 		else {
@@ -112,25 +490,91 @@ public class NoteDAOImpl implements NoteDAO {
 	}
 
 	/*
-	 * Update an existing note	
+	 * Apply a partial update to a note of the given user. The changes are made on
+	 * the managed entity, so Hibernate's dirty checking together with
+	 * @DynamicUpdate writes only the columns that actually changed. An archived
+	 * note is moved back to MySQL first.
+	 */
+
+	public Note patchNote(int noteId, String userId, Consumer<Note> changes) throws NoteNotFoundException {
+		Session session = sessionFactory.getCurrentSession();
+		Note note = session.get(Note.class, noteId);
+		if (note == null)
+			note = restore(session, noteId, userId);
+		if (note == null || !note.getCreatedBy().equals(userId))
+			throw new NoteNotFoundException("NoteNotFoundException");
+		String previousHash = note.getBody().getContentHash();
+		String previousStatus = note.getNoteStatus();
+		changes.accept(note);
+		note.setLastModified(System.currentTimeMillis());
+		note.setChangeSeq(ChangeSequences.next(session, note.getCreatedBy()));
+		boolean contentChanged = !NoteBodies.hash(note.getNoteContent()).equals(previousHash);
+		if (contentChanged)
+			NoteBodies.acquire(session, Collections.singletonList(note));
+		OptimisticLocking.flush(session, Note.class, noteId);
+		if (contentChanged)
+			NoteBodies.release(session, previousHash);
+		UserCounters.moveNote(session, userId, previousStatus, note.getCreatedBy(), note.getNoteStatus());
+		return note;
+	}
+
+	/*
+	 * Update an existing note of the user in its createdBy. This is a single
+	 * UPDATE guarded by the version the note was read with; a note that has
+	 * changed since fails with an ObjectOptimisticLockingFailureException. An
+	 * archived note is moved back to MySQL first. A note that does not exist or
+	 * belongs to someone else is not written and false is returned.
 	 */
 
 	public boolean UpdateNote(Note note) {
-		boolean flag=true;
-		try {
-			if(getNoteById(note.getNoteId())==null) {
-				flag=false;
-			}else {
-				sessionFactory.getCurrentSession().clear();
-				sessionFactory.getCurrentSession().update(note);
-				sessionFactory.getCurrentSession().flush();
-			}
-		} catch (HibernateException e) {
-			e.printStackTrace();
-		} catch (NoteNotFoundException e) {
-			e.printStackTrace();
+		Session session = sessionFactory.getCurrentSession();
+		String hql = "select note.body.contentHash, note.noteStatus FROM Note note "
+				+ "where note.noteId = :noteId and note.createdBy = :userId";
+		List<Object[]> previous = session.createQuery(hql, Object[].class).setParameter("noteId", note.getNoteId())
+				.setParameter("userId", note.getCreatedBy()).getResultList();
+		if (previous.isEmpty()) {
+			Note restored = restore(session, note.getNoteId(), note.getCreatedBy());
+			if (restored == null)
+				return false;
+			session.evict(restored);
+			previous = session.createQuery(hql, Object[].class).setParameter("noteId", note.getNoteId())
+					.setParameter("userId", note.getCreatedBy()).getResultList();
 		}
-		return flag;
+		note.setLastModified(System.currentTimeMillis());
+		note.setChangeSeq(ChangeSequences.next(session, note.getCreatedBy()));
+		String previousHash = (String) previous.get(0)[0];
+		boolean contentChanged = !NoteBodies.hash(note.getNoteContent()).equals(previousHash);
+		if (contentChanged)
+			NoteBodies.acquire(session, Collections.singletonList(note));
+		else
+			note.setBody(session.load(NoteBody.class, previousHash));
+		session.update(note);
+		OptimisticLocking.flush(session, Note.class, note.getNoteId());
+		if (contentChanged)
+			NoteBodies.release(session, previousHash);
+		UserCounters.moveNote(session, note.getCreatedBy(), (String) previous.get(0)[1], note.getCreatedBy(),
+				note.getNoteStatus());
+		return true;
+	}
+
+	/*
+	 * Move an archived note of the user back into MySQL, with its noteId and
+	 * version, so that it can be changed like any other note; returns it managed
+	 * by the session, or null if the user has no such note in the archive. Its
+	 * category and reminder are the current ones. It is deleted from the archive
+	 * once the transaction has committed, so the archive still has it if the
+	 * change fails. The counters already count it.
+	 */
+	private Note restore(Session session, int noteId, String userId) {
+		Note note = noteArchive == null ? null : noteArchive.get(noteId);
+		if (note == null || !note.getCreatedBy().equals(userId))
+			return null;
+		ArchivedNotes.refreshReferences(session, Collections.singletonList(note));
+		NoteBodies.acquire(session, Collections.singletonList(note));
+		session.replicate(note, ReplicationMode.EXCEPTION);
+		session.flush();
+		noteArchive.deleteAfterCommit(noteId, userId);
+		return note;
 	}
 
 }
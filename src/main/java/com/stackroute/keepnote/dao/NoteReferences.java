@@ -0,0 +1,74 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.hibernate.Session;
+
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Detaches the notes from the reminders and categories that are about to be
+ * deleted. The foreign keys of Note are enforced by InnoDB, so a reminder or
+ * category cannot be deleted while a note still refers to it. A detached note
+ * is written like any other change: its version and lastModified move on and
+ * it gets a number in the ChangeSequence of its owner, so the change feed and
+ * the clients holding it see it. The owners are read first and the notes of
+ * each are updated with a statement of their own.
+ */
+final class NoteReferences {
+
+	private static final String CATEGORIES_OF = "(SELECT categoryId FROM Category WHERE categoryCreatedBy = :userId)";
+	private static final String OWNERS_OF_CATEGORIES_OF = "SELECT DISTINCT createdBy FROM Note "
+			+ "WHERE category_categoryId IN " + CATEGORIES_OF;
+	private static final String DETACH_CATEGORIES_OF = "UPDATE Note SET category_categoryId = NULL, "
+			+ "version = version + 1, lastModified = :now, changeSeq = :changeSeq "
+			+ "WHERE createdBy = :owner AND category_categoryId IN " + CATEGORIES_OF;
+
+	private NoteReferences() {
+	}
+
+	static int detachReminders(Session session, Collection<Integer> reminderIds) {
+		return detach(session, "reminder", reminderIds);
+	}
+
+	static int detachCategories(Session session, Collection<Integer> categoryIds) {
+		return detach(session, "category", categoryIds);
+	}
+
+	/*
+	 * The same for all the categories of a user, those already marked as deleted
+	 * included; the statement is native because the @Where of Category would
+	 * leave those out.
+	 */
+	@SuppressWarnings("unchecked")
+	static int detachCategoriesOf(Session session, String userId) {
+		List<String> owners = session.createNativeQuery(OWNERS_OF_CATEGORIES_OF).setParameter("userId", userId)
+				.getResultList();
+		long now = System.currentTimeMillis();
+		int detached = 0;
+		for (Map.Entry<String, Long> seq : ChangeSequences.next(session, owners).entrySet())
+			detached += session.createNativeQuery(DETACH_CATEGORIES_OF).addSynchronizedEntityClass(Note.class)
+					.setParameter("now", now).setParameter("changeSeq", seq.getValue())
+					.setParameter("owner", seq.getKey()).setParameter("userId", userId).executeUpdate();
+		return detached;
+	}
+
+	private static int detach(Session session, String property, Collection<Integer> ids) {
+		if (ids.isEmpty())
+			return 0;
+		List<String> owners = session.createQuery("select distinct note.createdBy FROM Note note where note."
+				+ property + ".id in (:ids)", String.class).setParameter("ids", ids).getResultList();
+		String hql = "UPDATE Note note set note." + property + " = null, note.version = note.version + 1, "
+				+ "note.lastModified = :now, note.changeSeq = :changeSeq where note.createdBy = :owner and note."
+				+ property + ".id in (:ids)";
+		long now = System.currentTimeMillis();
+		int detached = 0;
+		for (Map.Entry<String, Long> seq : ChangeSequences.next(session, owners).entrySet())
+			detached += session.createQuery(hql).setParameter("now", now).setParameter("changeSeq", seq.getValue())
+					.setParameter("owner", seq.getKey()).setParameter("ids", ids).executeUpdate();
+		return detached;
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import com.stackroute.keepnote.model.ReminderNotification;
+
+public interface NotificationDAO {
+
+	public List<ReminderNotification> claimPending(Date now, int batchSize, Date leaseUntil);
+
+	public boolean markDelivered(int notificationId, Date deliveredAt);
+
+	public boolean markFailed(int notificationId, Date nextAttemptAt, String error);
+
+}
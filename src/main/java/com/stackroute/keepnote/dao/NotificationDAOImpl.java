@@ -0,0 +1,81 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.LockModeType;
+
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.keepnote.model.ReminderNotification;
+
+/*
+ * This class is implementing the NotificationDAO interface. The rows of the
+ * reminder outbox are written by ReminderDAOImpl when reminders fire; here they
+ * are handed out to NotificationDispatcher and their outcome is recorded. Every
+ * call is a short transaction of its own, no transaction is open while a
+ * notification is being delivered.
+ * */
+@Repository
+@Transactional
+public class NotificationDAOImpl implements NotificationDAO {
+
+	/*
+	 * The longest error message kept, the size of the lastError column.
+	 */
+	private static final int MAX_ERROR_LENGTH = 1000;
+
+	private SessionFactory sessionFactory;
+
+	@Autowired
+	public NotificationDAOImpl(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
+
+	/*
+	 * Claim at most batchSize notifications that are due for delivery by now,
+	 * oldest first, by moving their nextAttemptAt to leaseUntil. The rows are
+	 * locked while they are claimed, so two dispatchers never claim the same row,
+	 * and a claimed row whose outcome is never recorded, by a crash or a lost
+	 * connection, is handed out again once the lease has run out.
+	 */
+	public List<ReminderNotification> claimPending(Date now, int batchSize, Date leaseUntil) {
+		String hql = "FROM ReminderNotification notification where notification.nextAttemptAt <= :now "
+				+ "order by notification.nextAttemptAt";
+		List<ReminderNotification> notifications = sessionFactory.getCurrentSession()
+				.createQuery(hql, ReminderNotification.class).setParameter("now", now).setMaxResults(batchSize)
+				.setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+		for (ReminderNotification notification : notifications)
+			notification.setNextAttemptAt(leaseUntil);
+		return notifications;
+	}
+
+	/*
+	 * Record that a notification was delivered.
+	 */
+	public boolean markDelivered(int notificationId, Date deliveredAt) {
+		String hql = "UPDATE ReminderNotification notification set notification.deliveredAt = :deliveredAt, "
+				+ "notification.nextAttemptAt = null, notification.attempts = notification.attempts + 1, "
+				+ "notification.lastError = null where notification.notificationId = :notificationId";
+		return sessionFactory.getCurrentSession().createQuery(hql).setParameter("deliveredAt", deliveredAt)
+				.setParameter("notificationId", notificationId).executeUpdate() > 0;
+	}
+
+	/*
+	 * Record a failed delivery and when to try again, or null to give up on the
+	 * notification.
+	 */
+	public boolean markFailed(int notificationId, Date nextAttemptAt, String error) {
+		if (error != null && error.length() > MAX_ERROR_LENGTH)
+			error = error.substring(0, MAX_ERROR_LENGTH);
+		String hql = "UPDATE ReminderNotification notification set notification.nextAttemptAt = :nextAttemptAt, "
+				+ "notification.attempts = notification.attempts + 1, notification.lastError = :error "
+				+ "where notification.notificationId = :notificationId";
+		return sessionFactory.getCurrentSession().createQuery(hql).setParameter("nextAttemptAt", nextAttemptAt)
+				.setParameter("error", error).setParameter("notificationId", notificationId).executeUpdate() > 0;
+	}
+
+}
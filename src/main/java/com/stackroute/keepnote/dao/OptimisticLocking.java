@@ -0,0 +1,29 @@
+package com.stackroute.keepnote.dao;
+
+import javax.persistence.OptimisticLockException;
+
+import org.hibernate.Session;
+import org.hibernate.StaleStateException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+/*
+ * The entities carry a @Version column, so every UPDATE is issued as
+ * "... where id=? and version=?". When no row matches, because the row was
+ * changed since the client read it or because it is gone, Hibernate fails the
+ * flush. This turns that failure into Spring's
+ * ObjectOptimisticLockingFailureException, which the services map to 404 or 409.
+ */
+final class OptimisticLocking {
+
+	private OptimisticLocking() {
+	}
+
+	static void flush(Session session, Class<?> entityClass, Object id) {
+		try {
+			session.flush();
+		} catch (StaleStateException | OptimisticLockException e) {
+			throw new ObjectOptimisticLockingFailureException(entityClass, id, e);
+		}
+	}
+
+}
@@ -1,6 +1,10 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
@@ -15,9 +19,24 @@ public interface ReminderDAO {
 
 	public boolean updateReminder(Reminder reminder);
 
+	public Reminder patchReminder(int reminderId, String userId, Consumer<Reminder> changes)
+			throws ReminderNotFoundException;
+
 	public boolean deleteReminder(int reminderId);
 
+	public boolean deleteReminder(int reminderId, String userId);
+
 	public Reminder getReminderById(int reminderId) throws ReminderNotFoundException;
 
 	public List<Reminder> getAllReminderByUserId(String userId);
+
+	public void streamRemindersByUserId(String userId, Consumer<Reminder> consumer);
+
+	public List<Integer> getExistingReminderIds(Collection<Integer> reminderIds, String userId);
+
+	public void streamPendingReminders(Date from, Date until, BiConsumer<Integer, Date> consumer);
+
+	public List<Reminder> fireReminders(Collection<Integer> reminderIds, Date firedAt);
+
+	public void invalidateCachedReminders(Collection<Integer> reminderIds);
 }
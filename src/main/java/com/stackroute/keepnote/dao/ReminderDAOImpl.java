@@ -1,19 +1,28 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+import javax.persistence.LockModeType;
 import javax.persistence.Query;
 
-import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderNotification;
 
 /*
  * This class is implementing the UserDAO interface. This class has to be annotated with 
@@ -27,6 +36,9 @@ import com.stackroute.keepnote.model.Reminder;
 @Repository
 @Transactional
 public class ReminderDAOImpl implements ReminderDAO {
+
+	private static final int CACHE_MAX_ENTRIES = 10000;
+	private static final long CACHE_MAX_WEIGHT = 8L * 1024 * 1024;
 	
 	/*
 	 * Autowiring should be implemented for the SessionFactory.(Use
@@ -35,9 +47,23 @@ public class ReminderDAOImpl implements ReminderDAO {
 	@Autowired
 	private SessionFactory sessionFactory;
 	
+	/*
+	 * Reminders read by id, mostly to check that the reminder of a note exists.
+	 * Every caller gets a copy of its own.
+	 */
+	private final EntityCache<Integer, Reminder> cache = new EntityCache<Integer, Reminder>("reminder",
+			CACHE_MAX_ENTRIES, CACHE_MAX_WEIGHT,
+			reminder -> 64 + EntityCache.weightOf(reminder.getReminderName(), reminder.getReminderDescription(),
+					reminder.getReminderType(), reminder.getReminderCreatedBy()),
+			ReminderDAOImpl::copyOf);
+	
 	public ReminderDAOImpl(SessionFactory sessionFactory) {
 		this.sessionFactory = sessionFactory;
 	}
+
+	public EntityCache<Integer, Reminder> getCache() {
+		return cache;
+	}
 	
 	public SessionFactory getSessionFactory() {
 		return sessionFactory;
@@ -55,68 +81,91 @@ public class ReminderDAOImpl implements ReminderDAO {
 	public boolean createReminder(Reminder reminder) {
 		Session session =sessionFactory.getCurrentSession();
 		session.save(reminder);
+		UserCounters.addReminders(session, reminder.getReminderCreatedBy(), 1);
 		session.flush();
 		return true;
 	}
 	
 	/*
-	 * Update an existing reminder
+	 * Update an existing reminder with a single versioned UPDATE. A reminder that
+	 * has changed since it was read, or no longer exists, fails with an
+	 * ObjectOptimisticLockingFailureException.
 	 */
 
 	public boolean updateReminder(Reminder reminder) {
-		boolean flag =true;
-		try {
-			if(getReminderById(reminder.getReminderId())==null) {
-				flag = false;
-			}else {
-				sessionFactory.getCurrentSession().clear();
-				sessionFactory.getCurrentSession().update(reminder);
-				sessionFactory.getCurrentSession().flush();
-			}
-		}catch (HibernateException e) {
-			e.printStackTrace();
-		}  
-		catch (ReminderNotFoundException e) {
-			e.printStackTrace();
-		}
-		return flag;
+		cache.invalidate(reminder.getReminderId());
+		Session session = sessionFactory.getCurrentSession();
+		session.update(reminder);
+		OptimisticLocking.flush(session, Reminder.class, reminder.getReminderId());
+		return true;
 	}
 	
 	/*
-	 * Remove an existing reminder
+	 * Apply a partial update to a reminder of the given user, writing only the
+	 * columns that changed
+	 */
+
+	public Reminder patchReminder(int reminderId, String userId, Consumer<Reminder> changes)
+			throws ReminderNotFoundException {
+		Session session = sessionFactory.getCurrentSession();
+		Reminder reminder = session.get(Reminder.class, reminderId);
+		if (reminder == null || !userId.equals(reminder.getReminderCreatedBy()))
+			throw new ReminderNotFoundException("ReminderNotFoundException");
+		cache.invalidate(reminderId);
+		changes.accept(reminder);
+		OptimisticLocking.flush(session, Reminder.class, reminderId);
+		return reminder;
+	}
+
+	/*
+	 * Remove an existing reminder. Its owner is read first, whose counters the
+	 * delete has to change, and the delete is then the same as the one of the
+	 * owner.
 	 */
 	
 	public boolean deleteReminder(int reminderId) {
-		boolean flag = false;
-		try {
-			if(getReminderById(reminderId)==null) {
-				flag = false;
-			}else {
-				Session session = sessionFactory.getCurrentSession();
-				session.delete(getReminderById(reminderId));
-				session.flush();
-				flag = true;
-			}
-		} catch (HibernateException e) {
-			e.printStackTrace();
-		} catch (ReminderNotFoundException e) {
-			e.printStackTrace();
-		}
-		return flag;
+		String hql = "select reminder.reminderCreatedBy FROM Reminder reminder where reminder.reminderId = :reminderId";
+		List<String> owners = sessionFactory.getCurrentSession().createQuery(hql, String.class)
+				.setParameter("reminderId", reminderId).getResultList();
+		return !owners.isEmpty() && deleteReminder(reminderId, owners.get(0));
+	}
 
+	/*
+	 * Remove an existing reminder of the given user. The notes set to the reminder
+	 * are detached from it first.
+	 */
+
+	public boolean deleteReminder(int reminderId, String userId) {
+		cache.invalidate(reminderId);
+		Session session = sessionFactory.getCurrentSession();
+		List<Integer> reminderIds = session
+				.createQuery("select reminder.reminderId FROM Reminder reminder "
+						+ "where reminder.reminderId = :reminderId and reminder.reminderCreatedBy = :userId", Integer.class)
+				.setParameter("reminderId", reminderId).setParameter("userId", userId).getResultList();
+		if (reminderIds.isEmpty())
+			return false;
+		NoteReferences.detachReminders(session, reminderIds);
+		String hql = "DELETE FROM Reminder reminder where reminderId = :reminderId and reminderCreatedBy = :userId";
+		Query query = session.createQuery(hql).setParameter("reminderId", reminderId).setParameter("userId", userId);
+		if (query.executeUpdate() == 0)
+			return false;
+		UserCounters.addReminders(session, userId, -1);
+		return true;
 	}
 
 	/*
-	 * Retrieve details of a specific reminder
+	 * Retrieve details of a specific reminder. The reminder is served from the
+	 * cache when possible; no transaction is started for the lookup, so a hit does
+	 * not touch the database at all.
 	 */
 	
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
 	public Reminder getReminderById(int reminderId) throws ReminderNotFoundException {
-		Session session = sessionFactory.getCurrentSession();
-		Reminder reminder = session.get(Reminder.class, reminderId);
+		Reminder reminder = cache.get(reminderId,
+				() -> sessionFactory.getCurrentSession().get(Reminder.class, reminderId));
 		if(reminder ==null) {
 			throw new ReminderNotFoundException("ReminderNotFoundException");
 		}else {
-			session.flush();
 			return reminder;
 		}
 	}
@@ -132,4 +181,125 @@ public class ReminderDAOImpl implements ReminderDAO {
 		return result;
 	}
 
+	/*
+	 * Hand every reminder of a user to the consumer, one row at a time, in the same
+	 * way as the notes are streamed.
+	 */
+	
+	public void streamRemindersByUserId(String userId, Consumer<Reminder> consumer) {
+		String hql = "FROM Reminder reminder where reminderCreatedBy = :userId order by reminder.reminderId";
+		Session session = sessionFactory.getCurrentSession();
+		ScrollableResults results = session.createQuery(hql).setParameter("userId", userId)
+				.setFetchSize(Integer.MIN_VALUE).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				Reminder reminder = (Reminder) results.get(0);
+				consumer.accept(reminder);
+				session.evict(reminder);
+			}
+		} finally {
+			results.close();
+		}
+	}
+
+	/*
+	 * Return which of the given reminderIds exist and belong to the user, with a
+	 * single IN query
+	 */
+	
+	public List<Integer> getExistingReminderIds(Collection<Integer> reminderIds, String userId) {
+		if (reminderIds.isEmpty())
+			return new ArrayList<Integer>();
+		String hql = "select reminder.reminderId FROM Reminder reminder where reminder.reminderId in (:reminderIds) "
+				+ "and reminder.reminderCreatedBy = :userId";
+		Query query = sessionFactory.getCurrentSession().createQuery(hql).setParameter("reminderIds", reminderIds)
+				.setParameter("userId", userId);
+		List result = query.getResultList();
+		return result;
+	}
+
+	/*
+	 * Hand the id and due time of every pending reminder due in [from, until) to
+	 * the consumer, one row at a time. Only pending reminders have a dueAt, so
+	 * this is a range read on the dueAt index.
+	 */
+
+	@Transactional(readOnly = true)
+	public void streamPendingReminders(Date from, Date until, BiConsumer<Integer, Date> consumer) {
+		String hql = "select reminder.reminderId, reminder.dueAt FROM Reminder reminder "
+				+ "where reminder.dueAt >= :from and reminder.dueAt < :until";
+		ScrollableResults results = sessionFactory.getCurrentSession().createQuery(hql).setParameter("from", from)
+				.setParameter("until", until).setFetchSize(Integer.MIN_VALUE).setReadOnly(true)
+				.scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next())
+				consumer.accept((Integer) results.get(0), (Date) results.get(1));
+		} finally {
+			results.close();
+		}
+	}
+
+	/*
+	 * Fire the given reminders: the ones still due at firedAt have their dueAt
+	 * cleared and firedAt set, with one UPDATE, and a ReminderNotification is
+	 * written to the outbox for each of them in the same transaction, so a
+	 * reminder is marked as fired if and only if its notification is queued.
+	 * Reminders that were deleted, moved to a later time or fired already in the
+	 * meantime are left alone. Returns the reminders that fired.
+	 */
+
+	public List<Reminder> fireReminders(Collection<Integer> reminderIds, Date firedAt) {
+		if (reminderIds.isEmpty())
+			return new ArrayList<Reminder>();
+		Session session = sessionFactory.getCurrentSession();
+		String hql = "FROM Reminder reminder where reminder.reminderId in (:reminderIds) and reminder.dueAt <= :firedAt";
+		List<Reminder> reminders = session.createQuery(hql, Reminder.class).setParameter("reminderIds", reminderIds)
+				.setParameter("firedAt", firedAt).setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+		if (reminders.isEmpty())
+			return reminders;
+		List<Integer> dueIds = new ArrayList<Integer>(reminders.size());
+		for (Reminder reminder : reminders) {
+			dueIds.add(reminder.getReminderId());
+			cache.invalidate(reminder.getReminderId());
+			session.evict(reminder);
+		}
+		session.createQuery("UPDATE Reminder reminder set reminder.firedAt = :firedAt, reminder.dueAt = null, "
+				+ "reminder.version = reminder.version + 1 where reminder.reminderId in (:reminderIds) "
+				+ "and reminder.dueAt <= :firedAt")
+				.setParameter("firedAt", firedAt).setParameter("reminderIds", dueIds).executeUpdate();
+		for (Reminder reminder : reminders) {
+			session.save(new ReminderNotification(reminder, firedAt));
+			reminder.setFiredAt(firedAt);
+			reminder.setDueAt(null);
+			reminder.setVersion(reminder.getVersion() + 1);
+		}
+		return reminders;
+	}
+
+	/*
+	 * Drop reminders that were deleted by a bulk statement from the cache.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public void invalidateCachedReminders(Collection<Integer> reminderIds) {
+		for (Integer reminderId : reminderIds)
+			cache.invalidate(reminderId);
+	}
+
+	/*
+	 * A detached copy of a reminder for the cache, without its lazy list of notes.
+	 */
+	private static Reminder copyOf(Reminder reminder) {
+		Reminder copy = new Reminder(reminder.getReminderId(), reminder.getReminderName(),
+				reminder.getReminderDescription(), reminder.getReminderType(), reminder.getReminderCreatedBy(), null,
+				copyOf(reminder.getReminderCreationDate()));
+		copy.setDueAt(copyOf(reminder.getDueAt()));
+		copy.setFiredAt(copyOf(reminder.getFiredAt()));
+		copy.setVersion(reminder.getVersion());
+		return copy;
+	}
+
+	private static Date copyOf(Date date) {
+		return date == null ? null : new Date(date.getTime());
+	}
+
 }
@@ -0,0 +1,114 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.hibernate.SharedSessionContract;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.UserStats;
+
+/*
+ * Keeps the counters of UserStats. Every change is a single INSERT ... ON
+ * DUPLICATE KEY UPDATE that adds to the counter, issued in the transaction
+ * that inserts or deletes the rows being counted: two transactions changing
+ * the counters of the same user never lose each other's update, and a rolled
+ * back write rolls back its count too. The row of a user is created by the
+ * first change.
+ *
+ * Notes without a status are counted in noteCount only.
+ */
+final class UserCounters {
+
+	private static final String ADD = "INSERT INTO UserStats (userId, noteCount, categoryCount, reminderCount) "
+			+ "VALUES (:userId, :notes, :categories, :reminders) ON DUPLICATE KEY UPDATE "
+			+ "noteCount = noteCount + VALUES(noteCount), categoryCount = categoryCount + VALUES(categoryCount), "
+			+ "reminderCount = reminderCount + VALUES(reminderCount)";
+	private static final String ADD_STATUS = "INSERT INTO UserStats_notesByStatus (userId, noteStatus, noteCount) "
+			+ "VALUES (:userId, :noteStatus, :notes) ON DUPLICATE KEY UPDATE noteCount = noteCount + VALUES(noteCount)";
+
+	private UserCounters() {
+	}
+
+	static void addCategories(SharedSessionContract session, String userId, long categories) {
+		add(session, userId, 0, categories, 0);
+	}
+
+	static void addReminders(SharedSessionContract session, String userId, long reminders) {
+		add(session, userId, 0, 0, reminders);
+	}
+
+	/*
+	 * Count the given notes in (sign 1) or out (sign -1), with one statement per
+	 * user and one per user and status rather than per note.
+	 */
+	static void addNotes(SharedSessionContract session, Collection<Note> notes, long sign) {
+		List<Object[]> owners = new ArrayList<Object[]>(notes.size());
+		for (Note note : notes)
+			owners.add(new Object[] { note.getCreatedBy(), note.getNoteStatus() });
+		addNoteOwners(session, owners, sign);
+	}
+
+	/*
+	 * The same for notes that are deleted without being loaded, given as rows of
+	 * (createdBy, noteStatus).
+	 */
+	static void addNoteOwners(SharedSessionContract session, List<Object[]> owners, long sign) {
+		Map<String, Long> totals = new HashMap<String, Long>();
+		Map<String, Map<String, Long>> statuses = new HashMap<String, Map<String, Long>>();
+		for (Object[] owner : owners) {
+			String userId = (String) owner[0];
+			String noteStatus = (String) owner[1];
+			totals.merge(userId, sign, Long::sum);
+			if (noteStatus != null)
+				statuses.computeIfAbsent(userId, key -> new HashMap<String, Long>()).merge(noteStatus, sign,
+						Long::sum);
+		}
+		for (Map.Entry<String, Long> total : totals.entrySet())
+			add(session, total.getKey(), total.getValue(), 0, 0);
+		for (Map.Entry<String, Map<String, Long>> user : statuses.entrySet()) {
+			for (Map.Entry<String, Long> status : user.getValue().entrySet())
+				addStatus(session, user.getKey(), status.getKey(), status.getValue());
+		}
+	}
+
+	static void addNote(SharedSessionContract session, String userId, String noteStatus, long sign) {
+		add(session, userId, sign, 0, 0);
+		if (noteStatus != null)
+			addStatus(session, userId, noteStatus, sign);
+	}
+
+	/*
+	 * Move a note that was changed from the counters it was in to the ones it is
+	 * in now, if its status or owner changed.
+	 */
+	static void moveNote(SharedSessionContract session, String fromUserId, String fromStatus, String toUserId,
+			String toStatus) {
+		if (Objects.equals(fromUserId, toUserId) && Objects.equals(fromStatus, toStatus))
+			return;
+		addNote(session, fromUserId, fromStatus, -1);
+		addNote(session, toUserId, toStatus, 1);
+	}
+
+	private static void add(SharedSessionContract session, String userId, long notes, long categories,
+			long reminders) {
+		if (userId == null || notes == 0 && categories == 0 && reminders == 0)
+			return;
+		session.createNativeQuery(ADD).addSynchronizedEntityClass(UserStats.class).setParameter("userId", userId)
+				.setParameter("notes", notes).setParameter("categories", categories)
+				.setParameter("reminders", reminders).executeUpdate();
+	}
+
+	private static void addStatus(SharedSessionContract session, String userId, String noteStatus, long notes) {
+		if (userId == null)
+			return;
+		session.createNativeQuery(ADD_STATUS).addSynchronizedEntityClass(UserStats.class)
+				.setParameter("userId", userId).setParameter("noteStatus", noteStatus).setParameter("notes", notes)
+				.executeUpdate();
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.function.Consumer;
+
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
 
@@ -14,6 +16,8 @@ public interface UserDAO {
 
 	public boolean updateUser(User user);
 
+	public User patchUser(String userId, Consumer<User> changes) throws UserNotFoundException;
+
 	public User getUserById(String UserId);
 
 	public boolean validateUser(String userName, String password) throws UserNotFoundException;
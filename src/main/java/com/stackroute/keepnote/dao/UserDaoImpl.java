@@ -1,5 +1,10 @@
 package com.stackroute.keepnote.dao;
 
+import java.util.Date;
+import java.util.function.Consumer;
+
+import javax.persistence.Query;
+
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,6 +12,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.stackroute.keepnote.exception.UserNotFoundException;
+import com.stackroute.keepnote.model.DeletionJob;
 import com.stackroute.keepnote.model.User;
 
 /*
@@ -54,22 +60,33 @@ public class UserDaoImpl implements UserDAO {
 	}
 
 	/*
-	 * Update an existing user
+	 * Update an existing user with a single versioned UPDATE. A user that has
+	 * changed since it was read, or no longer exists, fails with an
+	 * ObjectOptimisticLockingFailureException.
 	 */
 
 	public boolean updateUser(User user) {
-		if(getUserById(user.getUserId())==null) {
-			return false;
-		}else {
-		sessionFactory.getCurrentSession().clear();
-		sessionFactory.getCurrentSession().update(user);
-		sessionFactory.getCurrentSession().flush();
+		Session session = sessionFactory.getCurrentSession();
+		session.update(user);
+		OptimisticLocking.flush(session, User.class, user.getUserId());
 		return true;
-		}
-		
 
 	}
 
+	/*
+	 * Apply a partial update to a user, writing only the columns that changed
+	 */
+
+	public User patchUser(String userId, Consumer<User> changes) throws UserNotFoundException {
+		Session session = sessionFactory.getCurrentSession();
+		User user = session.get(User.class, userId);
+		if (user == null)
+			throw new UserNotFoundException("UserNotFoundException");
+		changes.accept(user);
+		OptimisticLocking.flush(session, User.class, userId);
+		return user;
+	}
+
 	/*
 	 * Retrieve details of a specific user
 	 */
@@ -97,17 +114,21 @@ public class UserDaoImpl implements UserDAO {
 	}
 
 	/*
-	 * Remove an existing user
+	 * Remove an existing user. A single UPDATE marks the user as deleted, and a
+	 * user that does not exist is recognised by the affected-row count. The notes,
+	 * reminders and categories of the user, and then the row itself, are deleted
+	 * in the background by the DeletionJob created here.
 	 */
 	public boolean deleteUser(String userId) {
-		if(getUserById(userId)==null) {
-			return false;
-		}else {
 		Session session = sessionFactory.getCurrentSession();
-		session.delete(getUserById(userId));
+		String hql = "UPDATE User user set user.deleted = true, user.version = user.version + 1 "
+				+ "where user.userId = :userId and user.deleted = false";
+		Query query = session.createQuery(hql).setParameter("userId", userId);
+		if (query.executeUpdate() == 0)
+			return false;
+		session.save(new DeletionJob(DeletionJob.USER, userId, userId, new Date()));
 		session.flush();
 		return true;
-		}
 
 	}
 
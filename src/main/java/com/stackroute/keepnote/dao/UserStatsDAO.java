@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.List;
+
+import com.stackroute.keepnote.model.UserStats;
+
+public interface UserStatsDAO {
+
+	public UserStats getUserStats(String userId);
+
+	public List<String> getUserIds();
+
+	public UserStats rebuildUserStats(String userId);
+
+}
@@ -0,0 +1,110 @@
+package com.stackroute.keepnote.dao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.keepnote.model.UserStats;
+
+/*
+ * This class is implementing the UserStatsDAO interface. The counters are
+ * changed by the other DAOs, through UserCounters; this class reads them and
+ * recomputes them from the tables.
+ * */
+@Repository
+@Transactional
+public class UserStatsDAOImpl implements UserStatsDAO {
+
+	private static final String USER_IDS = "SELECT createdBy FROM Note UNION SELECT categoryCreatedBy FROM Category "
+			+ "WHERE deleted = 0 UNION SELECT reminderCreatedBy FROM Reminder UNION SELECT userId FROM UserStats";
+	private static final String CLEAR_STATUSES = "DELETE FROM UserStats_notesByStatus WHERE userId = :userId";
+	private static final String COUNT_STATUSES = "INSERT INTO UserStats_notesByStatus (userId, noteStatus, noteCount) "
+			+ "SELECT createdBy, noteStatus, COUNT(*) FROM Note WHERE createdBy = :userId AND noteStatus IS NOT NULL "
+			+ "GROUP BY createdBy, noteStatus";
+	private static final String COUNT = "INSERT INTO UserStats (userId, noteCount, categoryCount, reminderCount) "
+			+ "SELECT :userId, (SELECT COUNT(*) FROM Note WHERE createdBy = :userId), "
+			+ "(SELECT COUNT(*) FROM Category WHERE categoryCreatedBy = :userId AND deleted = 0), "
+			+ "(SELECT COUNT(*) FROM Reminder WHERE reminderCreatedBy = :userId) ON DUPLICATE KEY UPDATE "
+			+ "noteCount = VALUES(noteCount), categoryCount = VALUES(categoryCount), "
+			+ "reminderCount = VALUES(reminderCount)";
+
+	private SessionFactory sessionFactory;
+
+	/*
+	 * Where the archived notes are, which are counted like the others; null when
+	 * the DAO runs without an archive.
+	 */
+	private NoteArchive noteArchive;
+
+	public UserStatsDAOImpl(SessionFactory sessionFactory) {
+		this(sessionFactory, null);
+	}
+
+	@Autowired
+	public UserStatsDAOImpl(SessionFactory sessionFactory, NoteArchive noteArchive) {
+		this.sessionFactory = sessionFactory;
+		this.noteArchive = noteArchive;
+	}
+
+	/*
+	 * Retrieve the counters of a user: one row and its statuses, read by primary
+	 * key. A user that has never written anything gets zeros, and statuses no
+	 * note is in any more are left out.
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public UserStats getUserStats(String userId) {
+		Session session = sessionFactory.getCurrentSession();
+		UserStats stats = session.get(UserStats.class, userId);
+		if (stats == null)
+			return new UserStats(userId, 0, 0, 0);
+		session.evict(stats);
+		Map<String, Long> notesByStatus = new TreeMap<String, Long>();
+		for (Map.Entry<String, Long> status : stats.getNotesByStatus().entrySet()) {
+			if (status.getValue() != 0)
+				notesByStatus.put(status.getKey(), status.getValue());
+		}
+		stats.setNotesByStatus(notesByStatus);
+		return stats;
+	}
+
+	/*
+	 * Retrieve every user that owns a note, category or reminder, or has counters.
+	 */
+	@SuppressWarnings("unchecked")
+	@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+	public List<String> getUserIds() {
+		List<String> userIds = sessionFactory.getCurrentSession().createNativeQuery(USER_IDS).getResultList();
+		userIds.remove(null);
+		return userIds;
+	}
+
+	/*
+	 * Recompute the counters of a user from the tables. The counting statements
+	 * are INSERT ... SELECT, which lock the rows they count, so a note written
+	 * while the counters are rebuilt is either counted here or waits and adds
+	 * itself to the new counters afterwards. The statements are native, so the
+	 * @Where of Category is repeated by hand: a category marked as deleted was
+	 * taken out of the counters at once, while its row stays until its deletion
+	 * job is done. The archived notes of the user are added to the counts from
+	 * the archive.
+	 */
+	public UserStats rebuildUserStats(String userId) {
+		Session session = sessionFactory.getCurrentSession();
+		session.createNativeQuery(CLEAR_STATUSES).addSynchronizedEntityClass(UserStats.class)
+				.setParameter("userId", userId).executeUpdate();
+		session.createNativeQuery(COUNT_STATUSES).addSynchronizedEntityClass(UserStats.class)
+				.setParameter("userId", userId).executeUpdate();
+		session.createNativeQuery(COUNT).addSynchronizedEntityClass(UserStats.class).setParameter("userId", userId)
+				.executeUpdate();
+		UserCounters.addNoteOwners(session, ArchivedNotes.getOwners(noteArchive, userId), 1);
+		return getUserStats(userId);
+	}
+
+}
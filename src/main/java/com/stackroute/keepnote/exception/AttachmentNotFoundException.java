@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.exception;
+
+public class AttachmentNotFoundException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public AttachmentNotFoundException(String message) {
+		super(message);
+
+	}
+
+}
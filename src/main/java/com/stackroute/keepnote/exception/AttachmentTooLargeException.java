@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.exception;
+
+public class AttachmentTooLargeException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public AttachmentTooLargeException(String message) {
+		super(message);
+
+	}
+
+}
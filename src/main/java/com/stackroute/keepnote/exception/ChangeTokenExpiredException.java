@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.exception;
+
+public class ChangeTokenExpiredException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public ChangeTokenExpiredException(String message) {
+		super(message);
+
+	}
+
+}
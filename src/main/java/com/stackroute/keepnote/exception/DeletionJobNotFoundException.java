@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.exception;
+
+public class DeletionJobNotFoundException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public DeletionJobNotFoundException(String message) {
+		super(message);
+
+	}
+
+}
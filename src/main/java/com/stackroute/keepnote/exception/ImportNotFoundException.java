@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.exception;
+
+public class ImportNotFoundException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public ImportNotFoundException(String message) {
+		super(message);
+
+	}
+
+}
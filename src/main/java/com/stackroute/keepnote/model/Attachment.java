@@ -0,0 +1,127 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/*
+ * The class "Attachment" describes a file attached to a note. The content of the
+ * file is not in the database; it is kept on local disk by AttachmentStore under
+ * the noteId and attachmentId. The note is referenced by its noteId rather than
+ * a foreign key, so that the attachments stay in place when the note is moved
+ * to the note archive.
+ */
+@Entity
+@Table(indexes = { @Index(name = "idx_attachment_noteid", columnList = "noteId") })
+public class Attachment {
+
+	@Id
+	@GeneratedValue(strategy=GenerationType.AUTO)
+	private int attachmentId;
+
+	@Column(nullable=false)
+	private int noteId;
+
+	@Column(nullable=false)
+	private String fileName;
+
+	@Column(nullable=false)
+	private String contentType;
+
+	private long size;
+
+	@JsonIgnore
+	@Column(nullable=false)
+	private String createdBy;
+
+	@Column(nullable=false)
+	private Date createdAt;
+
+	public Attachment(int attachmentId, int noteId, String fileName, String contentType, long size, String createdBy,
+			Date createdAt) {
+		super();
+		this.attachmentId = attachmentId;
+		this.noteId = noteId;
+		this.fileName = fileName;
+		this.contentType = contentType;
+		this.size = size;
+		this.createdBy = createdBy;
+		this.createdAt = createdAt;
+	}
+
+	public Attachment() {
+		super();
+	}
+
+	public int getAttachmentId() {
+		return attachmentId;
+	}
+
+	public void setAttachmentId(int attachmentId) {
+		this.attachmentId = attachmentId;
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public void setFileName(String fileName) {
+		this.fileName = fileName;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public String getCreatedBy() {
+		return createdBy;
+	}
+
+	public void setCreatedBy(String createdBy) {
+		this.createdBy = createdBy;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	@Override
+	public String toString() {
+		return "Attachment [attachmentId=" + attachmentId + ", noteId=" + noteId + ", fileName=" + fileName
+				+ ", contentType=" + contentType + ", size=" + size + ", createdBy=" + createdBy + ", createdAt="
+				+ createdAt + "]";
+	}
+
+}
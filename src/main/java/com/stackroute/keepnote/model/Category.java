@@ -3,11 +3,17 @@ package com.stackroute.keepnote.model;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Where;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -19,6 +25,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * Java object to recreate it as a table in your database.
  */
 @Entity
+@DynamicUpdate
+@Where(clause = "deleted = 0")
 public class Category {
 	
 	@Id
@@ -28,9 +36,26 @@ public class Category {
 	private String categoryDescription;
 	private Date categoryCreationDate;
 	private String categoryCreatedBy;
+
+	@Version
+	@Column(nullable = false, columnDefinition = "integer default 0")
+	private Integer version;
+
+	/*
+	 * Set when the category is deleted. The @Where of the class hides it from then
+	 * on, and a DeletionJob removes it together with its notes.
+	 */
+	@Column(nullable = false)
+	@JsonIgnore
+	private boolean deleted;
 	
 	
-	@OneToMany
+	/*
+	 * The inverse side of Note.category: the notes are found through the foreign key
+	 * column of Note, there is no join table, and they are only read when the
+	 * list is used.
+	 */
+	@OneToMany(mappedBy = "category", fetch = FetchType.LAZY)
 	@JsonIgnore
 	private List<Note> notes;
 	
@@ -97,11 +122,27 @@ public class Category {
 		this.notes = notes;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
+	public boolean isDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(boolean deleted) {
+		this.deleted = deleted;
+	}
+
 	@Override
 	public String toString() {
 		return "Category [categoryId=" + categoryId + ", categoryName=" + categoryName + ", categoryDescription="
 				+ categoryDescription + ", categoryCreatedBy=" + categoryCreatedBy + ", categoryCreationDate="
-				+ categoryCreationDate + ", notes=" + notes + "]";
+				+ categoryCreationDate + ", version=" + version + "]";
 	}
 	/*
 	 * This class should have six fields
@@ -0,0 +1,44 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * The class "CategorySuggestion" is one match returned by GET /category/suggest.
+ * It only carries what the suggestion index holds in memory, the categoryId and
+ * the name; the full category can be read through GET /category.
+ */
+public class CategorySuggestion {
+
+	private int categoryId;
+	private String categoryName;
+
+	public CategorySuggestion(int categoryId, String categoryName) {
+		super();
+		this.categoryId = categoryId;
+		this.categoryName = categoryName;
+	}
+
+	public CategorySuggestion() {
+		super();
+	}
+
+	public int getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(int categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public String getCategoryName() {
+		return categoryName;
+	}
+
+	public void setCategoryName(String categoryName) {
+		this.categoryName = categoryName;
+	}
+
+	@Override
+	public String toString() {
+		return "CategorySuggestion [categoryId=" + categoryId + ", categoryName=" + categoryName + "]";
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+/*
+ * The class "CategorySummary" is a category together with the number of notes
+ * in it, for the category list that shows "name (count)". It is read by
+ * CategoryDAOImpl with one query that counts the notes of every category, so
+ * neither the notes nor the category entities are loaded. Archived notes are
+ * counted too, like in the note lists.
+ */
+public class CategorySummary {
+
+	private int categoryId;
+	private String categoryName;
+	private String categoryDescription;
+	private Date categoryCreationDate;
+	private String categoryCreatedBy;
+	private int version;
+	private long noteCount;
+
+	public CategorySummary(int categoryId, String categoryName, String categoryDescription,
+			Date categoryCreationDate, String categoryCreatedBy, int version, long noteCount) {
+		super();
+		this.categoryId = categoryId;
+		this.categoryName = categoryName;
+		this.categoryDescription = categoryDescription;
+		this.categoryCreationDate = categoryCreationDate;
+		this.categoryCreatedBy = categoryCreatedBy;
+		this.version = version;
+		this.noteCount = noteCount;
+	}
+
+	public CategorySummary() {
+		super();
+	}
+
+	public int getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(int categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public String getCategoryName() {
+		return categoryName;
+	}
+
+	public void setCategoryName(String categoryName) {
+		this.categoryName = categoryName;
+	}
+
+	public String getCategoryDescription() {
+		return categoryDescription;
+	}
+
+	public void setCategoryDescription(String categoryDescription) {
+		this.categoryDescription = categoryDescription;
+	}
+
+	public Date getCategoryCreationDate() {
+		return categoryCreationDate;
+	}
+
+	public void setCategoryCreationDate(Date categoryCreationDate) {
+		this.categoryCreationDate = categoryCreationDate;
+	}
+
+	public String getCategoryCreatedBy() {
+		return categoryCreatedBy;
+	}
+
+	public void setCategoryCreatedBy(String categoryCreatedBy) {
+		this.categoryCreatedBy = categoryCreatedBy;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	public long getNoteCount() {
+		return noteCount;
+	}
+
+	public void setNoteCount(long noteCount) {
+		this.noteCount = noteCount;
+	}
+
+	@Override
+	public String toString() {
+		return "CategorySummary [categoryId=" + categoryId + ", categoryName=" + categoryName
+				+ ", categoryDescription=" + categoryDescription + ", categoryCreationDate=" + categoryCreationDate
+				+ ", categoryCreatedBy=" + categoryCreatedBy + ", version=" + version + ", noteCount=" + noteCount
+				+ "]";
+	}
+
+}
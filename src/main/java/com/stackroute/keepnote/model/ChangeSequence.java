@@ -0,0 +1,71 @@
+package com.stackroute.keepnote.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/*
+ * The class "ChangeSequence" numbers the changes to the notes of a user for the
+ * change feed. Every write takes the next number in its own transaction and
+ * keeps the row locked until it commits, so the numbers of a user are
+ * committed in the order they were taken: once lastSeq is read, every change
+ * up to it can be read as well. The row is changed by the DAOs with single
+ * statements and never through this entity.
+ *
+ * prunedSeq is the highest number the feed can no longer answer for, because
+ * the tombstone or the note carrying it was pruned or archived. A token below
+ * it is out of date.
+ */
+@Entity
+public class ChangeSequence {
+
+	@Id
+	private String userId;
+
+	@Column(nullable = false)
+	private long lastSeq;
+
+	@Column(nullable = false)
+	private long prunedSeq;
+
+	public ChangeSequence(String userId, long lastSeq, long prunedSeq) {
+		super();
+		this.userId = userId;
+		this.lastSeq = lastSeq;
+		this.prunedSeq = prunedSeq;
+	}
+
+	public ChangeSequence() {
+		super();
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public long getLastSeq() {
+		return lastSeq;
+	}
+
+	public void setLastSeq(long lastSeq) {
+		this.lastSeq = lastSeq;
+	}
+
+	public long getPrunedSeq() {
+		return prunedSeq;
+	}
+
+	public void setPrunedSeq(long prunedSeq) {
+		this.prunedSeq = prunedSeq;
+	}
+
+	@Override
+	public String toString() {
+		return "ChangeSequence [userId=" + userId + ", lastSeq=" + lastSeq + ", prunedSeq=" + prunedSeq + "]";
+	}
+
+}
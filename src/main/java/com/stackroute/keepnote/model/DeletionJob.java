@@ -0,0 +1,201 @@
+package com.stackroute.keepnote.model;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/*
+ * The class "DeletionJob" records the removal of a deleted category or user
+ * together with the rows that depend on it. The category or user is marked as
+ * deleted straight away, in the same transaction that creates the job; the
+ * notes, reminders and categories that belong to it are then deleted in the
+ * background, a chunk per transaction, and the counters here show how far the
+ * job has got. It is what GET /deletion returns.
+ */
+@Entity
+@Table(indexes = { @Index(name = "idx_deletionjob_createdby", columnList = "createdBy"),
+		@Index(name = "idx_deletionjob_completed", columnList = "completed") })
+public class DeletionJob {
+
+	public static final String CATEGORY = "category";
+	public static final String USER = "user";
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.AUTO)
+	private int jobId;
+
+	/*
+	 * CATEGORY or USER, and the categoryId or userId of what was deleted.
+	 */
+	@Column(nullable = false)
+	private String targetType;
+
+	@Column(nullable = false)
+	private String targetId;
+
+	@Column(nullable = false)
+	private String createdBy;
+
+	private long notesDeleted;
+	private long remindersDeleted;
+	private long categoriesDeleted;
+	private boolean completed;
+	private Date createdAt;
+	private Date updatedAt;
+
+	/*
+	 * The notes deleted by the last chunk, for the search index.
+	 */
+	@Transient
+	@JsonIgnore
+	private List<Integer> deletedNoteIds = new ArrayList<Integer>();
+
+	/*
+	 * The categories and reminders deleted by the last chunk, for the caches of
+	 * their DAOs and the reminder scheduler.
+	 */
+	@Transient
+	@JsonIgnore
+	private List<Integer> deletedCategoryIds = new ArrayList<Integer>();
+
+	@Transient
+	@JsonIgnore
+	private List<Integer> deletedReminderIds = new ArrayList<Integer>();
+
+	public DeletionJob(String targetType, String targetId, String createdBy, Date createdAt) {
+		super();
+		this.targetType = targetType;
+		this.targetId = targetId;
+		this.createdBy = createdBy;
+		this.createdAt = createdAt;
+		this.updatedAt = createdAt;
+	}
+
+	public DeletionJob() {
+		super();
+	}
+
+	public int getJobId() {
+		return jobId;
+	}
+
+	public void setJobId(int jobId) {
+		this.jobId = jobId;
+	}
+
+	public String getTargetType() {
+		return targetType;
+	}
+
+	public void setTargetType(String targetType) {
+		this.targetType = targetType;
+	}
+
+	public String getTargetId() {
+		return targetId;
+	}
+
+	public void setTargetId(String targetId) {
+		this.targetId = targetId;
+	}
+
+	public String getCreatedBy() {
+		return createdBy;
+	}
+
+	public void setCreatedBy(String createdBy) {
+		this.createdBy = createdBy;
+	}
+
+	public long getNotesDeleted() {
+		return notesDeleted;
+	}
+
+	public void setNotesDeleted(long notesDeleted) {
+		this.notesDeleted = notesDeleted;
+	}
+
+	public long getRemindersDeleted() {
+		return remindersDeleted;
+	}
+
+	public void setRemindersDeleted(long remindersDeleted) {
+		this.remindersDeleted = remindersDeleted;
+	}
+
+	public long getCategoriesDeleted() {
+		return categoriesDeleted;
+	}
+
+	public void setCategoriesDeleted(long categoriesDeleted) {
+		this.categoriesDeleted = categoriesDeleted;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(boolean completed) {
+		this.completed = completed;
+	}
+
+	public Date getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Date createdAt) {
+		this.createdAt = createdAt;
+	}
+
+	public Date getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(Date updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
+	public List<Integer> getDeletedNoteIds() {
+		return deletedNoteIds;
+	}
+
+	public void setDeletedNoteIds(List<Integer> deletedNoteIds) {
+		this.deletedNoteIds = deletedNoteIds;
+	}
+
+	public List<Integer> getDeletedCategoryIds() {
+		return deletedCategoryIds;
+	}
+
+	public void setDeletedCategoryIds(List<Integer> deletedCategoryIds) {
+		this.deletedCategoryIds = deletedCategoryIds;
+	}
+
+	public List<Integer> getDeletedReminderIds() {
+		return deletedReminderIds;
+	}
+
+	public void setDeletedReminderIds(List<Integer> deletedReminderIds) {
+		this.deletedReminderIds = deletedReminderIds;
+	}
+
+	@Override
+	public String toString() {
+		return "DeletionJob [jobId=" + jobId + ", targetType=" + targetType + ", targetId=" + targetId
+				+ ", createdBy=" + createdBy + ", notesDeleted=" + notesDeleted + ", remindersDeleted="
+				+ remindersDeleted + ", categoriesDeleted=" + categoriesDeleted + ", completed=" + completed
+				+ ", createdAt=" + createdAt + ", updatedAt=" + updatedAt + "]";
+	}
+
+}
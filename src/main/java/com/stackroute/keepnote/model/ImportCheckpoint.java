@@ -0,0 +1,199 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Transient;
+import javax.persistence.Version;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/*
+ * The class "ImportCheckpoint" records how far an import has got. It is written
+ * in the same transaction as every chunk of imported rows, so after a failure
+ * the import can be sent again with the same importId and continues after the
+ * last line that was committed. It is also what GET /import/{importId} returns
+ * while the import is running.
+ *
+ * The ids the imported categories and reminders had in the export are mapped to
+ * the ids they were given here, so that the notes further down can refer to
+ * them. The maps are kept in idMappings as JSON between chunks.
+ */
+@Entity
+public class ImportCheckpoint {
+
+	@Id
+	@Column(length = 64)
+	private String importId;
+
+	@Column(nullable = false)
+	private String createdBy;
+
+	private long linesCommitted;
+	private int categoriesImported;
+	private int remindersImported;
+	private int notesImported;
+
+	/*
+	 * Notes whose category or reminder was neither imported nor one of the user's
+	 * own; they are imported without it.
+	 */
+	private int referencesDropped;
+
+	private boolean completed;
+	private Date startedAt;
+	private Date updatedAt;
+
+	@Version
+	private int version;
+
+	@Lob
+	@JsonIgnore
+	private String idMappings;
+
+	@Transient
+	@JsonIgnore
+	private Map<Integer, Integer> categoryIds = new HashMap<Integer, Integer>();
+
+	@Transient
+	@JsonIgnore
+	private Map<Integer, Integer> reminderIds = new HashMap<Integer, Integer>();
+
+	public ImportCheckpoint(String importId, String createdBy, Date startedAt) {
+		super();
+		this.importId = importId;
+		this.createdBy = createdBy;
+		this.startedAt = startedAt;
+		this.updatedAt = startedAt;
+	}
+
+	public ImportCheckpoint() {
+		super();
+	}
+
+	public String getImportId() {
+		return importId;
+	}
+
+	public void setImportId(String importId) {
+		this.importId = importId;
+	}
+
+	public String getCreatedBy() {
+		return createdBy;
+	}
+
+	public void setCreatedBy(String createdBy) {
+		this.createdBy = createdBy;
+	}
+
+	public long getLinesCommitted() {
+		return linesCommitted;
+	}
+
+	public void setLinesCommitted(long linesCommitted) {
+		this.linesCommitted = linesCommitted;
+	}
+
+	public int getCategoriesImported() {
+		return categoriesImported;
+	}
+
+	public void setCategoriesImported(int categoriesImported) {
+		this.categoriesImported = categoriesImported;
+	}
+
+	public int getRemindersImported() {
+		return remindersImported;
+	}
+
+	public void setRemindersImported(int remindersImported) {
+		this.remindersImported = remindersImported;
+	}
+
+	public int getNotesImported() {
+		return notesImported;
+	}
+
+	public void setNotesImported(int notesImported) {
+		this.notesImported = notesImported;
+	}
+
+	public int getReferencesDropped() {
+		return referencesDropped;
+	}
+
+	public void setReferencesDropped(int referencesDropped) {
+		this.referencesDropped = referencesDropped;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	public void setCompleted(boolean completed) {
+		this.completed = completed;
+	}
+
+	public Date getStartedAt() {
+		return startedAt;
+	}
+
+	public void setStartedAt(Date startedAt) {
+		this.startedAt = startedAt;
+	}
+
+	public Date getUpdatedAt() {
+		return updatedAt;
+	}
+
+	public void setUpdatedAt(Date updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	public void setVersion(int version) {
+		this.version = version;
+	}
+
+	public String getIdMappings() {
+		return idMappings;
+	}
+
+	public void setIdMappings(String idMappings) {
+		this.idMappings = idMappings;
+	}
+
+	public Map<Integer, Integer> getCategoryIds() {
+		return categoryIds;
+	}
+
+	public void setCategoryIds(Map<Integer, Integer> categoryIds) {
+		this.categoryIds = categoryIds;
+	}
+
+	public Map<Integer, Integer> getReminderIds() {
+		return reminderIds;
+	}
+
+	public void setReminderIds(Map<Integer, Integer> reminderIds) {
+		this.reminderIds = reminderIds;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportCheckpoint [importId=" + importId + ", createdBy=" + createdBy + ", linesCommitted="
+				+ linesCommitted + ", categoriesImported=" + categoriesImported + ", remindersImported="
+				+ remindersImported + ", notesImported=" + notesImported + ", referencesDropped="
+				+ referencesDropped + ", completed=" + completed + "]";
+	}
+
+}
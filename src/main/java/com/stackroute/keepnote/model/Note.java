@@ -4,10 +4,22 @@ import java.util.Date;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.ForeignKey;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NotFound;
+import org.hibernate.annotations.NotFoundAction;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /*
  * The class "Note" will be acting as the data model for the Note Table in the database. 
@@ -17,6 +29,14 @@ import javax.persistence.ManyToOne;
  * Java object to recreate it as a table in your database.
  */
 @Entity
+@DynamicUpdate
+@Table(indexes = { @Index(name = "idx_note_createdby_noteid", columnList = "createdBy,noteId"),
+		@Index(name = "idx_note_createdby_changeseq", columnList = "createdBy,changeSeq"),
+		@Index(name = "idx_note_createdby_status", columnList = "createdBy,noteStatus"),
+		@Index(name = "idx_note_createdby_createdat", columnList = "createdBy,noteCreatedAt"),
+		@Index(name = "idx_note_lastmodified", columnList = "lastModified"),
+		@Index(name = "idx_note_category", columnList = "category_categoryId"),
+		@Index(name = "idx_note_reminder", columnList = "reminder_reminderId") })
 public class Note {
 	
 	@Id
@@ -27,8 +47,19 @@ public class Note {
 	@Column(nullable=false)
 	private String noteTitle;
 	
-	@Column(nullable=false)
+	/*
+	 * The content is not a column of Note: it is stored once per distinct content
+	 * in NoteBody, which the note refers to by the hash of the content. A content
+	 * set on the note is kept here until NoteDAOImpl writes the note and points
+	 * it at the matching body.
+	 */
+	@Transient
 	private String noteContent;
+
+	@ManyToOne
+	@JoinColumn(name = "contentHash", nullable = false, foreignKey = @ForeignKey(name = "fk_note_contenthash"))
+	@JsonIgnore
+	private NoteBody body;
 	
 	@Column(nullable=false)
 	private String noteStatus;
@@ -36,7 +67,12 @@ public class Note {
 	@Column(nullable=false)
 	private Date noteCreatedAt;
 	
+	/*
+	 * A deleted category is hidden by its @Where until its notes have been
+	 * removed in the background; in the meantime its notes load without it.
+	 */
 	@ManyToOne
+	@NotFound(action = NotFoundAction.IGNORE)
 	private Category category;
 	
 	@ManyToOne
@@ -45,6 +81,30 @@ public class Note {
 	@Column(nullable=false)
 	private String createdBy;
 
+	/*
+	 * Null until the note is saved. A PUT has to send the version it read, so a
+	 * body without one is told apart from a stale one. Notes saved before the
+	 * column existed are given 0 by db/entity-versions.sql.
+	 */
+	@Version
+	@Column(nullable = false, columnDefinition = "integer default 0")
+	private Integer version;
+
+	/*
+	 * Time of the last write in milliseconds, set by NoteDAOImpl. Used by the
+	 * archiver to find the notes that have not been written for long.
+	 */
+	@Column(nullable=false)
+	private long lastModified;
+
+	/*
+	 * The number of the last write in the ChangeSequence of the owner. Used by the
+	 * change feed to find the notes that changed since a client last synced.
+	 */
+	@Column(nullable=false)
+	@JsonIgnore
+	private long changeSeq;
+
 	public Note(int noteId, String noteTitle, String noteContent, String noteStatus, Date noteCreatedAt,
 			Category category, Reminder reminder, String createdBy) {
 		super();
@@ -79,6 +139,8 @@ public class Note {
 	}
 
 	public String getNoteContent() {
+		if (noteContent == null && body != null)
+			return body.getContent();
 		return noteContent;
 	}
 
@@ -102,6 +164,14 @@ public class Note {
 		this.noteCreatedAt = noteCreatedAt;
 	}
 
+	public NoteBody getBody() {
+		return body;
+	}
+
+	public void setBody(NoteBody body) {
+		this.body = body;
+	}
+
 	public Category getCategory() {
 		return category;
 	}
@@ -126,11 +196,35 @@ public class Note {
 		this.createdBy = createdBy;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	public long getChangeSeq() {
+		return changeSeq;
+	}
+
+	public void setChangeSeq(long changeSeq) {
+		this.changeSeq = changeSeq;
+	}
+
 	@Override
 	public String toString() {
-		return "Note [noteId=" + noteId + ", noteTitle=" + noteTitle + ", noteContent=" + noteContent + ", noteStatus="
+		return "Note [noteId=" + noteId + ", noteTitle=" + noteTitle + ", noteContent=" + getNoteContent() + ", noteStatus="
 				+ noteStatus + ", noteCreatedAt=" + noteCreatedAt + ", category=" + category + ", reminder=" + reminder
-				+ ", createdBy=" + createdBy + "]";
+				+ ", createdBy=" + createdBy + ", version=" + version + ", lastModified=" + lastModified + ", changeSeq=" + changeSeq + "]";
 	}
 	
 	
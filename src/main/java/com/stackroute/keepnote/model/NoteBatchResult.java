@@ -0,0 +1,68 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * The class "NoteBatchResult" reports what happened to one note of a batch
+ * create request. The index is the position of the note in the request body
+ * and the noteId is only set for notes that were created. The status is 201
+ * for a note that was created, 401 for a note of another user, 404 for a note
+ * whose category or reminder does not exist or is not the user's, and 500 for a
+ * note the database rejected.
+ */
+public class NoteBatchResult {
+
+	private int index;
+	private int noteId;
+	private int status;
+	private String message;
+
+	public NoteBatchResult(int index, int noteId, int status, String message) {
+		super();
+		this.index = index;
+		this.noteId = noteId;
+		this.status = status;
+		this.message = message;
+	}
+
+	public NoteBatchResult() {
+		super();
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteBatchResult [index=" + index + ", noteId=" + noteId + ", status=" + status + ", message="
+				+ message + "]";
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.stackroute.keepnote.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+
+/*
+ * The class "NoteBody" holds the content of notes, once for every distinct
+ * content. It is identified by the SHA-256 of the content, and the notes refer
+ * to it by that hash. refCount is the number of notes that refer to the body;
+ * it is kept by NoteDAOImpl with single UPDATE statements and never through
+ * this entity, and the body is deleted once no note refers to it any more.
+ */
+@Entity
+public class NoteBody {
+
+	@Id
+	@Column(length = 64)
+	private String contentHash;
+
+	@Lob
+	@Column(nullable = false)
+	private String content;
+
+	@Column(nullable = false)
+	private long refCount;
+
+	public NoteBody(String contentHash, String content, long refCount) {
+		super();
+		this.contentHash = contentHash;
+		this.content = content;
+		this.refCount = refCount;
+	}
+
+	public NoteBody() {
+		super();
+	}
+
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	public void setContentHash(String contentHash) {
+		this.contentHash = contentHash;
+	}
+
+	public String getContent() {
+		return content;
+	}
+
+	public void setContent(String content) {
+		this.content = content;
+	}
+
+	public long getRefCount() {
+		return refCount;
+	}
+
+	public void setRefCount(long refCount) {
+		this.refCount = refCount;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteBody [contentHash=" + contentHash + ", refCount=" + refCount + "]";
+	}
+
+}
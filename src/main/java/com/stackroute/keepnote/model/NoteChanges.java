@@ -0,0 +1,80 @@
+package com.stackroute.keepnote.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/*
+ * The class "NoteChanges" is the answer of the change feed: the notes that were
+ * created or updated and the noteIds of the notes that were deleted since the
+ * token the client sent. The nextToken has to be sent as "since" on the next
+ * call. It stands for lastChangeSeq, the number in the ChangeSequence of the
+ * user up to which the changes were read. A note that changed again while
+ * the changes were read can be listed again on the next call; applying it
+ * twice is harmless.
+ */
+public class NoteChanges {
+
+	private List<Note> notes;
+	private List<Integer> deletedNoteIds;
+	private String nextToken;
+
+	@JsonIgnore
+	private long lastChangeSeq;
+
+	public NoteChanges(List<Note> notes, List<Integer> deletedNoteIds, String nextToken) {
+		super();
+		this.notes = notes;
+		this.deletedNoteIds = deletedNoteIds;
+		this.nextToken = nextToken;
+	}
+
+	public NoteChanges(List<Note> notes, List<Integer> deletedNoteIds, long lastChangeSeq) {
+		super();
+		this.notes = notes;
+		this.deletedNoteIds = deletedNoteIds;
+		this.lastChangeSeq = lastChangeSeq;
+	}
+
+	public NoteChanges() {
+		super();
+	}
+
+	public List<Note> getNotes() {
+		return notes;
+	}
+
+	public void setNotes(List<Note> notes) {
+		this.notes = notes;
+	}
+
+	public List<Integer> getDeletedNoteIds() {
+		return deletedNoteIds;
+	}
+
+	public void setDeletedNoteIds(List<Integer> deletedNoteIds) {
+		this.deletedNoteIds = deletedNoteIds;
+	}
+
+	public String getNextToken() {
+		return nextToken;
+	}
+
+	public void setNextToken(String nextToken) {
+		this.nextToken = nextToken;
+	}
+
+	public long getLastChangeSeq() {
+		return lastChangeSeq;
+	}
+
+	public void setLastChangeSeq(long lastChangeSeq) {
+		this.lastChangeSeq = lastChangeSeq;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteChanges [notes=" + notes + ", deletedNoteIds=" + deletedNoteIds + ", nextToken=" + nextToken + "]";
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+/*
+ * The class "NoteFilter" holds the optional conditions a note list can be
+ * narrowed down with: the status, a range of creation dates (from inclusive, to
+ * exclusive), a category and a reminder. Conditions that are null are not
+ * applied. NoteDAOImpl turns the filter into the where clause of the query.
+ */
+public class NoteFilter {
+
+	private String noteStatus;
+	private Date from;
+	private Date to;
+	private Integer categoryId;
+	private Integer reminderId;
+
+	public NoteFilter(String noteStatus, Date from, Date to, Integer categoryId, Integer reminderId) {
+		super();
+		this.noteStatus = noteStatus;
+		this.from = from;
+		this.to = to;
+		this.categoryId = categoryId;
+		this.reminderId = reminderId;
+	}
+
+	public NoteFilter() {
+		super();
+	}
+
+	/*
+	 * True if no condition is set, so that every note matches.
+	 */
+	public boolean isEmpty() {
+		return noteStatus == null && from == null && to == null && categoryId == null && reminderId == null;
+	}
+
+	public String getNoteStatus() {
+		return noteStatus;
+	}
+
+	public void setNoteStatus(String noteStatus) {
+		this.noteStatus = noteStatus;
+	}
+
+	public Date getFrom() {
+		return from;
+	}
+
+	public void setFrom(Date from) {
+		this.from = from;
+	}
+
+	public Date getTo() {
+		return to;
+	}
+
+	public void setTo(Date to) {
+		this.to = to;
+	}
+
+	public Integer getCategoryId() {
+		return categoryId;
+	}
+
+	public void setCategoryId(Integer categoryId) {
+		this.categoryId = categoryId;
+	}
+
+	public Integer getReminderId() {
+		return reminderId;
+	}
+
+	public void setReminderId(Integer reminderId) {
+		this.reminderId = reminderId;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteFilter [noteStatus=" + noteStatus + ", from=" + from + ", to=" + to + ", categoryId=" + categoryId
+				+ ", reminderId=" + reminderId + "]";
+	}
+
+}
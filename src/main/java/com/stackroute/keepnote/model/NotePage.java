@@ -0,0 +1,46 @@
+package com.stackroute.keepnote.model;
+
+import java.util.List;
+
+/*
+ * The class "NotePage" holds one page of a user's notes together with the cursor
+ * that has to be sent as the "after" parameter to fetch the next page. The
+ * nextCursor is null when there are no more notes to read.
+ */
+public class NotePage {
+
+	private List<Note> notes;
+	private String nextCursor;
+
+	public NotePage(List<Note> notes, String nextCursor) {
+		super();
+		this.notes = notes;
+		this.nextCursor = nextCursor;
+	}
+
+	public NotePage() {
+		super();
+	}
+
+	public List<Note> getNotes() {
+		return notes;
+	}
+
+	public void setNotes(List<Note> notes) {
+		this.notes = notes;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "NotePage [notes=" + notes + ", nextCursor=" + nextCursor + "]";
+	}
+
+}
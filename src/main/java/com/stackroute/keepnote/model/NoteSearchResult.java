@@ -0,0 +1,54 @@
+package com.stackroute.keepnote.model;
+
+/*
+ * The class "NoteSearchResult" is one hit returned by the note search. It only
+ * carries what the search index holds in memory (the noteId, the title and the
+ * relevance score), the full note can be read through GET /note/{id}.
+ */
+public class NoteSearchResult {
+
+	private int noteId;
+	private String noteTitle;
+	private double score;
+
+	public NoteSearchResult(int noteId, String noteTitle, double score) {
+		super();
+		this.noteId = noteId;
+		this.noteTitle = noteTitle;
+		this.score = score;
+	}
+
+	public NoteSearchResult() {
+		super();
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public String getNoteTitle() {
+		return noteTitle;
+	}
+
+	public void setNoteTitle(String noteTitle) {
+		this.noteTitle = noteTitle;
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	public void setScore(double score) {
+		this.score = score;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteSearchResult [noteId=" + noteId + ", noteTitle=" + noteTitle + ", score=" + score + "]";
+	}
+
+}
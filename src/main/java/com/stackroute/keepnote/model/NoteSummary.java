@@ -0,0 +1,79 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+/*
+ * The class "NoteSummary" is the short form of a note shown in the note list:
+ * its title, status, creation date and the name of its category. It is read
+ * straight from the columns by NoteDAOImpl, so neither the note content nor the
+ * category and reminder entities are loaded. The full note can be read through
+ * GET /note/{id}.
+ */
+public class NoteSummary {
+
+	private int noteId;
+	private String noteTitle;
+	private String noteStatus;
+	private Date noteCreatedAt;
+	private String categoryName;
+
+	public NoteSummary(int noteId, String noteTitle, String noteStatus, Date noteCreatedAt, String categoryName) {
+		super();
+		this.noteId = noteId;
+		this.noteTitle = noteTitle;
+		this.noteStatus = noteStatus;
+		this.noteCreatedAt = noteCreatedAt;
+		this.categoryName = categoryName;
+	}
+
+	public NoteSummary() {
+		super();
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public String getNoteTitle() {
+		return noteTitle;
+	}
+
+	public void setNoteTitle(String noteTitle) {
+		this.noteTitle = noteTitle;
+	}
+
+	public String getNoteStatus() {
+		return noteStatus;
+	}
+
+	public void setNoteStatus(String noteStatus) {
+		this.noteStatus = noteStatus;
+	}
+
+	public Date getNoteCreatedAt() {
+		return noteCreatedAt;
+	}
+
+	public void setNoteCreatedAt(Date noteCreatedAt) {
+		this.noteCreatedAt = noteCreatedAt;
+	}
+
+	public String getCategoryName() {
+		return categoryName;
+	}
+
+	public void setCategoryName(String categoryName) {
+		this.categoryName = categoryName;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteSummary [noteId=" + noteId + ", noteTitle=" + noteTitle + ", noteStatus=" + noteStatus
+				+ ", noteCreatedAt=" + noteCreatedAt + ", categoryName=" + categoryName + "]";
+	}
+
+}
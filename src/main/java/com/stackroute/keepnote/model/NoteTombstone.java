@@ -0,0 +1,84 @@
+package com.stackroute.keepnote.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/*
+ * The class "NoteTombstone" records that a note was deleted, so that the change
+ * feed can tell a syncing client to drop its copy. One row is written by
+ * NoteDAOImpl for every deleted note; noteIds are never reused, so the noteId
+ * identifies the tombstone as well. changeSeq is the number of the deletion in
+ * the ChangeSequence of the owner. Tombstones are pruned once they are older
+ * than the retention of the change feed.
+ */
+@Entity
+@Table(indexes = { @Index(name = "idx_tombstone_createdby_changeseq", columnList = "createdBy,changeSeq"),
+		@Index(name = "idx_tombstone_deletedat", columnList = "deletedAt") })
+public class NoteTombstone {
+
+	@Id
+	private int noteId;
+
+	@Column(nullable=false)
+	private String createdBy;
+
+	@Column(nullable=false)
+	private long deletedAt;
+
+	@Column(nullable=false)
+	private long changeSeq;
+
+	public NoteTombstone(int noteId, String createdBy, long deletedAt, long changeSeq) {
+		super();
+		this.noteId = noteId;
+		this.createdBy = createdBy;
+		this.deletedAt = deletedAt;
+		this.changeSeq = changeSeq;
+	}
+
+	public NoteTombstone() {
+		super();
+	}
+
+	public int getNoteId() {
+		return noteId;
+	}
+
+	public void setNoteId(int noteId) {
+		this.noteId = noteId;
+	}
+
+	public String getCreatedBy() {
+		return createdBy;
+	}
+
+	public void setCreatedBy(String createdBy) {
+		this.createdBy = createdBy;
+	}
+
+	public long getDeletedAt() {
+		return deletedAt;
+	}
+
+	public void setDeletedAt(long deletedAt) {
+		this.deletedAt = deletedAt;
+	}
+
+	public long getChangeSeq() {
+		return changeSeq;
+	}
+
+	public void setChangeSeq(long changeSeq) {
+		this.changeSeq = changeSeq;
+	}
+
+	@Override
+	public String toString() {
+		return "NoteTombstone [noteId=" + noteId + ", createdBy=" + createdBy + ", deletedAt=" + deletedAt + ", changeSeq="
+				+ changeSeq + "]";
+	}
+
+}
@@ -3,11 +3,18 @@ package com.stackroute.keepnote.model;
 import java.util.Date;
 import java.util.List;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
@@ -19,6 +26,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * Java object to recreate it as a table in your database.
  */
 @Entity
+@DynamicUpdate
+@Table(indexes = { @Index(name = "idx_reminder_dueat", columnList = "dueAt") })
 public class Reminder {
 	
 	@Id
@@ -34,8 +43,32 @@ public class Reminder {
 	private String reminderType;
 	private String reminderCreatedBy;
 	private Date reminderCreationDate; 
+
+	/*
+	 * When the reminder is due. It is cleared when the reminder fires, so the
+	 * reminders that are still pending are exactly the ones in the dueAt index and
+	 * the scheduler can load them with a range query on it. Setting a new dueAt
+	 * arms a fired reminder again.
+	 */
+	private Date dueAt;
+
+	/*
+	 * When the reminder last fired. It is only written by the scheduler, the
+	 * updates of the reminder leave it alone.
+	 */
+	@Column(updatable = false)
+	private Date firedAt;
+
+	@Version
+	@Column(nullable = false, columnDefinition = "integer default 0")
+	private Integer version;
 	
-	@OneToMany
+	/*
+	 * The inverse side of Note.reminder: the notes are found through the foreign key
+	 * column of Note, there is no join table, and they are only read when the
+	 * list is used.
+	 */
+	@OneToMany(mappedBy = "reminder", fetch = FetchType.LAZY)
 	@JsonIgnore
 	private List<Note> notes;
 	
@@ -104,15 +137,40 @@ public class Reminder {
 		this.reminderCreationDate = reminderCreationDate;
 	}
 
+	public Date getDueAt() {
+		return dueAt;
+	}
+
+	public void setDueAt(Date dueAt) {
+		this.dueAt = dueAt;
+	}
+
+	public Date getFiredAt() {
+		return firedAt;
+	}
+
+	public void setFiredAt(Date firedAt) {
+		this.firedAt = firedAt;
+	}
+
 	public void setNotes(List<Note> notes) {
 		this.notes = notes;
 	}
 	
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	@Override
 	public String toString() {
 		return "Reminder [reminderId=" + reminderId + ", reminderName=" + reminderName + ", reminderDescription="
 				+ reminderDescription + ", reminderType=" + reminderType + ", reminderCreatedBy=" + reminderCreatedBy
-				+ ", reminderCreationDate=" + reminderCreationDate + ", notes=" + notes + "]";
+				+ ", reminderCreationDate=" + reminderCreationDate + ", dueAt=" + dueAt + ", firedAt=" + firedAt
+				+ ", version=" + version + "]";
 	}
 
 
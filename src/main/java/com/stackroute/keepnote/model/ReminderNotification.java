@@ -0,0 +1,164 @@
+package com.stackroute.keepnote.model;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/*
+ * The class "ReminderNotification" is the outbox of the reminders: a row is
+ * written when a reminder fires, in the same transaction that marks the
+ * reminder as fired, and NotificationDispatcher delivers it afterwards. It
+ * holds a copy of what the notification says, so it can be delivered even if
+ * the reminder was changed or deleted in the meantime.
+ *
+ * nextAttemptAt is when the row is to be delivered next. It is cleared once the
+ * row is delivered or given up on, so the rows still to deliver are exactly the
+ * ones in its index.
+ */
+@Entity
+@Table(indexes = { @Index(name = "idx_notification_nextattemptat", columnList = "nextAttemptAt"),
+		@Index(name = "idx_notification_recipient", columnList = "recipient") })
+public class ReminderNotification {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.AUTO)
+	private int notificationId;
+
+	private int reminderId;
+
+	/*
+	 * The user the reminder belongs to.
+	 */
+	@Column(nullable = false)
+	private String recipient;
+
+	private String reminderName;
+	private String reminderDescription;
+	private String reminderType;
+	private Date firedAt;
+	private Date nextAttemptAt;
+	private int attempts;
+	private Date deliveredAt;
+
+	@Column(length = 1000)
+	private String lastError;
+
+	public ReminderNotification(Reminder reminder, Date firedAt) {
+		super();
+		this.reminderId = reminder.getReminderId();
+		this.recipient = reminder.getReminderCreatedBy();
+		this.reminderName = reminder.getReminderName();
+		this.reminderDescription = reminder.getReminderDescription();
+		this.reminderType = reminder.getReminderType();
+		this.firedAt = firedAt;
+		this.nextAttemptAt = firedAt;
+	}
+
+	public ReminderNotification() {
+		super();
+	}
+
+	public int getNotificationId() {
+		return notificationId;
+	}
+
+	public void setNotificationId(int notificationId) {
+		this.notificationId = notificationId;
+	}
+
+	public int getReminderId() {
+		return reminderId;
+	}
+
+	public void setReminderId(int reminderId) {
+		this.reminderId = reminderId;
+	}
+
+	public String getRecipient() {
+		return recipient;
+	}
+
+	public void setRecipient(String recipient) {
+		this.recipient = recipient;
+	}
+
+	public String getReminderName() {
+		return reminderName;
+	}
+
+	public void setReminderName(String reminderName) {
+		this.reminderName = reminderName;
+	}
+
+	public String getReminderDescription() {
+		return reminderDescription;
+	}
+
+	public void setReminderDescription(String reminderDescription) {
+		this.reminderDescription = reminderDescription;
+	}
+
+	public String getReminderType() {
+		return reminderType;
+	}
+
+	public void setReminderType(String reminderType) {
+		this.reminderType = reminderType;
+	}
+
+	public Date getFiredAt() {
+		return firedAt;
+	}
+
+	public void setFiredAt(Date firedAt) {
+		this.firedAt = firedAt;
+	}
+
+	public Date getNextAttemptAt() {
+		return nextAttemptAt;
+	}
+
+	public void setNextAttemptAt(Date nextAttemptAt) {
+		this.nextAttemptAt = nextAttemptAt;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	public void setAttempts(int attempts) {
+		this.attempts = attempts;
+	}
+
+	public Date getDeliveredAt() {
+		return deliveredAt;
+	}
+
+	public void setDeliveredAt(Date deliveredAt) {
+		this.deliveredAt = deliveredAt;
+	}
+
+	public String getLastError() {
+		return lastError;
+	}
+
+	public void setLastError(String lastError) {
+		this.lastError = lastError;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderNotification [notificationId=" + notificationId + ", reminderId=" + reminderId
+				+ ", recipient=" + recipient + ", reminderName=" + reminderName + ", reminderDescription="
+				+ reminderDescription + ", reminderType=" + reminderType + ", firedAt=" + firedAt
+				+ ", nextAttemptAt=" + nextAttemptAt + ", attempts=" + attempts + ", deliveredAt=" + deliveredAt
+				+ ", lastError=" + lastError + "]";
+	}
+
+}
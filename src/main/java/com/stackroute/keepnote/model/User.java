@@ -2,8 +2,15 @@ package com.stackroute.keepnote.model;
 
 import java.util.Date;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.Where;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /*
  * The class "User" will be acting as the data model for the User Table in the database. 
@@ -13,6 +20,8 @@ import javax.persistence.Id;
  * Java object to recreate it as a table in your database.
  */
 @Entity
+@DynamicUpdate
+@Where(clause = "deleted = 0")
 public class User {
 	@Id
 	private String userId;
@@ -20,6 +29,19 @@ public class User {
 	private String userPassword;
 	private String userMobile;
 	private Date userAddedDate;
+
+	@Version
+	@Column(nullable = false, columnDefinition = "integer default 0")
+	private Integer version;
+
+	/*
+	 * Set when the user is deleted. The @Where of the class hides it from then
+	 * on, and a DeletionJob removes it together with everything the user owns.
+	 */
+	@Column(nullable = false)
+	@JsonIgnore
+	private boolean deleted;
+
 	/*
 	 * This class should have five fields (userId,userName,
 	 * userPassword,userMobile,userAddedDate). Out of these five fields, the field
@@ -84,10 +106,26 @@ public class User {
 		this.userAddedDate = userAddedDate;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
+	public boolean isDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(boolean deleted) {
+		this.deleted = deleted;
+	}
+
 	@Override
 	public String toString() {
 		return "User [userId=" + userId + ", userName=" + userName + ", userPassword=" + userPassword + ", userMobile="
-				+ userMobile + ", userAddedDate=" + userAddedDate + "]";
+				+ userMobile + ", userAddedDate=" + userAddedDate + ", version=" + version + "]";
 	}
 	
 }
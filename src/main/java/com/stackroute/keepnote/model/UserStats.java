@@ -0,0 +1,103 @@
+package com.stackroute.keepnote.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.MapKeyColumn;
+
+/*
+ * The class "UserStats" holds the number of notes, categories and reminders of
+ * a user and the number of notes in every status, so that GET /stats does not
+ * have to count them. The counters are changed by the DAOs in the same
+ * transaction as the rows they count, with single UPDATE statements and never
+ * through this entity, and they are recomputed from the tables and the note
+ * archive once a day to repair any drift. Archived notes are counted too, like
+ * in the note lists.
+ */
+@Entity
+public class UserStats {
+
+	@Id
+	private String userId;
+
+	@Column(nullable = false)
+	private long noteCount;
+
+	@Column(nullable = false)
+	private long categoryCount;
+
+	@Column(nullable = false)
+	private long reminderCount;
+
+	@ElementCollection(fetch = FetchType.EAGER)
+	@CollectionTable(name = "UserStats_notesByStatus", joinColumns = @JoinColumn(name = "userId"))
+	@MapKeyColumn(name = "noteStatus")
+	@Column(name = "noteCount", nullable = false)
+	private Map<String, Long> notesByStatus = new HashMap<String, Long>();
+
+	public UserStats(String userId, long noteCount, long categoryCount, long reminderCount) {
+		super();
+		this.userId = userId;
+		this.noteCount = noteCount;
+		this.categoryCount = categoryCount;
+		this.reminderCount = reminderCount;
+	}
+
+	public UserStats() {
+		super();
+	}
+
+	public String getUserId() {
+		return userId;
+	}
+
+	public void setUserId(String userId) {
+		this.userId = userId;
+	}
+
+	public long getNoteCount() {
+		return noteCount;
+	}
+
+	public void setNoteCount(long noteCount) {
+		this.noteCount = noteCount;
+	}
+
+	public long getCategoryCount() {
+		return categoryCount;
+	}
+
+	public void setCategoryCount(long categoryCount) {
+		this.categoryCount = categoryCount;
+	}
+
+	public long getReminderCount() {
+		return reminderCount;
+	}
+
+	public void setReminderCount(long reminderCount) {
+		this.reminderCount = reminderCount;
+	}
+
+	public Map<String, Long> getNotesByStatus() {
+		return notesByStatus;
+	}
+
+	public void setNotesByStatus(Map<String, Long> notesByStatus) {
+		this.notesByStatus = notesByStatus;
+	}
+
+	@Override
+	public String toString() {
+		return "UserStats [userId=" + userId + ", noteCount=" + noteCount + ", categoryCount=" + categoryCount
+				+ ", reminderCount=" + reminderCount + ", notesByStatus=" + notesByStatus + "]";
+	}
+
+}
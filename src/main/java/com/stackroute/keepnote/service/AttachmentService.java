@@ -0,0 +1,27 @@
+package com.stackroute.keepnote.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import com.stackroute.keepnote.exception.AttachmentNotFoundException;
+import com.stackroute.keepnote.exception.AttachmentTooLargeException;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.Attachment;
+
+public interface AttachmentService {
+
+	public Attachment addAttachment(int noteId, String userId, String fileName, String contentType,
+			InputStream content) throws NoteNotFoundException, AttachmentTooLargeException, IOException;
+
+	public List<Attachment> getAttachmentsByNoteId(int noteId, String userId);
+
+	public Attachment getAttachmentById(int attachmentId, int noteId, String userId)
+			throws AttachmentNotFoundException;
+
+	public FileChannel openAttachment(Attachment attachment) throws IOException;
+
+	public boolean deleteAttachment(int attachmentId, int noteId, String userId);
+
+}
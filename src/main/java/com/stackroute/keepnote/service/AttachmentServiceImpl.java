@@ -0,0 +1,84 @@
+package com.stackroute.keepnote.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.dao.AttachmentDAO;
+import com.stackroute.keepnote.dao.AttachmentStore;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.exception.AttachmentNotFoundException;
+import com.stackroute.keepnote.exception.AttachmentTooLargeException;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.Attachment;
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Service for the files attached to notes. The content of an upload goes
+ * straight from the request stream to disk and the content of a download
+ * straight from the file to the response, it is never held in memory.
+ */
+@Service
+public class AttachmentServiceImpl implements AttachmentService {
+
+	private AttachmentDAO attachmentDAO;
+	private NoteDAO noteDAO;
+	private AttachmentStore attachmentStore;
+
+	public AttachmentServiceImpl(AttachmentDAO attachmentDAO, NoteDAO noteDAO, AttachmentStore attachmentStore) {
+		super();
+		this.attachmentDAO = attachmentDAO;
+		this.noteDAO = noteDAO;
+		this.attachmentStore = attachmentStore;
+	}
+
+	/*
+	 * This method should be used to attach a file to a note of the user. The note
+	 * is checked before the content is read.
+	 */
+	public Attachment addAttachment(int noteId, String userId, String fileName, String contentType,
+			InputStream content) throws NoteNotFoundException, AttachmentTooLargeException, IOException {
+		Note note = noteDAO.getNoteById(noteId);
+		if (note == null || !note.getCreatedBy().equals(userId))
+			throw new NoteNotFoundException("NoteNotFoundException");
+		Path upload = attachmentStore.receive(content);
+		long size = upload.toFile().length();
+		Attachment attachment = new Attachment(0, noteId, fileName, contentType, size, userId, new Date());
+		return attachmentDAO.createAttachment(attachment, upload);
+	}
+
+	/*
+	 * This method should be used to get the attachments of a note of the user.
+	 */
+	public List<Attachment> getAttachmentsByNoteId(int noteId, String userId) {
+		return attachmentDAO.getAttachmentsByNoteId(noteId, userId);
+	}
+
+	/*
+	 * This method should be used to get one attachment of a note of the user.
+	 */
+	public Attachment getAttachmentById(int attachmentId, int noteId, String userId)
+			throws AttachmentNotFoundException {
+		return attachmentDAO.getAttachmentById(attachmentId, noteId, userId);
+	}
+
+	/*
+	 * This method should be used to open the content of an attachment.
+	 */
+	public FileChannel openAttachment(Attachment attachment) throws IOException {
+		return attachmentDAO.openAttachment(attachment);
+	}
+
+	/*
+	 * This method should be used to delete an attachment of a note of the user.
+	 */
+	public boolean deleteAttachment(int attachmentId, int noteId, String userId) {
+		return attachmentDAO.deleteAttachment(attachmentId, noteId, userId);
+	}
+
+}
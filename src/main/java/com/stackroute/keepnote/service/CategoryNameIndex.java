@@ -0,0 +1,177 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySuggestion;
+
+/*
+ * In-memory index of the category names behind the autocompletion of GET
+ * /category/suggest. Every user has a partition holding their categories in an
+ * array sorted by lower-cased name, so the matches of a prefix are the run of
+ * entries starting at its binary-search position and a lookup costs O(log n +
+ * limit) without touching MySQL.
+ *
+ * A partition is built from the database the first time its user asks for
+ * suggestions and is kept up to date afterwards by CategoryServiceImpl and
+ * ImportServiceImpl. Writes replace the array, so lookups read a consistent
+ * snapshot without taking the lock.
+ */
+@Component
+public class CategoryNameIndex {
+
+	private static final Entry[] EMPTY = new Entry[0];
+	private static final Comparator<Entry> ORDER = Comparator.<Entry, String>comparing(entry -> entry.key)
+			.thenComparingInt(entry -> entry.categoryId);
+
+	private final Map<String, Partition> partitions = new ConcurrentHashMap<String, Partition>();
+	private final Map<Integer, String> categoryOwners = new ConcurrentHashMap<Integer, String>();
+
+	/*
+	 * Add a category to the index, or replace the indexed name of it. Categories
+	 * of users whose partition is not loaded yet are skipped, they will be read
+	 * from the database when the partition is built.
+	 */
+	public void index(Category category) {
+		String owner = category.getCategoryCreatedBy();
+		if (!Objects.equals(categoryOwners.get(category.getCategoryId()), owner))
+			remove(category.getCategoryId());
+		if (owner == null)
+			return;
+		Partition partition = partitions.get(owner);
+		if (partition == null)
+			return;
+		synchronized (partition) {
+			partition.add(category);
+			categoryOwners.put(category.getCategoryId(), owner);
+		}
+	}
+
+	/*
+	 * Remove a category from the index.
+	 */
+	public void remove(int categoryId) {
+		String owner = categoryOwners.remove(categoryId);
+		if (owner == null)
+			return;
+		Partition partition = partitions.get(owner);
+		if (partition == null)
+			return;
+		synchronized (partition) {
+			partition.remove(categoryId);
+		}
+	}
+
+	/*
+	 * Return at most limit categories of a user whose name starts with the prefix,
+	 * ignoring case, in alphabetical order. The loader is only called when the
+	 * user's partition has not been built yet. It runs while the partition is
+	 * locked, so a category written concurrently is either already in what the
+	 * loader returns or is applied on top of it once the load is done.
+	 */
+	public List<CategorySuggestion> suggest(String userId, String prefix, int limit,
+			Supplier<List<Category>> loader) {
+		Partition partition = partitions.computeIfAbsent(userId, key -> new Partition());
+		if (!partition.loaded) {
+			synchronized (partition) {
+				if (!partition.loaded) {
+					partition.clear();
+					for (Category category : loader.get()) {
+						partition.add(category);
+						categoryOwners.put(category.getCategoryId(), userId);
+					}
+					partition.loaded = true;
+				}
+			}
+		}
+		return partition.suggest(key(prefix), limit);
+	}
+
+	static String key(String name) {
+		return name == null ? "" : name.toLowerCase(Locale.ROOT);
+	}
+
+	/*
+	 * The categories of one user. The sorted array is replaced on every write and
+	 * read without the lock; byId finds the entry to take out of it.
+	 */
+	private static class Partition {
+
+		private final Map<Integer, Entry> byId = new HashMap<Integer, Entry>();
+		private volatile Entry[] entries = EMPTY;
+		private volatile boolean loaded;
+
+		void add(Category category) {
+			remove(category.getCategoryId());
+			Entry entry = new Entry(category.getCategoryId(), category.getCategoryName());
+			Entry[] current = entries;
+			int position = -Arrays.binarySearch(current, entry, ORDER) - 1;
+			Entry[] updated = new Entry[current.length + 1];
+			System.arraycopy(current, 0, updated, 0, position);
+			updated[position] = entry;
+			System.arraycopy(current, position, updated, position + 1, current.length - position);
+			byId.put(entry.categoryId, entry);
+			entries = updated;
+		}
+
+		void remove(int categoryId) {
+			Entry entry = byId.remove(categoryId);
+			if (entry == null)
+				return;
+			Entry[] current = entries;
+			int position = Arrays.binarySearch(current, entry, ORDER);
+			Entry[] updated = new Entry[current.length - 1];
+			System.arraycopy(current, 0, updated, 0, position);
+			System.arraycopy(current, position + 1, updated, position, current.length - position - 1);
+			entries = updated;
+		}
+
+		void clear() {
+			byId.clear();
+			entries = EMPTY;
+		}
+
+		List<CategorySuggestion> suggest(String prefix, int limit) {
+			Entry[] snapshot = entries;
+			int low = 0;
+			int high = snapshot.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (snapshot[middle].key.compareTo(prefix) < 0)
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			List<CategorySuggestion> suggestions = new ArrayList<CategorySuggestion>(Math.min(limit, 16));
+			for (int i = low; i < snapshot.length && suggestions.size() < limit
+					&& snapshot[i].key.startsWith(prefix); i++)
+				suggestions.add(new CategorySuggestion(snapshot[i].categoryId, snapshot[i].categoryName));
+			return suggestions;
+		}
+	}
+
+	private static class Entry {
+
+		private final String key;
+		private final int categoryId;
+		private final String categoryName;
+
+		Entry(int categoryId, String categoryName) {
+			this.key = key(categoryName);
+			this.categoryId = categoryId;
+			this.categoryName = categoryName;
+		}
+	}
+
+}
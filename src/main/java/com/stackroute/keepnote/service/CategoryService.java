@@ -1,9 +1,13 @@
 package com.stackroute.keepnote.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySuggestion;
+import com.stackroute.keepnote.model.CategorySummary;
 
 public interface CategoryService {
 
@@ -15,10 +19,23 @@ public interface CategoryService {
 
 	public boolean deleteCategory(int noteId);
 
+	public boolean deleteCategory(int categoryId, String userId);
+
 	public Category updateCategory(Category category, int id) throws CategoryNotFoundException;
 
+	public Category patchCategory(int categoryId, String userId, Map<String, Object> fields)
+			throws CategoryNotFoundException;
+
 	public Category getCategoryById(int categoryId) throws CategoryNotFoundException;
 
 	public List<Category> getAllCategoryByUserId(String userId);
 
+	public List<CategorySummary> getCategorySummariesByUserId(String userId);
+
+	public void streamCategoriesByUserId(String userId, Consumer<Category> consumer);
+
+	public List<CategorySuggestion> suggestCategories(String userId, String prefix, int limit);
+
+	public String getVersionTag(String userId);
+
 }
@@ -1,13 +1,21 @@
 package com.stackroute.keepnote.service;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import com.stackroute.keepnote.dao.CategoryDAO;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySuggestion;
+import com.stackroute.keepnote.model.CategorySummary;
 
 /*
 * Service classes are used here to implement additional business logic/validation 
@@ -20,6 +28,10 @@ import com.stackroute.keepnote.model.Category;
 * */
 @Service
 public class CategoryServiceImpl implements CategoryService {
+
+	private static final Set<String> PATCHABLE_FIELDS = new HashSet<String>(
+			Arrays.asList("categoryName", "categoryDescription"));
+
 	/*
 	 * Autowiring should be implemented for the CategoryDAO. (Use Constructor-based
 	 * autowiring) Please note that we should not create any object using the new
@@ -27,44 +39,93 @@ public class CategoryServiceImpl implements CategoryService {
 	 */
 	@Autowired
 	private CategoryDAO categoryDAO;
+	private UserVersionRegistry userVersionRegistry;
+	private DeletionJobService deletionJobService;
+	private CategoryNameIndex categoryNameIndex;
 	
-	public CategoryServiceImpl(CategoryDAO categoryDAO) {
+	public CategoryServiceImpl(CategoryDAO categoryDAO, UserVersionRegistry userVersionRegistry,
+			DeletionJobService deletionJobService, CategoryNameIndex categoryNameIndex) {
 		super();
 		this.categoryDAO = categoryDAO;
+		this.userVersionRegistry = userVersionRegistry;
+		this.deletionJobService = deletionJobService;
+		this.categoryNameIndex = categoryNameIndex;
 	}
 
 	/*
 	 * This method should be used to save a new category.
 	 */
 	public boolean createCategory(Category category) {
-		if(categoryDAO.createCategory(category)) 
+		if(categoryDAO.createCategory(category)) {
+			userVersionRegistry.bump(category.getCategoryCreatedBy());
+			categoryNameIndex.index(category);
 			return true;
+		}
 		else
 			return false;
 
 	}
 
-	/* This method should be used to delete an existing category. */
+	/*
+	 * This method should be used to delete an existing category. The notes of the
+	 * category are deleted afterwards in the background.
+	 */
 	public boolean deleteCategory(int categoryId) {
-		if(categoryDAO.deleteCategory(categoryId))
+		if(categoryDAO.deleteCategory(categoryId)) {
+			userVersionRegistry.bumpAll();
+			categoryNameIndex.remove(categoryId);
+			deletionJobService.runPendingJobs();
 			return true;
+		}
 		else
 			return false;
 
 	}
 
 	/*
-	 * This method should be used to update a existing category.
+	 * This method should be used to delete an existing category of the given user.
+	 */
+	public boolean deleteCategory(int categoryId, String userId) {
+		boolean deleted = categoryDAO.deleteCategory(categoryId, userId);
+		if(deleted) {
+			userVersionRegistry.bump(userId);
+			categoryNameIndex.remove(categoryId);
+			deletionJobService.runPendingJobs();
+		}
+		return deleted;
+	}
+
+	/*
+	 * This method should be used to update a existing category. When the
+	 * versioned update fails the category is looked up once to tell a deleted
+	 * category from one that was changed in the meantime.
 	 */
 
 	public Category updateCategory(Category category, int id) throws CategoryNotFoundException {
-		categoryDAO.updateCategory(category);
-		Category updatedCategory = getCategoryById(id);
-		if(updatedCategory==null)
-			throw new CategoryNotFoundException("CategoryNotFoundException");
-		else
-			return category;
+		try {
+			categoryDAO.updateCategory(category);
+		} catch (OptimisticLockingFailureException e) {
+			getCategoryById(id);
+			throw e;
+		}
+		userVersionRegistry.bump(category.getCategoryCreatedBy());
+		categoryNameIndex.index(category);
+		return category;
+
+	}
 
+	/*
+	 * This method should be used to update some fields of an existing category of
+	 * the given user. Only the fields present in the map are changed.
+	 */
+	public Category patchCategory(int categoryId, String userId, Map<String, Object> fields)
+			throws CategoryNotFoundException {
+		EntityPatcher.checkFields(fields, PATCHABLE_FIELDS);
+		Category category = categoryDAO.patchCategory(categoryId, userId,
+				managed -> EntityPatcher.apply(managed, managed.getVersion(), fields));
+		userVersionRegistry.bump(userId);
+		categoryNameIndex.index(category);
+		return category;
 	}
 
 	/*
@@ -87,4 +148,36 @@ public class CategoryServiceImpl implements CategoryService {
 		return categoryDAO.getAllCategoryByUserId(userId);
 	}
 
+	/*
+	 * This method should be used to get the categories of a user with the number
+	 * of notes in each.
+	 */
+	public List<CategorySummary> getCategorySummariesByUserId(String userId) {
+		return categoryDAO.getCategorySummariesByUserId(userId);
+	}
+
+	/*
+	 * This method should be used to walk through all categories of a user without
+	 * loading them into one list.
+	 */
+	public void streamCategoriesByUserId(String userId, Consumer<Category> consumer) {
+		categoryDAO.streamCategoriesByUserId(userId, consumer);
+	}
+
+	/*
+	 * This method should be used to autocomplete category names. The user's part
+	 * of the name index is read from the database on the first call only.
+	 */
+	public List<CategorySuggestion> suggestCategories(String userId, String prefix, int limit) {
+		return categoryNameIndex.suggest(userId, prefix, limit, () -> categoryDAO.getAllCategoryByUserId(userId));
+	}
+
+
+	/*
+	 * This method should be used to get the version tag of the user's categories, it
+	 * changes whenever one of them is created, changed or deleted.
+	 */
+	public String getVersionTag(String userId) {
+		return userVersionRegistry.getTag(userId);
+	}
 }
@@ -0,0 +1,16 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+
+import com.stackroute.keepnote.exception.DeletionJobNotFoundException;
+import com.stackroute.keepnote.model.DeletionJob;
+
+public interface DeletionJobService {
+
+	public List<DeletionJob> getDeletionJobs(String userId);
+
+	public DeletionJob getDeletionJobById(int jobId, String userId) throws DeletionJobNotFoundException;
+
+	public int runPendingJobs();
+
+}
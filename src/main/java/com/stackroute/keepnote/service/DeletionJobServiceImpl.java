@@ -0,0 +1,133 @@
+package com.stackroute.keepnote.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.DeletionJobDAO;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.exception.DeletionJobNotFoundException;
+import com.stackroute.keepnote.model.DeletionJob;
+
+/*
+ * Runs the deletion jobs created when a category or user is deleted. The
+ * request that deletes only marks the category or user as deleted; the rows
+ * that depend on it are removed here, on a single background thread, chunkSize
+ * rows per transaction, so a large account never holds locks on all of its
+ * rows at once and the request returns straight away.
+ *
+ * A job is queued by the service that deleted its category or user, and the
+ * scheduled run picks up jobs that were left unfinished, by a restart or a
+ * failed chunk. The job is set up in ApplicationContextConfig.
+ */
+public class DeletionJobServiceImpl implements DeletionJobService {
+
+	private final DeletionJobDAO deletionJobDAO;
+	private final CategoryDAO categoryDAO;
+	private final ReminderDAO reminderDAO;
+	private final NoteSearchIndex noteSearchIndex;
+	private final ReminderScheduler reminderScheduler;
+	private final UserVersionRegistry userVersionRegistry;
+	private final int chunkSize;
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "deletion-jobs");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/*
+	 * The jobs queued on or running on the executor, so a job is never run twice
+	 * at the same time.
+	 */
+	private final Set<Integer> queuedJobIds = ConcurrentHashMap.newKeySet();
+
+	public DeletionJobServiceImpl(DeletionJobDAO deletionJobDAO, CategoryDAO categoryDAO, ReminderDAO reminderDAO,
+			NoteSearchIndex noteSearchIndex, ReminderScheduler reminderScheduler,
+			UserVersionRegistry userVersionRegistry, int chunkSize) {
+		this.deletionJobDAO = deletionJobDAO;
+		this.categoryDAO = categoryDAO;
+		this.reminderDAO = reminderDAO;
+		this.noteSearchIndex = noteSearchIndex;
+		this.reminderScheduler = reminderScheduler;
+		this.userVersionRegistry = userVersionRegistry;
+		this.chunkSize = chunkSize;
+	}
+
+	/*
+	 * This method should be used to get the deletion jobs of a user, newest first.
+	 */
+	public List<DeletionJob> getDeletionJobs(String userId) {
+		return deletionJobDAO.getJobsByUserId(userId);
+	}
+
+	/*
+	 * This method should be used to follow the progress of a deletion job.
+	 */
+	public DeletionJob getDeletionJobById(int jobId, String userId) throws DeletionJobNotFoundException {
+		DeletionJob job = deletionJobDAO.getJobById(jobId, userId);
+		if (job == null)
+			throw new DeletionJobNotFoundException("DeletionJobNotFoundException");
+		return job;
+	}
+
+	/*
+	 * Queue every unfinished job that is not queued yet and return how many were
+	 * queued.
+	 */
+	@Scheduled(initialDelay = 60 * 1000, fixedDelay = 10 * 60 * 1000)
+	public int runPendingJobs() {
+		int queued = 0;
+		for (DeletionJob job : deletionJobDAO.getUnfinishedJobs()) {
+			int jobId = job.getJobId();
+			if (queuedJobIds.add(jobId)) {
+				executor.execute(() -> run(jobId));
+				queued++;
+			}
+		}
+		return queued;
+	}
+
+	/*
+	 * Delete the chunks of a job one after the other until it is completed. After
+	 * every chunk the deleted notes are taken out of the search index, the deleted
+	 * categories and reminders out of the caches of their DAOs, the timers of the
+	 * reminders are cancelled and the version of the user is bumped. A chunk that
+	 * fails, for whatever reason, is rolled back and the job is left to the next
+	 * scheduled run; nothing is thrown at the executor.
+	 */
+	private void run(int jobId) {
+		try {
+			DeletionJob job;
+			do {
+				job = deletionJobDAO.deleteNextChunk(jobId, chunkSize);
+				if (job == null)
+					return;
+				for (Integer noteId : job.getDeletedNoteIds())
+					noteSearchIndex.remove(noteId, job.getCreatedBy());
+				categoryDAO.invalidateCachedCategories(job.getDeletedCategoryIds());
+				reminderDAO.invalidateCachedReminders(job.getDeletedReminderIds());
+				for (Integer reminderId : job.getDeletedReminderIds())
+					reminderScheduler.cancel(reminderId);
+				userVersionRegistry.bump(job.getCreatedBy());
+			} while (!job.isCompleted());
+		} catch (RuntimeException e) {
+			return;
+		} finally {
+			queuedJobIds.remove(jobId);
+		}
+	}
+
+	/*
+	 * Stop the background thread; a job that is interrupted carries on at the next
+	 * start.
+	 */
+	public void close() {
+		executor.shutdownNow();
+	}
+
+}
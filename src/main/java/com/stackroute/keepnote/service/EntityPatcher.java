@@ -0,0 +1,81 @@
+package com.stackroute.keepnote.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Applies the fields of a partial JSON document (already parsed into a map) to
+ * an entity through its setters. The entity is expected to be the managed copy
+ * loaded by the DAO, so only the fields that really change end up dirty and,
+ * with @DynamicUpdate, only those columns are written.
+ */
+final class EntityPatcher {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	/*
+	 * Optional in every patch: the version the client read the entity with. When
+	 * it is sent and no longer current the patch is rejected as a conflict.
+	 */
+	static final String VERSION = "version";
+
+	private EntityPatcher() {
+	}
+
+	/*
+	 * Reject the patch if it tries to change a field that is not in the allowed
+	 * set, before anything is read from the database.
+	 */
+	static void checkFields(Map<String, Object> fields, Set<String> allowed) {
+		if (fields == null || fields.isEmpty())
+			throw new IllegalArgumentException("Nothing to update");
+		for (String field : fields.keySet()) {
+			if (!allowed.contains(field) && !VERSION.equals(field))
+				throw new IllegalArgumentException("Field cannot be updated: " + field);
+		}
+	}
+
+	/*
+	 * Read the id out of a reference such as "category" in a note patch. Both
+	 * {"categoryId": 3} and a bare 3 are accepted, null clears the reference.
+	 */
+	static Integer referenceId(Object value, String idField) {
+		if (value == null)
+			return null;
+		if (value instanceof Map)
+			value = ((Map<?, ?>) value).get(idField);
+		if (!(value instanceof Number))
+			throw new IllegalArgumentException("Invalid reference, expected " + idField);
+		return ((Number) value).intValue();
+	}
+
+	/*
+	 * Apply the fields to the entity, after checking the version the client sent
+	 * (if any) against the current version of the entity.
+	 */
+	static void apply(Object entity, Integer version, Map<String, Object> fields) {
+		if (fields.containsKey(VERSION)) {
+			Object expected = fields.get(VERSION);
+			if (!(expected instanceof Number))
+				throw new IllegalArgumentException("Invalid value: version");
+			if (version == null || ((Number) expected).intValue() != version)
+				throw new ObjectOptimisticLockingFailureException(
+						entity.getClass().getSimpleName() + " was changed since version " + expected, null);
+			fields = new HashMap<String, Object>(fields);
+			fields.remove(VERSION);
+		}
+		if (fields.isEmpty())
+			return;
+		try {
+			MAPPER.updateValue(entity, fields);
+		} catch (Exception e) {
+			throw new IllegalArgumentException("Invalid value: " + e.getMessage(), e);
+		}
+	}
+
+}
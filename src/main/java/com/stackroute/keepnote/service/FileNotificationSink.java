@@ -0,0 +1,40 @@
+package com.stackroute.keepnote.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.model.ReminderNotification;
+
+/*
+ * The stand-in NotificationSink until a real gateway is plugged in: every
+ * notification is appended as a line of JSON to a file on local disk. It is set
+ * up in ApplicationContextConfig.
+ */
+public class FileNotificationSink implements NotificationSink {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final Path file;
+
+	public FileNotificationSink(Path file) {
+		this.file = file;
+		try {
+			if (file.getParent() != null)
+				Files.createDirectories(file.getParent());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void deliver(ReminderNotification notification) throws IOException {
+		byte[] line = (mapper.writeValueAsString(notification) + "\n").getBytes(StandardCharsets.UTF_8);
+		synchronized (this) {
+			Files.write(file, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.stackroute.keepnote.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.stackroute.keepnote.exception.ImportNotFoundException;
+import com.stackroute.keepnote.model.ImportCheckpoint;
+
+public interface ImportService {
+
+	public ImportCheckpoint importWorkspace(String userId, String importId, InputStream content) throws IOException;
+
+	public ImportCheckpoint getImportCheckpoint(String importId, String userId) throws ImportNotFoundException;
+
+}
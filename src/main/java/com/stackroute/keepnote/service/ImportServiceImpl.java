@@ -0,0 +1,163 @@
+package com.stackroute.keepnote.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.dao.ImportDAO;
+import com.stackroute.keepnote.exception.ImportNotFoundException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.ImportCheckpoint;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * Imports the NDJSON written by GET /export. The body is read with Jackson's
+ * streaming parser one line at a time and the rows are handed to the DAO in
+ * chunks of CHUNK_SIZE, so only one chunk is ever in memory. Every chunk is
+ * committed together with the checkpoint of the import: an import that is
+ * interrupted can be sent again with the same importId, the lines that were
+ * already committed are then skipped.
+ */
+@Service
+public class ImportServiceImpl implements ImportService {
+
+	static final int CHUNK_SIZE = 1000;
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+	private ImportDAO importDAO;
+	private NoteSearchIndex noteSearchIndex;
+	private UserVersionRegistry userVersionRegistry;
+	private CategoryNameIndex categoryNameIndex;
+	private ReminderScheduler reminderScheduler;
+
+	public ImportServiceImpl(ImportDAO importDAO, NoteSearchIndex noteSearchIndex,
+			UserVersionRegistry userVersionRegistry, CategoryNameIndex categoryNameIndex,
+			ReminderScheduler reminderScheduler) {
+		super();
+		this.importDAO = importDAO;
+		this.noteSearchIndex = noteSearchIndex;
+		this.userVersionRegistry = userVersionRegistry;
+		this.categoryNameIndex = categoryNameIndex;
+		this.reminderScheduler = reminderScheduler;
+	}
+
+	/*
+	 * This method should be used to import the content of an export into the
+	 * account of the user. A line that cannot be imported stops the import with an
+	 * IllegalArgumentException naming the line; everything before the chunk it is
+	 * in has been committed.
+	 */
+	public ImportCheckpoint importWorkspace(String userId, String importId, InputStream content) throws IOException {
+		ImportCheckpoint checkpoint = importDAO.getCheckpoint(importId);
+		if (checkpoint == null) {
+			checkpoint = new ImportCheckpoint(importId, userId, new Date());
+			importDAO.createCheckpoint(checkpoint);
+		} else if (!checkpoint.getCreatedBy().equals(userId)) {
+			throw new IllegalArgumentException("Import id is already in use: " + importId);
+		} else if (checkpoint.isCompleted()) {
+			return checkpoint;
+		}
+
+		List<Object> rows = new ArrayList<Object>(CHUNK_SIZE);
+		long line = 0;
+		try (JsonParser parser = MAPPER.getFactory().createParser(content)) {
+			while (parser.nextToken() != null) {
+				line++;
+				if (parser.currentToken() != JsonToken.START_OBJECT)
+					throw new IllegalArgumentException("Line " + line + ": expected a JSON object");
+				if (line <= checkpoint.getLinesCommitted()) {
+					parser.skipChildren();
+					continue;
+				}
+				rows.add(toRow(MAPPER.readTree(parser), line));
+				if (rows.size() == CHUNK_SIZE) {
+					commit(checkpoint, rows, line, false);
+					rows.clear();
+				}
+			}
+		} catch (JsonProcessingException e) {
+			long errorLine = e.getLocation() == null ? line : e.getLocation().getLineNr();
+			throw new IllegalArgumentException("Line " + errorLine + ": " + e.getOriginalMessage(), e);
+		}
+		commit(checkpoint, rows, Math.max(line, checkpoint.getLinesCommitted()), true);
+		return checkpoint;
+	}
+
+	/*
+	 * This method should be used to follow the progress of an import.
+	 */
+	public ImportCheckpoint getImportCheckpoint(String importId, String userId) throws ImportNotFoundException {
+		ImportCheckpoint checkpoint = importDAO.getCheckpoint(importId);
+		if (checkpoint == null || !checkpoint.getCreatedBy().equals(userId))
+			throw new ImportNotFoundException("ImportNotFoundException");
+		return checkpoint;
+	}
+
+	private void commit(ImportCheckpoint checkpoint, List<Object> rows, long line, boolean completed) {
+		checkpoint.setLinesCommitted(line);
+		checkpoint.setCompleted(completed);
+		importDAO.importChunk(checkpoint, rows);
+		for (Object row : rows) {
+			if (row instanceof Note)
+				noteSearchIndex.index((Note) row);
+			else if (row instanceof Category)
+				categoryNameIndex.index((Category) row);
+			else if (row instanceof Reminder)
+				reminderScheduler.schedule((Reminder) row);
+		}
+		if (!rows.isEmpty())
+			userVersionRegistry.bump(checkpoint.getCreatedBy());
+	}
+
+	/*
+	 * Turn one line of the export into the row to insert. Ids, owner and version
+	 * are replaced by the DAO.
+	 */
+	private static Object toRow(JsonNode record, long line) {
+		try {
+			return toRow(record.path("type").asText(), record.get("data"), line);
+		} catch (JsonProcessingException e) {
+			throw new IllegalArgumentException("Line " + line + ": " + e.getOriginalMessage(), e);
+		}
+	}
+
+	private static Object toRow(String type, JsonNode data, long line) throws JsonProcessingException {
+		if (data == null || !data.isObject())
+			throw new IllegalArgumentException("Line " + line + ": missing data");
+		switch (type) {
+		case "category":
+			Category category = MAPPER.treeToValue(data, Category.class);
+			if (category.getCategoryCreationDate() == null)
+				category.setCategoryCreationDate(new Date());
+			return category;
+		case "reminder":
+			Reminder reminder = MAPPER.treeToValue(data, Reminder.class);
+			if (reminder.getReminderCreationDate() == null)
+				reminder.setReminderCreationDate(new Date());
+			return reminder;
+		case "note":
+			Note note = MAPPER.treeToValue(data, Note.class);
+			if (note.getNoteTitle() == null || note.getNoteContent() == null || note.getNoteStatus() == null)
+				throw new IllegalArgumentException("Line " + line + ": a note needs a title, content and status");
+			if (note.getNoteCreatedAt() == null)
+				note.setNoteCreatedAt(new Date());
+			return note;
+		default:
+			throw new IllegalArgumentException("Line " + line + ": unknown type \"" + type + "\"");
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.model.Note;
+
+/*
+ * Background job that moves old notes out of MySQL into the note archive. A
+ * note is archived once both its creation and its last write are older than
+ * maxAgeDays. The notes are moved in batches, each in its own transaction, so
+ * a run never holds locks on many rows at once.
+ *
+ * Archiving changes where a note is kept, not what the user sees: archived notes
+ * stay in the note lists, the search and the counters, and a write moves them
+ * back into MySQL. So the search index and the ETags are left as they are. The
+ * job is set up in ApplicationContextConfig.
+ */
+public class NoteArchiver {
+
+	static final int BATCH_SIZE = 500;
+
+	private final NoteDAO noteDAO;
+	private final long maxAgeDays;
+
+	public NoteArchiver(NoteDAO noteDAO, long maxAgeDays) {
+		this.noteDAO = noteDAO;
+		this.maxAgeDays = maxAgeDays;
+	}
+
+	/*
+	 * Archive every note that is old enough and return how many were moved. The
+	 * batches walk the notes in noteId order, each one starting after the last
+	 * note of the one before.
+	 */
+	@Scheduled(initialDelay = 10 * 60 * 1000, fixedDelay = 6 * 60 * 60 * 1000)
+	public int archiveOldNotes() {
+		Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(maxAgeDays));
+		int archived = 0;
+		int lastNoteId = 0;
+		List<Note> batch;
+		do {
+			batch = noteDAO.archiveNotesOlderThan(cutoff, lastNoteId, BATCH_SIZE);
+			if (!batch.isEmpty())
+				lastNoteId = batch.get(batch.size() - 1).getNoteId();
+			archived += batch.size();
+		} while (batch.size() == BATCH_SIZE);
+		return archived;
+	}
+
+}
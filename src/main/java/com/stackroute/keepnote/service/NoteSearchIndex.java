@@ -0,0 +1,222 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteSearchResult;
+
+/*
+ * In-memory inverted index over the title and content of the notes. The index is
+ * partitioned by createdBy, so a query only ever looks at the posting lists of
+ * the user who runs it. A partition is built from the database the first time
+ * its user searches and is kept up to date afterwards by NoteServiceImpl, so
+ * queries never go to MySQL once a partition is loaded. Hits are ranked with
+ * BM25; title terms are counted twice so that a match in the title outranks
+ * the same match in the content.
+ *
+ * At most maxPartitions partitions are held; the one searched least recently is
+ * dropped when another user's partition is built, and is built again from the
+ * database if its user searches again. Every change to a partition, its load
+ * included, happens under the lock of the partition, so a note removed while
+ * its partition is being loaded is taken out once the load is done.
+ */
+@Component
+public class NoteSearchIndex {
+
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	private static final int TITLE_WEIGHT = 2;
+	private static final int MAX_PARTITIONS = 1000;
+
+	private final Map<String, Partition> partitions;
+
+	public NoteSearchIndex() {
+		this(MAX_PARTITIONS);
+	}
+
+	public NoteSearchIndex(int maxPartitions) {
+		this.partitions = Collections.synchronizedMap(new LinkedHashMap<String, Partition>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Partition> eldest) {
+				return size() > maxPartitions;
+			}
+		});
+	}
+
+	/*
+	 * Add a note to the index, or replace the indexed copy of it. Notes of users
+	 * whose partition is not loaded yet are skipped, they will be read from the
+	 * database when the partition is built.
+	 */
+	public void index(Note note) {
+		Partition partition = partitions.get(note.getCreatedBy());
+		if (partition == null)
+			return;
+		synchronized (partition) {
+			partition.add(note);
+		}
+	}
+
+	/*
+	 * Remove a note of the given user from the index.
+	 */
+	public void remove(int noteId, String userId) {
+		Partition partition = partitions.get(userId);
+		if (partition == null)
+			return;
+		synchronized (partition) {
+			partition.remove(noteId);
+		}
+	}
+
+	/*
+	 * Remove a note whose owner is not known from every partition.
+	 */
+	public void remove(int noteId) {
+		List<Partition> held;
+		synchronized (partitions) {
+			held = new ArrayList<Partition>(partitions.values());
+		}
+		for (Partition partition : held) {
+			synchronized (partition) {
+				partition.remove(noteId);
+			}
+		}
+	}
+
+	public int getPartitionCount() {
+		return partitions.size();
+	}
+
+	/*
+	 * Return the best matching notes of a user, highest score first. The loader is
+	 * only called when the user's partition has not been built yet. It runs while
+	 * the partition is locked, so a note written concurrently is either already in
+	 * what the loader returns or is applied on top of it once the load is done.
+	 */
+	public List<NoteSearchResult> search(String userId, String query, int limit, Supplier<List<Note>> loader) {
+		Partition partition = partitions.computeIfAbsent(userId, key -> new Partition());
+		List<String> terms = tokenize(query);
+		synchronized (partition) {
+			if (!partition.loaded) {
+				partition.clear();
+				for (Note note : loader.get())
+					partition.add(note);
+				partition.loaded = true;
+			}
+			return partition.search(terms, limit);
+		}
+	}
+
+	static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<String>();
+		if (text == null)
+			return terms;
+		for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (!term.isEmpty())
+				terms.add(term);
+		}
+		return terms;
+	}
+
+	/*
+	 * The posting lists of one user: term -> (noteId -> term frequency), plus the
+	 * length of every indexed note for BM25's length normalisation.
+	 */
+	private static class Partition {
+
+		private final Map<String, Map<Integer, Integer>> postings = new HashMap<String, Map<Integer, Integer>>();
+		private final Map<Integer, IndexedNote> notes = new HashMap<Integer, IndexedNote>();
+		private long totalLength;
+		private boolean loaded;
+
+		void add(Note note) {
+			remove(note.getNoteId());
+			Map<String, Integer> frequencies = new HashMap<String, Integer>();
+			for (String term : tokenize(note.getNoteTitle()))
+				frequencies.merge(term, TITLE_WEIGHT, Integer::sum);
+			for (String term : tokenize(note.getNoteContent()))
+				frequencies.merge(term, 1, Integer::sum);
+			int length = 0;
+			for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+				postings.computeIfAbsent(entry.getKey(), key -> new HashMap<Integer, Integer>())
+						.put(note.getNoteId(), entry.getValue());
+				length += entry.getValue();
+			}
+			notes.put(note.getNoteId(), new IndexedNote(note.getNoteTitle(), length, frequencies.keySet()));
+			totalLength += length;
+		}
+
+		void remove(int noteId) {
+			IndexedNote indexed = notes.remove(noteId);
+			if (indexed == null)
+				return;
+			for (String term : indexed.terms) {
+				Map<Integer, Integer> posting = postings.get(term);
+				posting.remove(noteId);
+				if (posting.isEmpty())
+					postings.remove(term);
+			}
+			totalLength -= indexed.length;
+		}
+
+		void clear() {
+			postings.clear();
+			notes.clear();
+			totalLength = 0;
+		}
+
+		List<NoteSearchResult> search(List<String> terms, int limit) {
+			if (notes.isEmpty() || terms.isEmpty())
+				return Collections.emptyList();
+			int documentCount = notes.size();
+			double averageLength = (double) totalLength / documentCount;
+			Map<Integer, Double> scores = new HashMap<Integer, Double>();
+			for (String term : terms) {
+				Map<Integer, Integer> posting = postings.get(term);
+				if (posting == null)
+					continue;
+				double idf = Math.log(1 + (documentCount - posting.size() + 0.5) / (posting.size() + 0.5));
+				for (Map.Entry<Integer, Integer> entry : posting.entrySet()) {
+					int frequency = entry.getValue();
+					double norm = K1 * (1 - B + B * notes.get(entry.getKey()).length / averageLength);
+					scores.merge(entry.getKey(), idf * frequency * (K1 + 1) / (frequency + norm), Double::sum);
+				}
+			}
+			PriorityQueue<NoteSearchResult> top = new PriorityQueue<NoteSearchResult>(
+					(left, right) -> Double.compare(left.getScore(), right.getScore()));
+			for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+				top.offer(new NoteSearchResult(entry.getKey(), notes.get(entry.getKey()).title, entry.getValue()));
+				if (top.size() > limit)
+					top.poll();
+			}
+			List<NoteSearchResult> results = new ArrayList<NoteSearchResult>(top);
+			results.sort((left, right) -> Double.compare(right.getScore(), left.getScore()));
+			return results;
+		}
+	}
+
+	private static class IndexedNote {
+
+		private final String title;
+		private final int length;
+		private final Iterable<String> terms;
+
+		IndexedNote(String title, int length, Iterable<String> terms) {
+			this.title = title;
+			this.length = length;
+			this.terms = terms;
+		}
+	}
+
+}
@@ -1,11 +1,20 @@
 package com.stackroute.keepnote.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.exception.ChangeTokenExpiredException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteChanges;
+import com.stackroute.keepnote.model.NoteFilter;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSearchResult;
+import com.stackroute.keepnote.model.NoteSummary;
 
 public interface NoteService {
 	/*
@@ -14,12 +23,35 @@ public interface NoteService {
 	 */
 	public boolean createNote(Note note) throws ReminderNotFoundException, CategoryNotFoundException;
 
+	public List<NoteBatchResult> createNotes(List<Note> notes, String userId);
+
 	public boolean deleteNote(int noteId)throws NoteNotFoundException;
 
+	public boolean deleteNote(int noteId, String userId);
+
 	public List<Note> getAllNotesByUserId(String userId);
 
+	public List<NoteSummary> getNoteSummariesByUserId(String userId);
+
+	public NoteChanges getNoteChanges(String userId, String since) throws ChangeTokenExpiredException;
+
+	public NotePage getNotesByUserId(String userId, String after, int limit);
+
+	public List<Note> getNotesByUserId(String userId, NoteFilter filter);
+
+	public NotePage getNotesByUserId(String userId, NoteFilter filter, String after, int limit);
+
+	public String getVersionTag(String userId);
+
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer);
+
+	public List<NoteSearchResult> searchNotes(String userId, String query, int limit);
+
 	public Note getNoteById(int noteId) throws NoteNotFoundException;
 
 	public Note updateNote(Note note, int id)
 			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException;
+
+	public Note patchNote(int noteId, String userId, Map<String, Object> fields)
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException;
 }
@@ -1,19 +1,37 @@
 package com.stackroute.keepnote.service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import javax.persistence.Query;
 
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import com.stackroute.keepnote.dao.CategoryDAO;
 import com.stackroute.keepnote.dao.NoteDAO;
 import com.stackroute.keepnote.dao.ReminderDAO;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.exception.ChangeTokenExpiredException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteChanges;
+import com.stackroute.keepnote.model.NoteFilter;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSearchResult;
+import com.stackroute.keepnote.model.NoteSummary;
 import com.stackroute.keepnote.model.Reminder;
 
 /*
@@ -28,6 +46,9 @@ import com.stackroute.keepnote.model.Reminder;
 @Service
 public class NoteServiceImpl implements NoteService {
 
+	private static final Set<String> PATCHABLE_FIELDS = new HashSet<String>(
+			Arrays.asList("noteTitle", "noteContent", "noteStatus", "category", "reminder"));
+
 	/*
 	 * Autowiring should be implemented for the NoteDAO,CategoryDAO,ReminderDAO.
 	 * (Use Constructor-based autowiring) Please note that we should not create any
@@ -36,15 +57,19 @@ public class NoteServiceImpl implements NoteService {
 	private NoteDAO noteDAO;
 	private CategoryDAO categoryDAO;
 	private ReminderDAO reminderDAO;
-	
-	public NoteServiceImpl(NoteDAO noteDAO, CategoryDAO categoryDAO, ReminderDAO reminderDAO) {
+	private NoteSearchIndex noteSearchIndex;
+	private UserVersionRegistry userVersionRegistry;
+
+	public NoteServiceImpl(NoteDAO noteDAO, CategoryDAO categoryDAO, ReminderDAO reminderDAO,
+			NoteSearchIndex noteSearchIndex, UserVersionRegistry userVersionRegistry) {
 		super();
 		this.noteDAO = noteDAO;
 		this.categoryDAO = categoryDAO;
 		this.reminderDAO = reminderDAO;
+		this.noteSearchIndex = noteSearchIndex;
+		this.userVersionRegistry = userVersionRegistry;
 	}
 
-	
 	/*
 	 * This method should be used to save a new note.
 	 */
@@ -52,23 +77,97 @@ public class NoteServiceImpl implements NoteService {
 	public boolean createNote(Note note) throws ReminderNotFoundException, CategoryNotFoundException {
 		Reminder reminder = note.getReminder();
 		Category category = note.getCategory();
-		try {
-			if(reminder!=null) 
-				reminderDAO.getReminderById(reminder.getReminderId());
-		}catch(ReminderNotFoundException rnf) {
-			throw new ReminderNotFoundException("ReminderNotFoundException");
-		}
-		try {
-			if(category!=null)
-				categoryDAO.getCategoryById(category.getCategoryId());
-		}catch(CategoryNotFoundException cnf) {
-			throw new  CategoryNotFoundException("CategoryNotFoundException");
-		}
+		if(reminder!=null)
+			getOwnReminder(reminder.getReminderId(), note.getCreatedBy());
+		if(category!=null)
+			getOwnCategory(category.getCategoryId(), note.getCreatedBy());
 		
-		return noteDAO.createNote(note);
+		boolean created = noteDAO.createNote(note);
+		if(created) {
+			noteSearchIndex.index(note);
+			userVersionRegistry.bump(note.getCreatedBy());
+		}
+		return created;
 		
 	}
 
+	/*
+	 * This method should be used to save several new notes at once. The category
+	 * and reminder ids of the whole batch are checked with one query each, only
+	 * the user's own categories and reminders count as existing, and a note
+	 * without content is rejected with 400; the notes that pass are saved
+	 * together and a result is returned for every note in the order they were
+	 * sent. If the database rejects the batch, its notes are saved again one at a
+	 * time, so only the notes it rejects fail.
+	 */
+	public List<NoteBatchResult> createNotes(List<Note> notes, String userId) {
+		Set<Integer> categoryIds = new HashSet<Integer>();
+		Set<Integer> reminderIds = new HashSet<Integer>();
+		for (Note note : notes) {
+			if (note.getCategory() != null)
+				categoryIds.add(note.getCategory().getCategoryId());
+			if (note.getReminder() != null)
+				reminderIds.add(note.getReminder().getReminderId());
+		}
+		Set<Integer> existingCategoryIds = new HashSet<Integer>(categoryDAO.getExistingCategoryIds(categoryIds, userId));
+		Set<Integer> existingReminderIds = new HashSet<Integer>(reminderDAO.getExistingReminderIds(reminderIds, userId));
+
+		List<NoteBatchResult> results = new ArrayList<NoteBatchResult>();
+		List<Note> validNotes = new ArrayList<Note>();
+		List<NoteBatchResult> validResults = new ArrayList<NoteBatchResult>();
+		for (int i = 0; i < notes.size(); i++) {
+			Note note = notes.get(i);
+			NoteBatchResult result = new NoteBatchResult(i, 0, 0, null);
+			if (!userId.equals(note.getCreatedBy())) {
+				result.setStatus(401);
+				result.setMessage("Unauthorised user");
+			} else if (note.getNoteContent() == null) {
+				result.setStatus(400);
+				result.setMessage("Note content is required");
+			} else if (note.getReminder() != null
+					&& !existingReminderIds.contains(note.getReminder().getReminderId())) {
+				result.setStatus(404);
+				result.setMessage("Reminder not found");
+			} else if (note.getCategory() != null
+					&& !existingCategoryIds.contains(note.getCategory().getCategoryId())) {
+				result.setStatus(404);
+				result.setMessage("Category not found");
+			} else {
+				validNotes.add(note);
+				validResults.add(result);
+			}
+			results.add(result);
+		}
+
+		if (!validNotes.isEmpty()) {
+			try {
+				noteDAO.createNotes(validNotes);
+				for (int i = 0; i < validNotes.size(); i++)
+					created(validResults.get(i), validNotes.get(i));
+			} catch (DataAccessException e) {
+				for (int i = 0; i < validNotes.size(); i++) {
+					NoteBatchResult result = validResults.get(i);
+					try {
+						noteDAO.createNote(validNotes.get(i));
+						created(result, validNotes.get(i));
+					} catch (DataAccessException noteException) {
+						result.setStatus(500);
+						result.setMessage("Not created");
+					}
+				}
+			}
+			userVersionRegistry.bump(userId);
+		}
+		return results;
+	}
+
+	private void created(NoteBatchResult result, Note note) {
+		result.setNoteId(note.getNoteId());
+		result.setStatus(201);
+		result.setMessage("Created");
+		noteSearchIndex.index(note);
+	}
+
 	/* This method should be used to delete an existing note. */
 
 	public boolean deleteNote(int noteId) {
@@ -77,8 +176,11 @@ public class NoteServiceImpl implements NoteService {
 				deletedNote = noteDAO.deleteNote(noteId);
 				if(!deletedNote)
 					throw new NoteNotFoundException("NoteNotFoundException");
-				else
+				else {
+					noteSearchIndex.remove(noteId);
+					userVersionRegistry.bumpAll();
 					flag= true;
+				}
 			} catch (NoteNotFoundException e) {
 				e.printStackTrace();
 			}
@@ -86,6 +188,19 @@ public class NoteServiceImpl implements NoteService {
 			
 
 	}
+	/*
+	 * This method should be used to delete an existing note of the given user.
+	 */
+
+	public boolean deleteNote(int noteId, String userId) {
+		boolean deleted = noteDAO.deleteNote(noteId, userId);
+		if(deleted) {
+			noteSearchIndex.remove(noteId, userId);
+			userVersionRegistry.bump(userId);
+		}
+		return deleted;
+	}
+
 	/*
 	 * This method should be used to get a note by userId.
 	 */
@@ -94,6 +209,121 @@ public class NoteServiceImpl implements NoteService {
 		return noteDAO.getAllNotesByUserId(userId);
 	}
 
+	/*
+	 * This method should be used to get the summaries of all notes of a user, for
+	 * lists that do not show the note content.
+	 */
+	public List<NoteSummary> getNoteSummariesByUserId(String userId) {
+		return noteDAO.getNoteSummariesByUserId(userId);
+	}
+
+	/*
+	 * This method should be used to get the version tag of the user's notes, it
+	 * changes whenever one of them is created, changed or deleted.
+	 */
+	public String getVersionTag(String userId) {
+		return userVersionRegistry.getTag(userId);
+	}
+
+	/*
+	 * This method should be used to get one page of a user's notes. The cursor is
+	 * opaque to the client; it wraps the noteId of the last note on the previous
+	 * page. One extra row is read to find out whether a next page exists.
+	 */
+	public NotePage getNotesByUserId(String userId, String after, int limit) {
+		int afterNoteId = decodeCursor(after);
+		return toPage(noteDAO.getNotesByUserIdAfter(userId, afterNoteId, limit + 1), limit);
+	}
+
+	/*
+	 * This method should be used to get the notes of a user that match the filter.
+	 * The filter is applied by the database query.
+	 */
+	public List<Note> getNotesByUserId(String userId, NoteFilter filter) {
+		return noteDAO.getNotesByUserIdFiltered(userId, filter, 0, 0);
+	}
+
+	/*
+	 * This method should be used to get one page of the notes of a user that match
+	 * the filter, with the same cursor as the unfiltered pages.
+	 */
+	public NotePage getNotesByUserId(String userId, NoteFilter filter, String after, int limit) {
+		int afterNoteId = decodeCursor(after);
+		return toPage(noteDAO.getNotesByUserIdFiltered(userId, filter, afterNoteId, limit + 1), limit);
+	}
+
+	private static NotePage toPage(List<Note> notes, int limit) {
+		String nextCursor = null;
+		if (notes.size() > limit) {
+			notes = notes.subList(0, limit);
+			nextCursor = encodeCursor(notes.get(limit - 1).getNoteId());
+		}
+		return new NotePage(notes, nextCursor);
+	}
+
+	/*
+	 * This method should be used to walk through all notes of a user, the
+	 * archived ones included, without loading them into one list.
+	 */
+	public void streamNotesByUserId(String userId, Consumer<Note> consumer) {
+		noteDAO.streamNotesByUserId(userId, consumer);
+	}
+
+	/*
+	 * This method should be used to search the notes of a user. The user's part of
+	 * the search index is read from the database on the first search only.
+	 */
+	public List<NoteSearchResult> searchNotes(String userId, String query, int limit) {
+		return noteSearchIndex.search(userId, query, limit, () -> noteDAO.getAllNotesByUserId(userId));
+	}
+
+	/*
+	 * This method should be used to get the notes of a user that changed since the
+	 * token of the previous call. Without a token every note is returned. The
+	 * token holds the change number the previous call read up to. A token the
+	 * feed can no longer answer for, because the deletions it would need were
+	 * pruned, fails with ChangeTokenExpiredException, and so does a token of the
+	 * time-based feed of earlier versions: the client has to sync again without
+	 * one.
+	 */
+	public NoteChanges getNoteChanges(String userId, String since) throws ChangeTokenExpiredException {
+		long from = since == null || since.isEmpty() ? -1 : decodeToken(since);
+		NoteChanges changes = noteDAO.getNoteChanges(userId, from);
+		changes.setNextToken(encodeToken(changes.getLastChangeSeq()));
+		return changes;
+	}
+
+	private static String encodeToken(long changeSeq) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(("s:" + changeSeq).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static long decodeToken(String token) throws ChangeTokenExpiredException {
+		String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+		if (decoded.startsWith("t:"))
+			throw new ChangeTokenExpiredException("ChangeTokenExpiredException");
+		if (!decoded.startsWith("s:"))
+			throw new IllegalArgumentException("Invalid token");
+		long changeSeq = Long.parseLong(decoded.substring(2));
+		if (changeSeq < 0)
+			throw new IllegalArgumentException("Invalid token");
+		return changeSeq;
+	}
+
+	private static String encodeCursor(int noteId) {
+		return Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(("n:" + noteId).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static int decodeCursor(String cursor) {
+		if (cursor == null || cursor.isEmpty())
+			return 0;
+		String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		if (!decoded.startsWith("n:"))
+			throw new IllegalArgumentException("Invalid cursor");
+		return Integer.parseInt(decoded.substring(2));
+	}
+
 	/*
 	 * This method should be used to get a note by noteId.
 	 */
@@ -107,34 +337,81 @@ public class NoteServiceImpl implements NoteService {
 	}
 
 	/*
-	 * This method should be used to update a existing note.
+	 * This method should be used to update a existing note. The note has to carry
+	 * the version it was read with, and its createdBy is the user the note has to
+	 * belong to: a note of someone else is reported as not found and is left
+	 * alone, and so are a category or reminder of someone else. When the
+	 * versioned update fails the note is looked up once to tell a
+	 * deleted note (NoteNotFoundException) from one that was changed in the
+	 * meantime (OptimisticLockingFailureException).
 	 */
 
 	public Note updateNote(Note note, int id)
 			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
-		Note noteFound = noteDAO.getNoteById(id);
 		Reminder reminder = note.getReminder();
 		Category category = note.getCategory();
-		if(noteFound==null) {
-			throw new NoteNotFoundException("NoteNotFoundException");
-		}else {
-			noteDAO.UpdateNote(noteFound);
-		}
+		if(reminder!=null)
+			getOwnReminder(reminder.getReminderId(), note.getCreatedBy());
+		if(category!=null)
+			getOwnCategory(category.getCategoryId(), note.getCreatedBy());
+		note.setNoteId(id);
 		try {
-			if(reminder!=null) 
-				reminderDAO.getReminderById(reminder.getReminderId());
-		}catch(ReminderNotFoundException rnf) {
-			rnf.printStackTrace();
+			if(!noteDAO.UpdateNote(note))
+				throw new NoteNotFoundException("NoteNotFoundException");
+		} catch (OptimisticLockingFailureException e) {
+			noteDAO.getNoteById(id);
+			throw e;
 		}
-		try {
-			if(category!=null)
-				categoryDAO.getCategoryById(category.getCategoryId());
-		}catch(CategoryNotFoundException cnf) {
-			cnf.printStackTrace();
-		}
-		
+		noteSearchIndex.index(note);
+		userVersionRegistry.bump(note.getCreatedBy());
+		return note;
+
+	}
+
+	/*
+	 * This method should be used to update some fields of an existing note of the
+	 * given user. Only the fields present in the map are changed, a category or
+	 * reminder is given by its id and has to be one of the user's.
+	 */
+	public Note patchNote(int noteId, String userId, Map<String, Object> fields)
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+		EntityPatcher.checkFields(fields, PATCHABLE_FIELDS);
+		Map<String, Object> values = new HashMap<String, Object>(fields);
+		boolean patchCategory = values.containsKey("category");
+		boolean patchReminder = values.containsKey("reminder");
+		Integer categoryId = EntityPatcher.referenceId(values.remove("category"), "categoryId");
+		Integer reminderId = EntityPatcher.referenceId(values.remove("reminder"), "reminderId");
+		Category category = categoryId == null ? null : getOwnCategory(categoryId, userId);
+		Reminder reminder = reminderId == null ? null : getOwnReminder(reminderId, userId);
+
+		Note note = noteDAO.patchNote(noteId, userId, managed -> {
+			EntityPatcher.apply(managed, managed.getVersion(), values);
+			if (patchCategory)
+				managed.setCategory(category);
+			if (patchReminder)
+				managed.setReminder(reminder);
+		});
+		noteSearchIndex.index(note);
+		userVersionRegistry.bump(userId);
 		return note;
+	}
 
+	/*
+	 * A category or reminder of another user is reported as not found, the same
+	 * as one that does not exist.
+	 */
+	private Category getOwnCategory(int categoryId, String userId) throws CategoryNotFoundException {
+		Category category = categoryDAO.getCategoryById(categoryId);
+		if (category == null || !userId.equals(category.getCategoryCreatedBy()))
+			throw new CategoryNotFoundException("CategoryNotFoundException");
+		return category;
+	}
+
+	private Reminder getOwnReminder(int reminderId, String userId) throws ReminderNotFoundException {
+		Reminder reminder = reminderDAO.getReminderById(reminderId);
+		if (reminder == null || !userId.equals(reminder.getReminderCreatedBy()))
+			throw new ReminderNotFoundException("ReminderNotFoundException");
+		return reminder;
 	}
 
 }
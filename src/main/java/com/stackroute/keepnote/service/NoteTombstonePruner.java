@@ -0,0 +1,44 @@
+package com.stackroute.keepnote.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+
+/*
+ * Background job that deletes the tombstones of the change feed once they are
+ * older than retentionDays, in batches of BATCH_SIZE, each in its own
+ * transaction. A client whose token is older than the tombstones that were
+ * deleted gets 410 from GET /note/changes and syncs again from scratch. The
+ * job is set up in ApplicationContextConfig.
+ */
+public class NoteTombstonePruner {
+
+	static final int BATCH_SIZE = 500;
+
+	private final NoteDAO noteDAO;
+	private final long retentionDays;
+
+	public NoteTombstonePruner(NoteDAO noteDAO, long retentionDays) {
+		this.noteDAO = noteDAO;
+		this.retentionDays = retentionDays;
+	}
+
+	/*
+	 * Delete every tombstone older than the retention and return how many were
+	 * deleted.
+	 */
+	@Scheduled(initialDelay = 20 * 60 * 1000, fixedDelay = 6 * 60 * 60 * 1000)
+	public int pruneTombstones() {
+		long cutoff = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retentionDays);
+		int pruned = 0;
+		int batch;
+		do {
+			batch = noteDAO.pruneTombstonesOlderThan(cutoff, BATCH_SIZE);
+			pruned += batch;
+		} while (batch == BATCH_SIZE);
+		return pruned;
+	}
+
+}
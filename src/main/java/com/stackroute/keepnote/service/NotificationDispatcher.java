@@ -0,0 +1,153 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+
+import com.stackroute.keepnote.dao.NotificationDAO;
+import com.stackroute.keepnote.model.ReminderNotification;
+
+/*
+ * Delivers the notifications of fired reminders from the outbox that
+ * ReminderDAOImpl writes to. Every pollMillis the dispatcher claims up to
+ * batchSize due notifications and hands them to the NotificationSink on a pool
+ * of its own with parallelism threads, batch after batch until the outbox is
+ * drained. The threads serving requests never deliver anything, so the number
+ * of deliveries in flight is set here alone.
+ *
+ * A notification whose delivery fails is tried again after backoffMillis,
+ * doubled on every further failure, and given up on after maxAttempts. Claims
+ * are leases of LEASE_MILLIS, so notifications claimed by a dispatcher that
+ * stopped halfway are delivered by the next run. The dispatcher is set up in
+ * ApplicationContextConfig.
+ */
+public class NotificationDispatcher {
+
+	static final long LEASE_MILLIS = 5 * 60 * 1000;
+
+	private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+	private final NotificationDAO notificationDAO;
+	private final NotificationSink notificationSink;
+	private final int batchSize;
+	private final int maxAttempts;
+	private final long backoffMillis;
+	private final long pollMillis;
+	private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "notification-dispatcher");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final ExecutorService workers;
+
+	public NotificationDispatcher(NotificationDAO notificationDAO, NotificationSink notificationSink,
+			int parallelism, int batchSize, int maxAttempts, long backoffMillis, long pollMillis) {
+		this.notificationDAO = notificationDAO;
+		this.notificationSink = notificationSink;
+		this.batchSize = batchSize;
+		this.maxAttempts = maxAttempts;
+		this.backoffMillis = backoffMillis;
+		this.pollMillis = pollMillis;
+		AtomicInteger threads = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, "notification-sink-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	public void start() {
+		poller.scheduleWithFixedDelay(this::dispatch, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * Deliver the due notifications, batch after batch until a batch comes back
+	 * short, and return how many were delivered. A batch that cannot be claimed is
+	 * left to the next run. Nothing is thrown out of here, whatever fails: an
+	 * exception escaping the task scheduled by start() would cancel it, and no
+	 * notification would be delivered again until a restart.
+	 */
+	public int dispatch() {
+		int delivered = 0;
+		try {
+			List<ReminderNotification> batch;
+			do {
+				long now = System.currentTimeMillis();
+				batch = notificationDAO.claimPending(new Date(now), batchSize, new Date(now + LEASE_MILLIS));
+				List<Callable<Boolean>> deliveries = new ArrayList<Callable<Boolean>>(batch.size());
+				for (ReminderNotification notification : batch)
+					deliveries.add(() -> deliver(notification));
+				for (Future<Boolean> result : workers.invokeAll(deliveries))
+					delivered += delivered(result);
+			} while (batch.size() == batchSize);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			logger.warn("Dispatching reminder notifications failed, trying again in {} ms", pollMillis, e);
+		}
+		return delivered;
+	}
+
+	/*
+	 * Deliver one notification and record the outcome. If the outcome cannot be
+	 * recorded the lease runs out and the notification is delivered again.
+	 */
+	private boolean deliver(ReminderNotification notification) {
+		int notificationId = notification.getNotificationId();
+		try {
+			try {
+				notificationSink.deliver(notification);
+			} catch (Exception e) {
+				int attempts = notification.getAttempts() + 1;
+				notificationDAO.markFailed(notificationId, attempts < maxAttempts ? retryAt(attempts) : null,
+						e.toString());
+				return false;
+			}
+			notificationDAO.markDelivered(notificationId, new Date());
+			return true;
+		} catch (DataAccessException e) {
+			return false;
+		}
+	}
+
+	/*
+	 * 1 if the delivery succeeded. A delivery that failed unexpectedly counts as
+	 * not delivered; its lease runs out and it is delivered again.
+	 */
+	private static int delivered(Future<Boolean> result) throws InterruptedException {
+		try {
+			return result.get() ? 1 : 0;
+		} catch (ExecutionException e) {
+			return 0;
+		}
+	}
+
+	/*
+	 * When to try again after the given number of failed attempts.
+	 */
+	Date retryAt(int attempts) {
+		return new Date(System.currentTimeMillis() + (backoffMillis << Math.min(attempts - 1, 20)));
+	}
+
+	/*
+	 * Stop polling and delivering; notifications claimed but not delivered are
+	 * delivered after the next start, once their lease has run out.
+	 */
+	public void close() {
+		poller.shutdownNow();
+		workers.shutdownNow();
+	}
+
+}
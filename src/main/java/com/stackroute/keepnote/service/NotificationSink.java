@@ -0,0 +1,19 @@
+package com.stackroute.keepnote.service;
+
+import java.io.IOException;
+
+import com.stackroute.keepnote.model.ReminderNotification;
+
+/*
+ * Where NotificationDispatcher delivers the notifications of fired reminders,
+ * such as a mail or push gateway. deliver() may be called from several threads
+ * at once and is called at least once per notification: after a crash or a
+ * lost connection a notification that was delivered can be delivered again, so
+ * a sink that cannot take duplicates should use the notificationId to spot
+ * them. An exception makes the dispatcher try again later.
+ */
+public interface NotificationSink {
+
+	public void deliver(ReminderNotification notification) throws IOException;
+
+}
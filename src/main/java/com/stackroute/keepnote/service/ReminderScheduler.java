@@ -0,0 +1,191 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.model.Reminder;
+
+/*
+ * Fires reminders when their dueAt is reached. The pending reminders due within
+ * the next horizonMillis are held in a TimingWheel; the wheel is advanced every
+ * tickMillis on a thread of its own, and the reminders that expired are fired
+ * through ReminderDAO in batches of FIRE_BATCH_SIZE.
+ *
+ * At start the wheel is filled with a range query on the dueAt index, overdue
+ * reminders included, and whenever less than half of the horizon is left the
+ * next part of it is read the same way, so the table is never scanned and the
+ * wheel only holds the reminders that are coming up. ReminderServiceImpl keeps
+ * the wheel in step with reminders that are created, changed or deleted. A
+ * timer that is out of date is harmless: firing only changes reminders that
+ * are still due. The scheduler is set up in ApplicationContextConfig.
+ */
+public class ReminderScheduler {
+
+	static final int FIRE_BATCH_SIZE = 500;
+	static final long RETRY_DELAY_MILLIS = 30 * 1000;
+
+	private static final Logger logger = LoggerFactory.getLogger(ReminderScheduler.class);
+
+	private final ReminderDAO reminderDAO;
+	private final UserVersionRegistry userVersionRegistry;
+	private final long tickMillis;
+	private final long horizonMillis;
+	private final TimingWheel wheel;
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "reminder-scheduler");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/*
+	 * The end of the part of the horizon that has been read into the wheel.
+	 * Reminders due later are left to the next read.
+	 */
+	private long loadedUntil;
+
+	public ReminderScheduler(ReminderDAO reminderDAO, UserVersionRegistry userVersionRegistry, long tickMillis,
+			long horizonMillis) {
+		this.reminderDAO = reminderDAO;
+		this.userVersionRegistry = userVersionRegistry;
+		this.tickMillis = tickMillis;
+		this.horizonMillis = horizonMillis;
+		this.wheel = new TimingWheel(tickMillis, System.currentTimeMillis());
+		this.loadedUntil = Long.MIN_VALUE;
+	}
+
+	/*
+	 * Read the pending reminders of the horizon into the wheel and start ticking.
+	 */
+	public void start() {
+		long now = System.currentTimeMillis();
+		refill(0, now);
+		executor.scheduleWithFixedDelay(() -> tick(System.currentTimeMillis()), tickMillis, tickMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * Add, move or remove the timer of a reminder after it was written.
+	 */
+	public void schedule(Reminder reminder) {
+		Date dueAt = reminder.getDueAt();
+		synchronized (this) {
+			if (dueAt != null && dueAt.getTime() < loadedUntil)
+				wheel.schedule(reminder.getReminderId(), dueAt.getTime());
+			else
+				wheel.cancel(reminder.getReminderId());
+		}
+	}
+
+	public synchronized void cancel(int reminderId) {
+		wheel.cancel(reminderId);
+	}
+
+	public synchronized int size() {
+		return wheel.size();
+	}
+
+	/*
+	 * Fire the reminders that are due by now and read the next part of the
+	 * horizon when it runs short. Returns the number of reminders fired. Nothing
+	 * is thrown out of here, whatever fails: an exception escaping the task
+	 * scheduled by start() would cancel it, and no reminder would fire again
+	 * until a restart.
+	 */
+	public int tick(long now) {
+		try {
+			List<TimingWheel.Timer> expired;
+			boolean refill;
+			synchronized (this) {
+				expired = wheel.advance(now);
+				refill = loadedUntil - now < horizonMillis / 2;
+			}
+			int fired = 0;
+			for (int i = 0; i < expired.size(); i += FIRE_BATCH_SIZE)
+				fired += fire(expired.subList(i, Math.min(i + FIRE_BATCH_SIZE, expired.size())), now);
+			if (refill)
+				refill(loadedUntil, now);
+			return fired;
+		} catch (RuntimeException e) {
+			logger.warn("Reminder scheduler tick failed", e);
+			return 0;
+		}
+	}
+
+	/*
+	 * A batch that cannot be fired is put back into the wheel and tried again
+	 * after RETRY_DELAY_MILLIS.
+	 */
+	private int fire(List<TimingWheel.Timer> timers, long now) {
+		List<Integer> reminderIds = new ArrayList<Integer>(timers.size());
+		for (TimingWheel.Timer timer : timers)
+			reminderIds.add(timer.getId());
+		try {
+			List<Reminder> reminders = reminderDAO.fireReminders(reminderIds, new Date(now));
+			for (Reminder reminder : reminders)
+				userVersionRegistry.bump(reminder.getReminderCreatedBy());
+			return reminders.size();
+		} catch (RuntimeException e) {
+			logger.warn("Firing {} reminders failed, trying again in {} ms", reminderIds.size(), RETRY_DELAY_MILLIS,
+					e);
+			synchronized (this) {
+				for (Integer reminderId : reminderIds) {
+					if (!wheel.contains(reminderId))
+						wheel.schedule(reminderId, now + RETRY_DELAY_MILLIS);
+				}
+			}
+			return 0;
+		}
+	}
+
+	/*
+	 * Read the horizon from the given time on into the wheel. If it cannot be
+	 * read, the end is moved back to where the read started, so the next tick
+	 * reads the same range again: after a failed start that is 0, and the overdue
+	 * reminders are still picked up.
+	 */
+	private void refill(long from, long now) {
+		try {
+			load(from, now + horizonMillis);
+		} catch (RuntimeException e) {
+			logger.warn("Reading the pending reminders failed, trying again on the next tick", e);
+			synchronized (this) {
+				loadedUntil = from;
+			}
+		}
+	}
+
+	/*
+	 * Read the reminders due in [from, until) into the wheel. The end is moved
+	 * before reading, so a reminder written meanwhile is scheduled by
+	 * ReminderServiceImpl if the read misses it. A reminder that already has a
+	 * timer keeps it, that one was set after the reminder was last written.
+	 */
+	private void load(long from, long until) {
+		synchronized (this) {
+			loadedUntil = until;
+		}
+		reminderDAO.streamPendingReminders(new Date(from), new Date(until), (reminderId, dueAt) -> {
+			synchronized (this) {
+				if (!wheel.contains(reminderId))
+					wheel.schedule(reminderId, dueAt.getTime());
+			}
+		});
+	}
+
+	/*
+	 * Stop ticking; reminders that are due in the meantime fire after the next
+	 * start.
+	 */
+	public void close() {
+		executor.shutdownNow();
+	}
+
+}
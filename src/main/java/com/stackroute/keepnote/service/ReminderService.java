@@ -1,6 +1,8 @@
 package com.stackroute.keepnote.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
@@ -14,9 +16,18 @@ public interface ReminderService {
 
 	public Reminder updateReminder(Reminder reminder, int id) throws ReminderNotFoundException;
 
+	public Reminder patchReminder(int reminderId, String userId, Map<String, Object> fields)
+			throws ReminderNotFoundException;
+
 	public boolean deleteReminder(int reminderId);
 
+	public boolean deleteReminder(int reminderId, String userId);
+
 	public Reminder getReminderById(int reminderId) throws ReminderNotFoundException;
 
 	public List<Reminder> getAllReminderByUserId(String userId);
+
+	public void streamRemindersByUserId(String userId, Consumer<Reminder> consumer);
+
+	public String getVersionTag(String userId);
 }
@@ -1,7 +1,13 @@
 package com.stackroute.keepnote.service;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import com.stackroute.keepnote.dao.ReminderDAO;
@@ -21,16 +27,24 @@ import com.stackroute.keepnote.model.Reminder;
 @Service
 public class ReminderServiceImpl implements ReminderService {
 
+	private static final Set<String> PATCHABLE_FIELDS = new HashSet<String>(
+			Arrays.asList("reminderName", "reminderDescription", "reminderType", "dueAt"));
+
 	/*
 	 * Autowiring should be implemented for the ReminderDAO. (Use Constructor-based
 	 * autowiring) Please note that we should not create any object using the new
 	 * keyword.
 	 */
 	private ReminderDAO reminderDAO;
+	private UserVersionRegistry userVersionRegistry;
+	private ReminderScheduler reminderScheduler;
 	
-	public ReminderServiceImpl(ReminderDAO reminderDAO) {
+	public ReminderServiceImpl(ReminderDAO reminderDAO, UserVersionRegistry userVersionRegistry,
+			ReminderScheduler reminderScheduler) {
 		super();
 		this.reminderDAO = reminderDAO;
+		this.userVersionRegistry = userVersionRegistry;
+		this.reminderScheduler = reminderScheduler;
 	}
 
 	
@@ -41,35 +55,73 @@ public class ReminderServiceImpl implements ReminderService {
 
 	
 	public boolean createReminder(Reminder reminder) {
-		if(reminderDAO.createReminder(reminder))
+		if(reminderDAO.createReminder(reminder)) {
+			userVersionRegistry.bump(reminder.getReminderCreatedBy());
+			reminderScheduler.schedule(reminder);
 			return true;
+		}
 		else
 			return false;
 
 	}
 
 	/*
-	 * This method should be used to update a existing reminder.
+	 * This method should be used to update a existing reminder. When the
+	 * versioned update fails the reminder is looked up once to tell a deleted
+	 * reminder from one that was changed in the meantime.
 	 */
 
 	public Reminder updateReminder(Reminder reminder, int id) throws ReminderNotFoundException {
-		reminderDAO.updateReminder(reminder);
-		Reminder updatedReminder =getReminderById(id);
-		if(updatedReminder==null)
-			throw new ReminderNotFoundException("ReminderNotFoundException");
-		else
-			return reminder;
+		try {
+			reminderDAO.updateReminder(reminder);
+		} catch (OptimisticLockingFailureException e) {
+			getReminderById(id);
+			throw e;
+		}
+		userVersionRegistry.bump(reminder.getReminderCreatedBy());
+		reminderScheduler.schedule(reminder);
+		return reminder;
+	}
+
+	/*
+	 * This method should be used to update some fields of an existing reminder of
+	 * the given user. Only the fields present in the map are changed.
+	 */
+
+	public Reminder patchReminder(int reminderId, String userId, Map<String, Object> fields)
+			throws ReminderNotFoundException {
+		EntityPatcher.checkFields(fields, PATCHABLE_FIELDS);
+		Reminder reminder = reminderDAO.patchReminder(reminderId, userId,
+				managed -> EntityPatcher.apply(managed, managed.getVersion(), fields));
+		userVersionRegistry.bump(userId);
+		reminderScheduler.schedule(reminder);
+		return reminder;
 	}
 
 	/* This method should be used to delete an existing reminder. */
 	
 	public boolean deleteReminder(int reminderId) {
-		if(reminderDAO.deleteReminder(reminderId))
+		if(reminderDAO.deleteReminder(reminderId)) {
+			userVersionRegistry.bumpAll();
+			reminderScheduler.cancel(reminderId);
 			return true;
+		}
 		else
 			return false;
 	}
 
+	/*
+	 * This method should be used to delete an existing reminder of the given user.
+	 */
+	public boolean deleteReminder(int reminderId, String userId) {
+		boolean deleted = reminderDAO.deleteReminder(reminderId, userId);
+		if(deleted) {
+			userVersionRegistry.bump(userId);
+			reminderScheduler.cancel(reminderId);
+		}
+		return deleted;
+	}
+
 	/*
 	 * This method should be used to get a reminder by reminderId.
 	 */
@@ -91,4 +143,20 @@ public class ReminderServiceImpl implements ReminderService {
 		return reminderDAO.getAllReminderByUserId(userId);
 
 	}
+
+	/*
+	 * This method should be used to walk through all reminders of a user without
+	 * loading them into one list.
+	 */
+	public void streamRemindersByUserId(String userId, Consumer<Reminder> consumer) {
+		reminderDAO.streamRemindersByUserId(userId, consumer);
+	}
+
+	/*
+	 * This method should be used to get the version tag of the user's reminders, it
+	 * changes whenever one of them is created, changed or deleted.
+	 */
+	public String getVersionTag(String userId) {
+		return userVersionRegistry.getTag(userId);
+	}
 }
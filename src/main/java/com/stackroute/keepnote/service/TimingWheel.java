@@ -0,0 +1,181 @@
+package com.stackroute.keepnote.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * A hierarchical timing wheel holding ids with a deadline. Time is counted in
+ * ticks of tickMillis; level 0 has one slot per tick for the next 64 ticks, and
+ * every level above has 64 slots that are each as wide as the whole level
+ * below. A timer is put into the lowest level its deadline fits in, and when
+ * the wheel of a level wraps around, the next slot of the level above is
+ * cascaded: its timers are put again into the levels below, closer to their
+ * deadline. Scheduling and cancelling a timer are O(1), and a timer is moved
+ * at most once per level before it fires, however many timers are pending.
+ *
+ * The slots are doubly linked lists and the timers are also kept by id, so a
+ * timer is taken out of its slot without searching. The class is not thread
+ * safe; ReminderScheduler only uses it while holding its lock.
+ */
+public class TimingWheel {
+
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final int LEVELS = 6;
+
+	private final long tickMillis;
+	private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+	private final Map<Integer, Timer> timers = new HashMap<Integer, Timer>();
+
+	/*
+	 * Timers whose deadline tick has been reached when they are placed, either
+	 * scheduled late or cascaded on their very tick; fired by advance() before
+	 * the slot of the tick.
+	 */
+	private final Timer overdue = sentinel();
+	private long currentTick;
+
+	public TimingWheel(long tickMillis, long startMillis) {
+		this.tickMillis = tickMillis;
+		this.currentTick = startMillis / tickMillis;
+		for (Timer[] level : slots) {
+			for (int slot = 0; slot < SLOTS; slot++)
+				level[slot] = sentinel();
+		}
+	}
+
+	/*
+	 * Schedule the id to fire at the deadline, replacing the timer it already has.
+	 */
+	public void schedule(int id, long deadlineMillis) {
+		cancel(id);
+		Timer timer = new Timer(id, deadlineMillis, (deadlineMillis + tickMillis - 1) / tickMillis);
+		timers.put(id, timer);
+		place(timer);
+	}
+
+	/*
+	 * Cancel the timer of the id; returns false if it has none.
+	 */
+	public boolean cancel(int id) {
+		Timer timer = timers.remove(id);
+		if (timer == null)
+			return false;
+		timer.unlink();
+		return true;
+	}
+
+	/*
+	 * Move the wheel forward to the given time and return the ids whose deadline
+	 * has been reached, with their deadline, in the order they expired.
+	 */
+	public List<Timer> advance(long nowMillis) {
+		List<Timer> expired = new ArrayList<Timer>();
+		drain(overdue, expired);
+		long targetTick = nowMillis / tickMillis;
+		while (currentTick < targetTick) {
+			currentTick++;
+			for (int level = 1; level < LEVELS && index(currentTick, level - 1) == 0; level++)
+				cascade(slots[level][index(currentTick, level)]);
+			drain(overdue, expired);
+			drain(slots[0][index(currentTick, 0)], expired);
+		}
+		return expired;
+	}
+
+	public boolean contains(int id) {
+		return timers.containsKey(id);
+	}
+
+	public int size() {
+		return timers.size();
+	}
+
+	private void place(Timer timer) {
+		long delta = timer.deadlineTick - currentTick;
+		if (delta <= 0) {
+			overdue.append(timer);
+			return;
+		}
+		int level = 0;
+		while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1)))
+			level++;
+		slots[level][index(timer.deadlineTick, level)].append(timer);
+	}
+
+	private void cascade(Timer slot) {
+		Timer timer = slot.next;
+		while (timer != slot) {
+			Timer next = timer.next;
+			timer.unlink();
+			place(timer);
+			timer = next;
+		}
+	}
+
+	private void drain(Timer slot, List<Timer> expired) {
+		while (slot.next != slot) {
+			Timer timer = slot.next;
+			timer.unlink();
+			timers.remove(timer.id);
+			expired.add(timer);
+		}
+	}
+
+	private static int index(long tick, int level) {
+		return (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+	}
+
+	private static Timer sentinel() {
+		Timer sentinel = new Timer(0, 0, 0);
+		sentinel.next = sentinel;
+		sentinel.previous = sentinel;
+		return sentinel;
+	}
+
+	/*
+	 * A scheduled id, linked into one slot of the wheel.
+	 */
+	public static class Timer {
+
+		private final int id;
+		private final long deadlineMillis;
+		private final long deadlineTick;
+		private Timer previous;
+		private Timer next;
+
+		Timer(int id, long deadlineMillis, long deadlineTick) {
+			this.id = id;
+			this.deadlineMillis = deadlineMillis;
+			this.deadlineTick = deadlineTick;
+		}
+
+		public int getId() {
+			return id;
+		}
+
+		public long getDeadlineMillis() {
+			return deadlineMillis;
+		}
+
+		void append(Timer timer) {
+			timer.previous = previous;
+			timer.next = this;
+			previous.next = timer;
+			previous = timer;
+		}
+
+		void unlink() {
+			if (previous == null)
+				return;
+			previous.next = next;
+			next.previous = previous;
+			previous = null;
+			next = null;
+		}
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.stackroute.keepnote.service;
 
+import java.util.Map;
+
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
@@ -13,6 +15,8 @@ public interface UserService {
 
 	public User updateUser(User user, String id) throws Exception;
 
+	public User patchUser(String userId, Map<String, Object> fields) throws UserNotFoundException;
+
 	public boolean deleteUser(String UserId);
 
 	public boolean validateUser(String userName, String password) throws UserNotFoundException;
@@ -1,6 +1,12 @@
 package com.stackroute.keepnote.service;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
 import com.stackroute.keepnote.dao.UserDAO;
@@ -20,6 +26,9 @@ import com.stackroute.keepnote.model.User;
 @Service
 public class UserServiceImpl implements UserService {
 
+	private static final Set<String> PATCHABLE_FIELDS = new HashSet<String>(
+			Arrays.asList("userName", "userPassword", "userMobile"));
+
 	/*
 	 * Autowiring should be implemented for the userDAO. (Use Constructor-based
 	 * autowiring) Please note that we should not create any object using the new
@@ -27,10 +36,12 @@ public class UserServiceImpl implements UserService {
 	 */
 	@Autowired
 	private UserDAO userDAO;
+	private DeletionJobService deletionJobService;
 	
-	public UserServiceImpl(UserDAO userDAO) {
+	public UserServiceImpl(UserDAO userDAO, DeletionJobService deletionJobService) {
 		super();
 		this.userDAO = userDAO;
+		this.deletionJobService = deletionJobService;
 	}
 	/*
 	 * This method should be used to save a new user.
@@ -45,19 +56,33 @@ public class UserServiceImpl implements UserService {
 	}
 
 	/*
-	 * This method should be used to update a existing user.
+	 * This method should be used to update a existing user. When the versioned
+	 * update fails the user is looked up once to tell a deleted user from one
+	 * that was changed in the meantime.
 	 */
 
 	public User updateUser(User user, String userId) throws Exception {
-		userDAO.updateUser(user);
-		User newUser = getUserById(userId);
-		if(newUser==null)
-			throw new Exception();
-		else 
-			return user;
+		try {
+			userDAO.updateUser(user);
+		} catch (OptimisticLockingFailureException e) {
+			getUserById(userId);
+			throw e;
+		}
+		return user;
 }
 
 
+	/*
+	 * This method should be used to update some fields of an existing user. Only
+	 * the fields present in the map are changed.
+	 */
+
+	public User patchUser(String userId, Map<String, Object> fields) throws UserNotFoundException {
+		EntityPatcher.checkFields(fields, PATCHABLE_FIELDS);
+		return userDAO.patchUser(userId, user -> EntityPatcher.apply(user, user.getVersion(), fields));
+	}
+
+
 	/*
 	 * This method should be used to get a user by userId.
 	 */
@@ -84,12 +109,16 @@ public class UserServiceImpl implements UserService {
 
 	}
 
-	/* This method should be used to delete an existing user. */
+	/*
+	 * This method should be used to delete an existing user. The notes, reminders
+	 * and categories of the user are deleted afterwards in the background.
+	 */
 	public boolean deleteUser(String UserId) {
 		boolean deleteUser = userDAO.deleteUser(UserId);
 			if(!deleteUser) {
 				return false;
 			}else {
+				deletionJobService.runPendingJobs();
 				return true;
 			}		
 
@@ -0,0 +1,11 @@
+package com.stackroute.keepnote.service;
+
+import com.stackroute.keepnote.model.UserStats;
+
+public interface UserStatsService {
+
+	public UserStats getUserStats(String userId);
+
+	public int rebuildAllUserStats();
+
+}
@@ -0,0 +1,53 @@
+package com.stackroute.keepnote.service;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.stackroute.keepnote.dao.UserStatsDAO;
+import com.stackroute.keepnote.model.UserStats;
+
+/*
+ * Serves the counters behind GET /stats. They are kept up to date by the DAOs
+ * whenever a note, category or reminder is created or deleted, so reading them
+ * costs the same however many notes a user has. Once a day they are recomputed
+ * from the tables, to repair counters that drifted, e.g. through rows changed
+ * in the database by hand.
+ */
+@Service
+public class UserStatsServiceImpl implements UserStatsService {
+
+	private UserStatsDAO userStatsDAO;
+
+	public UserStatsServiceImpl(UserStatsDAO userStatsDAO) {
+		super();
+		this.userStatsDAO = userStatsDAO;
+	}
+
+	/*
+	 * This method should be used to get the counters of a user.
+	 */
+	public UserStats getUserStats(String userId) {
+		return userStatsDAO.getUserStats(userId);
+	}
+
+	/*
+	 * Recompute the counters of every user, each user in a transaction of its own.
+	 * A user whose rebuild fails, e.g. on a deadlock with a write, is left to the
+	 * next run. Returns the number of users rebuilt.
+	 */
+	@Scheduled(initialDelay = 30 * 60 * 1000, fixedDelay = 24 * 60 * 60 * 1000)
+	public int rebuildAllUserStats() {
+		int rebuilt = 0;
+		for (String userId : userStatsDAO.getUserIds()) {
+			try {
+				userStatsDAO.rebuildUserStats(userId);
+				rebuilt++;
+			} catch (DataAccessException e) {
+				continue;
+			}
+		}
+		return rebuilt;
+	}
+
+}
@@ -0,0 +1,52 @@
+package com.stackroute.keepnote.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+/*
+ * Keeps a version counter per user that is bumped by the services every time
+ * one of the user's notes, categories or reminders is created, changed or
+ * deleted. The counter is handed out as the ETag of the list endpoints, so a
+ * client that polls with If-None-Match gets a 304 without the list being read.
+ *
+ * One counter covers all three lists because a note is returned together with
+ * its category and reminder, so changing those changes GET /note as well. The
+ * services bump the counter only after the DAO has committed, and the
+ * controllers read it before running the query, so a tag is never newer than
+ * the data sent with it.
+ */
+@Component
+public class UserVersionRegistry {
+
+	/*
+	 * Tells versions of different runs apart, the counters start again at 0 after
+	 * a restart.
+	 */
+	private final String instanceId = Long.toString(System.currentTimeMillis(), 36);
+	private final Map<String, AtomicLong> versions = new ConcurrentHashMap<String, AtomicLong>();
+	private final AtomicLong globalVersion = new AtomicLong();
+
+	public void bump(String userId) {
+		if (userId == null) {
+			bumpAll();
+			return;
+		}
+		versions.computeIfAbsent(userId, key -> new AtomicLong()).incrementAndGet();
+	}
+
+	/*
+	 * Used by writes that do not know which user they affected.
+	 */
+	public void bumpAll() {
+		globalVersion.incrementAndGet();
+	}
+
+	public String getTag(String userId) {
+		AtomicLong version = versions.get(userId);
+		return instanceId + "-" + globalVersion.get() + "-" + (version == null ? 0 : version.get());
+	}
+
+}
@@ -0,0 +1,11 @@
+-- Drops the join tables that Category.notes and Reminder.notes were mapped to
+-- before they became the inverse sides of Note.category and Note.reminder. The
+-- relation is held by the category_categoryId and reminder_reminderId columns
+-- of Note alone; the join tables were never read and only repeated it.
+--
+-- Run once against the keepnote database after deploying the version that
+-- maps the collections with mappedBy. hibernate.hbm2ddl.auto=update does not
+-- drop tables.
+
+DROP TABLE IF EXISTS Category_Note;
+DROP TABLE IF EXISTS Reminder_Note;
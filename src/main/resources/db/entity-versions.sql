@@ -0,0 +1,21 @@
+-- Gives the notes, categories, reminders and users written before they had a
+-- version the version 0, and makes the column NOT NULL with 0 as its default.
+-- hibernate.hbm2ddl.auto=update adds the version column to an existing table
+-- without a value for the rows already there, and does not change a column it
+-- has already added. A row without a version cannot be updated: a PUT of it
+-- is rejected as having no version, and "version = version + 1" leaves it
+-- NULL.
+--
+-- Run once against the keepnote database, with the application stopped, before
+-- deploying the version that maps the version columns as NOT NULL. Running it
+-- again changes nothing.
+
+UPDATE Note SET version = 0 WHERE version IS NULL;
+UPDATE Category SET version = 0 WHERE version IS NULL;
+UPDATE Reminder SET version = 0 WHERE version IS NULL;
+UPDATE `User` SET version = 0 WHERE version IS NULL;
+
+ALTER TABLE Note MODIFY version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE Category MODIFY version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE Reminder MODIFY version INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE `User` MODIFY version INTEGER NOT NULL DEFAULT 0;
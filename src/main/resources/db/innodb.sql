@@ -0,0 +1,59 @@
+-- Moves every table of the keepnote database to InnoDB. The tables were created
+-- by hibernate.hbm2ddl.auto=update under MySQL5Dialect, which makes them
+-- MyISAM: transactions were not rolled back, rows were not locked and the
+-- foreign keys of Note were not kept. MySQL55Dialect creates new tables as
+-- InnoDB, but hbm2ddl does not change the engine of an existing table.
+--
+-- Run once against the keepnote database with the mysql client, with the
+-- application stopped, before deploying the version that uses MySQL55Dialect
+-- and before any other script of this directory that has not been run yet.
+-- It only converts the tables that are still MyISAM, so it can be run again.
+--
+-- The notes that still refer to a reminder or category that is gone are
+-- detached first; hbm2ddl adds the foreign keys of Note on the next start and
+-- cannot add them while such rows exist. Once the tables are converted the
+-- reference counts of NoteBody, if it exists, are counted again: a note write
+-- that failed on a MyISAM Note kept the change to the count of its body.
+
+UPDATE Note SET reminder_reminderId = NULL
+  WHERE reminder_reminderId IS NOT NULL
+  AND reminder_reminderId NOT IN (SELECT reminderId FROM Reminder);
+
+UPDATE Note SET category_categoryId = NULL
+  WHERE category_categoryId IS NOT NULL
+  AND category_categoryId NOT IN (SELECT categoryId FROM Category);
+
+DROP PROCEDURE IF EXISTS keepnote_innodb;
+
+DELIMITER //
+CREATE PROCEDURE keepnote_innodb()
+BEGIN
+  DECLARE done INT DEFAULT FALSE;
+  DECLARE name VARCHAR(64);
+  DECLARE tables CURSOR FOR
+    SELECT table_name FROM information_schema.tables
+    WHERE table_schema = DATABASE() AND table_type = 'BASE TABLE' AND engine = 'MyISAM';
+  DECLARE CONTINUE HANDLER FOR NOT FOUND SET done = TRUE;
+  OPEN tables;
+  convert_tables: LOOP
+    FETCH tables INTO name;
+    IF done THEN
+      LEAVE convert_tables;
+    END IF;
+    SET @statement = CONCAT('ALTER TABLE `', name, '` ENGINE=InnoDB');
+    PREPARE statement FROM @statement;
+    EXECUTE statement;
+    DEALLOCATE PREPARE statement;
+  END LOOP;
+  CLOSE tables;
+  IF EXISTS (SELECT 1 FROM information_schema.tables
+      WHERE table_schema = DATABASE() AND table_name = 'NoteBody') THEN
+    UPDATE NoteBody SET refCount =
+      (SELECT COUNT(*) FROM Note WHERE Note.contentHash = NoteBody.contentHash);
+  END IF;
+END //
+DELIMITER ;
+
+CALL keepnote_innodb();
+
+DROP PROCEDURE keepnote_innodb;
@@ -0,0 +1,33 @@
+-- Moves the content of the notes into NoteBody, one row per distinct content,
+-- and points every note at its body by the SHA-256 of the content.
+--
+-- Run once against the keepnote database, with the application stopped, before
+-- deploying the version that maps Note.body. hibernate.hbm2ddl.auto=update can
+-- create NoteBody but cannot move the existing content or drop the old column.
+--
+-- Run innodb.sql first. Note and NoteBody must both be InnoDB: the reference
+-- counts are only rolled back together with the notes, and the foreign key is
+-- only kept, when they are. On a database where this script already ran with
+-- Note as MyISAM, MySQL dropped the foreign key without a word, and a note
+-- write that failed left the counts behind; innodb.sql converts the tables,
+-- counts the references again, and hbm2ddl adds the key on the next start.
+
+CREATE TABLE IF NOT EXISTS NoteBody (
+  contentHash VARCHAR(64) NOT NULL,
+  content LONGTEXT NOT NULL,
+  refCount BIGINT NOT NULL,
+  PRIMARY KEY (contentHash)
+) ENGINE=InnoDB;
+
+ALTER TABLE Note ADD COLUMN contentHash VARCHAR(64) NULL;
+
+UPDATE Note SET contentHash = SHA2(CONVERT(noteContent USING utf8mb4), 256);
+
+INSERT INTO NoteBody (contentHash, content, refCount)
+  SELECT contentHash, MIN(noteContent), COUNT(*) FROM Note GROUP BY contentHash
+  ON DUPLICATE KEY UPDATE refCount = refCount + VALUES(refCount);
+
+ALTER TABLE Note
+  MODIFY contentHash VARCHAR(64) NOT NULL,
+  ADD CONSTRAINT fk_note_contenthash FOREIGN KEY (contentHash) REFERENCES NoteBody (contentHash),
+  DROP COLUMN noteContent;
@@ -0,0 +1,24 @@
+-- Creates the outbox of the reminder notifications, so a reminder is marked as
+-- fired in the same transaction that writes its notification.
+--
+-- Run once against the keepnote database, with the application stopped, before
+-- deploying the version that maps ReminderNotification. Run innodb.sql first:
+-- the reminder and its notification are only written together if Reminder is
+-- InnoDB as well.
+
+CREATE TABLE IF NOT EXISTS ReminderNotification (
+  notificationId INTEGER NOT NULL,
+  reminderId INTEGER NOT NULL,
+  recipient VARCHAR(255) NOT NULL,
+  reminderName VARCHAR(255),
+  reminderDescription VARCHAR(255),
+  reminderType VARCHAR(255),
+  firedAt DATETIME,
+  nextAttemptAt DATETIME,
+  attempts INTEGER NOT NULL,
+  deliveredAt DATETIME,
+  lastError VARCHAR(1000),
+  PRIMARY KEY (notificationId),
+  INDEX idx_notification_nextattemptat (nextAttemptAt),
+  INDEX idx_notification_recipient (recipient)
+) ENGINE=InnoDB;
@@ -0,0 +1,146 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.stackroute.keepnote.controller.AttachmentController;
+import com.stackroute.keepnote.exception.AttachmentNotFoundException;
+import com.stackroute.keepnote.exception.AttachmentTooLargeException;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.Attachment;
+import com.stackroute.keepnote.service.AttachmentService;
+
+public class AttachmentControllerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private MockMvc mockMvc;
+	private MockHttpSession session;
+	private Attachment attachment;
+	private Path file;
+	@Mock
+	AttachmentService attachmentService;
+	@InjectMocks
+	AttachmentController attachmentController;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		mockMvc = MockMvcBuilders.standaloneSetup(attachmentController).build();
+		session = new MockHttpSession();
+		session.setAttribute("loggedInUserId", "Jhon123");
+		attachment = new Attachment(3, 1, "notes.txt", "text/plain", 10, "Jhon123", new Date());
+		file = folder.newFile().toPath();
+		Files.write(file, "0123456789".getBytes());
+		when(attachmentService.getAttachmentById(3, 1, "Jhon123")).thenReturn(attachment);
+		when(attachmentService.openAttachment(attachment))
+				.thenAnswer(invocation -> FileChannel.open(file, StandardOpenOption.READ));
+	}
+
+	@Test
+	public void testAddAttachmentSuccess() throws Exception {
+		when(attachmentService.addAttachment(eq(1), eq("Jhon123"), eq("notes.txt"), eq("text/plain"), any()))
+				.thenReturn(attachment);
+		mockMvc.perform(post("/note/{id}/attachments", 1).param("fileName", "notes.txt")
+				.contentType(MediaType.TEXT_PLAIN).content("0123456789").session(session))
+				.andExpect(status().isCreated());
+	}
+
+	@Test
+	public void testAddAttachmentTooLarge() throws Exception {
+		when(attachmentService.addAttachment(eq(1), eq("Jhon123"), anyString(), anyString(), any()))
+				.thenThrow(new AttachmentTooLargeException("Attachment is too large"));
+		mockMvc.perform(post("/note/{id}/attachments", 1).param("fileName", "notes.txt")
+				.contentType(MediaType.TEXT_PLAIN).content("0123456789").session(session))
+				.andExpect(status().isPayloadTooLarge());
+	}
+
+	@Test
+	public void testAddAttachmentToMissingNote() throws Exception {
+		when(attachmentService.addAttachment(eq(2), eq("Jhon123"), anyString(), anyString(), any()))
+				.thenThrow(new NoteNotFoundException("NoteNotFoundException"));
+		mockMvc.perform(post("/note/{id}/attachments", 2).param("fileName", "notes.txt")
+				.contentType(MediaType.TEXT_PLAIN).content("0123456789").session(session))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testAddAttachmentWithoutSessionFailure() throws Exception {
+		mockMvc.perform(post("/note/{id}/attachments", 1).param("fileName", "notes.txt")
+				.contentType(MediaType.TEXT_PLAIN).content("0123456789")).andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	public void testGetAttachment() throws Exception {
+		MvcResult result = mockMvc.perform(get("/note/{id}/attachments/{attachmentId}", 1, 3).session(session))
+				.andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(header().string("Accept-Ranges", "bytes"))
+				.andExpect(content().string("0123456789"));
+	}
+
+	@Test
+	public void testGetAttachmentRange() throws Exception {
+		MvcResult result = mockMvc
+				.perform(get("/note/{id}/attachments/{attachmentId}", 1, 3).header("Range", "bytes=2-5")
+						.session(session))
+				.andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isPartialContent())
+				.andExpect(header().string("Content-Range", "bytes 2-5/10")).andExpect(content().string("2345"));
+	}
+
+	@Test
+	public void testGetAttachmentUnsatisfiableRange() throws Exception {
+		mockMvc.perform(get("/note/{id}/attachments/{attachmentId}", 1, 3).header("Range", "bytes=20-")
+				.session(session)).andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string("Content-Range", "bytes */10"));
+	}
+
+	@Test
+	public void testGetAttachmentNotFound() throws Exception {
+		when(attachmentService.getAttachmentById(4, 1, "Jhon123"))
+				.thenThrow(new AttachmentNotFoundException("AttachmentNotFoundException"));
+		mockMvc.perform(get("/note/{id}/attachments/{attachmentId}", 1, 4).session(session))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testDeleteAttachment() throws Exception {
+		when(attachmentService.deleteAttachment(3, 1, "Jhon123")).thenReturn(true);
+		mockMvc.perform(delete("/note/{id}/attachments/{attachmentId}", 1, 3).session(session))
+				.andExpect(status().isOk());
+		mockMvc.perform(delete("/note/{id}/attachments/{attachmentId}", 1, 4).session(session))
+				.andExpect(status().isNotFound());
+	}
+
+}
@@ -5,6 +5,7 @@ import static org.mockito.Mockito.verify;
 
 import static org.mockito.Mockito.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import static org.hamcrest.Matchers.hasSize;
@@ -28,6 +29,8 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.controller.CategoryController;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySuggestion;
+import com.stackroute.keepnote.model.CategorySummary;
 import com.stackroute.keepnote.model.Note;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.CategoryService;
@@ -74,6 +77,7 @@ public class CategoryControllerTest {
 
 		// Creating Category Object
 		category = new Category(1, "Testing", "All about testing spring application", new Date(), null, null);
+		category.setVersion(0);
 
 	}
 
@@ -110,7 +114,7 @@ public class CategoryControllerTest {
 	@Test
 	public void testDeleteCategorySuccess() throws Exception {
 
-		when(categoryService.deleteCategory(category.getCategoryId())).thenReturn(true);
+		when(categoryService.deleteCategory(category.getCategoryId(), "Jhon123")).thenReturn(true);
 		mockMvc.perform(delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isOk()).andDo(print());
 
@@ -119,7 +123,7 @@ public class CategoryControllerTest {
 	@Test
 	public void testDeleteCategoryFailure() throws Exception {
 
-		when(categoryService.deleteCategory(category.getCategoryId())).thenReturn(false);
+		when(categoryService.deleteCategory(category.getCategoryId(), "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON)
 				.session(session)).andExpect(status().isNotFound()).andDo(print());
 
@@ -128,7 +132,7 @@ public class CategoryControllerTest {
 	@Test
 	public void testDeleteCategoryWithoutSessionFailure() throws Exception {
 
-		when(categoryService.deleteCategory(category.getCategoryId())).thenReturn(false);
+		when(categoryService.deleteCategory(category.getCategoryId(), "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/category/{id}", category.getCategoryId()).contentType(MediaType.APPLICATION_JSON))
 				.andExpect(status().isUnauthorized()).andDo(print());
 
@@ -170,6 +174,32 @@ public class CategoryControllerTest {
 				.andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(3))).andDo(print());
 	}
 
+	@Test
+	public void testGetAllCategoriesByUserIdWithCounts() throws Exception {
+
+		List<CategorySummary> summaries = new ArrayList<CategorySummary>();
+		summaries.add(new CategorySummary(1, "Testing", "All about testing spring application", new Date(), "Jhon123",
+				0, 2));
+		summaries.add(new CategorySummary(2, "Testing-2", "All about testing spring application", new Date(),
+				"Jhon123", 0, 0));
+		when(categoryService.getCategorySummariesByUserId("Jhon123")).thenReturn(summaries);
+		mockMvc.perform(get("/category").param("withCounts", "true").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2))).andExpect(jsonPath("$[0].noteCount").value(2))
+				.andExpect(jsonPath("$[1].noteCount").value(0));
+		verify(categoryService, never()).getAllCategoryByUserId("Jhon123");
+	}
+
+	@Test
+	public void testSuggestCategories() throws Exception {
+		when(categoryService.suggestCategories("Jhon123", "tes", 10))
+				.thenReturn(Arrays.asList(new CategorySuggestion(1, "Testing"), new CategorySuggestion(2, "Testing-2")));
+		mockMvc.perform(get("/category/suggest").param("prefix", "tes").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(2))).andExpect(jsonPath("$[0].categoryName").value("Testing"));
+		mockMvc.perform(get("/category/suggest").param("prefix", "tes").param("limit", "0").session(session))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(get("/category/suggest").param("prefix", "tes")).andExpect(status().isUnauthorized());
+	}
+
 	@Test
 	public void testGetAllCategoriesByUserIdWithoutSessionFailure() throws Exception {
 
@@ -184,6 +214,15 @@ public class CategoryControllerTest {
 				.andDo(print());
 	}
 
+	@Test
+	public void testGetAllCategoryByUserIdNotModified() throws Exception {
+
+		when(categoryService.getVersionTag("Jhon123")).thenReturn("v1-0-1");
+		mockMvc.perform(get("/category").header("If-None-Match", "\"v1-0-1\"").session(session))
+				.andExpect(status().isNotModified()).andDo(print());
+		verify(categoryService, never()).getAllCategoryByUserId("Jhon123");
+	}
+
 	public static String asJsonString(final Object obj) {
 		try {
 
@@ -0,0 +1,74 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.stackroute.keepnote.controller.DeletionController;
+import com.stackroute.keepnote.exception.DeletionJobNotFoundException;
+import com.stackroute.keepnote.model.DeletionJob;
+import com.stackroute.keepnote.service.DeletionJobService;
+
+public class DeletionControllerTest {
+
+	private MockMvc mockMvc;
+	private MockHttpSession session;
+	private DeletionJob job;
+	@Mock
+	DeletionJobService deletionJobService;
+	@InjectMocks
+	DeletionController deletionController;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		mockMvc = MockMvcBuilders.standaloneSetup(deletionController).build();
+		session = new MockHttpSession();
+		session.setAttribute("loggedInUserId", "Jhon123");
+		job = new DeletionJob(DeletionJob.CATEGORY, "1", "Jhon123", new Date());
+		job.setJobId(1);
+		job.setNotesDeleted(500);
+	}
+
+	@Test
+	public void testGetDeletionJobsSuccess() throws Exception {
+		when(deletionJobService.getDeletionJobs("Jhon123")).thenReturn(Collections.singletonList(job));
+		mockMvc.perform(get("/deletion").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].targetType").value("category"))
+				.andExpect(jsonPath("$[0].notesDeleted").value(500))
+				.andExpect(jsonPath("$[0].completed").value(false));
+	}
+
+	@Test
+	public void testGetDeletionJobSuccess() throws Exception {
+		when(deletionJobService.getDeletionJobById(1, "Jhon123")).thenReturn(job);
+		mockMvc.perform(get("/deletion/1").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.jobId").value(1)).andExpect(jsonPath("$.deletedNoteIds").doesNotExist());
+	}
+
+	@Test
+	public void testGetDeletionJobFailure() throws Exception {
+		when(deletionJobService.getDeletionJobById(2, "Jhon123"))
+				.thenThrow(new DeletionJobNotFoundException("DeletionJobNotFoundException"));
+		mockMvc.perform(get("/deletion/2").session(session)).andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void testGetDeletionJobsWithoutSessionFailure() throws Exception {
+		mockMvc.perform(get("/deletion")).andExpect(status().isUnauthorized());
+	}
+
+}
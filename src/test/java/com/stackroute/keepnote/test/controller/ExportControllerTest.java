@@ -0,0 +1,117 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.keepnote.controller.ExportController;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.service.CategoryService;
+import com.stackroute.keepnote.service.NoteService;
+import com.stackroute.keepnote.service.ReminderService;
+
+public class ExportControllerTest {
+
+	private MockMvc mockMvc;
+	private MockHttpSession session;
+	@Mock
+	NoteService noteService;
+	@Mock
+	CategoryService categoryService;
+	@Mock
+	ReminderService reminderService;
+	@InjectMocks
+	ExportController exportController;
+
+	@SuppressWarnings("unchecked")
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		mockMvc = MockMvcBuilders.standaloneSetup(exportController).build();
+		session = new MockHttpSession();
+		session.setAttribute("loggedInUserId", "Jhon123");
+		Category category = new Category(1, "Testing", "All about testing", new Date(), "Jhon123", null);
+		Reminder reminder = new Reminder(2, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
+		doAnswer(invocation -> {
+			((Consumer<Category>) invocation.getArgument(1)).accept(category);
+			return null;
+		}).when(categoryService).streamCategoriesByUserId(eq("Jhon123"), any());
+		doAnswer(invocation -> {
+			((Consumer<Reminder>) invocation.getArgument(1)).accept(reminder);
+			return null;
+		}).when(reminderService).streamRemindersByUserId(eq("Jhon123"), any());
+		doAnswer(invocation -> {
+			Consumer<Note> consumer = invocation.getArgument(1);
+			consumer.accept(new Note(3, "Testing", "Live note", "Active", new Date(), category, reminder, "Jhon123"));
+			consumer.accept(new Note(4, "Testing", "Archived note", "Active", new Date(), null, null, "Jhon123"));
+			return null;
+		}).when(noteService).streamNotesByUserId(eq("Jhon123"), any());
+	}
+
+	private void assertExport(String export) throws IOException {
+		String[] lines = export.split("\n");
+		assertEquals(4, lines.length);
+		ObjectMapper mapper = new ObjectMapper();
+		JsonNode category = mapper.readTree(lines[0]);
+		assertEquals("category", category.get("type").asText());
+		assertEquals(1, category.get("data").get("categoryId").asInt());
+		assertEquals("reminder", mapper.readTree(lines[1]).get("type").asText());
+		assertEquals("Live note", mapper.readTree(lines[2]).get("data").get("noteContent").asText());
+		assertEquals("Archived note", mapper.readTree(lines[3]).get("data").get("noteContent").asText());
+		assertTrue(export.endsWith("\n"));
+	}
+
+	@Test
+	public void testExportWorkspace() throws Exception {
+		MvcResult result = mockMvc.perform(get("/export").session(session)).andExpect(request().asyncStarted())
+				.andReturn();
+		result = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(header().string("Content-Type", "application/x-ndjson"))
+				.andExpect(header().doesNotExist("Content-Encoding")).andReturn();
+		assertExport(result.getResponse().getContentAsString());
+	}
+
+	@Test
+	public void testExportWorkspaceGzip() throws Exception {
+		MvcResult result = mockMvc.perform(get("/export").header("Accept-Encoding", "gzip, deflate").session(session))
+				.andExpect(request().asyncStarted()).andReturn();
+		result = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(header().string("Content-Encoding", "gzip")).andReturn();
+		byte[] export = StreamUtils.copyToByteArray(
+				new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray())));
+		assertExport(new String(export, "UTF-8"));
+	}
+
+	@Test
+	public void testExportWorkspaceWithoutSessionFailure() throws Exception {
+		mockMvc.perform(get("/export")).andExpect(status().isUnauthorized());
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.stackroute.keepnote.controller.ImportController;
+import com.stackroute.keepnote.exception.ImportNotFoundException;
+import com.stackroute.keepnote.model.ImportCheckpoint;
+import com.stackroute.keepnote.service.ImportService;
+
+public class ImportControllerTest {
+
+	private MockMvc mockMvc;
+	private MockHttpSession session;
+	private ImportCheckpoint checkpoint;
+	@Mock
+	ImportService importService;
+	@InjectMocks
+	ImportController importController;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		mockMvc = MockMvcBuilders.standaloneSetup(importController).build();
+		session = new MockHttpSession();
+		session.setAttribute("loggedInUserId", "Jhon123");
+		checkpoint = new ImportCheckpoint("import-1", "Jhon123", new Date());
+		checkpoint.setLinesCommitted(3);
+		checkpoint.setCompleted(true);
+	}
+
+	@Test
+	public void testImportWorkspaceSuccess() throws Exception {
+		when(importService.importWorkspace(eq("Jhon123"), eq("import-1"), any())).thenReturn(checkpoint);
+		mockMvc.perform(post("/import").param("importId", "import-1").content("{}\n").session(session))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.linesCommitted").value(3))
+				.andExpect(jsonPath("$.idMappings").doesNotExist());
+	}
+
+	@Test
+	public void testImportWorkspaceInvalidLine() throws Exception {
+		when(importService.importWorkspace(eq("Jhon123"), anyString(), any()))
+				.thenThrow(new IllegalArgumentException("Line 2: unknown type"));
+		mockMvc.perform(post("/import").content("{}\n").session(session)).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void testImportWorkspaceAlreadyRunning() throws Exception {
+		when(importService.importWorkspace(eq("Jhon123"), eq("import-1"), any()))
+				.thenThrow(new ObjectOptimisticLockingFailureException(ImportCheckpoint.class, "import-1"));
+		mockMvc.perform(post("/import").param("importId", "import-1").content("{}\n").session(session))
+				.andExpect(status().isConflict());
+	}
+
+	@Test
+	public void testImportWorkspaceWithoutSessionFailure() throws Exception {
+		mockMvc.perform(post("/import").content("{}\n")).andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	public void testGetImport() throws Exception {
+		when(importService.getImportCheckpoint("import-1", "Jhon123")).thenReturn(checkpoint);
+		when(importService.getImportCheckpoint("import-2", "Jhon123"))
+				.thenThrow(new ImportNotFoundException("ImportNotFoundException"));
+		mockMvc.perform(get("/import/{importId}", "import-1").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.completed").value(true));
+		mockMvc.perform(get("/import/{importId}", "import-2").session(session)).andExpect(status().isNotFound());
+	}
+
+}
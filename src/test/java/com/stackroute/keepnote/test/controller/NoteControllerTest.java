@@ -4,6 +4,7 @@ import static org.mockito.Mockito.*;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.hamcrest.Matchers.hasSize;
@@ -17,17 +18,27 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpSession;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.controller.NoteController;
+import com.stackroute.keepnote.exception.ChangeTokenExpiredException;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteChanges;
+import com.stackroute.keepnote.model.NoteFilter;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSearchResult;
+import com.stackroute.keepnote.model.NoteSummary;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.model.User;
 import com.stackroute.keepnote.service.NoteService;
@@ -35,8 +46,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
 @RunWith(SpringRunner.class)
@@ -107,6 +122,7 @@ public class NoteControllerTest {
 
 		note = new Note(3, "Testing for Step-5", "Complete testing for step-5", "Active", new Date(), category,
 				reminder, user.getUserId());
+		note.setVersion(0);
 		allNotesByUserId.add(note);
 
 	}
@@ -140,6 +156,32 @@ public class NoteControllerTest {
 
 	}
 
+	@Test
+	public void testCreateNotesBatchSuccess() throws Exception {
+
+		List<NoteBatchResult> results = new ArrayList<NoteBatchResult>();
+		results.add(new NoteBatchResult(0, 1, 201, "Created"));
+		results.add(new NoteBatchResult(1, 2, 201, "Created"));
+		when(noteService.createNotes(any(), eq("Jhon123"))).thenReturn(results);
+		mockMvc.perform(post("/note/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(allNotesByUserId.subList(0, 2))).session(session))
+				.andExpect(status().isCreated()).andExpect(jsonPath("$", hasSize(2))).andDo(print());
+
+	}
+
+	@Test
+	public void testCreateNotesBatchPartialFailure() throws Exception {
+
+		List<NoteBatchResult> results = new ArrayList<NoteBatchResult>();
+		results.add(new NoteBatchResult(0, 1, 201, "Created"));
+		results.add(new NoteBatchResult(1, 0, 404, "Category not found"));
+		when(noteService.createNotes(any(), eq("Jhon123"))).thenReturn(results);
+		mockMvc.perform(post("/note/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(allNotesByUserId.subList(0, 2))).session(session))
+				.andExpect(status().isMultiStatus()).andExpect(jsonPath("$[1].status").value(404)).andDo(print());
+
+	}
+
 	@Test
 	public void testCreateNoteFailureWithoutSession() throws Exception {
 
@@ -152,7 +194,7 @@ public class NoteControllerTest {
 	@Test
 	public void testDeleteNoteSuccess() throws Exception {
 
-		when(noteService.deleteNote(note.getNoteId())).thenReturn(true);
+		when(noteService.deleteNote(note.getNoteId(), "Jhon123")).thenReturn(true);
 		mockMvc.perform(delete("/note/{id}", note.getNoteId()).session(session)).andExpect(status().isOk())
 				.andDo(print());
 
@@ -161,14 +203,14 @@ public class NoteControllerTest {
 	@Test
 	public void testDeleteNoteFailure() throws Exception {
 
-		when(noteService.deleteNote(1)).thenReturn(false);
+		when(noteService.deleteNote(1, "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/note/{id}", 1).session(session)).andExpect(status().isNotFound()).andDo(print());
 	}
 
 	@Test
 	public void testDeleteNoteFailureWithoutSession() throws Exception {
 
-		when(noteService.deleteNote(1)).thenReturn(false);
+		when(noteService.deleteNote(1, "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/note/{id}", 1)).andExpect(status().isUnauthorized()).andDo(print());
 	}
 
@@ -177,6 +219,7 @@ public class NoteControllerTest {
 	public void testUpdateNoteSuccess() throws Exception {
 		note = new Note(1, "Testing for Step-3", "Complete testing for step-3", "Active", new Date(), category,
 				reminder, user.getUserId());
+		note.setVersion(0);
 		note.setNoteContent("updating note card");
 		when(noteService.updateNote(any(), eq(1))).thenReturn(note);
 		mockMvc.perform(put("/note/{id}", note.getNoteId()).contentType(MediaType.APPLICATION_JSON)
@@ -192,6 +235,18 @@ public class NoteControllerTest {
 				.session(session)).andExpect(status().isNotFound()).andDo(print());
 	}
 
+	@Test
+	public void testUpdateNoteTakesNoteIdFromPathAndOwnerFromSession() throws Exception {
+		note = new Note(7, "Testing for Step-3", "Complete testing for step-3", "Active", new Date(), category,
+				reminder, "Mary123");
+		note.setVersion(0);
+		when(noteService.updateNote(any(), eq(1))).thenThrow(new NoteNotFoundException("NoteNotFoundException"));
+		mockMvc.perform(put("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON).content(asJsonString(note))
+				.session(session)).andExpect(status().isNotFound()).andDo(print());
+		verify(noteService).updateNote(argThat(sent -> sent.getNoteId() == 1 && "Jhon123".equals(sent.getCreatedBy())),
+				eq(1));
+	}
+
 	@Test
 	public void testUpdateNoteFailureWithoutSession() throws ReminderNotFoundException, Exception {
 		// when(noteService.getNoteById(5)).thenReturn(null);
@@ -210,6 +265,144 @@ public class NoteControllerTest {
 
 	}
 
+	@Test
+	public void testGetNotesPageByUserIdSuccess() throws Exception {
+
+		when(noteService.getNotesByUserId("Jhon123", null, 2))
+				.thenReturn(new NotePage(allNotesByUserId.subList(0, 2), "bjoy"));
+		mockMvc.perform(get("/note").param("limit", "2").contentType(MediaType.APPLICATION_JSON).session(session))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.notes", hasSize(2)))
+				.andExpect(jsonPath("$.nextCursor").value("bjoy")).andDo(print());
+
+	}
+
+	@Test
+	public void testStreamNotesByUserIdSuccess() throws Exception {
+
+		doAnswer(invocation -> {
+			Consumer<Note> consumer = invocation.getArgument(1);
+			allNotesByUserId.forEach(consumer);
+			return null;
+		}).when(noteService).streamNotesByUserId(eq("Jhon123"), any());
+		MvcResult result = mockMvc.perform(get("/note/stream").session(session))
+				.andExpect(request().asyncStarted()).andReturn();
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(3)))
+				.andDo(print());
+
+	}
+
+	@Test
+	public void testStreamNotesByUserIdFailureWithoutSession() throws Exception {
+
+		mockMvc.perform(get("/note/stream")).andExpect(status().isUnauthorized()).andDo(print());
+
+	}
+
+	@Test
+	public void testSearchNotesSuccess() throws Exception {
+
+		List<NoteSearchResult> results = new ArrayList<NoteSearchResult>();
+		results.add(new NoteSearchResult(2, "Testing for Step-4", 1.5));
+		when(noteService.searchNotes("Jhon123", "step", 20)).thenReturn(results);
+		mockMvc.perform(get("/note/search").param("q", "step").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1))).andExpect(jsonPath("$[0].noteId").value(2)).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNoteSummariesByUserIdSuccess() throws Exception {
+
+		List<NoteSummary> summaries = new ArrayList<NoteSummary>();
+		summaries.add(new NoteSummary(1, "Testing-1", "Active", new Date(), "Testing"));
+		when(noteService.getNoteSummariesByUserId("Jhon123")).thenReturn(summaries);
+		mockMvc.perform(get("/note/summary").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(1))).andExpect(jsonPath("$[0].categoryName").value("Testing"))
+				.andExpect(jsonPath("$[0].noteContent").doesNotExist()).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNoteSummariesByUserIdFailureWithoutSession() throws Exception {
+
+		mockMvc.perform(get("/note/summary")).andExpect(status().isUnauthorized()).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNoteChangesSuccess() throws Exception {
+
+		when(noteService.getNoteChanges("Jhon123", "dDox")).thenReturn(
+				new NoteChanges(allNotesByUserId.subList(0, 1), java.util.Arrays.asList(4), "dDoy"));
+		mockMvc.perform(get("/note/changes").param("since", "dDox").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.notes", hasSize(1))).andExpect(jsonPath("$.deletedNoteIds[0]").value(4))
+				.andExpect(jsonPath("$.nextToken").value("dDoy")).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNoteChangesWithInvalidToken() throws Exception {
+
+		when(noteService.getNoteChanges("Jhon123", "bad")).thenThrow(new IllegalArgumentException("Invalid token"));
+		mockMvc.perform(get("/note/changes").param("since", "bad").session(session))
+				.andExpect(status().isBadRequest()).andDo(print());
+
+	}
+
+	@Test
+	public void testGetNoteChangesWithExpiredToken() throws Exception {
+
+		when(noteService.getNoteChanges("Jhon123", "dDox")).thenThrow(new ChangeTokenExpiredException("expired"));
+		mockMvc.perform(get("/note/changes").param("since", "dDox").session(session)).andExpect(status().isGone())
+				.andDo(print());
+
+	}
+
+	@Test
+	public void testGetNotesByUserIdFiltered() throws Exception {
+
+		when(noteService.getNotesByUserId(eq("Jhon123"), any(NoteFilter.class)))
+				.thenReturn(allNotesByUserId.subList(0, 1));
+		mockMvc.perform(get("/note").param("status", "Active").param("from", "1000").param("categoryId", "1")
+				.session(session)).andExpect(status().isOk()).andExpect(jsonPath("$", hasSize(1))).andDo(print());
+		verify(noteService, never()).getAllNotesByUserId("Jhon123");
+
+	}
+
+	@Test
+	public void testGetNotesByUserIdWithInvalidDateRange() throws Exception {
+
+		mockMvc.perform(get("/note").param("from", "2000").param("to", "1000").session(session))
+				.andExpect(status().isBadRequest()).andDo(print());
+
+	}
+
+	@Test
+	public void testSearchNotesFailureWithoutSession() throws Exception {
+
+		mockMvc.perform(get("/note/search").param("q", "step")).andExpect(status().isUnauthorized()).andDo(print());
+
+	}
+
+	@Test
+	public void testGetAllNotesByUserIdSendsETag() throws Exception {
+
+		when(noteService.getVersionTag("Jhon123")).thenReturn("v1-0-1");
+		when(noteService.getAllNotesByUserId("Jhon123")).thenReturn(allNotesByUserId);
+		mockMvc.perform(get("/note").session(session)).andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"v1-0-1\"")).andDo(print());
+
+	}
+
+	@Test
+	public void testGetAllNotesByUserIdNotModified() throws Exception {
+
+		when(noteService.getVersionTag("Jhon123")).thenReturn("v1-0-1");
+		mockMvc.perform(get("/note").header("If-None-Match", "\"v1-0-1\"").session(session))
+				.andExpect(status().isNotModified()).andDo(print());
+		verify(noteService, never()).getAllNotesByUserId("Jhon123");
+
+	}
+
 	@Test
 	public void testGetAllNotesByUserIdFailureWithoutSession() throws Exception {
 
@@ -219,6 +412,54 @@ public class NoteControllerTest {
 
 	}
 
+	@Test
+	public void testPatchNoteSuccess() throws Exception {
+
+		note.setNoteStatus("Done");
+		when(noteService.patchNote(eq(1), eq("Jhon123"), any())).thenReturn(note);
+		mockMvc.perform(patch("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"noteStatus\":\"Done\"}").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.noteStatus").value("Done")).andDo(print());
+
+	}
+
+	@Test
+	public void testPatchNoteFailureWithInvalidField() throws Exception {
+
+		when(noteService.patchNote(eq(1), eq("Jhon123"), any()))
+				.thenThrow(new IllegalArgumentException("Field cannot be updated: createdBy"));
+		mockMvc.perform(patch("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"createdBy\":\"Mary123\"}").session(session)).andExpect(status().isBadRequest())
+				.andDo(print());
+
+	}
+
+	@Test
+	public void testUpdateNoteConflict() throws Exception {
+		note = new Note(1, "Testing for Step-3", "Complete testing for step-3", "Active", new Date(), category,
+				reminder, user.getUserId());
+		note.setVersion(2);
+		when(noteService.updateNote(any(), eq(1))).thenThrow(new ObjectOptimisticLockingFailureException(Note.class, 1));
+		mockMvc.perform(put("/note/{id}", note.getNoteId()).contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(note)).session(session)).andExpect(status().isConflict()).andDo(print());
+	}
+
+	@Test
+	public void testUpdateNoteWithoutVersionFailure() throws Exception {
+		mockMvc.perform(put("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"noteTitle\":\"Testing\",\"noteContent\":\"updating note card\",\"noteStatus\":\"Active\"}")
+				.session(session)).andExpect(status().isBadRequest()).andDo(print());
+		verify(noteService, never()).updateNote(any(), anyInt());
+	}
+
+	@Test
+	public void testPatchNoteFailureWithoutSession() throws Exception {
+
+		mockMvc.perform(patch("/note/{id}", 1).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"noteStatus\":\"Done\"}")).andExpect(status().isUnauthorized()).andDo(print());
+
+	}
+
 	public static String asJsonString(final Object obj) {
 		try {
 
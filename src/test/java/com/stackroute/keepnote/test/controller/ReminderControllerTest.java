@@ -60,6 +60,7 @@ public class ReminderControllerTest {
 		// creating Session object and setting session
 		session.setAttribute("loggedInUserId", user.getUserId());
 		reminder = new Reminder(1, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
+		reminder.setVersion(0);
 	}
 
 	@Test
@@ -86,21 +87,21 @@ public class ReminderControllerTest {
 
 	@Test
 	public void testDeleteReminderSuccess() throws Exception {
-		when(reminderService.deleteReminder(reminder.getReminderId())).thenReturn(true);
+		when(reminderService.deleteReminder(reminder.getReminderId(), "Jhon123")).thenReturn(true);
 		mockMvc.perform(delete("/reminder/{id}", reminder.getReminderId()).session(session)).andExpect(status().isOk())
 				.andDo(print());
 	}
 
 	@Test
 	public void testDeleteReminderFailure() throws Exception {
-		when(reminderService.deleteReminder(reminder.getReminderId())).thenReturn(false);
+		when(reminderService.deleteReminder(reminder.getReminderId(), "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/reminder/{id}", reminder.getReminderId()).session(session))
 				.andExpect(status().isNotFound()).andDo(print());
 	}
 
 	@Test
 	public void testDeleteReminderWithoutSessionFailure() throws Exception {
-		when(reminderService.deleteReminder(reminder.getReminderId())).thenReturn(false);
+		when(reminderService.deleteReminder(reminder.getReminderId(), "Jhon123")).thenReturn(false);
 		mockMvc.perform(delete("/reminder/{id}", reminder.getReminderId())).andExpect(status().isUnauthorized())
 				.andDo(print());
 	}
@@ -181,6 +182,15 @@ public class ReminderControllerTest {
 
 	}
 
+	@Test
+	public void testGetAllReminderByUserIdNotModified() throws Exception {
+
+		when(reminderService.getVersionTag("Jhon123")).thenReturn("v1-0-1");
+		mockMvc.perform(get("/reminder").header("If-None-Match", "\"v1-0-1\"").session(session))
+				.andExpect(status().isNotModified()).andDo(print());
+		verify(reminderService, never()).getAllReminderByUserId("Jhon123");
+	}
+
 	public static String asJsonString(final Object obj) {
 		try {
 
@@ -0,0 +1,55 @@
+package com.stackroute.keepnote.test.controller;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import com.stackroute.keepnote.controller.StatsController;
+import com.stackroute.keepnote.model.UserStats;
+import com.stackroute.keepnote.service.UserStatsService;
+
+public class StatsControllerTest {
+
+	private MockMvc mockMvc;
+	private MockHttpSession session;
+	@Mock
+	UserStatsService userStatsService;
+	@InjectMocks
+	StatsController statsController;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		mockMvc = MockMvcBuilders.standaloneSetup(statsController).build();
+		session = new MockHttpSession();
+		session.setAttribute("loggedInUserId", "Jhon123");
+	}
+
+	@Test
+	public void testGetStatsSuccess() throws Exception {
+		UserStats stats = new UserStats("Jhon123", 3, 1, 2);
+		stats.getNotesByStatus().put("Active", 2L);
+		stats.getNotesByStatus().put("Done", 1L);
+		when(userStatsService.getUserStats("Jhon123")).thenReturn(stats);
+		mockMvc.perform(get("/stats").session(session)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.noteCount").value(3)).andExpect(jsonPath("$.categoryCount").value(1))
+				.andExpect(jsonPath("$.reminderCount").value(2))
+				.andExpect(jsonPath("$.notesByStatus.Active").value(2));
+	}
+
+	@Test
+	public void testGetStatsWithoutSessionFailure() throws Exception {
+		mockMvc.perform(get("/stats")).andExpect(status().isUnauthorized());
+	}
+
+}
@@ -52,6 +52,7 @@ public class UserControllerTest {
 		mockMvc = MockMvcBuilders.standaloneSetup(userController).build();
 
 		user = new User("Jhon123", "Jhon Simon", "123456", "9872367384", new Date());
+		user.setVersion(0);
 		// Setting session attribute
 
 		session.setAttribute("loggedInUserId", user.getUserId());
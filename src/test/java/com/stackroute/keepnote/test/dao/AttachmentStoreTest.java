@@ -0,0 +1,74 @@
+package com.stackroute.keepnote.test.dao;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.stackroute.keepnote.dao.AttachmentStore;
+import com.stackroute.keepnote.exception.AttachmentTooLargeException;
+
+public class AttachmentStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+	private AttachmentStore store;
+
+	@Before
+	public void setUp() {
+		directory = folder.getRoot().toPath();
+		store = new AttachmentStore(directory, 1000);
+	}
+
+	private byte[] content(int size) {
+		byte[] content = new byte[size];
+		for (int i = 0; i < size; i++)
+			content[i] = (byte) i;
+		return content;
+	}
+
+	@Test
+	public void testReceiveStoreAndOpen() throws Exception {
+		Path upload = store.receive(new ByteArrayInputStream(content(1000)));
+		assertEquals(1000, Files.size(upload));
+		store.store(upload, 1, 7);
+		assertFalse(Files.exists(upload));
+		try (FileChannel file = store.open(1, 7)) {
+			ByteBuffer buffer = ByteBuffer.allocate(1000);
+			file.read(buffer);
+			assertArrayEquals(content(1000), buffer.array());
+		}
+	}
+
+	@Test
+	public void testReceiveTooLarge() throws IOException {
+		try {
+			store.receive(new ByteArrayInputStream(content(1001)));
+			fail("Expected AttachmentTooLargeException");
+		} catch (AttachmentTooLargeException e) {
+			assertEquals(0, directory.toFile().list().length);
+		}
+	}
+
+	@Test
+	public void testDeleteOutsideTransaction() throws Exception {
+		store.store(store.receive(new ByteArrayInputStream(content(10))), 1, 7);
+		store.store(store.receive(new ByteArrayInputStream(content(10))), 1, 8);
+		store.deleteAfterCommit(1, 7);
+		assertFalse(Files.exists(directory.resolve("1").resolve("7")));
+		store.deleteAllAfterCommit(1);
+		assertFalse(Files.exists(directory.resolve("1")));
+	}
+
+}
@@ -2,11 +2,14 @@ package com.stackroute.keepnote.test.dao;
 
 import static org.junit.Assert.*;
 
+import java.util.Date;
 import java.util.List;
 
 import javax.persistence.Query;
 import javax.transaction.Transactional;
 
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.junit.After;
 import org.junit.Before;
@@ -24,8 +27,11 @@ import org.springframework.test.context.web.WebAppConfiguration;
 import com.stackroute.keepnote.config.ApplicationContextConfig;
 import com.stackroute.keepnote.dao.CategoryDAO;
 import com.stackroute.keepnote.dao.CategoryDAOImpl;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySummary;
+import com.stackroute.keepnote.model.Note;
 
 @RunWith(SpringRunner.class)
 @Transactional
@@ -85,6 +91,13 @@ public class CategoryDAOImplTest {
 		assertEquals(false, status);
 	}
 
+	@Test
+	public void testDeleteCategoryOfOtherUserFailure() {
+		categoryDAO.createCategory(category);
+		assertEquals(false, categoryDAO.deleteCategory(category.getCategoryId(), "Mary123"));
+		assertEquals(true, categoryDAO.deleteCategory(category.getCategoryId(), "Jhon123"));
+	}
+
 	@Test
 	public void testUpdateCategory() throws CategoryNotFoundException {
 		categoryDAO.createCategory(category);
@@ -115,4 +128,99 @@ public class CategoryDAOImplTest {
 		assertEquals(3, allCategories.size());
 	}
 
+	@Test
+	public void testStreamCategoriesByUserId() {
+		categoryDAO.createCategory(category);
+		categoryDAO.createCategory(new Category(2, "Testing-2", "All about testing spring application", null,
+				"Jhon123", null));
+		categoryDAO.createCategory(new Category(3, "Testing-3", "All about testing spring application", null,
+				"Mary123", null));
+		List<Category> streamed = new java.util.ArrayList<Category>();
+		categoryDAO.streamCategoriesByUserId("Jhon123", streamed::add);
+		assertEquals(2, streamed.size());
+		assertEquals("Testing", streamed.get(0).getCategoryName());
+		assertFalse(sessionFactory.getCurrentSession().contains(streamed.get(0)));
+	}
+
+	@Test
+	public void testCategoryNotesAreReadThroughNote() {
+		Session session = sessionFactory.getCurrentSession();
+		categoryDAO.createCategory(category);
+		new NoteDAOImpl(sessionFactory).createNote(
+				new Note(1, "Testing-1", "Testing DAO layer", "Active", new Date(), category, null, "Jhon123"));
+		session.clear();
+		Category savedCategory = session.get(Category.class, category.getCategoryId());
+		assertFalse(Hibernate.isInitialized(savedCategory.getNotes()));
+		assertEquals(1, savedCategory.getNotes().size());
+		assertEquals("Testing-1", savedCategory.getNotes().get(0).getNoteTitle());
+		session.createQuery("DELETE from Note").executeUpdate();
+	}
+
+	@Test
+	public void testGetCategorySummariesByUserId() {
+		Session session = sessionFactory.getCurrentSession();
+		categoryDAO.createCategory(category);
+		Category empty = new Category(2, "Testing-2", "All about testing spring application", null, "Jhon123", null);
+		categoryDAO.createCategory(empty);
+		NoteDAOImpl noteDAO = new NoteDAOImpl(sessionFactory);
+		for (int i = 1; i <= 2; i++)
+			noteDAO.createNote(new Note(i, "Testing-" + i, "Testing DAO layer", "Active", new Date(), category, null,
+					"Jhon123"));
+
+		List<CategorySummary> summaries = categoryDAO.getCategorySummariesByUserId("Jhon123");
+		assertEquals(2, summaries.size());
+		assertEquals(2, summaries.get(0).getNoteCount());
+		assertEquals("Testing-2", summaries.get(1).getCategoryName());
+		assertEquals(0, summaries.get(1).getNoteCount());
+		session.createQuery("DELETE from Note").executeUpdate();
+	}
+
+	@Test
+	public void testGetExistingCategoryIds() {
+		categoryDAO.createCategory(category);
+		List<Integer> existing = categoryDAO.getExistingCategoryIds(
+				java.util.Arrays.asList(category.getCategoryId(), category.getCategoryId() + 1000), "Jhon123");
+		assertEquals(1, existing.size());
+		assertEquals(category.getCategoryId(), existing.get(0).intValue());
+		assertTrue(categoryDAO.getExistingCategoryIds(java.util.Arrays.asList(category.getCategoryId()), "Mary123")
+				.isEmpty());
+	}
+
+	@Test
+	public void testPatchCategory() throws CategoryNotFoundException {
+		categoryDAO.createCategory(category);
+		Category patchedCategory = categoryDAO.patchCategory(category.getCategoryId(), "Jhon123",
+				managed -> managed.setCategoryDescription("Testing DAO layer in spring MVC"));
+		assertEquals("Testing DAO layer in spring MVC", patchedCategory.getCategoryDescription());
+		assertEquals("Testing", categoryDAO.getCategoryById(category.getCategoryId()).getCategoryName());
+	}
+
+	@Test
+	public void testGetCategoryByIdIsCachedUntilUpdate() throws CategoryNotFoundException {
+		CategoryDAOImpl cachedCategoryDAO = new CategoryDAOImpl(sessionFactory);
+		cachedCategoryDAO.createCategory(category);
+		cachedCategoryDAO.getCategoryById(category.getCategoryId());
+		cachedCategoryDAO.getCategoryById(category.getCategoryId());
+		assertEquals(1, cachedCategoryDAO.getCache().getMissCount());
+		assertEquals(1, cachedCategoryDAO.getCache().getHitCount());
+
+		category.setCategoryDescription("Testing DAO layer in spring MVC");
+		cachedCategoryDAO.updateCategory(category);
+		Category savedCategory = cachedCategoryDAO.getCategoryById(category.getCategoryId());
+		assertEquals("Testing DAO layer in spring MVC", savedCategory.getCategoryDescription());
+		assertEquals(2, cachedCategoryDAO.getCache().getMissCount());
+	}
+
+	@Test
+	public void testCachedCategoryIsNotSharedBetweenCallers() throws CategoryNotFoundException {
+		CategoryDAOImpl cachedCategoryDAO = new CategoryDAOImpl(sessionFactory);
+		cachedCategoryDAO.createCategory(category);
+		cachedCategoryDAO.getCategoryById(category.getCategoryId());
+		Category first = cachedCategoryDAO.getCategoryById(category.getCategoryId());
+		first.setCategoryName("Changed by the caller");
+		Category second = cachedCategoryDAO.getCategoryById(category.getCategoryId());
+		assertNotSame(first, second);
+		assertEquals("Testing", second.getCategoryName());
+	}
+
 }
@@ -0,0 +1,139 @@
+package com.stackroute.keepnote.test.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.transaction.Transactional;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.CategoryDAOImpl;
+import com.stackroute.keepnote.dao.DeletionJobDAO;
+import com.stackroute.keepnote.dao.DeletionJobDAOImpl;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.dao.ReminderDAOImpl;
+import com.stackroute.keepnote.dao.UserDAO;
+import com.stackroute.keepnote.dao.UserDaoImpl;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.DeletionJob;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.User;
+
+@RunWith(SpringRunner.class)
+@Transactional
+@WebAppConfiguration
+@ContextConfiguration(classes = { ApplicationContextConfig.class })
+@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class, TransactionalTestExecutionListener.class })
+public class DeletionJobDAOImplTest {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+	private DeletionJobDAO deletionJobDAO;
+	private CategoryDAO categoryDAO;
+	private NoteDAO noteDAO;
+	private Category category;
+
+	@Before
+	public void setUp() throws Exception {
+		deletionJobDAO = new DeletionJobDAOImpl(sessionFactory);
+		categoryDAO = new CategoryDAOImpl(sessionFactory);
+		noteDAO = new NoteDAOImpl(sessionFactory);
+		category = new Category(1, "Testing", "All about testing spring application", null, "Jhon123", null);
+	}
+
+	private long count(String entity, String condition, Object value) {
+		return sessionFactory.getCurrentSession()
+				.createQuery("select count(*) FROM " + entity + " row where row." + condition + " = :value", Long.class)
+				.setParameter("value", value).getSingleResult();
+	}
+
+	@Test
+	public void testDeleteCategoryInChunks() {
+		categoryDAO.createCategory(category);
+		for (int i = 1; i <= 3; i++)
+			noteDAO.createNote(new Note(i, "Testing-" + i, "Testing DAO layer", "Active", new Date(), category, null,
+					"Jhon123"));
+		assertTrue(categoryDAO.deleteCategory(category.getCategoryId(), "Jhon123"));
+		assertTrue(categoryDAO.getAllCategoryByUserId("Jhon123").isEmpty());
+		assertFalse(categoryDAO.deleteCategory(category.getCategoryId(), "Jhon123"));
+
+		List<DeletionJob> jobs = deletionJobDAO.getJobsByUserId("Jhon123");
+		assertEquals(1, jobs.size());
+		int jobId = jobs.get(0).getJobId();
+		DeletionJob job = deletionJobDAO.deleteNextChunk(jobId, 2);
+		assertEquals(2, job.getDeletedNoteIds().size());
+		assertFalse(job.isCompleted());
+		job = deletionJobDAO.deleteNextChunk(jobId, 2);
+		assertEquals(1, job.getDeletedNoteIds().size());
+		assertTrue(job.getDeletedCategoryIds().isEmpty());
+		job = deletionJobDAO.deleteNextChunk(jobId, 2);
+		assertTrue(job.isCompleted());
+		assertEquals(java.util.Arrays.asList(category.getCategoryId()), job.getDeletedCategoryIds());
+		assertEquals(3, job.getNotesDeleted());
+		assertEquals(1, job.getCategoriesDeleted());
+		assertEquals(0, count("Note", "createdBy", "Jhon123"));
+		assertEquals(0, count("Category", "categoryId", category.getCategoryId()));
+		assertEquals(3, count("NoteTombstone", "createdBy", "Jhon123"));
+		assertTrue(deletionJobDAO.getUnfinishedJobs().isEmpty());
+	}
+
+	@Test
+	public void testDeleteUserInChunks() {
+		UserDAO userDAO = new UserDaoImpl(sessionFactory);
+		userDAO.registerUser(new User("Jhon123", "Jhon Simon", "123456", "9898989898", new Date()));
+		categoryDAO.createCategory(category);
+		new ReminderDAOImpl(sessionFactory).createReminder(
+				new Reminder(1, "Email", "Email reminder", "email", "Jhon123", null, new Date()));
+		noteDAO.createNote(new Note(1, "Testing-1", "Testing DAO layer", "Active", new Date(), category, null,
+				"Jhon123"));
+		assertTrue(userDAO.deleteUser("Jhon123"));
+		assertNull(userDAO.getUserById("Jhon123"));
+
+		int jobId = deletionJobDAO.getJobsByUserId("Jhon123").get(0).getJobId();
+		DeletionJob job;
+		int chunks = 0;
+		List<Integer> reminderIds = new java.util.ArrayList<Integer>();
+		do {
+			job = deletionJobDAO.deleteNextChunk(jobId, 10);
+			reminderIds.addAll(job.getDeletedReminderIds());
+			chunks++;
+		} while (!job.isCompleted());
+		assertEquals(java.util.Arrays.asList(1), reminderIds);
+		assertEquals(4, chunks);
+		assertEquals(1, job.getNotesDeleted());
+		assertEquals(1, job.getRemindersDeleted());
+		assertEquals(1, job.getCategoriesDeleted());
+		Session session = sessionFactory.getCurrentSession();
+		session.clear();
+		assertEquals(0, count("User", "userId", "Jhon123"));
+		assertEquals(0, count("Reminder", "reminderCreatedBy", "Jhon123"));
+		assertEquals(0, count("UserStats", "userId", "Jhon123"));
+	}
+
+	@Test
+	public void testGetJobOfOtherUserFailure() {
+		categoryDAO.createCategory(category);
+		categoryDAO.deleteCategory(category.getCategoryId(), "Jhon123");
+		int jobId = deletionJobDAO.getJobsByUserId("Jhon123").get(0).getJobId();
+		assertNotNull(deletionJobDAO.getJobById(jobId, "Jhon123"));
+		assertNull(deletionJobDAO.getJobById(jobId, "Mary123"));
+	}
+
+}
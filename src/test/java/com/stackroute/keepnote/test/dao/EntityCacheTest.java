@@ -0,0 +1,99 @@
+package com.stackroute.keepnote.test.dao;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.dao.EntityCache;
+
+public class EntityCacheTest {
+
+	private EntityCache<Integer, String> cache;
+	private int loads;
+
+	@Before
+	public void setUp() {
+		cache = new EntityCache<Integer, String>("test", 3, 1000, value -> value.length());
+		loads = 0;
+	}
+
+	private String load(String value) {
+		loads++;
+		return value;
+	}
+
+	@Test
+	public void testGetLoadsOnceAndCountsHits() {
+		assertEquals("one", cache.get(1, () -> load("one")));
+		assertEquals("one", cache.get(1, () -> load("other")));
+		assertEquals(1, loads);
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testNullIsNotCached() {
+		assertNull(cache.get(1, () -> load(null)));
+		assertNull(cache.get(1, () -> load(null)));
+		assertEquals(2, loads);
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testInvalidateForcesReload() {
+		cache.get(1, () -> load("one"));
+		cache.invalidate(1);
+		assertEquals("new", cache.get(1, () -> load("new")));
+		assertEquals(2, loads);
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsedEntry() {
+		cache.get(1, () -> "one");
+		cache.get(2, () -> "two");
+		cache.get(3, () -> "three");
+		cache.get(1, () -> "one");
+		cache.get(4, () -> "four");
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals("two-reloaded", cache.get(2, () -> "two-reloaded"));
+		assertEquals("one", cache.get(1, () -> "one-reloaded"));
+	}
+
+	@Test
+	public void testEvictsByWeight() {
+		cache = new EntityCache<Integer, String>("test", 100, 10, value -> value.length());
+		cache.get(1, () -> "aaaa");
+		cache.get(2, () -> "bbbb");
+		cache.get(3, () -> "cccc");
+		assertEquals(2, cache.size());
+		assertEquals(8, cache.getWeight());
+		cache.get(4, () -> "an entry heavier than the whole cache");
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testCopierKeepsCachedValueFromCallers() {
+		EntityCache<Integer, StringBuilder> copies = new EntityCache<Integer, StringBuilder>("test", 3, 1000,
+				value -> value.length(), StringBuilder::new);
+		StringBuilder loaded = new StringBuilder("one");
+		assertSame(loaded, copies.get(1, () -> loaded));
+		loaded.append("-changed");
+		StringBuilder hit = copies.get(1, () -> new StringBuilder("other"));
+		assertEquals("one", hit.toString());
+		hit.append("-changed");
+		assertEquals("one", copies.get(1, () -> new StringBuilder("other")).toString());
+	}
+
+	@Test
+	public void testValueLoadedDuringInvalidationIsNotCached() {
+		cache.get(1, () -> {
+			cache.invalidate(1);
+			return load("stale");
+		});
+		assertEquals("fresh", cache.get(1, () -> load("fresh")));
+		assertEquals(2, loads);
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.stackroute.keepnote.test.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.dao.ImportDAO;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.ImportCheckpoint;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.UserStats;
+
+/*
+ * importChunk commits on a connection of its own, so this test runs outside of
+ * a test transaction, on the ImportDAO bean, and cleans up after itself.
+ */
+@RunWith(SpringRunner.class)
+@WebAppConfiguration
+@ContextConfiguration(classes = { ApplicationContextConfig.class })
+@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class })
+public class ImportDAOImplTest {
+
+	private static final String USER_ID = "Importer123";
+	private static final String IMPORT_ID = "import-dao-test";
+
+	@Autowired
+	private SessionFactory sessionFactory;
+	@Autowired
+	private ImportDAO importDAO;
+
+	@Before
+	public void setUp() {
+		importDAO.createCheckpoint(new ImportCheckpoint(IMPORT_ID, USER_ID, new Date()));
+	}
+
+	@After
+	public void tearDown() {
+		try (Session session = sessionFactory.openSession()) {
+			session.beginTransaction();
+			session.createQuery("DELETE from Note where createdBy = :userId").setParameter("userId", USER_ID)
+					.executeUpdate();
+			session.createQuery("DELETE from Reminder where reminderCreatedBy = :userId")
+					.setParameter("userId", USER_ID).executeUpdate();
+			session.createQuery("DELETE from Category where categoryCreatedBy = :userId")
+					.setParameter("userId", USER_ID).executeUpdate();
+			session.createQuery("DELETE from ImportCheckpoint where importId = :importId")
+					.setParameter("importId", IMPORT_ID).executeUpdate();
+			session.createNativeQuery("DELETE FROM UserStats WHERE userId = :userId").setParameter("userId", USER_ID)
+					.executeUpdate();
+			session.getTransaction().commit();
+		}
+	}
+
+	/*
+	 * A category, a reminder and a note referring to both by their exported ids.
+	 */
+	private static List<Object> rows() {
+		Category category = new Category(7, "Imported", "Imported category", new Date(), null, null);
+		Reminder reminder = new Reminder(8, "Email", "Imported reminder", "notification", null, null, new Date());
+		List<Object> rows = new ArrayList<Object>();
+		rows.add(category);
+		rows.add(reminder);
+		rows.add(new Note(9, "Imported-1", "Imported note", "Active", new Date(), new Category(7, null, null, null,
+				null, null), new Reminder(8, null, null, null, null, null, null), null));
+		return rows;
+	}
+
+	private long count(String entity, String owner) {
+		try (Session session = sessionFactory.openSession()) {
+			return session.createQuery("select count(*) FROM " + entity + " row where row." + owner + " = :userId",
+					Long.class).setParameter("userId", USER_ID).getSingleResult();
+		}
+	}
+
+	@Test
+	public void testFailedChunkIsRolledBackAndResumed() {
+		ImportCheckpoint stale = importDAO.getCheckpoint(IMPORT_ID);
+		ImportCheckpoint concurrent = importDAO.getCheckpoint(IMPORT_ID);
+		importDAO.importChunk(concurrent, new ArrayList<Object>());
+
+		/* the rows are inserted before the checkpoint is found to be stale */
+		stale.setLinesCommitted(3);
+		try {
+			importDAO.importChunk(stale, rows());
+			fail("A chunk with a stale checkpoint must fail");
+		} catch (ObjectOptimisticLockingFailureException e) {
+			/* expected */
+		}
+		assertEquals(0, count("Category", "categoryCreatedBy"));
+		assertEquals(0, count("Reminder", "reminderCreatedBy"));
+		assertEquals(0, count("Note", "createdBy"));
+		ImportCheckpoint resumed = importDAO.getCheckpoint(IMPORT_ID);
+		assertEquals(0, resumed.getLinesCommitted());
+		assertTrue(resumed.getCategoryIds().isEmpty());
+		try (Session session = sessionFactory.openSession()) {
+			UserStats stats = session.get(UserStats.class, USER_ID);
+			assertTrue(stats == null || stats.getNoteCount() == 0 && stats.getCategoryCount() == 0
+					&& stats.getReminderCount() == 0);
+		}
+
+		resumed.setLinesCommitted(3);
+		importDAO.importChunk(resumed, rows());
+		assertEquals(1, count("Category", "categoryCreatedBy"));
+		assertEquals(1, count("Reminder", "reminderCreatedBy"));
+		assertEquals(1, count("Note", "createdBy"));
+		try (Session session = sessionFactory.openSession()) {
+			Note note = session.createQuery("FROM Note note where note.createdBy = :userId", Note.class)
+					.setParameter("userId", USER_ID).getSingleResult();
+			assertEquals(resumed.getCategoryIds().get(7).intValue(), note.getCategory().getCategoryId());
+			assertEquals(resumed.getReminderIds().get(8).intValue(), note.getReminder().getReminderId());
+			UserStats stats = session.get(UserStats.class, USER_ID);
+			assertEquals(1, stats.getNoteCount());
+			assertEquals(1, stats.getCategoryCount());
+			assertEquals(1, stats.getReminderCount());
+		}
+		assertEquals(3, importDAO.getCheckpoint(IMPORT_ID).getLinesCommitted());
+	}
+
+}
@@ -0,0 +1,145 @@
+package com.stackroute.keepnote.test.dao;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.stackroute.keepnote.dao.NoteArchive;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+
+public class NoteArchiveTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Path directory;
+	private NoteArchive archive;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = folder.getRoot().toPath();
+		archive = new NoteArchive(directory, 4096);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		archive.close();
+	}
+
+	private Note note(int noteId, String createdBy) {
+		Category category = new Category(1, "Testing", "All about testing", new Date(), createdBy, null);
+		return new Note(noteId, "Testing-" + noteId, "Archived content of note " + noteId, "Active", new Date(1000),
+				category, null, createdBy);
+	}
+
+	@Test
+	public void testAppendAndGet() {
+		archive.append(Arrays.asList(note(1, "Jhon123"), note(2, "Mary123")));
+		Note archived = archive.get(1);
+		assertEquals("Archived content of note 1", archived.getNoteContent());
+		assertEquals("Jhon123", archived.getCreatedBy());
+		assertEquals(1, archived.getCategory().getCategoryId());
+		assertNull(archive.get(3));
+	}
+
+	@Test
+	public void testGetNotesByUserId() {
+		archive.append(Arrays.asList(note(3, "Jhon123"), note(1, "Jhon123"), note(2, "Mary123")));
+		List<Note> notes = archive.getNotesByUserId("Jhon123");
+		assertEquals(2, notes.size());
+		assertEquals(1, notes.get(0).getNoteId());
+		assertEquals(3, notes.get(1).getNoteId());
+		assertTrue(archive.getNotesByUserId("Nobody").isEmpty());
+		assertEquals(Arrays.asList(1, 3), archive.getNoteIdsByUserId("Jhon123"));
+	}
+
+	@Test
+	public void testIndexIsRebuiltWhenReopened() throws IOException {
+		for (int i = 1; i <= 100; i++)
+			archive.append(Arrays.asList(note(i, "Jhon123")));
+		assertTrue(Files.list(directory).filter(file -> file.toString().endsWith(".seg")).count() > 1);
+		archive.close();
+
+		archive = new NoteArchive(directory, 4096);
+		assertEquals(100, archive.size());
+		assertEquals("Testing-57", archive.get(57).getNoteTitle());
+		archive.append(Arrays.asList(note(101, "Jhon123")));
+		assertEquals(101, archive.getNotesByUserId("Jhon123").size());
+	}
+
+	@Test
+	public void testDeleteIsKeptWhenReopened() throws IOException {
+		archive.append(Arrays.asList(note(1, "Jhon123"), note(2, "Jhon123")));
+		assertFalse(archive.delete(1, "Mary123"));
+		assertTrue(archive.delete(1, "Jhon123"));
+		assertNull(archive.get(1));
+		archive.close();
+
+		archive = new NoteArchive(directory, 4096);
+		assertNull(archive.get(1));
+		assertNotNull(archive.get(2));
+	}
+
+	@Test
+	public void testNoteArchivedAgainAfterDeleteIsKeptWhenReopened() throws IOException {
+		archive.append(Arrays.asList(note(1, "Jhon123")));
+		assertTrue(archive.delete(1, "Jhon123"));
+		Note restored = note(1, "Jhon123");
+		restored.setNoteTitle("Archived again");
+		archive.append(Arrays.asList(restored));
+		archive.close();
+
+		archive = new NoteArchive(directory, 4096);
+		assertEquals("Archived again", archive.get(1).getNoteTitle());
+		assertEquals(Arrays.asList(1), archive.getNoteIdsByUserId("Jhon123"));
+	}
+
+	@Test
+	public void testDeletionLogOfEarlierVersionIsConverted() throws IOException {
+		archive.append(Arrays.asList(note(1, "Jhon123"), note(2, "Jhon123")));
+		archive.close();
+		Files.write(directory.resolve("deleted.log"), ByteBuffer.allocate(4).putInt(0, 1).array());
+
+		archive = new NoteArchive(directory, 4096);
+		assertNull(archive.get(1));
+		assertFalse(Files.exists(directory.resolve("deleted.log")));
+		archive.append(Arrays.asList(note(1, "Jhon123")));
+		archive.close();
+
+		archive = new NoteArchive(directory, 4096);
+		assertNotNull(archive.get(1));
+		assertNotNull(archive.get(2));
+	}
+
+	@Test
+	public void testTornRecordIsCutOff() throws IOException {
+		archive.append(Arrays.asList(note(1, "Jhon123"), note(2, "Jhon123")));
+		archive.close();
+		Path segment = directory.resolve("segment-000001.seg");
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 3);
+		}
+
+		archive = new NoteArchive(directory, 4096);
+		assertNotNull(archive.get(1));
+		assertNull(archive.get(2));
+		archive.append(Arrays.asList(note(3, "Jhon123")));
+		assertEquals("Testing-3", archive.get(3).getNoteTitle());
+	}
+
+}
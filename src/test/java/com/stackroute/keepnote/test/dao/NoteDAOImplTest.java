@@ -6,12 +6,16 @@ import java.util.List;
 
 import javax.persistence.Query;
 import javax.transaction.Transactional;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.TestExecutionListeners;
@@ -21,10 +25,18 @@ import org.springframework.test.context.transaction.TransactionalTestExecutionLi
 import org.springframework.test.context.web.WebAppConfiguration;
 
 import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.dao.NoteArchive;
 import com.stackroute.keepnote.dao.NoteDAO;
 import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.exception.ChangeTokenExpiredException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBody;
+import com.stackroute.keepnote.model.NoteChanges;
+import com.stackroute.keepnote.model.NoteFilter;
+import com.stackroute.keepnote.model.NoteSummary;
+import com.stackroute.keepnote.model.Reminder;
 
 @RunWith(SpringRunner.class)
 @Transactional
@@ -83,6 +95,15 @@ public class NoteDAOImplTest {
 
 	}
 
+	@Test
+	public void testDeleteNoteOfOtherUserFailure() {
+
+		noteDAO.createNote(note);
+		assertEquals(false, noteDAO.deleteNote(note.getNoteId(), "Mary123"));
+		assertEquals(true, noteDAO.deleteNote(note.getNoteId(), "Jhon123"));
+
+	}
+
 	@Test
 	public void testGetAllNotesByUserId() throws NoteNotFoundException {
 		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
@@ -97,6 +118,211 @@ public class NoteDAOImplTest {
 		noteDAO.deleteNote(note3.getNoteId());
 	}
 
+	@Test
+	public void testGetNoteSummariesByUserId() {
+		Category category = new Category(1, "Testing", "All about testing spring application", null, "Jhon123", null);
+		sessionFactory.getCurrentSession().save(category);
+		note.setCategory(category);
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		List<NoteSummary> summaries = noteDAO.getNoteSummariesByUserId("Jhon123");
+		assertEquals(2, summaries.size());
+		assertEquals("Testing-1", summaries.get(0).getNoteTitle());
+		assertEquals("Testing", summaries.get(0).getCategoryName());
+		assertNull(summaries.get(1).getCategoryName());
+	}
+
+	@Test
+	public void testNoteListsRunOneQuery() {
+		Session session = sessionFactory.getCurrentSession();
+		for (int i = 1; i <= 3; i++) {
+			Category category = new Category(i, "Testing-" + i, "All about testing", null, "Jhon123", null);
+			Reminder reminder = new Reminder(i, "Email-" + i, "Email reminder", "notification", "Jhon123", null,
+					new Date());
+			session.save(category);
+			session.save(reminder);
+			noteDAO.createNote(new Note(i, "Testing-" + i, "Testing Service layer", "Active", new Date(), category,
+					reminder, "Jhon123"));
+		}
+		session.flush();
+		session.clear();
+
+		Statistics statistics = sessionFactory.getStatistics();
+		boolean statisticsEnabled = statistics.isStatisticsEnabled();
+		statistics.setStatisticsEnabled(true);
+		try {
+			statistics.clear();
+			List<Note> notes = noteDAO.getAllNotesByUserId("Jhon123");
+			assertEquals(3, notes.size());
+			assertEquals(1, statistics.getPrepareStatementCount());
+
+			session.clear();
+			statistics.clear();
+			notes = noteDAO.getNotesByUserIdAfter("Jhon123", 0, 10);
+			assertEquals("Testing-3", notes.get(2).getReminder().getReminderName());
+			assertEquals(1, statistics.getPrepareStatementCount());
+
+			session.clear();
+			statistics.clear();
+			noteDAO.streamNotesByUserId("Jhon123", streamed -> streamed.getCategory().getCategoryName());
+			assertEquals(1, statistics.getPrepareStatementCount());
+		} finally {
+			statistics.setStatisticsEnabled(statisticsEnabled);
+		}
+	}
+
+	@Test
+	public void testGetChangesSince() throws ChangeTokenExpiredException {
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		long since = noteDAO.getNoteChanges("Jhon123", -1).getLastChangeSeq();
+		assertEquals(note2.getChangeSeq(), since);
+		note.setNoteContent("Changed after the token");
+		noteDAO.UpdateNote(note);
+		noteDAO.deleteNote(note2.getNoteId(), "Jhon123");
+
+		NoteChanges changes = noteDAO.getNoteChanges("Jhon123", since);
+		assertEquals(1, changes.getNotes().size());
+		assertEquals(note.getNoteId(), changes.getNotes().get(0).getNoteId());
+		assertEquals(java.util.Arrays.asList(note2.getNoteId()), changes.getDeletedNoteIds());
+		assertEquals(since + 2, changes.getLastChangeSeq());
+		changes = noteDAO.getNoteChanges("Jhon123", changes.getLastChangeSeq());
+		assertTrue(changes.getNotes().isEmpty());
+		assertTrue(changes.getDeletedNoteIds().isEmpty());
+	}
+
+	@Test
+	public void testChangesOfPrunedTombstonesExpire() throws ChangeTokenExpiredException {
+		noteDAO.createNote(note);
+		long since = noteDAO.getNoteChanges("Jhon123", -1).getLastChangeSeq();
+		noteDAO.deleteNote(note.getNoteId(), "Jhon123");
+		assertTrue(noteDAO.pruneTombstonesOlderThan(System.currentTimeMillis() + 1, Integer.MAX_VALUE) >= 1);
+		try {
+			noteDAO.getNoteChanges("Jhon123", since);
+			fail("A token from before a pruned tombstone must expire");
+		} catch (ChangeTokenExpiredException e) {
+			/* expected */
+		}
+		assertTrue(noteDAO.getNoteChanges("Jhon123", since + 1).getDeletedNoteIds().isEmpty());
+		try {
+			noteDAO.getNoteChanges("Jhon123", since + 2);
+			fail("A token ahead of the sequence must expire");
+		} catch (ChangeTokenExpiredException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testGetNotesByUserIdFiltered() {
+		Category category = new Category(1, "Testing", "All about testing spring application", null, "Jhon123", null);
+		sessionFactory.getCurrentSession().save(category);
+		note.setCategory(category);
+		note.setNoteCreatedAt(new Date(1000000));
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Done", new Date(2000000), null, null, "Jhon123");
+		Note note3 = new Note(3, "Testing-3", "Testing Service layer", "Active", new Date(3000000), null, null, "Jhon123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		noteDAO.createNote(note3);
+
+		NoteFilter filter = new NoteFilter("Active", null, null, null, null);
+		assertEquals(2, noteDAO.getNotesByUserIdFiltered("Jhon123", filter, 0, 0).size());
+		filter = new NoteFilter(null, new Date(2000000), new Date(3000000), null, null);
+		List<Note> notes = noteDAO.getNotesByUserIdFiltered("Jhon123", filter, 0, 0);
+		assertEquals(1, notes.size());
+		assertEquals("Testing-2", notes.get(0).getNoteTitle());
+		filter = new NoteFilter("Active", null, null, category.getCategoryId(), null);
+		notes = noteDAO.getNotesByUserIdFiltered("Jhon123", filter, 0, 0);
+		assertEquals(1, notes.size());
+		assertEquals("Testing-1", notes.get(0).getNoteTitle());
+		filter = new NoteFilter("Active", null, null, null, null);
+		assertEquals(1, noteDAO.getNotesByUserIdFiltered("Jhon123", filter, note.getNoteId(), 1).size());
+		assertTrue(noteDAO.getNotesByUserIdFiltered("Mary123", filter, 0, 0).isEmpty());
+	}
+
+	@Test
+	public void testGetNoteByIdFallsThroughToArchive() throws NoteNotFoundException, java.io.IOException {
+		NoteArchive archive = new NoteArchive(java.nio.file.Files.createTempDirectory("keepnote-archive"));
+		NoteDAO archivingNoteDAO = new NoteDAOImpl(sessionFactory, archive);
+		note.setNoteCreatedAt(new Date(1000));
+		archivingNoteDAO.createNote(note);
+		sessionFactory.getCurrentSession().createQuery("update Note note set note.lastModified = 1000")
+				.executeUpdate();
+
+		List<Note> archived = archivingNoteDAO.archiveNotesOlderThan(new Date(2000), 0, 10);
+		assertEquals(1, archived.size());
+		List<Note> notes = archivingNoteDAO.getAllNotesByUserId("Jhon123");
+		assertEquals(1, notes.size());
+		assertEquals(note.getNoteId(), notes.get(0).getNoteId());
+		assertEquals("Testing-1", archivingNoteDAO.getNoteById(note.getNoteId()).getNoteTitle());
+		List<Note> streamed = new java.util.ArrayList<Note>();
+		archivingNoteDAO.streamNotesByUserId("Jhon123", streamed::add);
+		assertEquals(1, streamed.size());
+		assertEquals(note.getNoteId(), streamed.get(0).getNoteId());
+		assertFalse(archivingNoteDAO.deleteNote(note.getNoteId(), "Mary123"));
+		assertTrue(archivingNoteDAO.deleteNote(note.getNoteId(), "Jhon123"));
+		/* the test transaction never commits, so the archive keeps the note */
+		assertNotNull(archive.get(note.getNoteId()));
+		archive.close();
+	}
+
+	@Test
+	public void testPatchOfArchivedNoteRestoresIt() throws NoteNotFoundException, java.io.IOException {
+		NoteArchive archive = new NoteArchive(java.nio.file.Files.createTempDirectory("keepnote-archive"));
+		NoteDAO archivingNoteDAO = new NoteDAOImpl(sessionFactory, archive);
+		note.setNoteCreatedAt(new Date(1000));
+		archivingNoteDAO.createNote(note);
+		sessionFactory.getCurrentSession().createQuery("update Note note set note.lastModified = 1000")
+				.executeUpdate();
+		assertEquals(1, archivingNoteDAO.archiveNotesOlderThan(new Date(2000), 0, 10).size());
+
+		Note patched = archivingNoteDAO.patchNote(note.getNoteId(), "Jhon123",
+				changes -> changes.setNoteTitle("Testing-2"));
+		assertEquals(note.getNoteId(), patched.getNoteId());
+		long count = sessionFactory.getCurrentSession()
+				.createQuery("select count(*) FROM Note note where note.noteId = :noteId", Long.class)
+				.setParameter("noteId", note.getNoteId()).getSingleResult();
+		assertEquals(1, count);
+		List<Note> notes = archivingNoteDAO.getAllNotesByUserId("Jhon123");
+		assertEquals(1, notes.size());
+		assertEquals("Testing-2", notes.get(0).getNoteTitle());
+		archive.close();
+	}
+
+	@Test
+	public void testCreateNotes() throws NoteNotFoundException {
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNotes(java.util.Arrays.asList(note, note2));
+		List<Note> notes = noteDAO.getAllNotesByUserId("Jhon123");
+		assertEquals(2, notes.size());
+		noteDAO.deleteNote(note.getNoteId());
+		noteDAO.deleteNote(note2.getNoteId());
+	}
+
+	@Test(expected = DataIntegrityViolationException.class)
+	public void testCreateNotesRejectedByDatabaseIsTranslated() {
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, null);
+		noteDAO.createNotes(java.util.Arrays.asList(note, note2));
+	}
+
+	@Test
+	public void testGetNotesByUserIdAfter() throws NoteNotFoundException {
+		Note note2 = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		Note note3 = new Note(3, "Testing-3", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(note2);
+		noteDAO.createNote(note3);
+		List<Note> firstPage = noteDAO.getNotesByUserIdAfter("Jhon123", 0, 2);
+		assertEquals(2, firstPage.size());
+		List<Note> secondPage = noteDAO.getNotesByUserIdAfter("Jhon123", firstPage.get(1).getNoteId(), 2);
+		assertEquals(1, secondPage.size());
+		assertEquals("Testing-3", secondPage.get(0).getNoteTitle());
+		noteDAO.deleteNote(note.getNoteId());
+		noteDAO.deleteNote(note2.getNoteId());
+		noteDAO.deleteNote(note3.getNoteId());
+	}
+
 	@Test
 	@Rollback(true)
 	public void testGetNoteById() throws NoteNotFoundException {
@@ -135,4 +361,64 @@ public class NoteDAOImplTest {
 
 	}
 
+	@Test
+	@Rollback(true)
+	public void testUpdateNoteOfOtherUserFailure() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		sessionFactory.getCurrentSession().evict(note);
+		Note takeover = new Note(note.getNoteId(), "Taken", "Taken over", "Active", new Date(), null, null, "Mary123");
+		takeover.setVersion(note.getVersion());
+		assertEquals(false, noteDAO.UpdateNote(takeover));
+		Note stored = noteDAO.getNoteById(note.getNoteId());
+		assertEquals("Jhon123", stored.getCreatedBy());
+		assertEquals("Testing Service layer", stored.getNoteContent());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testPatchNote() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		Note patchedNote = noteDAO.patchNote(note.getNoteId(), "Jhon123", managed -> managed.setNoteStatus("Done"));
+		assertEquals("Done", patchedNote.getNoteStatus());
+		assertEquals("Testing Service layer", noteDAO.getNoteById(note.getNoteId()).getNoteContent());
+	}
+
+	@Test(expected = NoteNotFoundException.class)
+	@Rollback(true)
+	public void testPatchNoteOfOtherUserFailure() throws NoteNotFoundException {
+		noteDAO.createNote(note);
+		noteDAO.patchNote(note.getNoteId(), "Mary123", managed -> managed.setNoteStatus("Done"));
+	}
+
+	@Test(expected = ObjectOptimisticLockingFailureException.class)
+	@Rollback(true)
+	public void testUpdateNoteWithStaleVersion() {
+		noteDAO.createNote(note);
+		sessionFactory.getCurrentSession().evict(note);
+		note.setVersion(note.getVersion() + 1);
+		note.setNoteContent("Unit testing for DAO layer");
+		noteDAO.UpdateNote(note);
+	}
+
+	@Test
+	public void testNotesWithSameContentShareOneBody() {
+		Session session = sessionFactory.getCurrentSession();
+		Note copy = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null, "Mary123");
+		noteDAO.createNote(note);
+		noteDAO.createNote(copy);
+		session.flush();
+		assertEquals(note.getBody().getContentHash(), copy.getBody().getContentHash());
+		assertEquals(1L, session.createQuery("select count(*) from NoteBody", Long.class).getSingleResult()
+				.longValue());
+		session.clear();
+		assertEquals(2L, session.get(NoteBody.class, note.getBody().getContentHash()).getRefCount());
+
+		assertTrue(noteDAO.deleteNote(note.getNoteId(), "Jhon123"));
+		session.clear();
+		assertEquals(1L, session.get(NoteBody.class, copy.getBody().getContentHash()).getRefCount());
+		assertTrue(noteDAO.deleteNote(copy.getNoteId(), "Mary123"));
+		session.clear();
+		assertNull(session.get(NoteBody.class, copy.getBody().getContentHash()));
+	}
+
 }
@@ -2,6 +2,8 @@ package com.stackroute.keepnote.test.dao;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -23,10 +25,15 @@ import org.springframework.test.context.transaction.TransactionalTestExecutionLi
 import org.springframework.test.context.web.WebAppConfiguration;
 
 import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
 import com.stackroute.keepnote.dao.ReminderDAO;
 import com.stackroute.keepnote.dao.ReminderDAOImpl;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
+import com.stackroute.keepnote.model.Note;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderNotification;
 
 @RunWith(SpringRunner.class)
 @Transactional
@@ -48,8 +55,10 @@ public class ReminderDAOImplTest {
 
 	@After
 	public void tearDown() throws Exception {
+		sessionFactory.getCurrentSession().createQuery("DELETE from Note").executeUpdate();
 		Query query = sessionFactory.getCurrentSession().createQuery("DELETE from Reminder");
 		query.executeUpdate();
+		sessionFactory.getCurrentSession().createQuery("DELETE from ReminderNotification").executeUpdate();
 	}
 
 	@Test
@@ -89,6 +98,28 @@ public class ReminderDAOImplTest {
 		assertEquals(true, status);
 	}
 
+	@Test
+	public void testDeleteReminderOfOtherUserFailure() {
+		reminderDAO.createReminder(reminder);
+		assertEquals(false, reminderDAO.deleteReminder(reminder.getReminderId(), "Mary123"));
+		assertEquals(true, reminderDAO.deleteReminder(reminder.getReminderId(), reminder.getReminderCreatedBy()));
+	}
+
+	@Test
+	public void testDeleteReminderDetachesItsNotes() throws NoteNotFoundException {
+		reminderDAO.createReminder(reminder);
+		NoteDAO noteDAO = new NoteDAOImpl(sessionFactory);
+		Note note = new Note(1, "Testing-1", "Testing reminder", "Active", new Date(), null, reminder, "Jhon123");
+		noteDAO.createNote(note);
+		int version = note.getVersion();
+		sessionFactory.getCurrentSession().clear();
+		assertEquals(true, reminderDAO.deleteReminder(reminder.getReminderId(), reminder.getReminderCreatedBy()));
+		sessionFactory.getCurrentSession().clear();
+		Note detached = noteDAO.getNoteById(note.getNoteId());
+		assertNull(detached.getReminder());
+		assertEquals(version + 1, detached.getVersion().intValue());
+	}
+
 	@Test
 	public void testDeleteReminderFailure() throws ReminderNotFoundException {
 		reminderDAO.createReminder(reminder);
@@ -127,4 +158,43 @@ public class ReminderDAOImplTest {
 		assertEquals(3, allReminder.size());
 	}
 
+	@Test(expected = ReminderNotFoundException.class)
+	public void testDeletedReminderIsNotServedFromCache() throws ReminderNotFoundException {
+		reminderDAO.createReminder(reminder);
+		reminderDAO.getReminderById(reminder.getReminderId());
+		reminderDAO.deleteReminder(reminder.getReminderId());
+		reminderDAO.getReminderById(reminder.getReminderId());
+	}
+
+	@Test
+	public void testFireDueReminders() throws ReminderNotFoundException {
+		Date now = new Date(System.currentTimeMillis() / 1000 * 1000);
+		reminder.setDueAt(new Date(now.getTime() - 60000));
+		reminderDAO.createReminder(reminder);
+		Reminder later = new Reminder(2, "Email", "Email reminder", "notification", "Jhon123", null, new Date());
+		later.setDueAt(new Date(now.getTime() + 60000));
+		reminderDAO.createReminder(later);
+		List<Integer> pending = new ArrayList<Integer>();
+		reminderDAO.streamPendingReminders(new Date(0), new Date(now.getTime() + 3600000),
+				(reminderId, dueAt) -> pending.add(reminderId));
+		assertEquals(2, pending.size());
+		List<Reminder> fired = reminderDAO.fireReminders(
+				Arrays.asList(reminder.getReminderId(), later.getReminderId()), now);
+		assertEquals(1, fired.size());
+		assertEquals(reminder.getReminderId(), fired.get(0).getReminderId());
+		Reminder savedReminder = reminderDAO.getReminderById(reminder.getReminderId());
+		assertNull(savedReminder.getDueAt());
+		assertEquals(now, savedReminder.getFiredAt());
+		assertNotNull(reminderDAO.getReminderById(later.getReminderId()).getDueAt());
+		List<ReminderNotification> notifications = sessionFactory.getCurrentSession()
+				.createQuery("FROM ReminderNotification", ReminderNotification.class).getResultList();
+		assertEquals(1, notifications.size());
+		assertEquals(reminder.getReminderId(), notifications.get(0).getReminderId());
+		assertEquals(now, notifications.get(0).getNextAttemptAt());
+		pending.clear();
+		reminderDAO.streamPendingReminders(new Date(0), new Date(now.getTime() + 3600000),
+				(reminderId, dueAt) -> pending.add(reminderId));
+		assertEquals(Arrays.asList(later.getReminderId()), pending);
+	}
+
 }
@@ -0,0 +1,95 @@
+package com.stackroute.keepnote.test.dao;
+
+import static org.junit.Assert.*;
+
+import java.util.Date;
+
+import javax.transaction.Transactional;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import com.stackroute.keepnote.config.ApplicationContextConfig;
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.CategoryDAOImpl;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.dao.NoteDAOImpl;
+import com.stackroute.keepnote.dao.UserStatsDAO;
+import com.stackroute.keepnote.dao.UserStatsDAOImpl;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.UserStats;
+
+@RunWith(SpringRunner.class)
+@Transactional
+@WebAppConfiguration
+@ContextConfiguration(classes = { ApplicationContextConfig.class })
+@TestExecutionListeners({ DependencyInjectionTestExecutionListener.class, TransactionalTestExecutionListener.class })
+public class UserStatsDAOImplTest {
+
+	@Autowired
+	private SessionFactory sessionFactory;
+	private UserStatsDAO userStatsDAO;
+	private NoteDAO noteDAO;
+	private CategoryDAO categoryDAO;
+
+	@Before
+	public void setUp() throws Exception {
+		userStatsDAO = new UserStatsDAOImpl(sessionFactory);
+		noteDAO = new NoteDAOImpl(sessionFactory);
+		categoryDAO = new CategoryDAOImpl(sessionFactory);
+	}
+
+	@Test
+	public void testCountersFollowCreateAndDelete() {
+		UserStats before = userStatsDAO.getUserStats("Stats123");
+		Note active = new Note(1, "Testing-1", "Testing DAO layer", "Active", new Date(), null, null, "Stats123");
+		Note done = new Note(2, "Testing-2", "Testing DAO layer", "Done", new Date(), null, null, "Stats123");
+		noteDAO.createNote(active);
+		noteDAO.createNote(done);
+		categoryDAO.createCategory(new Category(1, "Testing", "All about testing", null, "Stats123", null));
+
+		UserStats stats = userStatsDAO.getUserStats("Stats123");
+		assertEquals(before.getNoteCount() + 2, stats.getNoteCount());
+		assertEquals(before.getCategoryCount() + 1, stats.getCategoryCount());
+
+		assertTrue(noteDAO.deleteNote(done.getNoteId(), "Stats123"));
+		stats = userStatsDAO.getUserStats("Stats123");
+		assertEquals(before.getNoteCount() + 1, stats.getNoteCount());
+	}
+
+	@Test
+	public void testRebuildUserStats() {
+		noteDAO.createNote(new Note(1, "Testing-1", "Testing DAO layer", "Active", new Date(), null, null, "Stats123"));
+		sessionFactory.getCurrentSession()
+				.createNativeQuery("UPDATE UserStats SET noteCount = 42 WHERE userId = 'Stats123'").executeUpdate();
+
+		assertTrue(userStatsDAO.getUserIds().contains("Stats123"));
+		UserStats stats = userStatsDAO.rebuildUserStats("Stats123");
+		assertEquals(userStatsDAO.getUserStats("Stats123").getNoteCount(), stats.getNoteCount());
+		assertNotEquals(42, stats.getNoteCount());
+		assertTrue(stats.getNotesByStatus().get("Active") >= 1);
+	}
+
+	@Test
+	public void testRebuildUserStatsLeavesOutDeletedCategories() {
+		Category kept = new Category(1, "Testing", "All about testing", null, "Stats123", null);
+		Category deleted = new Category(2, "Deleted", "Deleted in the background", null, "Stats123", null);
+		categoryDAO.createCategory(kept);
+		categoryDAO.createCategory(deleted);
+		assertTrue(categoryDAO.deleteCategory(deleted.getCategoryId(), "Stats123"));
+		long categoryCount = userStatsDAO.getUserStats("Stats123").getCategoryCount();
+
+		assertEquals(categoryCount, userStatsDAO.rebuildUserStats("Stats123").getCategoryCount());
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.stackroute.keepnote.dao.AttachmentDAO;
+import com.stackroute.keepnote.dao.AttachmentStore;
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.exception.NoteNotFoundException;
+import com.stackroute.keepnote.model.Attachment;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.service.AttachmentServiceImpl;
+
+public class AttachmentServiceImplTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Mock
+	AttachmentDAO attachmentDAO;
+	@Mock
+	NoteDAO noteDAO;
+	AttachmentServiceImpl attachmentServiceImpl;
+	private Note note;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		attachmentServiceImpl = new AttachmentServiceImpl(attachmentDAO, noteDAO,
+				new AttachmentStore(folder.getRoot().toPath()));
+		note = new Note(1, "Testing", "Testing Service layer", "Active", new Date(), null, null, "Jhon123");
+	}
+
+	@Test
+	public void testAddAttachmentSuccess() throws Exception {
+		when(noteDAO.getNoteById(1)).thenReturn(note);
+		when(attachmentDAO.createAttachment(any(), any())).thenAnswer(invocation -> invocation.getArgument(0));
+		Attachment attachment = attachmentServiceImpl.addAttachment(1, "Jhon123", "notes.txt", "text/plain",
+				new ByteArrayInputStream(new byte[12]));
+		assertEquals(12, attachment.getSize());
+		assertEquals("Jhon123", attachment.getCreatedBy());
+		verify(attachmentDAO, times(1)).createAttachment(any(Attachment.class), any(Path.class));
+	}
+
+	@Test(expected = NoteNotFoundException.class)
+	public void testAddAttachmentToOtherUsersNote() throws Exception {
+		when(noteDAO.getNoteById(1)).thenReturn(note);
+		try {
+			attachmentServiceImpl.addAttachment(1, "Mary123", "notes.txt", "text/plain",
+					new ByteArrayInputStream(new byte[12]));
+		} finally {
+			verify(attachmentDAO, never()).createAttachment(any(), any());
+			assertEquals(0, folder.getRoot().list().length);
+		}
+	}
+
+	@Test
+	public void testDeleteAttachment() {
+		when(attachmentDAO.deleteAttachment(3, 1, "Jhon123")).thenReturn(true);
+		assertEquals(true, attachmentServiceImpl.deleteAttachment(3, 1, "Jhon123"));
+		verify(attachmentDAO, times(1)).deleteAttachment(3, 1, "Jhon123");
+	}
+
+}
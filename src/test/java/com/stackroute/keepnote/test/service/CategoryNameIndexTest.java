@@ -0,0 +1,88 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySuggestion;
+import com.stackroute.keepnote.service.CategoryNameIndex;
+
+public class CategoryNameIndexTest {
+
+	private CategoryNameIndex categoryNameIndex;
+	private List<Category> categories;
+	private int loads;
+
+	@Before
+	public void setUp() {
+		categoryNameIndex = new CategoryNameIndex();
+		categories = new ArrayList<Category>();
+		categories.add(new Category(1, "Work", "Office notes", null, "Jhon123", null));
+		categories.add(new Category(2, "workshop", "Weekend projects", null, "Jhon123", null));
+		categories.add(new Category(3, "Travel", "Trips", null, "Jhon123", null));
+		categories.add(new Category(4, "Worries", "Someone else's category", null, "Mary123", null));
+		loads = 0;
+	}
+
+	private List<Category> load(String userId) {
+		loads++;
+		List<Category> userCategories = new ArrayList<Category>();
+		for (Category category : categories)
+			if (category.getCategoryCreatedBy().equals(userId))
+				userCategories.add(category);
+		return userCategories;
+	}
+
+	private List<CategorySuggestion> suggest(String userId, String prefix, int limit) {
+		return categoryNameIndex.suggest(userId, prefix, limit, () -> load(userId));
+	}
+
+	@Test
+	public void testSuggestMatchesPrefixIgnoringCase() {
+		List<CategorySuggestion> suggestions = suggest("Jhon123", "WOR", 10);
+		assertEquals(2, suggestions.size());
+		assertEquals("Work", suggestions.get(0).getCategoryName());
+		assertEquals("workshop", suggestions.get(1).getCategoryName());
+		assertTrue(suggest("Jhon123", "x", 10).isEmpty());
+	}
+
+	@Test
+	public void testSuggestReturnsAtMostLimitInOrder() {
+		List<CategorySuggestion> suggestions = suggest("Jhon123", "", 2);
+		assertEquals(2, suggestions.size());
+		assertEquals("Travel", suggestions.get(0).getCategoryName());
+		assertEquals("Work", suggestions.get(1).getCategoryName());
+	}
+
+	@Test
+	public void testSuggestIsPartitionedByUser() {
+		List<CategorySuggestion> suggestions = suggest("Mary123", "wor", 10);
+		assertEquals(1, suggestions.size());
+		assertEquals(4, suggestions.get(0).getCategoryId());
+	}
+
+	@Test
+	public void testPartitionIsLoadedOnceAndKeptUpToDate() {
+		suggest("Jhon123", "wor", 10);
+		categoryNameIndex.index(new Category(5, "Wordplay", "Puns", null, "Jhon123", null));
+		categoryNameIndex.index(new Category(1, "Errands", "Office notes", null, "Jhon123", null));
+		categoryNameIndex.remove(2);
+		List<CategorySuggestion> suggestions = suggest("Jhon123", "wor", 10);
+		assertEquals(1, suggestions.size());
+		assertEquals("Wordplay", suggestions.get(0).getCategoryName());
+		assertEquals(1, suggest("Jhon123", "err", 10).get(0).getCategoryId());
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testCategoriesOfUnloadedUsersAreSkipped() {
+		categoryNameIndex.index(new Category(5, "Wordplay", "Puns", null, "Jhon123", null));
+		assertEquals(2, suggest("Jhon123", "wor", 10).size());
+	}
+
+}
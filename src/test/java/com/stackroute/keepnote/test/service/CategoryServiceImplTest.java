@@ -1,28 +1,46 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.mockito.Spy;
 
 import com.stackroute.keepnote.dao.CategoryDAO;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
 import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.CategorySummary;
+import com.stackroute.keepnote.service.CategoryNameIndex;
 import com.stackroute.keepnote.service.CategoryServiceImpl;
+import com.stackroute.keepnote.service.DeletionJobService;
+import com.stackroute.keepnote.service.UserVersionRegistry;
 
 public class CategoryServiceImplTest {
 
 	@Mock
 	CategoryDAO categoryDAO;
+	@Mock
+	DeletionJobService deletionJobService;
+	@Spy
+	UserVersionRegistry userVersionRegistry = new UserVersionRegistry();
+	@Spy
+	CategoryNameIndex categoryNameIndex = new CategoryNameIndex();
 	@InjectMocks
 	CategoryServiceImpl categoryServiceImpl;
 	private Category category = null;
@@ -68,6 +86,15 @@ public class CategoryServiceImplTest {
 		verify(categoryDAO, times(1)).deleteCategory(1);
 	}
 
+	@Test
+	public void testDeleteCategoryOfUser() {
+		when(categoryDAO.deleteCategory(1, "Jhon123")).thenReturn(true);
+		assertEquals(true, categoryServiceImpl.deleteCategory(1, "Jhon123"));
+		assertEquals(false, categoryServiceImpl.deleteCategory(1, "Mary123"));
+		verify(categoryDAO, times(1)).deleteCategory(1, "Jhon123");
+		verify(deletionJobService, times(1)).runPendingJobs();
+	}
+
 	@Test
 	public void testUpdateCategorySuccess() throws CategoryNotFoundException {
 		when(categoryDAO.getCategoryById(1)).thenReturn(category);
@@ -75,14 +102,15 @@ public class CategoryServiceImplTest {
 		when(categoryDAO.updateCategory(category)).thenReturn(true);
 		Category updatedCategory = categoryServiceImpl.updateCategory(category, 1);
 		assertEquals("Testing Spring app", updatedCategory.getCategoryName());
-		verify(categoryDAO, times(1)).getCategoryById(1);
+		verify(categoryDAO, never()).getCategoryById(1);
 		verify(categoryDAO, times(1)).updateCategory(category);
 	}
 
 	@Test(expected = CategoryNotFoundException.class)
 	public void testUpdateCategoryFailure() throws CategoryNotFoundException {
 		when(categoryDAO.getCategoryById(1)).thenReturn(null);
-		when(categoryDAO.updateCategory(category)).thenReturn(true);
+		when(categoryDAO.updateCategory(category))
+				.thenThrow(new ObjectOptimisticLockingFailureException(Category.class, 1));
 		@SuppressWarnings("unused")
 		Category updatedCategory = categoryServiceImpl.updateCategory(category, 1);
 
@@ -121,4 +149,60 @@ public class CategoryServiceImplTest {
 		verify(categoryDAO, times(1)).getAllCategoryByUserId("Jhon123");
 	}
 
+	@Test
+	public void testPatchCategorySuccess() throws CategoryNotFoundException {
+		when(categoryDAO.patchCategory(eq(1), eq("Jhon123"), any())).thenAnswer(invocation -> {
+			Consumer<Category> changes = invocation.getArgument(2);
+			changes.accept(category);
+			return category;
+		});
+		Category patchedCategory = categoryServiceImpl.patchCategory(1, "Jhon123",
+				Collections.singletonMap("categoryDescription", "Testing DAO layer"));
+		assertEquals("Testing DAO layer", patchedCategory.getCategoryDescription());
+		assertEquals("Testing", patchedCategory.getCategoryName());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPatchCategoryFailure() throws CategoryNotFoundException {
+		categoryServiceImpl.patchCategory(1, "Jhon123", Collections.singletonMap("categoryCreatedBy", "Mary123"));
+	}
+
+	@Test
+	public void testDeleteCategoryChangesVersionTag() {
+		String tag = categoryServiceImpl.getVersionTag("Jhon123");
+		when(categoryDAO.deleteCategory(1, "Jhon123")).thenReturn(true);
+		categoryServiceImpl.deleteCategory(1, "Jhon123");
+		assertNotEquals(tag, categoryServiceImpl.getVersionTag("Jhon123"));
+	}
+
+	@Test(expected = OptimisticLockingFailureException.class)
+	public void testUpdateCategoryConflict() throws CategoryNotFoundException {
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		when(categoryDAO.updateCategory(category))
+				.thenThrow(new ObjectOptimisticLockingFailureException(Category.class, 1));
+		categoryServiceImpl.updateCategory(category, 1);
+	}
+
+	@Test
+	public void testGetCategorySummariesByUserId() {
+		List<CategorySummary> summaries = Collections.singletonList(
+				new CategorySummary(1, "Testing", "All about testing spring application", new Date(), "Jhon123", 0, 2));
+		when(categoryDAO.getCategorySummariesByUserId("Jhon123")).thenReturn(summaries);
+		assertEquals(2, categoryServiceImpl.getCategorySummariesByUserId("Jhon123").get(0).getNoteCount());
+	}
+
+	@Test
+	public void testSuggestCategoriesFollowsCreateAndDelete() {
+		when(categoryDAO.getAllCategoryByUserId("Jhon123")).thenReturn(Collections.singletonList(category));
+		when(categoryDAO.createCategory(any())).thenReturn(true);
+		when(categoryDAO.deleteCategory(1, "Jhon123")).thenReturn(true);
+		assertEquals(1, categoryServiceImpl.suggestCategories("Jhon123", "test", 10).size());
+		categoryServiceImpl.createCategory(
+				new Category(2, "Testing-2", "All about testing spring application", new Date(), "Jhon123", null));
+		assertEquals(2, categoryServiceImpl.suggestCategories("Jhon123", "TEST", 10).size());
+		categoryServiceImpl.deleteCategory(1, "Jhon123");
+		assertEquals(2, categoryServiceImpl.suggestCategories("Jhon123", "test", 10).get(0).getCategoryId());
+		verify(categoryDAO, times(1)).getAllCategoryByUserId("Jhon123");
+	}
+
 }
@@ -0,0 +1,131 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.CannotAcquireLockException;
+
+import com.stackroute.keepnote.dao.CategoryDAO;
+import com.stackroute.keepnote.dao.DeletionJobDAO;
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.exception.DeletionJobNotFoundException;
+import com.stackroute.keepnote.model.DeletionJob;
+import com.stackroute.keepnote.service.DeletionJobServiceImpl;
+import com.stackroute.keepnote.service.NoteSearchIndex;
+import com.stackroute.keepnote.service.ReminderScheduler;
+import com.stackroute.keepnote.service.UserVersionRegistry;
+
+public class DeletionJobServiceImplTest {
+
+	private DeletionJobDAO deletionJobDAO;
+	private CategoryDAO categoryDAO;
+	private ReminderDAO reminderDAO;
+	private NoteSearchIndex noteSearchIndex;
+	private ReminderScheduler reminderScheduler;
+	private UserVersionRegistry userVersionRegistry;
+	private DeletionJobServiceImpl deletionJobService;
+
+	@Before
+	public void setUp() {
+		deletionJobDAO = mock(DeletionJobDAO.class);
+		categoryDAO = mock(CategoryDAO.class);
+		reminderDAO = mock(ReminderDAO.class);
+		noteSearchIndex = spy(new NoteSearchIndex());
+		reminderScheduler = mock(ReminderScheduler.class);
+		userVersionRegistry = new UserVersionRegistry();
+		deletionJobService = new DeletionJobServiceImpl(deletionJobDAO, categoryDAO, reminderDAO, noteSearchIndex,
+				reminderScheduler, userVersionRegistry, 2);
+	}
+
+	@After
+	public void tearDown() {
+		deletionJobService.close();
+	}
+
+	private DeletionJob job(boolean completed, Integer... deletedNoteIds) {
+		DeletionJob job = new DeletionJob(DeletionJob.CATEGORY, "1", "Jhon123", new Date());
+		job.setJobId(1);
+		job.setCompleted(completed);
+		job.setDeletedNoteIds(Arrays.asList(deletedNoteIds));
+		return job;
+	}
+
+	@Test
+	public void testRunPendingJobsDeletesChunksUntilCompleted() {
+		String tag = userVersionRegistry.getTag("Jhon123");
+		when(deletionJobDAO.getUnfinishedJobs()).thenReturn(Collections.singletonList(job(false)));
+		when(deletionJobDAO.deleteNextChunk(1, 2)).thenReturn(job(false, 1, 2), job(false, 3), job(true));
+		assertEquals(1, deletionJobService.runPendingJobs());
+		verify(deletionJobDAO, timeout(5000).times(3)).deleteNextChunk(1, 2);
+		verify(noteSearchIndex, timeout(5000)).remove(3, "Jhon123");
+		verify(noteSearchIndex).remove(1, "Jhon123");
+		verify(noteSearchIndex).remove(2, "Jhon123");
+		assertNotEquals(tag, userVersionRegistry.getTag("Jhon123"));
+	}
+
+	@Test
+	public void testDeletedCategoriesAndRemindersLeaveCachesAndScheduler() {
+		DeletionJob reminders = job(false);
+		reminders.setDeletedReminderIds(Arrays.asList(5, 6));
+		DeletionJob categories = job(true);
+		categories.setDeletedCategoryIds(Arrays.asList(7));
+		when(deletionJobDAO.getUnfinishedJobs()).thenReturn(Collections.singletonList(job(false)));
+		when(deletionJobDAO.deleteNextChunk(1, 2)).thenReturn(reminders, categories);
+		deletionJobService.runPendingJobs();
+		verify(categoryDAO, timeout(5000)).invalidateCachedCategories(Arrays.asList(7));
+		verify(reminderDAO).invalidateCachedReminders(Arrays.asList(5, 6));
+		verify(reminderScheduler).cancel(5);
+		verify(reminderScheduler).cancel(6);
+	}
+
+	@Test
+	public void testJobFailingWithUnexpectedExceptionIsRunAgain() {
+		when(deletionJobDAO.getUnfinishedJobs()).thenReturn(Collections.singletonList(job(false)));
+		when(deletionJobDAO.deleteNextChunk(1, 2)).thenThrow(new IllegalStateException("Archive closed"))
+				.thenReturn(job(true));
+		deletionJobService.runPendingJobs();
+		verify(deletionJobDAO, timeout(5000).times(1)).deleteNextChunk(1, 2);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (deletionJobService.runPendingJobs() == 0 && System.currentTimeMillis() < deadline)
+			Thread.yield();
+		verify(deletionJobDAO, timeout(5000).times(2)).deleteNextChunk(1, 2);
+	}
+
+	@Test
+	public void testFailedJobIsRunAgain() {
+		when(deletionJobDAO.getUnfinishedJobs()).thenReturn(Collections.singletonList(job(false)));
+		when(deletionJobDAO.deleteNextChunk(1, 2)).thenThrow(new CannotAcquireLockException("Deadlock"))
+				.thenReturn(job(true));
+		deletionJobService.runPendingJobs();
+		verify(deletionJobDAO, timeout(5000).times(1)).deleteNextChunk(1, 2);
+		long deadline = System.currentTimeMillis() + 5000;
+		while (deletionJobService.runPendingJobs() == 0 && System.currentTimeMillis() < deadline)
+			Thread.yield();
+		verify(deletionJobDAO, timeout(5000).times(2)).deleteNextChunk(1, 2);
+	}
+
+	@Test
+	public void testGetDeletionJobById() throws DeletionJobNotFoundException {
+		when(deletionJobDAO.getJobById(1, "Jhon123")).thenReturn(job(false));
+		assertEquals("Jhon123", deletionJobService.getDeletionJobById(1, "Jhon123").getCreatedBy());
+		verify(deletionJobDAO, times(1)).getJobById(1, "Jhon123");
+	}
+
+	@Test(expected = DeletionJobNotFoundException.class)
+	public void testGetDeletionJobOfOtherUserFailure() throws DeletionJobNotFoundException {
+		deletionJobService.getDeletionJobById(1, "Mary123");
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import com.stackroute.keepnote.dao.ImportDAO;
+import com.stackroute.keepnote.exception.ImportNotFoundException;
+import com.stackroute.keepnote.model.Category;
+import com.stackroute.keepnote.model.ImportCheckpoint;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.service.CategoryNameIndex;
+import com.stackroute.keepnote.service.ImportServiceImpl;
+import com.stackroute.keepnote.service.NoteSearchIndex;
+import com.stackroute.keepnote.service.ReminderScheduler;
+import com.stackroute.keepnote.service.UserVersionRegistry;
+
+public class ImportServiceImplTest {
+
+	private static final String CATEGORY = "{\"type\":\"category\",\"data\":{\"categoryId\":7,\"categoryName\":\"Testing\"}}\n";
+	private static final String REMINDER = "{\"type\":\"reminder\",\"data\":{\"reminderId\":8,\"reminderName\":\"Email\"}}\n";
+
+	@Mock
+	ImportDAO importDAO;
+	@Mock
+	NoteSearchIndex noteSearchIndex;
+	@Mock
+	CategoryNameIndex categoryNameIndex;
+	@Mock
+	ReminderScheduler reminderScheduler;
+	@Spy
+	UserVersionRegistry userVersionRegistry = new UserVersionRegistry();
+	@InjectMocks
+	ImportServiceImpl importServiceImpl;
+	private List<List<Object>> chunks;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+		chunks = new ArrayList<List<Object>>();
+		doAnswer(invocation -> {
+			chunks.add(new ArrayList<Object>(invocation.getArgument(1)));
+			return null;
+		}).when(importDAO).importChunk(any(), any());
+	}
+
+	private static String note(int noteId) {
+		return "{\"type\":\"note\",\"data\":{\"noteId\":" + noteId + ",\"noteTitle\":\"Testing\","
+				+ "\"noteContent\":\"Imported note\",\"noteStatus\":\"Active\",\"category\":{\"categoryId\":7},"
+				+ "\"reminder\":{\"reminderId\":8},\"createdBy\":\"Someone\"}}\n";
+	}
+
+	private static ByteArrayInputStream content(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testImportWorkspace() throws Exception {
+		ImportCheckpoint checkpoint = importServiceImpl.importWorkspace("Jhon123", "import-1",
+				content(CATEGORY + REMINDER + note(1)));
+		verify(importDAO, times(1)).createCheckpoint(any());
+		assertEquals(1, chunks.size());
+		List<Object> rows = chunks.get(0);
+		assertEquals(3, rows.size());
+		assertEquals(7, ((Category) rows.get(0)).getCategoryId());
+		assertEquals(8, ((Reminder) rows.get(1)).getReminderId());
+		Note note = (Note) rows.get(2);
+		assertEquals("Imported note", note.getNoteContent());
+		assertEquals(7, note.getCategory().getCategoryId());
+		assertNotNull(note.getNoteCreatedAt());
+		assertEquals(3, checkpoint.getLinesCommitted());
+		assertTrue(checkpoint.isCompleted());
+		verify(noteSearchIndex, times(1)).index(note);
+		verify(categoryNameIndex, times(1)).index((Category) rows.get(0));
+		verify(reminderScheduler, times(1)).schedule((Reminder) rows.get(1));
+	}
+
+	@Test
+	public void testImportIsCommittedInChunks() throws Exception {
+		StringBuilder export = new StringBuilder();
+		for (int i = 1; i <= 2500; i++)
+			export.append(note(i));
+		ImportCheckpoint checkpoint = importServiceImpl.importWorkspace("Jhon123", "import-1",
+				content(export.toString()));
+		assertEquals(3, chunks.size());
+		assertEquals(1000, chunks.get(0).size());
+		assertEquals(500, chunks.get(2).size());
+		assertEquals(2500, checkpoint.getLinesCommitted());
+		verify(userVersionRegistry, times(3)).bump("Jhon123");
+	}
+
+	@Test
+	public void testImportResumesAfterCheckpoint() throws Exception {
+		ImportCheckpoint checkpoint = new ImportCheckpoint("import-1", "Jhon123", new Date());
+		checkpoint.setLinesCommitted(2);
+		when(importDAO.getCheckpoint("import-1")).thenReturn(checkpoint);
+		importServiceImpl.importWorkspace("Jhon123", "import-1", content(CATEGORY + REMINDER + note(1)));
+		verify(importDAO, never()).createCheckpoint(any());
+		assertEquals(1, chunks.size());
+		assertEquals(1, chunks.get(0).size());
+		assertTrue(chunks.get(0).get(0) instanceof Note);
+	}
+
+	@Test
+	public void testImportInvalidLine() throws Exception {
+		try {
+			importServiceImpl.importWorkspace("Jhon123", "import-1",
+					content(CATEGORY + "{\"type\":\"notebook\",\"data\":{}}\n"));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Line 2:"));
+		}
+		assertTrue(chunks.isEmpty());
+	}
+
+	@Test
+	public void testImportMalformedJson() throws Exception {
+		try {
+			importServiceImpl.importWorkspace("Jhon123", "import-1", content(CATEGORY + "{\"type\":\n"));
+			fail("Expected IllegalArgumentException");
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith("Line "));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testImportIdOfOtherUser() throws Exception {
+		when(importDAO.getCheckpoint("import-1")).thenReturn(new ImportCheckpoint("import-1", "Mary123", new Date()));
+		importServiceImpl.importWorkspace("Jhon123", "import-1", content(note(1)));
+	}
+
+	@Test(expected = ImportNotFoundException.class)
+	public void testGetImportCheckpointOfOtherUser() throws Exception {
+		when(importDAO.getCheckpoint("import-1")).thenReturn(new ImportCheckpoint("import-1", "Mary123", new Date()));
+		importServiceImpl.getImportCheckpoint("import-1", "Jhon123");
+	}
+
+}
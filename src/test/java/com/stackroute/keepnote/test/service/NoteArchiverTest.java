@@ -0,0 +1,56 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.service.NoteArchiver;
+
+public class NoteArchiverTest {
+
+	private NoteDAO noteDAO;
+	private NoteArchiver noteArchiver;
+
+	@Before
+	public void setUp() {
+		noteDAO = mock(NoteDAO.class);
+		noteArchiver = new NoteArchiver(noteDAO, 730);
+	}
+
+	private List<Note> notes(int first, int count) {
+		List<Note> notes = new ArrayList<Note>();
+		for (int i = first; i < first + count; i++)
+			notes.add(new Note(i, "Testing-" + i, "Testing Service layer", "Active", new Date(0), null, null, "Jhon123"));
+		return notes;
+	}
+
+	@Test
+	public void testArchiveOldNotesRunsUntilBatchIsShort() {
+		when(noteDAO.archiveNotesOlderThan(any(Date.class), anyInt(), anyInt())).thenReturn(notes(1, 500),
+				notes(501, 20));
+		assertEquals(520, noteArchiver.archiveOldNotes());
+		verify(noteDAO).archiveNotesOlderThan(any(Date.class), eq(0), anyInt());
+		verify(noteDAO).archiveNotesOlderThan(any(Date.class), eq(500), anyInt());
+	}
+
+	@Test
+	public void testArchiveOldNotesWithNothingToArchive() {
+		when(noteDAO.archiveNotesOlderThan(any(Date.class), anyInt(), anyInt())).thenReturn(new ArrayList<Note>());
+		assertEquals(0, noteArchiver.archiveOldNotes());
+		verify(noteDAO).archiveNotesOlderThan(any(Date.class), eq(0), anyInt());
+	}
+
+}
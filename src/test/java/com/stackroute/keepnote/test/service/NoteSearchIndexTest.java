@@ -0,0 +1,137 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteSearchResult;
+import com.stackroute.keepnote.service.NoteSearchIndex;
+
+public class NoteSearchIndexTest {
+
+	private NoteSearchIndex noteSearchIndex;
+	private List<Note> notes;
+	private int loads;
+
+	@Before
+	public void setUp() {
+		noteSearchIndex = new NoteSearchIndex();
+		notes = new ArrayList<Note>();
+		notes.add(new Note(1, "Spring testing", "Testing the controller layer", "Active", new Date(), null, null,
+				"Jhon123"));
+		notes.add(new Note(2, "Groceries", "Milk, bread and spring onions", "Active", new Date(), null, null,
+				"Jhon123"));
+		notes.add(new Note(3, "Spring testing", "Someone else's note", "Active", new Date(), null, null, "Mary123"));
+		loads = 0;
+	}
+
+	private List<Note> load(String userId) {
+		loads++;
+		List<Note> userNotes = new ArrayList<Note>();
+		for (Note note : notes)
+			if (note.getCreatedBy().equals(userId))
+				userNotes.add(note);
+		return userNotes;
+	}
+
+	@Test
+	public void testSearchRanksTitleMatchFirst() {
+		List<NoteSearchResult> results = noteSearchIndex.search("Jhon123", "spring", 10, () -> load("Jhon123"));
+		assertEquals(2, results.size());
+		assertEquals(1, results.get(0).getNoteId());
+		assertEquals(2, results.get(1).getNoteId());
+		assertTrue(results.get(0).getScore() > results.get(1).getScore());
+	}
+
+	@Test
+	public void testSearchIsPartitionedByUser() {
+		List<NoteSearchResult> results = noteSearchIndex.search("Mary123", "spring", 10, () -> load("Mary123"));
+		assertEquals(1, results.size());
+		assertEquals(3, results.get(0).getNoteId());
+	}
+
+	@Test
+	public void testPartitionIsLoadedOnce() {
+		noteSearchIndex.search("Jhon123", "spring", 10, () -> load("Jhon123"));
+		noteSearchIndex.search("Jhon123", "milk", 10, () -> load("Jhon123"));
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testIndexAndRemoveAreIncremental() {
+		noteSearchIndex.search("Jhon123", "spring", 10, () -> load("Jhon123"));
+		noteSearchIndex.index(new Note(4, "Hibernate", "Spring and hibernate notes", "Active", new Date(), null, null,
+				"Jhon123"));
+		noteSearchIndex.index(new Note(2, "Groceries", "Milk and bread", "Active", new Date(), null, null, "Jhon123"));
+		noteSearchIndex.remove(1, "Jhon123");
+		List<NoteSearchResult> results = noteSearchIndex.search("Jhon123", "spring", 10, () -> load("Jhon123"));
+		assertEquals(1, results.size());
+		assertEquals(4, results.get(0).getNoteId());
+		assertEquals(1, loads);
+	}
+
+	@Test
+	public void testRemoveWithoutOwnerLooksInEveryPartition() {
+		noteSearchIndex.search("Jhon123", "spring", 10, () -> load("Jhon123"));
+		noteSearchIndex.search("Mary123", "spring", 10, () -> load("Mary123"));
+		noteSearchIndex.remove(3);
+		assertTrue(noteSearchIndex.search("Mary123", "spring", 10, () -> load("Mary123")).isEmpty());
+		assertEquals(2, noteSearchIndex.search("Jhon123", "spring", 10, () -> load("Jhon123")).size());
+	}
+
+	@Test
+	public void testLeastRecentlySearchedPartitionIsDroppedAndReloaded() {
+		noteSearchIndex = new NoteSearchIndex(1);
+		noteSearchIndex.search("Jhon123", "spring", 10, () -> load("Jhon123"));
+		noteSearchIndex.search("Mary123", "spring", 10, () -> load("Mary123"));
+		assertEquals(1, noteSearchIndex.getPartitionCount());
+		noteSearchIndex.index(new Note(4, "Spring", "Not indexed, the partition is gone", "Active", new Date(), null,
+				null, "Jhon123"));
+		assertEquals(2, noteSearchIndex.search("Jhon123", "spring", 10, () -> load("Jhon123")).size());
+		assertEquals(3, loads);
+	}
+
+	@Test
+	public void testRemoveDuringLoadWaitsForIt() throws InterruptedException {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch removed = new CountDownLatch(1);
+		Thread search = new Thread(() -> noteSearchIndex.search("Jhon123", "spring", 10, () -> {
+			loading.countDown();
+			try {
+				removed.await(200, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return load("Jhon123");
+		}));
+		search.start();
+		loading.await();
+		Thread remove = new Thread(() -> {
+			noteSearchIndex.remove(1, "Jhon123");
+			removed.countDown();
+		});
+		remove.start();
+		search.join();
+		remove.join();
+		List<NoteSearchResult> results = noteSearchIndex.search("Jhon123", "spring", 10, () -> load("Jhon123"));
+		assertEquals(1, results.size());
+		assertEquals(2, results.get(0).getNoteId());
+	}
+
+	@Test
+	public void testSearchHonoursLimit() {
+		List<NoteSearchResult> results = noteSearchIndex.search("Jhon123", "spring testing", 1,
+				() -> load("Jhon123"));
+		assertEquals(1, results.size());
+		assertEquals("Spring testing", results.get(0).getNoteTitle());
+	}
+
+}
@@ -1,28 +1,57 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.persistence.PersistenceException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.dao.support.PersistenceExceptionTranslationInterceptor;
+import org.springframework.orm.hibernate5.HibernateExceptionTranslator;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.mockito.Spy;
 import com.stackroute.keepnote.dao.CategoryDAO;
 import com.stackroute.keepnote.dao.NoteDAO;
 import com.stackroute.keepnote.dao.ReminderDAO;
 import com.stackroute.keepnote.exception.CategoryNotFoundException;
+import com.stackroute.keepnote.exception.ChangeTokenExpiredException;
 import com.stackroute.keepnote.exception.NoteNotFoundException;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Category;
 import com.stackroute.keepnote.model.Note;
+import com.stackroute.keepnote.model.NoteBatchResult;
+import com.stackroute.keepnote.model.NoteChanges;
+import com.stackroute.keepnote.model.NoteFilter;
+import com.stackroute.keepnote.model.NotePage;
+import com.stackroute.keepnote.model.NoteSearchResult;
+import com.stackroute.keepnote.model.NoteSummary;
+import com.stackroute.keepnote.service.NoteSearchIndex;
 import com.stackroute.keepnote.model.Reminder;
 import com.stackroute.keepnote.service.NoteServiceImpl;
+import com.stackroute.keepnote.service.UserVersionRegistry;
 
 public class NoteServiceImplTest {
 
@@ -32,6 +61,10 @@ public class NoteServiceImplTest {
 	private CategoryDAO categoryDAO;
 	@Mock
 	private ReminderDAO reminderDAO;
+	@Spy
+	private NoteSearchIndex noteSearchIndex = new NoteSearchIndex();
+	@Spy
+	private UserVersionRegistry userVersionRegistry = new UserVersionRegistry();
 	@InjectMocks
 	NoteServiceImpl noteServiceImpl;
 
@@ -47,6 +80,8 @@ public class NoteServiceImplTest {
 		reminder = new Reminder(1, "Email reminder", "daily reminder", "Active", "Jhon123", null, new Date());
 		note = new Note(1, "Testing", "Testing Service layer", "Active", new Date(), category, reminder, "Jhon123");
 		notes = new ArrayList<Note>();
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
 
 	}
 
@@ -120,6 +155,71 @@ public class NoteServiceImplTest {
 
 	}
 
+	@Test
+	public void testCreateNotesBatch() throws CategoryNotFoundException {
+		Category missingCategory = new Category(2, "Missing", "Not in the database", new Date(), "Jhon123", null);
+		Note noteWithMissingCategory = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(),
+				missingCategory, null, "Jhon123");
+		Note otherUsersNote = new Note(3, "Testing-3", "Testing Service layer", "Active", new Date(), null, null,
+				"Mary123");
+		notes.add(note);
+		notes.add(noteWithMissingCategory);
+		notes.add(otherUsersNote);
+		when(categoryDAO.getExistingCategoryIds(any(), eq("Jhon123"))).thenReturn(java.util.Arrays.asList(1));
+		when(reminderDAO.getExistingReminderIds(any(), eq("Jhon123"))).thenReturn(java.util.Arrays.asList(1));
+		List<NoteBatchResult> results = noteServiceImpl.createNotes(notes, "Jhon123");
+		assertEquals(3, results.size());
+		assertEquals(201, results.get(0).getStatus());
+		assertEquals(1, results.get(0).getNoteId());
+		assertEquals(404, results.get(1).getStatus());
+		assertEquals(401, results.get(2).getStatus());
+		verify(noteDAO, times(1)).createNotes(java.util.Arrays.asList(note));
+		verify(categoryDAO, times(1)).getExistingCategoryIds(any(), eq("Jhon123"));
+		verify(reminderDAO, times(1)).getExistingReminderIds(any(), eq("Jhon123"));
+		verify(categoryDAO, times(0)).getCategoryById(1);
+	}
+
+	@Test
+	public void testCreateNotesBatchIsolatesRejectedNote() {
+		Note rejectedNote = new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), null, null,
+				"Jhon123");
+		notes.add(note);
+		notes.add(rejectedNote);
+		when(categoryDAO.getExistingCategoryIds(any(), eq("Jhon123"))).thenReturn(java.util.Arrays.asList(1));
+		when(reminderDAO.getExistingReminderIds(any(), eq("Jhon123"))).thenReturn(java.util.Arrays.asList(1));
+		/*
+		 * The DAO throws what a flush the database rejects throws, and is called
+		 * through the same exception translation as the @Repository beans.
+		 */
+		PersistenceException flushFailure = new PersistenceException(new ConstraintViolationException(
+				"could not execute batch", new SQLException("Data too long for column 'noteTitle'", "22001"), null));
+		doThrow(flushFailure).when(noteDAO).createNotes(any());
+		when(noteDAO.createNote(note)).thenReturn(true);
+		when(noteDAO.createNote(rejectedNote)).thenThrow(flushFailure);
+		ProxyFactory proxyFactory = new ProxyFactory(noteDAO);
+		proxyFactory.addAdvice(new PersistenceExceptionTranslationInterceptor(new HibernateExceptionTranslator()));
+		noteServiceImpl = new NoteServiceImpl((NoteDAO) proxyFactory.getProxy(), categoryDAO, reminderDAO,
+				noteSearchIndex, userVersionRegistry);
+		List<NoteBatchResult> results = noteServiceImpl.createNotes(notes, "Jhon123");
+		assertEquals(201, results.get(0).getStatus());
+		assertEquals(1, results.get(0).getNoteId());
+		assertEquals(500, results.get(1).getStatus());
+		assertEquals(0, results.get(1).getNoteId());
+	}
+
+	@Test
+	public void testCreateNotesBatchRejectsNoteWithoutContent() {
+		Note emptyNote = new Note(2, "Testing-2", null, "Active", new Date(), null, null, "Jhon123");
+		notes.add(note);
+		notes.add(emptyNote);
+		when(categoryDAO.getExistingCategoryIds(any(), eq("Jhon123"))).thenReturn(java.util.Arrays.asList(1));
+		when(reminderDAO.getExistingReminderIds(any(), eq("Jhon123"))).thenReturn(java.util.Arrays.asList(1));
+		List<NoteBatchResult> results = noteServiceImpl.createNotes(notes, "Jhon123");
+		assertEquals(201, results.get(0).getStatus());
+		assertEquals(400, results.get(1).getStatus());
+		verify(noteDAO).createNotes(Collections.singletonList(note));
+	}
+
 	@Test
 	public void testDeleteNoteSuccess() throws NoteNotFoundException {
 		when(noteDAO.deleteNote(1)).thenReturn(true);
@@ -136,6 +236,15 @@ public class NoteServiceImplTest {
 		verify(noteDAO, times(1)).deleteNote(1);
 	}
 
+	@Test
+	public void testDeleteNoteOfUser() {
+		when(noteDAO.deleteNote(1, "Jhon123")).thenReturn(true);
+		assertEquals(true, noteServiceImpl.deleteNote(1, "Jhon123"));
+		assertEquals(false, noteServiceImpl.deleteNote(1, "Mary123"));
+		verify(noteDAO, times(1)).deleteNote(1, "Jhon123");
+		verify(noteSearchIndex, times(1)).remove(1, "Jhon123");
+	}
+
 	@Test
 	public void testGetAllNotesByUserIdSucess() {
 
@@ -153,6 +262,138 @@ public class NoteServiceImplTest {
 
 	}
 
+	@Test
+	public void testGetNoteSummariesByUserId() {
+
+		List<NoteSummary> summaries = new ArrayList<NoteSummary>();
+		summaries.add(new NoteSummary(1, "Testing-1", "Active", new Date(), "Testing"));
+		when(noteDAO.getNoteSummariesByUserId("Jhon123")).thenReturn(summaries);
+		assertEquals(summaries, noteServiceImpl.getNoteSummariesByUserId("Jhon123"));
+		verify(noteDAO, never()).getAllNotesByUserId("Jhon123");
+
+	}
+
+	@Test
+	public void testGetNoteChangesWithoutToken() throws ChangeTokenExpiredException {
+
+		notes.add(note);
+		when(noteDAO.getNoteChanges("Jhon123", -1)).thenReturn(new NoteChanges(notes, new ArrayList<Integer>(), 5));
+		NoteChanges changes = noteServiceImpl.getNoteChanges("Jhon123", null);
+		assertEquals(notes, changes.getNotes());
+		assertTrue(changes.getDeletedNoteIds().isEmpty());
+		assertNotNull(changes.getNextToken());
+
+	}
+
+	@Test
+	public void testGetNoteChangesSinceToken() throws ChangeTokenExpiredException {
+
+		when(noteDAO.getNoteChanges("Jhon123", -1)).thenReturn(new NoteChanges(notes, new ArrayList<Integer>(), 5));
+		String token = noteServiceImpl.getNoteChanges("Jhon123", null).getNextToken();
+		notes.add(note);
+		when(noteDAO.getNoteChanges("Jhon123", 5))
+				.thenReturn(new NoteChanges(notes, new ArrayList<Integer>(Arrays.asList(2, 7)), 8));
+		NoteChanges changes = noteServiceImpl.getNoteChanges("Jhon123", token);
+		assertEquals(1, changes.getNotes().size());
+		assertEquals(Arrays.asList(2, 7), changes.getDeletedNoteIds());
+		assertNotEquals(token, changes.getNextToken());
+		when(noteDAO.getNoteChanges("Jhon123", 8)).thenReturn(new NoteChanges(new ArrayList<Note>(),
+				new ArrayList<Integer>(), 8));
+		assertEquals(changes.getNextToken(),
+				noteServiceImpl.getNoteChanges("Jhon123", changes.getNextToken()).getNextToken());
+
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetNoteChangesWithInvalidToken() throws ChangeTokenExpiredException {
+
+		noteServiceImpl.getNoteChanges("Jhon123", "bjox");
+
+	}
+
+	@Test(expected = ChangeTokenExpiredException.class)
+	public void testGetNoteChangesWithTokenOfTimeBasedFeed() throws ChangeTokenExpiredException {
+
+		noteServiceImpl.getNoteChanges("Jhon123", java.util.Base64.getUrlEncoder().withoutPadding()
+				.encodeToString("t:1000".getBytes(java.nio.charset.StandardCharsets.UTF_8)));
+
+	}
+
+	@Test(expected = ChangeTokenExpiredException.class)
+	public void testGetNoteChangesWithExpiredToken() throws ChangeTokenExpiredException {
+
+		when(noteDAO.getNoteChanges("Jhon123", -1)).thenReturn(new NoteChanges(notes, new ArrayList<Integer>(), 5));
+		String token = noteServiceImpl.getNoteChanges("Jhon123", null).getNextToken();
+		when(noteDAO.getNoteChanges("Jhon123", 5)).thenThrow(new ChangeTokenExpiredException("expired"));
+		noteServiceImpl.getNoteChanges("Jhon123", token);
+
+	}
+
+	@Test
+	public void testGetNotesByUserIdFilteredPage() {
+
+		NoteFilter filter = new NoteFilter("Active", null, null, null, null);
+		notes.add(note);
+		notes.add(new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), category, reminder, "Jhon123"));
+		when(noteDAO.getNotesByUserIdFiltered("Jhon123", filter, 0, 2)).thenReturn(notes);
+		NotePage page = noteServiceImpl.getNotesByUserId("Jhon123", filter, null, 1);
+		assertEquals(1, page.getNotes().size());
+		assertNotNull(page.getNextCursor());
+		verify(noteDAO, never()).getNotesByUserIdAfter("Jhon123", 0, 2);
+
+	}
+
+	@Test
+	public void testGetNotesByUserIdPageWithNextCursor() {
+
+		notes.add(note);
+		notes.add(new Note(2, "Testing-2", "Testing Service layer", "Active", new Date(), category, reminder, "Jhon123"));
+		notes.add(new Note(3, "Testing-3", "Testing Service layer", "Active", new Date(), category, reminder, "Jhon123"));
+		when(noteDAO.getNotesByUserIdAfter("Jhon123", 0, 3)).thenReturn(notes);
+		NotePage page = noteServiceImpl.getNotesByUserId("Jhon123", null, 2);
+		assertEquals(2, page.getNotes().size());
+		assertNotNull(page.getNextCursor());
+
+		when(noteDAO.getNotesByUserIdAfter("Jhon123", 2, 3)).thenReturn(notes.subList(2, 3));
+		NotePage nextPage = noteServiceImpl.getNotesByUserId("Jhon123", page.getNextCursor(), 2);
+		assertEquals(1, nextPage.getNotes().size());
+		assertEquals("Testing-3", nextPage.getNotes().get(0).getNoteTitle());
+		assertNull(nextPage.getNextCursor());
+		verify(noteDAO, times(1)).getNotesByUserIdAfter("Jhon123", 2, 3);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetNotesByUserIdInvalidCursor() {
+		noteServiceImpl.getNotesByUserId("Jhon123", "not-a-cursor", 2);
+	}
+
+	@Test
+	public void testStreamNotesByUserId() {
+		List<Note> streamed = new ArrayList<Note>();
+		noteServiceImpl.streamNotesByUserId("Jhon123", streamed::add);
+		verify(noteDAO, times(1)).streamNotesByUserId(eq("Jhon123"), any());
+	}
+
+	@Test
+	public void testSearchNotesKeepsIndexInSync()
+			throws ReminderNotFoundException, CategoryNotFoundException, NoteNotFoundException {
+
+		notes.add(note);
+		when(noteDAO.getAllNotesByUserId("Jhon123")).thenReturn(notes);
+		List<NoteSearchResult> results = noteServiceImpl.searchNotes("Jhon123", "service", 10);
+		assertEquals(1, results.size());
+
+		Note newNote = new Note(2, "Another", "Service layer again", "Active", new Date(), null, null, "Jhon123");
+		when(noteDAO.createNote(newNote)).thenReturn(true);
+		noteServiceImpl.createNote(newNote);
+		when(noteDAO.deleteNote(1)).thenReturn(true);
+		noteServiceImpl.deleteNote(1);
+		results = noteServiceImpl.searchNotes("Jhon123", "service", 10);
+		assertEquals(1, results.size());
+		assertEquals(2, results.get(0).getNoteId());
+		verify(noteDAO, times(1)).getAllNotesByUserId("Jhon123");
+	}
+
 	@Test
 	public void testGetNoteByIdSuccess() throws NoteNotFoundException {
 		when(noteDAO.getNoteById(note.getNoteId())).thenReturn(note);
@@ -182,7 +423,7 @@ public class NoteServiceImplTest {
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
 		verify(categoryDAO, times(1)).getCategoryById(category.getCategoryId());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 		verify(reminderDAO, times(1)).getReminderById(1);
 	}
@@ -200,7 +441,7 @@ public class NoteServiceImplTest {
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
 		verify(categoryDAO, times(1)).getCategoryById(category.getCategoryId());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 
 	}
@@ -217,7 +458,7 @@ public class NoteServiceImplTest {
 		when(noteDAO.UpdateNote(note)).thenReturn(true);
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 		verify(reminderDAO, times(1)).getReminderById(1);
 	}
@@ -235,7 +476,7 @@ public class NoteServiceImplTest {
 		when(noteDAO.UpdateNote(note)).thenReturn(true);
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 		assertEquals("Testing updateNote()", updatedNote.getNoteContent());
-		verify(noteDAO, times(1)).getNoteById(1);
+		verify(noteDAO, never()).getNoteById(1);
 		verify(noteDAO, times(1)).UpdateNote(note);
 
 	}
@@ -248,10 +489,173 @@ public class NoteServiceImplTest {
 		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
 		when(categoryDAO.getCategoryById(1)).thenReturn(category);
 		when(noteDAO.getNoteById(1)).thenThrow(NoteNotFoundException.class);
-		when(noteDAO.UpdateNote(note)).thenReturn(true);
+		when(noteDAO.UpdateNote(note)).thenThrow(new ObjectOptimisticLockingFailureException(Note.class, 1));
 		@SuppressWarnings("unused")
 		Note updatedNote = noteServiceImpl.updateNote(note, 1);
 
 	}
 
+	@Test
+	public void testUpdateNoteOfOtherUserFailure()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+
+		note.setCreatedBy("Mary123");
+		note.setCategory(null);
+		note.setReminder(null);
+		String tag = userVersionRegistry.getTag("Jhon123");
+		when(noteDAO.UpdateNote(note)).thenReturn(false);
+		try {
+			noteServiceImpl.updateNote(note, 1);
+			fail("NoteNotFoundException expected");
+		} catch (NoteNotFoundException e) {
+			verify(noteSearchIndex, never()).index(note);
+			assertEquals(tag, userVersionRegistry.getTag("Jhon123"));
+		}
+	}
+
+	@Test
+	public void testPatchNoteChangesOnlyGivenFields()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+
+		when(noteDAO.patchNote(eq(1), eq("Jhon123"), any())).thenAnswer(invocation -> {
+			Consumer<Note> changes = invocation.getArgument(2);
+			changes.accept(note);
+			return note;
+		});
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("noteStatus", "Done");
+		Note patchedNote = noteServiceImpl.patchNote(1, "Jhon123", fields);
+		assertEquals("Done", patchedNote.getNoteStatus());
+		assertEquals("Testing Service layer", patchedNote.getNoteContent());
+		assertEquals(category, patchedNote.getCategory());
+		verify(categoryDAO, never()).getCategoryById(anyInt());
+	}
+
+	@Test
+	public void testPatchNoteReplacesCategoryById()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+
+		Category otherCategory = new Category(2, "Spring", "Testing in spring", new Date(), "Jhon123", null);
+		when(categoryDAO.getCategoryById(2)).thenReturn(otherCategory);
+		when(noteDAO.patchNote(eq(1), eq("Jhon123"), any())).thenAnswer(invocation -> {
+			Consumer<Note> changes = invocation.getArgument(2);
+			changes.accept(note);
+			return note;
+		});
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("category", Collections.singletonMap("categoryId", 2));
+		fields.put("reminder", null);
+		Note patchedNote = noteServiceImpl.patchNote(1, "Jhon123", fields);
+		assertEquals(otherCategory, patchedNote.getCategory());
+		assertNull(patchedNote.getReminder());
+	}
+
+	@Test
+	public void testPatchNoteRejectsCategoryOfOtherUser()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+
+		Category otherUsersCategory = new Category(2, "Spring", "Testing in spring", new Date(), "Mary123", null);
+		when(categoryDAO.getCategoryById(2)).thenReturn(otherUsersCategory);
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("category", Collections.singletonMap("categoryId", 2));
+		try {
+			noteServiceImpl.patchNote(1, "Jhon123", fields);
+			fail("CategoryNotFoundException expected");
+		} catch (CategoryNotFoundException e) {
+			verify(noteDAO, never()).patchNote(anyInt(), any(), any());
+		}
+	}
+
+	@Test
+	public void testPatchNoteRejectsReminderOfOtherUser()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+
+		Reminder otherUsersReminder = new Reminder(2, "Email reminder", "daily reminder", "Active", "Mary123", null,
+				new Date());
+		when(reminderDAO.getReminderById(2)).thenReturn(otherUsersReminder);
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("reminder", Collections.singletonMap("reminderId", 2));
+		try {
+			noteServiceImpl.patchNote(1, "Jhon123", fields);
+			fail("ReminderNotFoundException expected");
+		} catch (ReminderNotFoundException e) {
+			verify(noteDAO, never()).patchNote(anyInt(), any(), any());
+		}
+	}
+
+	@Test
+	public void testUpdateNoteRejectsCategoryOfOtherUser()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+
+		category.setCategoryCreatedBy("Mary123");
+		when(reminderDAO.getReminderById(1)).thenReturn(reminder);
+		when(categoryDAO.getCategoryById(1)).thenReturn(category);
+		try {
+			noteServiceImpl.updateNote(note, 1);
+			fail("CategoryNotFoundException expected");
+		} catch (CategoryNotFoundException e) {
+			verify(noteDAO, never()).UpdateNote(any());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPatchNoteRejectsReadOnlyField()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("createdBy", "Mary123");
+		try {
+			noteServiceImpl.patchNote(1, "Jhon123", fields);
+		} finally {
+			verify(noteDAO, never()).patchNote(anyInt(), any(), any());
+		}
+	}
+
+	@Test
+	public void testVersionTagChangesOnlyForWritingUser()
+			throws ReminderNotFoundException, CategoryNotFoundException {
+
+		String tag = noteServiceImpl.getVersionTag("Jhon123");
+		String otherTag = noteServiceImpl.getVersionTag("Mary123");
+		assertEquals(tag, noteServiceImpl.getVersionTag("Jhon123"));
+		when(noteDAO.createNote(note)).thenReturn(true);
+		noteServiceImpl.createNote(note);
+		assertNotEquals(tag, noteServiceImpl.getVersionTag("Jhon123"));
+		assertEquals(otherTag, noteServiceImpl.getVersionTag("Mary123"));
+	}
+
+	@Test
+	public void testVersionTagUnchangedWhenDeleteFails() {
+
+		String tag = noteServiceImpl.getVersionTag("Jhon123");
+		when(noteDAO.deleteNote(1, "Jhon123")).thenReturn(false);
+		noteServiceImpl.deleteNote(1, "Jhon123");
+		assertEquals(tag, noteServiceImpl.getVersionTag("Jhon123"));
+	}
+
+	@Test(expected = OptimisticLockingFailureException.class)
+	public void testUpdateNoteConflict()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+
+		when(noteDAO.getNoteById(1)).thenReturn(note);
+		when(noteDAO.UpdateNote(note)).thenThrow(new ObjectOptimisticLockingFailureException(Note.class, 1));
+		noteServiceImpl.updateNote(note, 1);
+	}
+
+	@Test(expected = OptimisticLockingFailureException.class)
+	public void testPatchNoteWithStaleVersion()
+			throws ReminderNotFoundException, NoteNotFoundException, CategoryNotFoundException {
+
+		note.setVersion(3);
+		when(noteDAO.patchNote(eq(1), eq("Jhon123"), any())).thenAnswer(invocation -> {
+			Consumer<Note> changes = invocation.getArgument(2);
+			changes.accept(note);
+			return note;
+		});
+		Map<String, Object> fields = new HashMap<String, Object>();
+		fields.put("noteStatus", "Done");
+		fields.put("version", 2);
+		noteServiceImpl.patchNote(1, "Jhon123", fields);
+	}
+
 }
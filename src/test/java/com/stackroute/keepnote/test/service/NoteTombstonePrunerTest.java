@@ -0,0 +1,47 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.dao.NoteDAO;
+import com.stackroute.keepnote.service.NoteTombstonePruner;
+
+public class NoteTombstonePrunerTest {
+
+	private NoteDAO noteDAO;
+	private NoteTombstonePruner noteTombstonePruner;
+
+	@Before
+	public void setUp() {
+		noteDAO = mock(NoteDAO.class);
+		noteTombstonePruner = new NoteTombstonePruner(noteDAO, 30);
+	}
+
+	@Test
+	public void testPruneTombstonesRunsUntilBatchIsShort() {
+		when(noteDAO.pruneTombstonesOlderThan(anyLong(), anyInt())).thenReturn(500, 500, 12);
+		assertEquals(1012, noteTombstonePruner.pruneTombstones());
+		verify(noteDAO, times(3)).pruneTombstonesOlderThan(anyLong(), anyInt());
+	}
+
+	@Test
+	public void testPruneTombstonesKeepsRetention() {
+		long before = System.currentTimeMillis();
+		when(noteDAO.pruneTombstonesOlderThan(anyLong(), anyInt())).thenAnswer(invocation -> {
+			long cutoff = invocation.getArgument(0);
+			assertTrue(cutoff <= before - 30L * 24 * 60 * 60 * 1000 + 1000);
+			assertTrue(cutoff >= before - 30L * 24 * 60 * 60 * 1000);
+			return 0;
+		});
+		assertEquals(0, noteTombstonePruner.pruneTombstones());
+	}
+
+}
@@ -0,0 +1,124 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.stackroute.keepnote.dao.NotificationDAO;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.model.ReminderNotification;
+import com.stackroute.keepnote.service.NotificationDispatcher;
+import com.stackroute.keepnote.service.NotificationSink;
+
+public class NotificationDispatcherTest {
+
+	private NotificationDAO notificationDAO;
+	private Set<Integer> delivered;
+	private Set<Integer> failing;
+	private NotificationDispatcher notificationDispatcher;
+
+	@Before
+	public void setUp() {
+		notificationDAO = mock(NotificationDAO.class);
+		delivered = ConcurrentHashMap.newKeySet();
+		failing = ConcurrentHashMap.newKeySet();
+		NotificationSink notificationSink = notification -> {
+			if (failing.contains(notification.getNotificationId()))
+				throw new IOException("Gateway unavailable");
+			delivered.add(notification.getNotificationId());
+		};
+		notificationDispatcher = new NotificationDispatcher(notificationDAO, notificationSink, 4, 10, 3, 1000, 1000);
+	}
+
+	@After
+	public void tearDown() {
+		notificationDispatcher.close();
+	}
+
+	private List<ReminderNotification> notifications(int first, int count, int attempts) {
+		List<ReminderNotification> notifications = new ArrayList<ReminderNotification>();
+		for (int i = first; i < first + count; i++) {
+			Reminder reminder = new Reminder(i, "Email", "Email reminder", "notification", "Jhon123", null,
+					new Date());
+			ReminderNotification notification = new ReminderNotification(reminder, new Date());
+			notification.setNotificationId(i);
+			notification.setAttempts(attempts);
+			notifications.add(notification);
+		}
+		return notifications;
+	}
+
+	@Test
+	public void testDispatchDrainsOutboxInBatches() {
+		when(notificationDAO.claimPending(any(Date.class), eq(10), any(Date.class)))
+				.thenReturn(notifications(1, 10, 0), notifications(11, 3, 0));
+		assertEquals(13, notificationDispatcher.dispatch());
+		assertEquals(13, delivered.size());
+		verify(notificationDAO, times(2)).claimPending(any(Date.class), eq(10), any(Date.class));
+		verify(notificationDAO, times(13)).markDelivered(anyInt(), any(Date.class));
+	}
+
+	@Test
+	public void testFailedDeliveryIsRetriedWithBackoff() {
+		failing.add(2);
+		when(notificationDAO.claimPending(any(Date.class), eq(10), any(Date.class)))
+				.thenReturn(notifications(1, 2, 1));
+		long before = System.currentTimeMillis();
+		assertEquals(1, notificationDispatcher.dispatch());
+		verify(notificationDAO).markDelivered(eq(1), any(Date.class));
+		verify(notificationDAO, never()).markDelivered(eq(2), any(Date.class));
+		ArgumentCaptor<Date> nextAttemptAt = ArgumentCaptor.forClass(Date.class);
+		verify(notificationDAO).markFailed(eq(2), nextAttemptAt.capture(), anyString());
+		assertTrue(nextAttemptAt.getValue().getTime() >= before + 2000);
+	}
+
+	@Test
+	public void testNotificationIsGivenUpAfterMaxAttempts() {
+		failing.add(1);
+		when(notificationDAO.claimPending(any(Date.class), eq(10), any(Date.class)))
+				.thenReturn(notifications(1, 1, 2));
+		assertEquals(0, notificationDispatcher.dispatch());
+		verify(notificationDAO).markFailed(eq(1), isNull(), anyString());
+	}
+
+	@Test
+	public void testDispatchStopsWhenOutboxCannotBeRead() {
+		when(notificationDAO.claimPending(any(Date.class), eq(10), any(Date.class)))
+				.thenThrow(new QueryTimeoutException("Lock wait timeout exceeded"));
+		assertEquals(0, notificationDispatcher.dispatch());
+		assertTrue(delivered.isEmpty());
+	}
+
+	@Test
+	public void testDispatchSurvivesTransactionFailure() {
+		when(notificationDAO.claimPending(any(Date.class), eq(10), any(Date.class)))
+				.thenThrow(new CannotCreateTransactionException("Could not open Hibernate Session for transaction"))
+				.thenReturn(notifications(1, 2, 0));
+		assertEquals(0, notificationDispatcher.dispatch());
+		assertEquals(2, notificationDispatcher.dispatch());
+		assertEquals(2, delivered.size());
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import com.stackroute.keepnote.dao.ReminderDAO;
+import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.service.ReminderScheduler;
+import com.stackroute.keepnote.service.UserVersionRegistry;
+
+public class ReminderSchedulerTest {
+
+	private static final long HORIZON = 60 * 60 * 1000;
+
+	private ReminderDAO reminderDAO;
+	private UserVersionRegistry userVersionRegistry;
+	private ReminderScheduler reminderScheduler;
+	private List<Date[]> loads;
+	private Answer<Object> streamPendingReminders;
+	private long now;
+
+	@Before
+	public void setUp() {
+		reminderDAO = mock(ReminderDAO.class);
+		userVersionRegistry = new UserVersionRegistry();
+		reminderScheduler = new ReminderScheduler(reminderDAO, userVersionRegistry, 1000, HORIZON);
+		loads = new ArrayList<Date[]>();
+		streamPendingReminders = invocation -> {
+			Date from = invocation.getArgument(0);
+			Date until = invocation.getArgument(1);
+			loads.add(new Date[] { from, until });
+			BiConsumer<Integer, Date> consumer = invocation.getArgument(2);
+			if (from.getTime() == 0) {
+				consumer.accept(1, new Date(until.getTime() - HORIZON - 60000));
+				consumer.accept(2, new Date(until.getTime() - HORIZON + 5000));
+			}
+			return null;
+		};
+		doAnswer(streamPendingReminders).when(reminderDAO).streamPendingReminders(any(Date.class), any(Date.class),
+				any());
+		when(reminderDAO.fireReminders(anyCollection(), any(Date.class))).thenAnswer(invocation -> {
+			List<Reminder> reminders = new ArrayList<Reminder>();
+			for (Integer reminderId : (Collection<Integer>) invocation.getArgument(0))
+				reminders.add(reminder(reminderId, null));
+			return reminders;
+		});
+		now = System.currentTimeMillis();
+		reminderScheduler.start();
+		/* the ticks are driven by the tests */
+		reminderScheduler.close();
+	}
+
+	@After
+	public void tearDown() {
+		reminderScheduler.close();
+	}
+
+	private static Reminder reminder(int reminderId, Date dueAt) {
+		Reminder reminder = new Reminder(reminderId, "Email", "Email reminder", "notification", "Jhon123", null,
+				new Date());
+		reminder.setDueAt(dueAt);
+		return reminder;
+	}
+
+	@Test
+	public void testStartLoadsPendingRemindersOfHorizon() {
+		assertEquals(1, loads.size());
+		assertEquals(0, loads.get(0)[0].getTime());
+		assertTrue(loads.get(0)[1].getTime() >= now + HORIZON);
+		assertEquals(2, reminderScheduler.size());
+	}
+
+	@Test
+	public void testTickFiresDueReminders() {
+		String tag = userVersionRegistry.getTag("Jhon123");
+		assertEquals(1, reminderScheduler.tick(now + 1000));
+		assertEquals(1, reminderScheduler.size());
+		assertEquals(1, reminderScheduler.tick(now + 7000));
+		assertEquals(0, reminderScheduler.size());
+		verify(reminderDAO, times(2)).fireReminders(anyCollection(), any(Date.class));
+		assertNotEquals(tag, userVersionRegistry.getTag("Jhon123"));
+	}
+
+	@Test
+	public void testScheduleFollowsChangedReminders() {
+		reminderScheduler.schedule(reminder(3, new Date(now + 30000)));
+		reminderScheduler.schedule(reminder(4, new Date(now + 2 * HORIZON)));
+		reminderScheduler.schedule(reminder(2, null));
+		assertEquals(2, reminderScheduler.size());
+		reminderScheduler.cancel(1);
+		assertEquals(1, reminderScheduler.size());
+		assertEquals(1, reminderScheduler.tick(now + 31000));
+	}
+
+	@Test
+	public void testFailedFireIsRetried() {
+		when(reminderDAO.fireReminders(anyCollection(), any(Date.class)))
+				.thenThrow(new QueryTimeoutException("Lock wait timeout exceeded"));
+		assertEquals(0, reminderScheduler.tick(now + 1000));
+		assertEquals(2, reminderScheduler.size());
+	}
+
+	@Test
+	public void testFireSurvivesTransactionFailure() {
+		when(reminderDAO.fireReminders(anyCollection(), any(Date.class)))
+				.thenThrow(new CannotCreateTransactionException("Could not open Hibernate Session for transaction"));
+		assertEquals(0, reminderScheduler.tick(now + 1000));
+		assertEquals(2, reminderScheduler.size());
+	}
+
+	@Test
+	public void testFailedReadIsRetriedOnNextTick() {
+		doThrow(new CannotCreateTransactionException("Could not open Hibernate Session for transaction"))
+				.doNothing().when(reminderDAO).streamPendingReminders(any(Date.class), any(Date.class), any());
+		assertEquals(2, reminderScheduler.tick(now + HORIZON * 3 / 4));
+		reminderScheduler.tick(now + HORIZON * 3 / 4 + 1000);
+		verify(reminderDAO, times(3)).streamPendingReminders(any(Date.class), any(Date.class), any());
+	}
+
+	@Test
+	public void testFailedStartReadsOverdueRemindersOnNextTick() {
+		ReminderScheduler failedStart = new ReminderScheduler(reminderDAO, userVersionRegistry, 1000, HORIZON);
+		doThrow(new CannotCreateTransactionException("Could not open Hibernate Session for transaction"))
+				.doAnswer(streamPendingReminders).when(reminderDAO).streamPendingReminders(any(Date.class), any(Date.class), any());
+		failedStart.start();
+		failedStart.close();
+		assertEquals(0, failedStart.size());
+		loads.clear();
+		failedStart.tick(now + 1000);
+		assertEquals(1, loads.size());
+		assertEquals(0, loads.get(0)[0].getTime());
+		assertEquals(2, failedStart.size());
+	}
+
+	@Test
+	public void testTickReadsNextPartOfHorizon() {
+		reminderScheduler.tick(now + HORIZON / 4);
+		assertEquals(1, loads.size());
+		reminderScheduler.tick(now + HORIZON * 3 / 4);
+		assertEquals(2, loads.size());
+		assertEquals(loads.get(0)[1], loads.get(1)[0]);
+		assertTrue(loads.get(1)[1].getTime() >= now + HORIZON * 7 / 4);
+	}
+
+}
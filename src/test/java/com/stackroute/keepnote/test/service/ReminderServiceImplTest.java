@@ -1,28 +1,41 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.function.Consumer;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.mockito.Spy;
 
 import com.stackroute.keepnote.dao.ReminderDAO;
 import com.stackroute.keepnote.exception.ReminderNotFoundException;
 import com.stackroute.keepnote.model.Reminder;
+import com.stackroute.keepnote.service.ReminderScheduler;
 import com.stackroute.keepnote.service.ReminderServiceImpl;
+import com.stackroute.keepnote.service.UserVersionRegistry;
 
 public class ReminderServiceImplTest {
 
 	@Mock
 	ReminderDAO reminderDAO;
+	@Mock
+	ReminderScheduler reminderScheduler;
+	@Spy
+	UserVersionRegistry userVersionRegistry = new UserVersionRegistry();
 	@InjectMocks
 	ReminderServiceImpl reminderServiceImpl;
 	private Reminder reminder = null;
@@ -62,7 +75,7 @@ public class ReminderServiceImplTest {
 		@SuppressWarnings("unused")
 		Reminder updatedReminder = reminderServiceImpl.updateReminder(reminder, 1);
 		assertEquals("Notification Reminder", reminder.getReminderDescription());
-		verify(reminderDAO, times(1)).getReminderById(reminder.getReminderId());
+		verify(reminderDAO, never()).getReminderById(reminder.getReminderId());
 		verify(reminderDAO, times(1)).updateReminder(reminder);
 	}
 
@@ -70,7 +83,8 @@ public class ReminderServiceImplTest {
 	public void testUpdateReminderFailure() throws ReminderNotFoundException {
 
 		when(reminderDAO.getReminderById(reminder.getReminderId())).thenThrow(ReminderNotFoundException.class);
-		when(reminderDAO.updateReminder(reminder)).thenReturn(true);
+		when(reminderDAO.updateReminder(reminder))
+				.thenThrow(new ObjectOptimisticLockingFailureException(Reminder.class, 1));
 		@SuppressWarnings("unused")
 		Reminder updatedReminder = reminderServiceImpl.updateReminder(reminder, 1);
 
@@ -83,6 +97,16 @@ public class ReminderServiceImplTest {
 		boolean status = reminderServiceImpl.deleteReminder(reminder.getReminderId());
 		assertEquals(true, status);
 		verify(reminderDAO, times(1)).deleteReminder(reminder.getReminderId());
+		verify(reminderScheduler, times(1)).cancel(reminder.getReminderId());
+	}
+
+	@Test
+	public void testDeleteReminderOfUser() {
+
+		when(reminderDAO.deleteReminder(reminder.getReminderId(), "Jhon123")).thenReturn(true);
+		assertEquals(true, reminderServiceImpl.deleteReminder(reminder.getReminderId(), "Jhon123"));
+		assertEquals(false, reminderServiceImpl.deleteReminder(reminder.getReminderId(), "Mary123"));
+		verify(reminderDAO, times(1)).deleteReminder(reminder.getReminderId(), "Jhon123");
 	}
 
 	@Test
@@ -114,4 +138,29 @@ public class ReminderServiceImplTest {
 		assertEquals(allReminder, reminders);
 	}
 
+	@Test
+	public void testPatchReminderSuccess() throws ReminderNotFoundException {
+		when(reminderDAO.patchReminder(eq(1), eq("Jhon123"), any())).thenAnswer(invocation -> {
+			Consumer<Reminder> changes = invocation.getArgument(2);
+			changes.accept(reminder);
+			return reminder;
+		});
+		Reminder patchedReminder = reminderServiceImpl.patchReminder(1, "Jhon123",
+				Collections.singletonMap("reminderType", "weekly"));
+		assertEquals("weekly", patchedReminder.getReminderType());
+	}
+
+	@Test
+	public void testPatchReminderDueAt() throws ReminderNotFoundException {
+		when(reminderDAO.patchReminder(eq(1), eq("Jhon123"), any())).thenAnswer(invocation -> {
+			Consumer<Reminder> changes = invocation.getArgument(2);
+			changes.accept(reminder);
+			return reminder;
+		});
+		Reminder patchedReminder = reminderServiceImpl.patchReminder(1, "Jhon123",
+				Collections.singletonMap("dueAt", 1893456000000L));
+		assertEquals(new Date(1893456000000L), patchedReminder.getDueAt());
+		verify(reminderScheduler, times(1)).schedule(reminder);
+	}
+
 }
@@ -0,0 +1,90 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stackroute.keepnote.service.TimingWheel;
+
+public class TimingWheelTest {
+
+	private static final long START = 1000000;
+
+	private TimingWheel wheel;
+
+	@Before
+	public void setUp() {
+		wheel = new TimingWheel(10, START);
+	}
+
+	private static List<Integer> ids(List<TimingWheel.Timer> timers) {
+		List<Integer> ids = new ArrayList<Integer>();
+		for (TimingWheel.Timer timer : timers)
+			ids.add(timer.getId());
+		return ids;
+	}
+
+	@Test
+	public void testAdvanceFiresOnlyExpiredTimers() {
+		wheel.schedule(1, START + 50);
+		wheel.schedule(2, START + 55);
+		assertTrue(wheel.advance(START + 40).isEmpty());
+		assertEquals(2, wheel.size());
+		assertEquals(1, wheel.advance(START + 50).size());
+		List<TimingWheel.Timer> expired = wheel.advance(START + 60);
+		assertEquals(1, expired.size());
+		assertEquals(2, expired.get(0).getId());
+		assertEquals(START + 55, expired.get(0).getDeadlineMillis());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testTimersCascadeAcrossLevels() {
+		long[] deadlines = { 640, 650, 6400, 41000, 409600, 2621440, 26214400 };
+		for (int id = 0; id < deadlines.length; id++)
+			wheel.schedule(id, START + deadlines[id]);
+		for (int id = 0; id < deadlines.length; id++) {
+			assertTrue(ids(wheel.advance(START + deadlines[id] - 10)).isEmpty());
+			assertEquals(id, (int) ids(wheel.advance(START + deadlines[id])).get(0));
+		}
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void testAdvanceReturnsTimersInDeadlineOrder() {
+		wheel.schedule(3, START + 30000);
+		wheel.schedule(1, START + 20);
+		wheel.schedule(2, START + 700);
+		List<Integer> expired = ids(wheel.advance(START + 40000));
+		assertEquals(3, expired.size());
+		assertEquals(1, (int) expired.get(0));
+		assertEquals(2, (int) expired.get(1));
+		assertEquals(3, (int) expired.get(2));
+	}
+
+	@Test
+	public void testCancelAndReschedule() {
+		wheel.schedule(1, START + 100);
+		wheel.schedule(2, START + 100);
+		assertTrue(wheel.cancel(1));
+		assertFalse(wheel.cancel(1));
+		wheel.schedule(2, START + 5000);
+		assertTrue(wheel.advance(START + 1000).isEmpty());
+		assertTrue(wheel.contains(2));
+		assertEquals(2, (int) ids(wheel.advance(START + 5000)).get(0));
+	}
+
+	@Test
+	public void testOverdueTimerFiresOnNextAdvance() {
+		wheel.advance(START + 100);
+		wheel.schedule(1, START + 20);
+		List<Integer> expired = ids(wheel.advance(START + 100));
+		assertEquals(1, expired.size());
+		assertEquals(1, (int) expired.get(0));
+	}
+
+}
@@ -1,11 +1,16 @@
 package com.stackroute.keepnote.test.service;
 
 import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Collections;
 import java.util.Date;
+import java.util.function.Consumer;
 
 import org.junit.After;
 import org.junit.Before;
@@ -13,16 +18,19 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
 import com.stackroute.keepnote.dao.UserDAO;
 import com.stackroute.keepnote.exception.UserAlreadyExistException;
 import com.stackroute.keepnote.exception.UserNotFoundException;
 import com.stackroute.keepnote.model.User;
+import com.stackroute.keepnote.service.DeletionJobService;
 import com.stackroute.keepnote.service.UserServiceImpl;
 
 public class UserServiceImplTest {
 
 	@Mock private UserDAO userDAO;
+	@Mock private DeletionJobService deletionJobService;
 	@InjectMocks UserServiceImpl userServiceImpl;
      
 	private User user;
@@ -64,7 +72,7 @@ public class UserServiceImplTest {
 		when(userDAO.updateUser(user)).thenReturn(true);
 		User updatedUser = userServiceImpl.updateUser(user, "Jhon123");
 		assertEquals("777777777", updatedUser.getUserMobile());
-		verify(userDAO, times(1)).getUserById(user.getUserId());
+		verify(userDAO, never()).getUserById(user.getUserId());
 		verify(userDAO, times(1)).updateUser(user);
 	}
 
@@ -72,7 +80,7 @@ public class UserServiceImplTest {
 	public void testUpdateUserFailure() throws Exception {
 
 		when(userDAO.getUserById("Jhon123")).thenReturn(null);
-		when(userDAO.updateUser(user)).thenReturn(true);
+		when(userDAO.updateUser(user)).thenThrow(new ObjectOptimisticLockingFailureException(User.class, "Jhon123"));
 		@SuppressWarnings("unused")
 		User updatedUser = userServiceImpl.updateUser(user, "Jhon123");
 
@@ -123,6 +131,7 @@ public class UserServiceImplTest {
 		boolean status = userServiceImpl.deleteUser("Jhon123");
 		assertEquals(true, status);
 		verify(userDAO, times(1)).deleteUser("Jhon123");
+		verify(deletionJobService, times(1)).runPendingJobs();
 	}
 
 	@Test
@@ -133,4 +142,20 @@ public class UserServiceImplTest {
 		verify(userDAO, times(1)).deleteUser("Jhon123");
 	}
 
+	@Test
+	public void testPatchUserSuccess() throws UserNotFoundException {
+		when(userDAO.patchUser(eq("Jhon123"), any())).thenAnswer(invocation -> {
+			Consumer<User> changes = invocation.getArgument(1);
+			changes.accept(user);
+			return user;
+		});
+		User patchedUser = userServiceImpl.patchUser("Jhon123", Collections.singletonMap("userMobile", "777777777"));
+		assertEquals("777777777", patchedUser.getUserMobile());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testPatchUserFailure() throws UserNotFoundException {
+		userServiceImpl.patchUser("Jhon123", Collections.singletonMap("userId", "Mary123"));
+	}
+
 }
@@ -0,0 +1,48 @@
+package com.stackroute.keepnote.test.service;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.CannotAcquireLockException;
+
+import com.stackroute.keepnote.dao.UserStatsDAO;
+import com.stackroute.keepnote.model.UserStats;
+import com.stackroute.keepnote.service.UserStatsServiceImpl;
+
+public class UserStatsServiceImplTest {
+
+	@Mock
+	UserStatsDAO userStatsDAO;
+	@InjectMocks
+	UserStatsServiceImpl userStatsServiceImpl;
+
+	@Before
+	public void setUp() throws Exception {
+		MockitoAnnotations.initMocks(this);
+	}
+
+	@Test
+	public void testGetUserStats() {
+		UserStats stats = new UserStats("Jhon123", 3, 1, 2);
+		when(userStatsDAO.getUserStats("Jhon123")).thenReturn(stats);
+		assertEquals(3, userStatsServiceImpl.getUserStats("Jhon123").getNoteCount());
+	}
+
+	@Test
+	public void testRebuildAllUserStatsContinuesAfterFailure() {
+		when(userStatsDAO.getUserIds()).thenReturn(Arrays.asList("Jhon123", "Mary123", "Ravi123"));
+		when(userStatsDAO.rebuildUserStats("Mary123")).thenThrow(new CannotAcquireLockException("Deadlock"));
+		assertEquals(2, userStatsServiceImpl.rebuildAllUserStats());
+		verify(userStatsDAO).rebuildUserStats("Jhon123");
+		verify(userStatsDAO).rebuildUserStats("Ravi123");
+	}
+
+}